@@ -0,0 +1,65 @@
+package org.fsj.lock.benchmark;
+
+import org.fsj.lock.benchmark.support.BenchmarkJoinPoint;
+import org.fsj.lock.benchmark.support.OrderService;
+import org.fsj.lock.manager.LockAnnotation;
+import org.fsj.lock.manager.factory.ReentrantLockFactory;
+import org.fsj.lock.manager.interceptor.DistributedLockInterceptor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 所有线程争抢同一个key（持有1ms）时每次调用的耗时分布
+ *
+ * <p>
+ * 不限制时每个调用都要排在所有本地等待者之后，耗时随线程数线性增长；
+ * maxWaiters=2时超出的调用立即降级，成功的调用最多等待两个持有时间，尾延迟有界。
+ * 线程数由运行参数决定，见{@link LockBenchmarkRunner}。
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AdmissionBenchmark {
+
+    @Param({"false", "true"})
+    public boolean limited;
+
+    private DistributedLockInterceptor interceptor;
+
+    private BenchmarkJoinPoint joinPoint;
+
+    private LockAnnotation annotation;
+
+    @Setup
+    public void setUp() {
+        OrderService orderService = new OrderService();
+        interceptor = new DistributedLockInterceptor(new ReentrantLockFactory(false));
+        Method method = limited ? OrderService.method("deductLimited", Long.class)
+                : OrderService.method("deduct", Long.class);
+        annotation = method.getAnnotation(LockAnnotation.class);
+        joinPoint = new BenchmarkJoinPoint(orderService, method, new Object[]{10086L}, limited
+                ? args -> orderService.deductLimited((Long) args[0])
+                : args -> orderService.deduct((Long) args[0]));
+    }
+
+    @Benchmark
+    public Object deduct() throws Throwable {
+        return interceptor.lockAround(joinPoint, annotation);
+    }
+}
@@ -0,0 +1,98 @@
+package org.fsj.lock.benchmark;
+
+import org.fsj.lock.benchmark.support.LockServerSupport;
+import org.fsj.lock.benchmark.support.RedisSupport;
+import org.fsj.lock.distributed.client.RemoteLockFactory;
+import org.fsj.lock.manager.factory.LockFactory;
+import org.fsj.lock.manager.factory.RedissonLockFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * 批量加锁：一次脚本获取全部key与逐个获取RLock对比，以及锁服务一次请求获取全部key
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchLockBenchmark {
+
+    @Param({"10", "200"})
+    public int size;
+
+    private RedisSupport redis;
+
+    private RedissonLockFactory lockFactory;
+
+    /**
+     * 只提供单key锁，联锁走LockFactory的默认实现（按顺序逐个获取）
+     */
+    private LockFactory perKeyLockFactory;
+
+    private LockServerSupport lockServer;
+
+    private RemoteLockFactory remoteLockFactory;
+
+    private List<String> lockKeys;
+
+    @Setup
+    public void setUp() {
+        redis = RedisSupport.start();
+        lockFactory = new RedissonLockFactory(redis.newConfig());
+        perKeyLockFactory = lockFactory::getLock;
+        lockServer = LockServerSupport.start();
+        remoteLockFactory = lockServer.newLockFactory();
+        lockKeys = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            lockKeys.add("lock_bench_batch_" + i);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        lockFactory.close();
+        redis.close();
+        remoteLockFactory.close();
+        lockServer.close();
+    }
+
+    @Benchmark
+    public boolean script() throws InterruptedException {
+        return lockUnlock(lockFactory.getMultiLock(lockKeys));
+    }
+
+    @Benchmark
+    public boolean perKey() throws InterruptedException {
+        return lockUnlock(perKeyLockFactory.getMultiLock(lockKeys));
+    }
+
+    @Benchmark
+    public boolean lockServer() throws InterruptedException {
+        return lockUnlock(remoteLockFactory.getMultiLock(lockKeys));
+    }
+
+    private static boolean lockUnlock(Lock lock) throws InterruptedException {
+        boolean locked = lock.tryLock(0, TimeUnit.MILLISECONDS);
+        if (locked) {
+            lock.unlock();
+        }
+        return locked;
+    }
+}
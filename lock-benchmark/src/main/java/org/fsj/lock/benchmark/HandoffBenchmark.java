@@ -0,0 +1,96 @@
+package org.fsj.lock.benchmark;
+
+import org.fsj.lock.benchmark.support.LockServerSupport;
+import org.fsj.lock.benchmark.support.RedisSupport;
+import org.fsj.lock.benchmark.support.ZooKeeperSupport;
+import org.fsj.lock.manager.factory.LockFactory;
+import org.fsj.lock.manager.factory.RedissonLockFactory;
+import org.fsj.lock.manager.factory.ZooKeeperLockFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * 所有线程争抢同一个key时锁的交接吞吐：Redisson vs ZooKeeper vs 锁服务
+ *
+ * <p>
+ * 临界区为空，每次操作都是一次完整的加锁、解锁，吞吐的倒数即一次交接（释放到下一个等待者拿到锁）的平均耗时。
+ * Redisson释放时通过pub/sub唤醒该key的所有等待者重新争抢；ZooKeeper释放时只通知排在后面的一个等待者；
+ * 锁服务在服务端直接把锁交给队首的等待者，只需一次响应。
+ * 线程数由运行参数决定，见{@link LockBenchmarkRunner}。
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HandoffBenchmark {
+
+    private static final String LOCK_KEY = "lock_bench_handoff";
+
+    @Param({"redisson", "zookeeper", "lockServer"})
+    public String factory;
+
+    private RedisSupport redis;
+
+    private ZooKeeperSupport zooKeeper;
+
+    private LockServerSupport lockServer;
+
+    private LockFactory lockFactory;
+
+    @Setup
+    public void setUp() {
+        switch (factory) {
+            case "redisson":
+                redis = RedisSupport.start();
+                lockFactory = new RedissonLockFactory(redis.newConfig());
+                break;
+            case "zookeeper":
+                zooKeeper = ZooKeeperSupport.start();
+                lockFactory = new ZooKeeperLockFactory(zooKeeper.getConnectString());
+                break;
+            case "lockServer":
+                lockServer = LockServerSupport.start();
+                lockFactory = lockServer.newLockFactory();
+                break;
+            default:
+                throw new IllegalArgumentException("unknown factory:" + factory);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        ((AutoCloseable) lockFactory).close();
+        if (redis != null) {
+            redis.close();
+        }
+        if (zooKeeper != null) {
+            zooKeeper.close();
+        }
+        if (lockServer != null) {
+            lockServer.close();
+        }
+    }
+
+    @Benchmark
+    public void handoff() {
+        Lock lock = lockFactory.getLock(LOCK_KEY);
+        lock.lock();
+        lock.unlock();
+    }
+}
@@ -0,0 +1,177 @@
+package org.fsj.lock.benchmark;
+
+import org.fsj.lock.benchmark.support.BenchmarkJoinPoint;
+import org.fsj.lock.benchmark.support.OrderService;
+import org.fsj.lock.benchmark.support.RejectingLockFactory;
+import org.fsj.lock.manager.LockAnnotation;
+import org.fsj.lock.manager.LockFailException;
+import org.fsj.lock.manager.diagnostics.HeldLockRegistry;
+import org.fsj.lock.manager.factory.ReentrantLockFactory;
+import org.fsj.lock.manager.interceptor.DistributedLockInterceptor;
+import org.fsj.lock.manager.interceptor.ReentrantLockInterceptor;
+import org.fsj.lock.manager.journal.LockEventJournal;
+import org.fsj.lock.manager.metrics.LockMetricsRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code AbsLockInterceptor.lockAround}的单次调用开销（本地锁，无竞争）
+ *
+ * <p>
+ * 连接点直接调用方法体，不经过AOP代理；baseline为不加锁直接调用。
+ * 未绑定slf4j实现时日志为NOP，结果不含日志输出的开销。
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InterceptorBenchmark {
+
+    private final OrderService orderService = new OrderService();
+
+    private DistributedLockInterceptor distributedInterceptor;
+
+    private ReentrantLockInterceptor reentrantInterceptor;
+
+    private DistributedLockInterceptor rejectingInterceptor;
+
+    private DistributedLockInterceptor meteredInterceptor;
+
+    private LockEventJournal journal;
+
+    private DistributedLockInterceptor journaledInterceptor;
+
+    private HeldLockRegistry heldLocks;
+
+    private DistributedLockInterceptor heldLocksInterceptor;
+
+    private BenchmarkJoinPoint payJoinPoint;
+
+    private LockAnnotation payAnnotation;
+
+    private BenchmarkJoinPoint submitJoinPoint;
+
+    private LockAnnotation submitAnnotation;
+
+    private BenchmarkJoinPoint fallbackJoinPoint;
+
+    private LockAnnotation fallbackAnnotation;
+
+    @Setup
+    public void setUp() {
+        distributedInterceptor = new DistributedLockInterceptor(new ReentrantLockFactory(false));
+        reentrantInterceptor = new ReentrantLockInterceptor(new ReentrantLockFactory(false));
+        rejectingInterceptor = new DistributedLockInterceptor(new RejectingLockFactory());
+        meteredInterceptor = new DistributedLockInterceptor(new ReentrantLockFactory(false));
+        meteredInterceptor.setLockMetrics(new LockMetricsRegistry());
+        journal = new LockEventJournal(Collections.singletonList(event -> {
+        }));
+        journaledInterceptor = new DistributedLockInterceptor(new ReentrantLockFactory(false));
+        journaledInterceptor.setLockMetrics(journal);
+        heldLocks = new HeldLockRegistry();
+        heldLocksInterceptor = new DistributedLockInterceptor(new ReentrantLockFactory(false));
+        heldLocksInterceptor.setLockMetrics(heldLocks);
+
+        Method pay = OrderService.method("pay", Long.class);
+        payAnnotation = pay.getAnnotation(LockAnnotation.class);
+        payJoinPoint = new BenchmarkJoinPoint(orderService, pay, new Object[]{10086L},
+                args -> orderService.pay((Long) args[0]));
+
+        Method submit = OrderService.method("submit", OrderService.Order.class, String.class);
+        submitAnnotation = submit.getAnnotation(LockAnnotation.class);
+        OrderService.Order order = new OrderService.Order(10086L, new OrderService.User(42L));
+        submitJoinPoint = new BenchmarkJoinPoint(orderService, submit, new Object[]{order, "app"},
+                args -> orderService.submit((OrderService.Order) args[0], (String) args[1]));
+
+        Method payWithFallback = OrderService.method("payWithFallback", Long.class);
+        fallbackAnnotation = payWithFallback.getAnnotation(LockAnnotation.class);
+        fallbackJoinPoint = new BenchmarkJoinPoint(orderService, payWithFallback, new Object[]{10086L},
+                args -> orderService.payWithFallback((Long) args[0]));
+    }
+
+    @TearDown
+    public void tearDown() {
+        journal.close();
+        heldLocks.close();
+    }
+
+    @Benchmark
+    public Object baseline() throws Throwable {
+        return payJoinPoint.proceed();
+    }
+
+    @Benchmark
+    public Object basicKey() throws Throwable {
+        return distributedInterceptor.lockAround(payJoinPoint, payAnnotation);
+    }
+
+    /**
+     * 与basicKey相同，开启内置统计
+     */
+    @Benchmark
+    public Object basicKeyWithMetrics() throws Throwable {
+        return meteredInterceptor.lockAround(payJoinPoint, payAnnotation);
+    }
+
+    /**
+     * 与basicKey相同，开启事件日志（空sink），只计加锁线程写入缓冲区的开销
+     */
+    @Benchmark
+    public Object basicKeyWithJournal() throws Throwable {
+        return journaledInterceptor.lockAround(payJoinPoint, payAnnotation);
+    }
+
+    /**
+     * 与basicKey相同，登记持有者（不采样调用栈）
+     */
+    @Benchmark
+    public Object basicKeyWithHeldLocks() throws Throwable {
+        return heldLocksInterceptor.lockAround(payJoinPoint, payAnnotation);
+    }
+
+    @Benchmark
+    public Object nestedKey() throws Throwable {
+        return distributedInterceptor.lockAround(submitJoinPoint, submitAnnotation);
+    }
+
+    @Benchmark
+    public Object signatureKey() throws Throwable {
+        return reentrantInterceptor.lockAround(payJoinPoint, payAnnotation);
+    }
+
+    /**
+     * 加锁失败，调用降级方法
+     */
+    @Benchmark
+    public Object lockFailFallback() throws Throwable {
+        return rejectingInterceptor.lockAround(fallbackJoinPoint, fallbackAnnotation);
+    }
+
+    /**
+     * 加锁失败，未配置降级方法时抛出LockFailException
+     */
+    @Benchmark
+    public Object lockFailException() throws Throwable {
+        try {
+            return rejectingInterceptor.lockAround(payJoinPoint, payAnnotation);
+        } catch (LockFailException e) {
+            return e;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package org.fsj.lock.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatFactory;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.NoBenchmarksException;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * 基准测试入口，所有结果合并写入一个JSON文件，便于按版本对比
+ *
+ * <p>
+ * 用法：{@code java [-D...] -jar lock-benchmark/target/benchmarks.jar [include正则]}
+ * </p>
+ * <ul>
+ * <li>lock.benchmark.result：结果文件，默认jmh-result.json</li>
+ * <li>lock.benchmark.threads：{@link LockFactoryBenchmark}、{@link ReadWriteLockBenchmark}、{@link HandoffBenchmark}、
+ * {@link ShardedLockBenchmark}、{@link WaitStrategyBenchmark}、{@link SingleFlightBenchmark}、
+ * {@link AdmissionBenchmark}的线程数，默认1,8,64，其余基准单线程运行</li>
+ * <li>lock.benchmark.gc：为true时启用gc profiler，输出每次操作的分配量</li>
+ * <li>lock.benchmark.redis.address / lock.benchmark.redis.port：见{@link org.fsj.lock.benchmark.support.RedisSupport}</li>
+ * <li>lock.benchmark.zk.address：见{@link org.fsj.lock.benchmark.support.ZooKeeperSupport}</li>
+ * <li>lock.benchmark.lockserver.address：见{@link org.fsj.lock.benchmark.support.LockServerSupport}</li>
+ * </ul>
+ * 需要jmh的其他参数时可直接使用{@code java -cp benchmarks.jar org.openjdk.jmh.Main}。
+ */
+public final class LockBenchmarkRunner {
+
+    /**
+     * 按多个线程数运行的基准
+     */
+    private static final Class<?>[] CONTENDED_BENCHMARKS = {LockFactoryBenchmark.class, ReadWriteLockBenchmark.class,
+            HandoffBenchmark.class, ShardedLockBenchmark.class, WaitStrategyBenchmark.class,
+            SingleFlightBenchmark.class, AdmissionBenchmark.class};
+
+    private static final String CONTENDED = Arrays.stream(CONTENDED_BENCHMARKS)
+            .map(benchmark -> Pattern.quote(benchmark.getName()))
+            .collect(Collectors.joining("|", "(", ").*"));
+
+    private LockBenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws RunnerException, FileNotFoundException {
+        String include = args.length > 0 ? args[0] : ".*";
+        List<RunResult> results = new ArrayList<>();
+        results.addAll(run(options(include).exclude(CONTENDED).threads(1)));
+        Pattern includePattern = Pattern.compile(include);
+        for (Class<?> contendedBenchmark : CONTENDED_BENCHMARKS) {
+            if (!includePattern.matcher(contendedBenchmark.getName()).find()) {
+                continue;
+            }
+            String contended = Pattern.quote(contendedBenchmark.getName()) + ".*";
+            for (String threads : System.getProperty("lock.benchmark.threads", "1,8,64").split(",")) {
+                results.addAll(run(options(contended).threads(Integer.parseInt(threads.trim()))));
+            }
+        }
+        File resultFile = new File(System.getProperty("lock.benchmark.result", "jmh-result.json"));
+        try (PrintStream out = new PrintStream(resultFile)) {
+            ResultFormatFactory.getInstance(ResultFormatType.JSON, out).writeOut(results);
+        }
+        System.out.println("benchmark results: " + resultFile.getAbsolutePath());
+    }
+
+    private static ChainedOptionsBuilder options(String include) {
+        ChainedOptionsBuilder builder = new OptionsBuilder().include(include);
+        if (Boolean.getBoolean("lock.benchmark.gc")) {
+            builder.addProfiler(GCProfiler.class);
+        }
+        for (String property : new String[]{"lock.benchmark.redis.address", "lock.benchmark.redis.port",
+                "lock.benchmark.zk.address", "lock.benchmark.lockserver.address"}) {
+            String value = System.getProperty(property);
+            if (value != null) {
+                builder.jvmArgsAppend("-D" + property + "=" + value);
+            }
+        }
+        return builder;
+    }
+
+    private static Collection<RunResult> run(ChainedOptionsBuilder builder) throws RunnerException {
+        try {
+            return new Runner(builder.build()).run();
+        } catch (NoBenchmarksException e) {
+            return new ArrayList<>();
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package org.fsj.lock.benchmark;
+
+import org.fsj.lock.benchmark.support.LockServerSupport;
+import org.fsj.lock.benchmark.support.RedisSupport;
+import org.fsj.lock.distributed.client.RemoteLockFactory;
+import org.fsj.lock.manager.factory.LockFactory;
+import org.fsj.lock.manager.factory.RedissonLockFactory;
+import org.fsj.lock.manager.factory.ReentrantLockFactory;
+import org.fsj.lock.manager.factory.TwoTierLockFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * 锁工厂在竞争下的吞吐：lock -> 少量临界区计算 -> unlock
+ *
+ * <p>
+ * 线程数由运行参数决定（{@link LockBenchmarkRunner}默认依次以1/8/64线程运行，或jmh的-t参数）；
+ * hot为所有线程竞争同一个key，uniform为在{@value #UNIFORM_KEYS}个key上均匀分布。
+ * Redis相关工厂的运行环境见{@link RedisSupport}，锁服务见{@link LockServerSupport}。
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LockFactoryBenchmark {
+
+    static final int UNIFORM_KEYS = 1024;
+
+    /**
+     * 临界区内的计算量，单位为Blackhole.consumeCPU的token
+     */
+    private static final long CRITICAL_SECTION_TOKENS = 64;
+
+    /**
+     * reentrant：引用计数锁表；striped：1024个分段锁；redisson：Redis锁；twoTier：本地排队 + Redis锁（允许移交）；
+     * lockServer：独立锁服务
+     */
+    @Param({"reentrant", "striped", "redisson", "twoTier", "lockServer"})
+    public String factory;
+
+    @Param({"hot", "uniform"})
+    public String distribution;
+
+    private RedisSupport redis;
+
+    private RedissonLockFactory redissonLockFactory;
+
+    private LockServerSupport lockServer;
+
+    private RemoteLockFactory remoteLockFactory;
+
+    private LockFactory lockFactory;
+
+    private String[] lockKeys;
+
+    @Setup
+    public void setUp() {
+        switch (factory) {
+            case "reentrant":
+                lockFactory = new ReentrantLockFactory(false);
+                break;
+            case "striped":
+                lockFactory = new ReentrantLockFactory(false, 1024);
+                break;
+            case "redisson":
+                lockFactory = startRedisson();
+                break;
+            case "twoTier":
+                lockFactory = new TwoTierLockFactory(startRedisson(), false, 50);
+                break;
+            case "lockServer":
+                lockServer = LockServerSupport.start();
+                remoteLockFactory = lockServer.newLockFactory();
+                lockFactory = remoteLockFactory;
+                break;
+            default:
+                throw new IllegalArgumentException("unknown factory:" + factory);
+        }
+        lockKeys = new String[UNIFORM_KEYS];
+        for (int i = 0; i < UNIFORM_KEYS; i++) {
+            lockKeys[i] = "lock_bench_" + i;
+        }
+    }
+
+    private RedissonLockFactory startRedisson() {
+        redis = RedisSupport.start();
+        redissonLockFactory = new RedissonLockFactory(redis.newConfig());
+        return redissonLockFactory;
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (redissonLockFactory != null) {
+            redissonLockFactory.close();
+        }
+        if (redis != null) {
+            redis.close();
+        }
+        if (remoteLockFactory != null) {
+            remoteLockFactory.close();
+        }
+        if (lockServer != null) {
+            lockServer.close();
+        }
+    }
+
+    @Benchmark
+    public void lockUnlock() {
+        String lockKey = "hot".equals(distribution) ? lockKeys[0] : lockKeys[ThreadLocalRandom.current().nextInt(UNIFORM_KEYS)];
+        Lock lock = lockFactory.getLock(lockKey);
+        lock.lock();
+        try {
+            Blackhole.consumeCPU(CRITICAL_SECTION_TOKENS);
+        } finally {
+            lock.unlock();
+        }
+    }
+}
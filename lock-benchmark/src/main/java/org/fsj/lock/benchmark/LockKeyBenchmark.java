@@ -0,0 +1,96 @@
+package org.fsj.lock.benchmark;
+
+import org.fsj.lock.benchmark.support.LegacyLockKeyParser;
+import org.fsj.lock.benchmark.support.OrderService;
+import org.fsj.lock.manager.LockAnnotation;
+import org.fsj.lock.manager.key.LockKeyExtractor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * lockKey生成：预编译的{@link LockKeyExtractor}与原反射解析方式对比
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LockKeyBenchmark {
+
+    /**
+     * basic：单个Long参数；nested：.user.id属性路径 + String参数
+     */
+    @Param({"basic", "nested"})
+    public String keyType;
+
+    private LockAnnotation annotation;
+
+    private LockKeyExtractor extractor;
+
+    private Object[] args;
+
+    private LockKeyExtractor batchExtractor;
+
+    private Object[] batchArgs;
+
+    @Setup
+    public void setUp() {
+        Method method;
+        if ("nested".equals(keyType)) {
+            method = OrderService.method("submit", OrderService.Order.class, String.class);
+            args = new Object[]{new OrderService.Order(10086L, new OrderService.User(42L)), "app"};
+        } else {
+            method = OrderService.method("pay", Long.class);
+            args = new Object[]{10086L};
+        }
+        annotation = method.getAnnotation(LockAnnotation.class);
+        extractor = LockKeyExtractor.compile(method, annotation.lockPrefix(), annotation.keys(), annotation.keyIndexes());
+        String expected = LegacyLockKeyParser.getLockKey(args, annotation.lockPrefix(), annotation.keys(), annotation.keyIndexes());
+        if (!expected.equals(extractor.extract(args))) {
+            throw new IllegalStateException("key mismatch:" + expected + " vs " + extractor.extract(args));
+        }
+
+        Method payAll = OrderService.method("payAll", List.class);
+        LockAnnotation batchAnnotation = payAll.getAnnotation(LockAnnotation.class);
+        batchExtractor = LockKeyExtractor.compile(payAll, batchAnnotation.lockPrefix(), batchAnnotation.keys(),
+                batchAnnotation.keyIndexes(), true);
+        List<Long> orderIds = new ArrayList<>();
+        for (long i = 0; i < 200; i++) {
+            orderIds.add(10000 + i * 7919 % 200);
+        }
+        batchArgs = new Object[]{orderIds};
+    }
+
+    @Benchmark
+    public String legacy() {
+        return LegacyLockKeyParser.getLockKey(args, annotation.lockPrefix(), annotation.keys(), annotation.keyIndexes());
+    }
+
+    @Benchmark
+    public String compiled() {
+        return extractor.extract(args);
+    }
+
+    /**
+     * 批量模式下展开200个元素（排序去重）
+     */
+    @Benchmark
+    public List<String> compiledBatch200() {
+        return batchExtractor.extractAll(batchArgs);
+    }
+}
@@ -0,0 +1,93 @@
+package org.fsj.lock.benchmark;
+
+import org.fsj.lock.benchmark.support.OrderService;
+import org.fsj.lock.benchmark.support.RedisSupport;
+import org.fsj.lock.manager.LockAnnotation;
+import org.fsj.lock.manager.LockKeyEncoding;
+import org.fsj.lock.manager.factory.RedissonLockFactory;
+import org.fsj.lock.manager.key.LockKeyCodecs;
+import org.fsj.lock.manager.key.LockKeyExtractor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * 各lockKey编码的生成开销，以及对Redisson加锁解锁的影响
+ *
+ * <p>
+ * key为雪花id + 仓库 + 租户：PLAIN 79个字符，COMPACT 72个，HASHED 42个（lockPrefix保留）；
+ * 每次加锁、续期、解锁的命令和释放通知的channel名都包含key，Redis中每个锁也以key存储。
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LockKeyEncodingBenchmark {
+
+    @Param({"PLAIN", "COMPACT", "HASHED"})
+    public LockKeyEncoding encoding;
+
+    private LockKeyExtractor extractor;
+
+    private Object[] args;
+
+    @Setup
+    public void setUp() {
+        Method reserve = OrderService.method("reserve", Long.class, String.class, String.class);
+        LockAnnotation annotation = reserve.getAnnotation(LockAnnotation.class);
+        extractor = LockKeyExtractor.compile(reserve, annotation.lockPrefix(), annotation.keys(), annotation.keyIndexes(),
+                false, LockKeyCodecs.of(encoding));
+        args = new Object[]{1428764912567205889L, "warehouse-shanghai-pudong-01", "tenant-acme"};
+    }
+
+    @Benchmark
+    public String extract() {
+        return extractor.extract(args);
+    }
+
+    /**
+     * 生成key后在Redisson上加锁、解锁一次
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void redissonLockUnlock(RedisState redisState) {
+        Lock lock = redisState.lockFactory.getLock(extractor.extract(args));
+        lock.lock();
+        lock.unlock();
+    }
+
+    @State(Scope.Benchmark)
+    public static class RedisState {
+        private RedisSupport redis;
+
+        private RedissonLockFactory lockFactory;
+
+        @Setup
+        public void setUp() {
+            redis = RedisSupport.start();
+            lockFactory = new RedissonLockFactory(redis.newConfig());
+        }
+
+        @TearDown
+        public void tearDown() {
+            lockFactory.close();
+            redis.close();
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package org.fsj.lock.benchmark;
+
+import org.fsj.lock.benchmark.support.BenchmarkJoinPoint;
+import org.fsj.lock.benchmark.support.OrderService;
+import org.fsj.lock.manager.LockAnnotation;
+import org.fsj.lock.manager.entity.LockConfigEntity;
+import org.fsj.lock.manager.factory.LockFactory;
+import org.fsj.lock.manager.factory.ReentrantLockFactory;
+import org.fsj.lock.manager.interceptor.DistributedLockInterceptor;
+import org.fsj.lock.manager.template.LockGuard;
+import org.fsj.lock.manager.template.LockOperation;
+import org.fsj.lock.manager.template.LockTemplate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 同一个key无竞争时注解加锁与{@link LockTemplate}的单次调用开销，配合lock.benchmark.gc查看每次操作的分配量
+ *
+ * <p>
+ * 各方式锁住相同的key（OrderService.pay的key）。striped为分段模式的本地锁，execute应不分配对象，guard只分配一个LockGuard；
+ * refcounted每次加锁创建锁视图和锁表条目，分配量即锁实现本身的分配。
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LockTemplateBenchmark {
+
+    private static final Long ORDER_ID = 10086L;
+
+    private static final Supplier<Long> ACTION = () -> ORDER_ID;
+
+    @Param({"striped", "refcounted"})
+    public String factory;
+
+    private DistributedLockInterceptor interceptor;
+
+    private LockTemplate template;
+
+    private LockOperation operation;
+
+    private String lockKey;
+
+    private BenchmarkJoinPoint joinPoint;
+
+    private LockAnnotation annotation;
+
+    @Setup
+    public void setUp() {
+        LockFactory lockFactory;
+        switch (factory) {
+            case "striped":
+                lockFactory = new ReentrantLockFactory(false, 1024);
+                break;
+            case "refcounted":
+                lockFactory = new ReentrantLockFactory(false);
+                break;
+            default:
+                throw new IllegalArgumentException("unknown factory:" + factory);
+        }
+        interceptor = new DistributedLockInterceptor(lockFactory);
+        template = new LockTemplate(lockFactory);
+        operation = template.operation("pay", new LockConfigEntity().setTimeout(3000));
+        lockKey = operation.key(ORDER_ID);
+
+        OrderService orderService = new OrderService();
+        Method pay = OrderService.method("pay", Long.class);
+        annotation = pay.getAnnotation(LockAnnotation.class);
+        joinPoint = new BenchmarkJoinPoint(orderService, pay, new Object[]{ORDER_ID},
+                args -> orderService.pay((Long) args[0]));
+    }
+
+    @Benchmark
+    public Object annotation() throws Throwable {
+        return interceptor.lockAround(joinPoint, annotation);
+    }
+
+    /**
+     * 预先生成的key
+     */
+    @Benchmark
+    public Long execute() {
+        return template.execute(operation, lockKey, ACTION);
+    }
+
+    /**
+     * 每次调用生成key
+     */
+    @Benchmark
+    public Long executeWithKey() {
+        return template.execute(operation, operation.key(ORDER_ID), ACTION);
+    }
+
+    @Benchmark
+    public String guard() {
+        try (LockGuard guard = template.lock(operation, lockKey)) {
+            return guard.getLockKey();
+        }
+    }
+}
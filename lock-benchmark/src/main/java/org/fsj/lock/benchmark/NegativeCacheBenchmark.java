@@ -0,0 +1,76 @@
+package org.fsj.lock.benchmark;
+
+import org.fsj.lock.benchmark.support.RedisSupport;
+import org.fsj.lock.manager.factory.RedissonLockFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * key被另一个节点持有时，timeout为0的Redisson加锁（必然失败）的耗时
+ *
+ * <p>
+ * 另一个工厂（模拟其他节点）在整个测试期间持有该key；cache=false时每次调用一次网络往返，
+ * cache=true时只有第一次访问Redis，之后由{@link org.fsj.lock.manager.factory.NegativeLockCache}在本地直接失败。
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NegativeCacheBenchmark {
+
+    private static final String LOCK_KEY = "negative_cache_benchmark";
+
+    @Param({"false", "true"})
+    public boolean cache;
+
+    private RedisSupport redis;
+
+    private RedissonLockFactory holderFactory;
+
+    private ExecutorService holderThread;
+
+    private RedissonLockFactory lockFactory;
+
+    @Setup
+    public void setUp() throws Exception {
+        redis = RedisSupport.start();
+        holderFactory = new RedissonLockFactory(redis.newConfig());
+        holderThread = Executors.newSingleThreadExecutor();
+        holderThread.submit(() -> holderFactory.getLock(LOCK_KEY).lock()).get();
+        lockFactory = new RedissonLockFactory(redis.newConfig());
+        if (cache) {
+            lockFactory.enableNegativeCache(TimeUnit.SECONDS.toMillis(10), 10000);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        holderThread.submit(() -> holderFactory.getLock(LOCK_KEY).unlock()).get();
+        holderThread.shutdown();
+        lockFactory.close();
+        holderFactory.close();
+        redis.close();
+    }
+
+    @Benchmark
+    public boolean tryLockHeld() {
+        return lockFactory.getLock(LOCK_KEY).tryLock();
+    }
+}
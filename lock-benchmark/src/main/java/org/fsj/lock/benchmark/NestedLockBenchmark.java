@@ -0,0 +1,103 @@
+package org.fsj.lock.benchmark;
+
+import org.fsj.lock.benchmark.support.BenchmarkJoinPoint;
+import org.fsj.lock.benchmark.support.OrderService;
+import org.fsj.lock.benchmark.support.RedisSupport;
+import org.fsj.lock.manager.LockAnnotation;
+import org.fsj.lock.manager.factory.LockFactory;
+import org.fsj.lock.manager.factory.RedissonLockFactory;
+import org.fsj.lock.manager.factory.ReentrantLockFactory;
+import org.fsj.lock.manager.interceptor.DistributedLockInterceptor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 加锁方法嵌套调用同一个key的加锁方法时，一次最外层调用的耗时
+ *
+ * <p>
+ * 只有最外层访问锁实现，内层在当前线程的已持有锁中命中后直接执行，耗时应与depth基本无关；
+ * 对Redisson即每次调用只有一次加锁、一次解锁的网络往返，而不是每层各一次。
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NestedLockBenchmark {
+
+    @Param({"reentrant", "redisson"})
+    public String factory;
+
+    /**
+     * 嵌套层数，1为不嵌套
+     */
+    @Param({"1", "4"})
+    public int depth;
+
+    private RedisSupport redis;
+
+    private LockFactory lockFactory;
+
+    private DistributedLockInterceptor interceptor;
+
+    private BenchmarkJoinPoint joinPoint;
+
+    private LockAnnotation annotation;
+
+    @Setup
+    public void setUp() {
+        switch (factory) {
+            case "reentrant":
+                lockFactory = new ReentrantLockFactory(false);
+                break;
+            case "redisson":
+                redis = RedisSupport.start();
+                lockFactory = new RedissonLockFactory(redis.newConfig());
+                break;
+            default:
+                throw new IllegalArgumentException("unknown factory:" + factory);
+        }
+        interceptor = new DistributedLockInterceptor(lockFactory);
+        OrderService orderService = new OrderService();
+        Method pay = OrderService.method("pay", Long.class);
+        annotation = pay.getAnnotation(LockAnnotation.class);
+        BenchmarkJoinPoint innermost = new BenchmarkJoinPoint(orderService, pay, new Object[]{10086L},
+                args -> orderService.pay((Long) args[0]));
+        joinPoint = innermost;
+        for (int i = 1; i < depth; i++) {
+            BenchmarkJoinPoint inner = joinPoint;
+            joinPoint = new BenchmarkJoinPoint(orderService, pay, new Object[]{10086L},
+                    args -> interceptor.lockAround(inner, annotation));
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        if (lockFactory instanceof AutoCloseable) {
+            ((AutoCloseable) lockFactory).close();
+        }
+        if (redis != null) {
+            redis.close();
+        }
+    }
+
+    @Benchmark
+    public Object nested() throws Throwable {
+        return interceptor.lockAround(joinPoint, annotation);
+    }
+}
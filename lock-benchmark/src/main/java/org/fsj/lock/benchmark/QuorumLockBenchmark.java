@@ -0,0 +1,98 @@
+package org.fsj.lock.benchmark;
+
+import org.fsj.lock.benchmark.support.DelayedLockFactory;
+import org.fsj.lock.manager.factory.LockHandle;
+import org.fsj.lock.manager.factory.QuorumLockFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * 多数派加锁的耗时：并行发给所有节点（{@link QuorumLockFactory}） vs 逐个节点获取
+ *
+ * <p>
+ * 节点为{@link DelayedLockFactory}，往返时间由roundTrips指定（毫秒，逗号分隔）。
+ * 并行方式的耗时接近往返时间的中位数，逐个获取（如RedissonRedLock）的耗时为各节点往返时间之和。
+ * 无竞争，解锁均为异步，不计入耗时。
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QuorumLockBenchmark {
+
+    /**
+     * 解锁是异步的，轮流使用多个key，避免下一次加锁等待上一次的解锁到达节点
+     */
+    private static final int KEYS = 1024;
+
+    @Param({"1,2,8", "1,1,2,4,8"})
+    public String roundTrips;
+
+    private List<DelayedLockFactory> nodes;
+
+    private QuorumLockFactory quorumLockFactory;
+
+    private String[] lockKeys;
+
+    private int next;
+
+    @Setup
+    public void setUp() {
+        nodes = new ArrayList<>();
+        for (String roundTrip : roundTrips.split(",")) {
+            nodes.add(new DelayedLockFactory(TimeUnit.MILLISECONDS.toMicros(Long.parseLong(roundTrip.trim()))));
+        }
+        quorumLockFactory = new QuorumLockFactory(nodes);
+        lockKeys = new String[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            lockKeys[i] = "lock_bench_quorum_" + i;
+        }
+    }
+
+    private String nextKey() {
+        next = (next + 1) & (KEYS - 1);
+        return lockKeys[next];
+    }
+
+    @Benchmark
+    public boolean parallel() throws InterruptedException {
+        Lock lock = quorumLockFactory.getLock(nextKey());
+        boolean locked = lock.tryLock(1, TimeUnit.SECONDS);
+        if (locked) {
+            lock.unlock();
+        }
+        return locked;
+    }
+
+    @Benchmark
+    public boolean sequential() throws ExecutionException, InterruptedException {
+        String lockKey = nextKey();
+        List<LockHandle> handles = new ArrayList<>(nodes.size());
+        for (DelayedLockFactory node : nodes) {
+            LockHandle handle = node.tryLockAsync(lockKey, 1, TimeUnit.SECONDS).toCompletableFuture().get();
+            if (handle != null) {
+                handles.add(handle);
+            }
+        }
+        handles.forEach(LockHandle::unlockAsync);
+        return handles.size() >= quorumLockFactory.getQuorum();
+    }
+}
@@ -0,0 +1,112 @@
+package org.fsj.lock.benchmark;
+
+import org.fsj.lock.benchmark.support.RedisSupport;
+import org.fsj.lock.manager.LockMode;
+import org.fsj.lock.manager.factory.LockFactory;
+import org.fsj.lock.manager.factory.RedissonLockFactory;
+import org.fsj.lock.manager.factory.ReentrantLockFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 同一个key上读写混合的吞吐：读写锁 vs 互斥锁
+ *
+ * <p>
+ * 每次操作按readPercent决定读或写，临界区park {@value #CRITICAL_SECTION_MICROS}微秒模拟一次下游读写（不占CPU，
+ * 单核机器上也能体现读之间的并发）；exclusive为读写都使用互斥锁，readWrite为读使用读锁、写使用写锁。
+ * 线程数由运行参数决定，见{@link LockBenchmarkRunner}。
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReadWriteLockBenchmark {
+
+    private static final String LOCK_KEY = "lock_bench_rw";
+
+    private static final long CRITICAL_SECTION_MICROS = 50;
+
+    /**
+     * reentrant：ReentrantReadWriteLock；redisson：RReadWriteLock
+     */
+    @Param({"reentrant", "redisson"})
+    public String factory;
+
+    @Param({"exclusive", "readWrite"})
+    public String mode;
+
+    /**
+     * 读操作占比（百分比）
+     */
+    @Param({"50", "90", "99"})
+    public int readPercent;
+
+    private RedisSupport redis;
+
+    private RedissonLockFactory redissonLockFactory;
+
+    private LockFactory lockFactory;
+
+    private LockMode readMode;
+
+    private LockMode writeMode;
+
+    @Setup
+    public void setUp() {
+        switch (factory) {
+            case "reentrant":
+                lockFactory = new ReentrantLockFactory(false);
+                break;
+            case "redisson":
+                redis = RedisSupport.start();
+                redissonLockFactory = new RedissonLockFactory(redis.newConfig());
+                lockFactory = redissonLockFactory;
+                break;
+            default:
+                throw new IllegalArgumentException("unknown factory:" + factory);
+        }
+        boolean readWrite = "readWrite".equals(mode);
+        readMode = readWrite ? LockMode.READ : LockMode.EXCLUSIVE;
+        writeMode = readWrite ? LockMode.WRITE : LockMode.EXCLUSIVE;
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (redissonLockFactory != null) {
+            redissonLockFactory.close();
+        }
+        if (redis != null) {
+            redis.close();
+        }
+    }
+
+    @Benchmark
+    public void readOrWrite() {
+        boolean read = ThreadLocalRandom.current().nextInt(100) < readPercent;
+        Lock lock = lockFactory.getLock(LOCK_KEY, read ? readMode : writeMode, -1);
+        lock.lock();
+        try {
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(CRITICAL_SECTION_MICROS));
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package org.fsj.lock.benchmark;
+
+import org.fsj.lock.benchmark.support.RedisSupport;
+import org.fsj.lock.manager.factory.RedissonLockFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.redisson.Redisson;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * 单次加锁 + 解锁的耗时：每次加锁新建RedissonClient（原实现）与工厂共享client + 缓存锁句柄对比
+ *
+ * <p>
+ * 配合{@code -prof gc}（{@link LockBenchmarkRunner}中为-Dlock.benchmark.gc=true）可同时得到每次操作的分配量
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RedissonClientBenchmark {
+
+    private static final String LOCK_KEY = "lock_bench_client";
+
+    private RedisSupport redis;
+
+    private RedissonLockFactory lockFactory;
+
+    @Setup
+    public void setUp() {
+        redis = RedisSupport.start();
+        lockFactory = new RedissonLockFactory(redis.newConfig());
+    }
+
+    @TearDown
+    public void tearDown() {
+        lockFactory.close();
+        redis.close();
+    }
+
+    /**
+     * 原实现：每次getLock都创建client且从不关闭；这里在用完后关闭，避免压测进程本身耗尽资源
+     */
+    @Benchmark
+    public boolean clientPerLock() throws InterruptedException {
+        RedissonClient client = Redisson.create(redis.newConfig());
+        try {
+            RLock lock = client.getLock(LOCK_KEY);
+            boolean locked = lock.tryLock(0, TimeUnit.MILLISECONDS);
+            if (locked) {
+                lock.unlock();
+            }
+            return locked;
+        } finally {
+            client.shutdown();
+        }
+    }
+
+    @Benchmark
+    public boolean sharedClient() throws InterruptedException {
+        Lock lock = lockFactory.getLock(LOCK_KEY);
+        boolean locked = lock.tryLock(0, TimeUnit.MILLISECONDS);
+        if (locked) {
+            lock.unlock();
+        }
+        return locked;
+    }
+}
@@ -0,0 +1,84 @@
+package org.fsj.lock.benchmark;
+
+import org.fsj.lock.benchmark.support.RedisSupport;
+import org.fsj.lock.manager.factory.LockFactory;
+import org.fsj.lock.manager.factory.RedissonLockFactory;
+import org.fsj.lock.manager.factory.ShardedLockFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * 分片锁工厂随后端数量的吞吐：shards个Redis实例，key在{@value LockFactoryBenchmark#UNIFORM_KEYS}个key上均匀分布
+ *
+ * <p>
+ * 每个分片是独立的redis-server（内嵌时端口依次+1，或{@link RedisSupport#ADDRESS_PROPERTY}中逗号分隔的多个地址）。
+ * 后端与基准在同一台机器上时，吞吐能否随分片数增长取决于CPU核数，需在多核机器或独立部署的Redis上观察。
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ShardedLockBenchmark {
+
+    @Param({"1", "2", "4"})
+    public int shards;
+
+    private final List<RedisSupport> redisList = new ArrayList<>();
+
+    private final List<RedissonLockFactory> backends = new ArrayList<>();
+
+    private LockFactory lockFactory;
+
+    private String[] lockKeys;
+
+    @Setup
+    public void setUp() {
+        Map<String, LockFactory> shardMap = new LinkedHashMap<>();
+        for (int i = 0; i < shards; i++) {
+            RedisSupport redis = RedisSupport.start(i);
+            redisList.add(redis);
+            RedissonLockFactory backend = new RedissonLockFactory(redis.newConfig());
+            backends.add(backend);
+            shardMap.put("shard-" + i, backend);
+        }
+        lockFactory = new ShardedLockFactory(shardMap);
+        lockKeys = new String[LockFactoryBenchmark.UNIFORM_KEYS];
+        for (int i = 0; i < lockKeys.length; i++) {
+            lockKeys[i] = "lock_bench_" + i;
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        backends.forEach(RedissonLockFactory::close);
+        redisList.forEach(RedisSupport::close);
+    }
+
+    @Benchmark
+    public void lockUnlock() {
+        Lock lock = lockFactory.getLock(lockKeys[ThreadLocalRandom.current().nextInt(lockKeys.length)]);
+        lock.lock();
+        lock.unlock();
+    }
+}
@@ -0,0 +1,65 @@
+package org.fsj.lock.benchmark;
+
+import org.fsj.lock.benchmark.support.BenchmarkJoinPoint;
+import org.fsj.lock.benchmark.support.OrderService;
+import org.fsj.lock.manager.LockAnnotation;
+import org.fsj.lock.manager.factory.ReentrantLockFactory;
+import org.fsj.lock.manager.interceptor.DistributedLockInterceptor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 所有线程并发回填同一个key的缓存（后端查询耗时1ms）时的吞吐
+ *
+ * <p>
+ * 不合并时每个调用者轮流拿锁各查一次后端，吞吐约为1000次/秒，与线程数无关；
+ * singleFlight时同一时刻到达的调用者共享一次查询，吞吐随线程数增长。
+ * 线程数由运行参数决定，见{@link LockBenchmarkRunner}。
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SingleFlightBenchmark {
+
+    @Param({"false", "true"})
+    public boolean singleFlight;
+
+    private DistributedLockInterceptor interceptor;
+
+    private BenchmarkJoinPoint joinPoint;
+
+    private LockAnnotation annotation;
+
+    @Setup
+    public void setUp() {
+        OrderService orderService = new OrderService();
+        interceptor = new DistributedLockInterceptor(new ReentrantLockFactory(false));
+        Method method = singleFlight ? OrderService.method("loadPriceShared", Long.class)
+                : OrderService.method("loadPrice", Long.class);
+        annotation = method.getAnnotation(LockAnnotation.class);
+        joinPoint = new BenchmarkJoinPoint(orderService, method, new Object[]{10086L}, singleFlight
+                ? args -> orderService.loadPriceShared((Long) args[0])
+                : args -> orderService.loadPrice((Long) args[0]));
+    }
+
+    @Benchmark
+    public Object loadPrice() throws Throwable {
+        return interceptor.lockAround(joinPoint, annotation);
+    }
+}
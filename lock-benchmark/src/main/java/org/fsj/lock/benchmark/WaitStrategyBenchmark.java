@@ -0,0 +1,106 @@
+package org.fsj.lock.benchmark;
+
+import org.fsj.lock.benchmark.support.RedisSupport;
+import org.fsj.lock.manager.WaitStrategy;
+import org.fsj.lock.manager.factory.LockFactory;
+import org.fsj.lock.manager.factory.RedissonLockFactory;
+import org.fsj.lock.manager.factory.ReentrantLockFactory;
+import org.fsj.lock.manager.wait.LockWaiter;
+import org.fsj.lock.manager.wait.LockWaiters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * 所有线程争抢同一个key、临界区很短时各等待策略的吞吐
+ *
+ * <p>
+ * 本地锁上SPIN_THEN_PARK在持有者释放前自旋等待，省去挂起、唤醒的线程切换（单核机器上不自旋，与BLOCKING相同）；
+ * Redisson上BACKOFF不订阅释放通知，按退避间隔重试，对比BLOCKING的pub/sub唤醒。
+ * 线程数由运行参数决定，见{@link LockBenchmarkRunner}。
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WaitStrategyBenchmark {
+
+    private static final String LOCK_KEY = "lock_bench_wait";
+
+    private static final long TIMEOUT_MILLIS = 10000;
+
+    @Param({"local", "redisson"})
+    public String factory;
+
+    @Param({"BLOCKING", "SPIN_THEN_PARK", "BACKOFF"})
+    public WaitStrategy strategy;
+
+    /**
+     * 临界区内消耗的CPU，{@link Blackhole#consumeCPU}的token数
+     */
+    @Param({"100"})
+    public long work;
+
+    private RedisSupport redis;
+
+    private LockFactory lockFactory;
+
+    private LockWaiter lockWaiter;
+
+    @Setup
+    public void setUp() {
+        switch (factory) {
+            case "local":
+                lockFactory = new ReentrantLockFactory(false);
+                break;
+            case "redisson":
+                redis = RedisSupport.start();
+                lockFactory = new RedissonLockFactory(redis.newConfig());
+                break;
+            default:
+                throw new IllegalArgumentException("unknown factory:" + factory);
+        }
+        lockWaiter = LockWaiters.of(strategy);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        if (lockFactory instanceof AutoCloseable) {
+            ((AutoCloseable) lockFactory).close();
+        }
+        if (redis != null) {
+            redis.close();
+        }
+    }
+
+    @Benchmark
+    public int acquire() throws InterruptedException {
+        Lock lock = lockFactory.getLock(LOCK_KEY);
+        int attempts = lockWaiter.acquire(lock, TIMEOUT_MILLIS);
+        if (attempts < 0) {
+            throw new IllegalStateException("acquire timeout, strategy:" + strategy);
+        }
+        try {
+            Blackhole.consumeCPU(work);
+        } finally {
+            lock.unlock();
+        }
+        return attempts;
+    }
+}
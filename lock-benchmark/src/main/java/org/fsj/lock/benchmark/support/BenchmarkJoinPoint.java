@@ -0,0 +1,173 @@
+package org.fsj.lock.benchmark.support;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.Signature;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.aspectj.lang.reflect.SourceLocation;
+import org.aspectj.runtime.internal.AroundClosure;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * 基准测试用的连接点，直接调用目标方法体，不经过AOP代理，用于测量拦截器本身的开销
+ */
+public final class BenchmarkJoinPoint implements ProceedingJoinPoint {
+
+    /**
+     * 被拦截的方法体
+     */
+    @FunctionalInterface
+    public interface Body {
+        Object invoke(Object[] args) throws Throwable;
+    }
+
+    private final Object target;
+
+    private final Object[] args;
+
+    private final Body body;
+
+    private final MethodSignature signature;
+
+    public BenchmarkJoinPoint(Object target, Method method, Object[] args, Body body) {
+        this.target = target;
+        this.args = args;
+        this.body = body;
+        this.signature = new BenchmarkMethodSignature(method);
+    }
+
+    @Override
+    public Object proceed() throws Throwable {
+        return body.invoke(args);
+    }
+
+    @Override
+    public Object proceed(Object[] args) throws Throwable {
+        return body.invoke(args);
+    }
+
+    @Override
+    public void set$AroundClosure(AroundClosure arc) {
+    }
+
+    @Override
+    public String toShortString() {
+        return signature.toShortString();
+    }
+
+    @Override
+    public String toLongString() {
+        return signature.toLongString();
+    }
+
+    @Override
+    public Object getThis() {
+        return target;
+    }
+
+    @Override
+    public Object getTarget() {
+        return target;
+    }
+
+    @Override
+    public Object[] getArgs() {
+        return args;
+    }
+
+    @Override
+    public Signature getSignature() {
+        return signature;
+    }
+
+    @Override
+    public SourceLocation getSourceLocation() {
+        return null;
+    }
+
+    @Override
+    public String getKind() {
+        return METHOD_EXECUTION;
+    }
+
+    @Override
+    public StaticPart getStaticPart() {
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return "execution(" + signature + ")";
+    }
+
+    private static final class BenchmarkMethodSignature implements MethodSignature {
+        private final Method method;
+        private final String description;
+
+        BenchmarkMethodSignature(Method method) {
+            this.method = method;
+            this.description = method.toString();
+        }
+
+        @Override
+        public Class getReturnType() {
+            return method.getReturnType();
+        }
+
+        @Override
+        public Method getMethod() {
+            return method;
+        }
+
+        @Override
+        public Class[] getParameterTypes() {
+            return method.getParameterTypes();
+        }
+
+        @Override
+        public String[] getParameterNames() {
+            return null;
+        }
+
+        @Override
+        public Class[] getExceptionTypes() {
+            return method.getExceptionTypes();
+        }
+
+        @Override
+        public String toShortString() {
+            return method.getName();
+        }
+
+        @Override
+        public String toLongString() {
+            return description;
+        }
+
+        @Override
+        public String getName() {
+            return method.getName();
+        }
+
+        @Override
+        public int getModifiers() {
+            return method.getModifiers() & Modifier.methodModifiers();
+        }
+
+        @Override
+        public Class getDeclaringType() {
+            return method.getDeclaringClass();
+        }
+
+        @Override
+        public String getDeclaringTypeName() {
+            return method.getDeclaringClass().getName();
+        }
+
+        @Override
+        public String toString() {
+            return description;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package org.fsj.lock.benchmark.support;
+
+import org.fsj.lock.manager.factory.AsyncLockFactory;
+import org.fsj.lock.manager.factory.LockHandle;
+import org.fsj.lock.manager.factory.ReentrantLockFactory;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 模拟一个有网络延迟的独立锁节点：本地锁 + 请求和响应各延迟半个往返时间
+ */
+public final class DelayedLockFactory implements AsyncLockFactory {
+
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "delayed-lock-node");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final ReentrantLockFactory delegate = new ReentrantLockFactory(false);
+
+    private final long oneWayMicros;
+
+    /**
+     * @param roundTripMicros 一次请求的往返时间
+     */
+    public DelayedLockFactory(long roundTripMicros) {
+        this.oneWayMicros = roundTripMicros / 2;
+    }
+
+    @Override
+    public CompletionStage<LockHandle> tryLockAsync(String lockKey, long timeout, TimeUnit unit) {
+        CompletableFuture<LockHandle> result = new CompletableFuture<>();
+        delay(() -> delegate.tryLockAsync(lockKey, timeout, unit).whenComplete((handle, error) -> delay(() -> {
+            if (error != null) {
+                result.completeExceptionally(error);
+            } else {
+                result.complete(handle == null ? null : new DelayedHandle(handle));
+            }
+        })));
+        return result;
+    }
+
+    private void delay(Runnable task) {
+        SCHEDULER.schedule(task, oneWayMicros, TimeUnit.MICROSECONDS);
+    }
+
+    private final class DelayedHandle implements LockHandle {
+        private final LockHandle handle;
+
+        private DelayedHandle(LockHandle handle) {
+            this.handle = handle;
+        }
+
+        @Override
+        public String getLockKey() {
+            return handle.getLockKey();
+        }
+
+        @Override
+        public CompletionStage<Void> unlockAsync() {
+            CompletableFuture<Void> result = new CompletableFuture<>();
+            delay(() -> handle.unlockAsync().whenComplete((ignored, error) -> delay(() -> result.complete(null))));
+            return result;
+        }
+    }
+}
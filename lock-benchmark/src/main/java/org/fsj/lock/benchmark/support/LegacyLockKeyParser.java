@@ -0,0 +1,60 @@
+package org.fsj.lock.benchmark.support;
+
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.BeanUtils;
+
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * 预编译之前的lockKey解析方式（每次调用正则拆分 + PropertyDescriptor查找 + 反射调用），作为对比基线
+ *
+ * <p>
+ * 与原实现的唯一区别是沿属性路径逐级取值（原实现总是从根对象取值，嵌套路径结果不正确），保证两种方式生成的key一致
+ * </p>
+ */
+public final class LegacyLockKeyParser {
+
+    private LegacyLockKeyParser() {
+    }
+
+    public static String getLockKey(Object[] args, String lockPrefix, String[] keys, int[] keyIndexes) {
+        StringBuilder lockKey = new StringBuilder(lockPrefix);
+        int index = 0;
+        for (int keyIndex : keyIndexes) {
+            Object arg = args[keyIndex];
+            String key = keys[index++];
+            if (isBasicType(key)) {
+                lockKey.append("_").append(arg);
+            } else {
+                lockKey.append("_").append(parseKey(arg, key));
+            }
+        }
+        return lockKey.toString();
+    }
+
+    private static boolean isBasicType(String name) {
+        return StringUtils.equalsIgnoreCase(name, "LONG") || StringUtils.equalsIgnoreCase(name, "INT")
+                || StringUtils.equalsIgnoreCase(name, "STRING");
+    }
+
+    private static String parseKey(Object obj, String key) {
+        String[] stirs = key.substring(1, key.length()).split("\\.");
+        Object currObj = obj;
+        for (String fieldName : stirs) {
+            try {
+                PropertyDescriptor propertyDescriptor = BeanUtils.getPropertyDescriptor(currObj.getClass(), fieldName);
+                Method readMethod = propertyDescriptor.getReadMethod();
+                if (!Modifier.isPublic(readMethod.getDeclaringClass().getModifiers())) {
+                    readMethod.setAccessible(true);
+                }
+                currObj = readMethod.invoke(currObj);
+            } catch (InvocationTargetException | IllegalAccessException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        return String.valueOf(currObj);
+    }
+}
@@ -0,0 +1,51 @@
+package org.fsj.lock.benchmark.support;
+
+import org.fsj.lock.distributed.client.RemoteLockFactory;
+import org.fsj.lock.distributed.server.LockServer;
+
+import java.net.InetSocketAddress;
+
+/**
+ * 锁服务相关基准的运行环境
+ *
+ * <p>
+ * 指定{@value #ADDRESS_PROPERTY}时使用已有的锁服务（如127.0.0.1:7379），
+ * 否则在本进程的随机端口启动{@link LockServer}，测试结束后关闭。
+ * 本地启动时服务端与基准线程共用CPU，与内嵌redis-server（独立进程）的对比需考虑这一点。
+ * </p>
+ */
+public final class LockServerSupport implements AutoCloseable {
+
+    public static final String ADDRESS_PROPERTY = "lock.benchmark.lockserver.address";
+
+    private final InetSocketAddress address;
+
+    private final LockServer server;
+
+    private LockServerSupport(InetSocketAddress address, LockServer server) {
+        this.address = address;
+        this.server = server;
+    }
+
+    public static LockServerSupport start() {
+        String address = System.getProperty(ADDRESS_PROPERTY);
+        if (address != null && !address.isEmpty()) {
+            int colon = address.lastIndexOf(':');
+            return new LockServerSupport(new InetSocketAddress(address.substring(0, colon),
+                    Integer.parseInt(address.substring(colon + 1))), null);
+        }
+        LockServer server = new LockServer(new InetSocketAddress("127.0.0.1", 0)).start();
+        return new LockServerSupport(new InetSocketAddress("127.0.0.1", server.getPort()), server);
+    }
+
+    public RemoteLockFactory newLockFactory() {
+        return new RemoteLockFactory(address, RemoteLockFactory.DEFAULT_CONNECTIONS);
+    }
+
+    @Override
+    public void close() {
+        if (server != null) {
+            server.close();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package org.fsj.lock.benchmark.support;
+
+import org.fsj.lock.manager.LockAnnotation;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 基准测试用的加锁方法
+ */
+public class OrderService {
+
+    @LockAnnotation(keys = {"LONG"}, keyIndexes = {0})
+    public Long pay(Long orderId) {
+        return orderId;
+    }
+
+    @LockAnnotation(keys = {".user.id", "STRING"}, keyIndexes = {0, 1})
+    public String submit(Order order, String channel) {
+        return channel;
+    }
+
+    @LockAnnotation(keys = {"LONG"}, keyIndexes = {0}, lockFailMethod = "payFallback")
+    public Long payWithFallback(Long orderId) {
+        return orderId;
+    }
+
+    public Long payFallback(Long orderId) {
+        return -orderId;
+    }
+
+    @LockAnnotation(keys = {"LONG"}, keyIndexes = {0}, batch = true)
+    public int payAll(List<Long> orderIds) {
+        return orderIds.size();
+    }
+
+    @LockAnnotation(keys = {"LONG", "STRING", "STRING"}, keyIndexes = {0, 1, 2}, lockPrefix = "lock_stock_reserve")
+    public Long reserve(Long skuId, String warehouse, String tenant) {
+        return skuId;
+    }
+
+    /**
+     * 缓存回填：拿到锁后查询后端，等锁的调用者拿到锁后会再查一次
+     */
+    @LockAnnotation(keys = {"LONG"}, keyIndexes = {0}, timeout = 10000)
+    public Long loadPrice(Long skuId) {
+        return queryBackend(skuId);
+    }
+
+    /**
+     * 与loadPrice相同，并发调用共享同一次查询的结果
+     */
+    @LockAnnotation(keys = {"LONG"}, keyIndexes = {0}, timeout = 10000, singleFlight = true)
+    public Long loadPriceShared(Long skuId) {
+        return queryBackend(skuId);
+    }
+
+    /**
+     * 持有锁1ms的扣减，不限制本地等待者
+     */
+    @LockAnnotation(keys = {"LONG"}, keyIndexes = {0}, timeout = 10000)
+    public Long deduct(Long skuId) {
+        return queryBackend(skuId);
+    }
+
+    /**
+     * 与deduct相同，本地等待者超过2个时直接降级
+     */
+    @LockAnnotation(keys = {"LONG"}, keyIndexes = {0}, timeout = 10000, maxWaiters = 2, lockFailMethod = "deductFallback")
+    public Long deductLimited(Long skuId) {
+        return queryBackend(skuId);
+    }
+
+    public Long deductFallback(Long skuId) {
+        return -skuId;
+    }
+
+    /**
+     * 模拟一次耗时1ms的后端查询
+     */
+    private static Long queryBackend(Long skuId) {
+        LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        return skuId;
+    }
+
+    public static Method method(String name, Class<?>... parameterTypes) {
+        try {
+            return OrderService.class.getMethod(name, parameterTypes);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static class Order {
+        private final Long id;
+        private final User user;
+
+        public Order(Long id, User user) {
+            this.id = id;
+            this.user = user;
+        }
+
+        public Long getId() {
+            return id;
+        }
+
+        public User getUser() {
+            return user;
+        }
+    }
+
+    public static class User {
+        private final Long id;
+
+        public User(Long id) {
+            this.id = id;
+        }
+
+        public Long getId() {
+            return id;
+        }
+    }
+}
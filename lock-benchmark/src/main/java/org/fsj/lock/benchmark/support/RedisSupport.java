@@ -0,0 +1,82 @@
+package org.fsj.lock.benchmark.support;
+
+import org.redisson.config.Config;
+import redis.embedded.RedisServer;
+
+/**
+ * Redis相关基准的运行环境
+ *
+ * <p>
+ * 指定{@value #ADDRESS_PROPERTY}时使用已有的Redis（如redis://127.0.0.1:6379，多个实例以逗号分隔），
+ * 否则在{@value #PORT_PROPERTY}端口（默认16379）启动内嵌redis-server，测试结束后关闭。
+ * 需要多个实例时第i个实例使用第i个地址，或在端口+i上启动。
+ * </p>
+ */
+public final class RedisSupport implements AutoCloseable {
+
+    public static final String ADDRESS_PROPERTY = "lock.benchmark.redis.address";
+
+    public static final String PORT_PROPERTY = "lock.benchmark.redis.port";
+
+    private static final int DEFAULT_PORT = 16379;
+
+    private final String address;
+
+    private final RedisServer server;
+
+    private RedisSupport(String address, RedisServer server) {
+        this.address = address;
+        this.server = server;
+    }
+
+    public static RedisSupport start() {
+        return start(0);
+    }
+
+    /**
+     * @param instance 实例序号，从0开始
+     */
+    public static RedisSupport start(int instance) {
+        String address = System.getProperty(ADDRESS_PROPERTY);
+        if (address != null && !address.isEmpty()) {
+            String[] addresses = address.split(",");
+            if (instance >= addresses.length) {
+                throw new IllegalArgumentException("not enough redis address for instance " + instance + ":" + address);
+            }
+            return new RedisSupport(addresses[instance].trim(), null);
+        }
+        int port = Integer.getInteger(PORT_PROPERTY, DEFAULT_PORT) + instance;
+        RedisServer server = RedisServer.builder()
+                .port(port)
+                .setting("bind 127.0.0.1")
+                .setting("save \"\"")
+                .setting("appendonly no")
+                .build();
+        server.start();
+        return new RedisSupport("redis://127.0.0.1:" + port, server);
+    }
+
+    /**
+     * 每次返回新的配置，连接池按基准的最大线程数放大，避免测到的是连接池排队
+     */
+    public Config newConfig() {
+        Config config = new Config();
+        config.useSingleServer()
+                .setAddress(address)
+                .setConnectionPoolSize(128)
+                .setConnectionMinimumIdleSize(16)
+                .setSubscriptionConnectionPoolSize(128);
+        return config;
+    }
+
+    public String getAddress() {
+        return address;
+    }
+
+    @Override
+    public void close() {
+        if (server != null) {
+            server.stop();
+        }
+    }
+}
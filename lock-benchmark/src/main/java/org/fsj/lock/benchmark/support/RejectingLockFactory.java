@@ -0,0 +1,50 @@
+package org.fsj.lock.benchmark.support;
+
+import org.fsj.lock.manager.factory.LockFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * 加锁总是失败的锁工厂，用于测量加锁失败路径（降级方法 / 抛出异常）的开销
+ */
+public final class RejectingLockFactory implements LockFactory {
+
+    private static final Lock REJECTING_LOCK = new Lock() {
+        @Override
+        public void lock() {
+            throw new UnsupportedOperationException("lock");
+        }
+
+        @Override
+        public void lockInterruptibly() {
+            throw new UnsupportedOperationException("lockInterruptibly");
+        }
+
+        @Override
+        public boolean tryLock() {
+            return false;
+        }
+
+        @Override
+        public boolean tryLock(long time, TimeUnit unit) {
+            return false;
+        }
+
+        @Override
+        public void unlock() {
+            throw new IllegalMonitorStateException();
+        }
+
+        @Override
+        public Condition newCondition() {
+            throw new UnsupportedOperationException("newCondition");
+        }
+    };
+
+    @Override
+    public Lock getLock(String lockKey) {
+        return REJECTING_LOCK;
+    }
+}
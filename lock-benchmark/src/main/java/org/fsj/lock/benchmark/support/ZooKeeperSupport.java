@@ -0,0 +1,56 @@
+package org.fsj.lock.benchmark.support;
+
+import org.apache.curator.test.TestingServer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * ZooKeeper相关基准的运行环境
+ *
+ * <p>
+ * 指定{@value #ADDRESS_PROPERTY}时使用已有的ZooKeeper（如127.0.0.1:2181），
+ * 否则在随机端口启动进程内的{@link TestingServer}（数据目录为临时目录），测试结束后关闭。
+ * </p>
+ */
+public final class ZooKeeperSupport implements AutoCloseable {
+
+    public static final String ADDRESS_PROPERTY = "lock.benchmark.zk.address";
+
+    private final String connectString;
+
+    private final TestingServer server;
+
+    private ZooKeeperSupport(String connectString, TestingServer server) {
+        this.connectString = connectString;
+        this.server = server;
+    }
+
+    public static ZooKeeperSupport start() {
+        String address = System.getProperty(ADDRESS_PROPERTY);
+        if (address != null && !address.isEmpty()) {
+            return new ZooKeeperSupport(address, null);
+        }
+        try {
+            TestingServer server = new TestingServer(true);
+            return new ZooKeeperSupport(server.getConnectString(), server);
+        } catch (Exception e) {
+            throw new IllegalStateException("start zookeeper testing server fail", e);
+        }
+    }
+
+    public String getConnectString() {
+        return connectString;
+    }
+
+    @Override
+    public void close() {
+        if (server != null) {
+            try {
+                server.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package org.fsj.lock.distributed.client;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.handler.flush.FlushConsolidationHandler;
+import io.netty.util.concurrent.ScheduledFuture;
+import org.fsj.lock.distributed.protocol.LockCommand;
+import org.fsj.lock.distributed.protocol.LockProtocol;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 到锁服务的一个连接，多个key、多个线程的请求在同一连接上pipeline发送，按requestId对应响应
+ *
+ * <p>
+ * 连接断开时服务端释放经由该连接获取的锁，等待中的请求失败；下一次加锁时重新连接。
+ * 连接存活期间按固定间隔发送续期请求。
+ * </p>
+ */
+final class LockConnection {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LockConnection.class);
+
+    private final Bootstrap bootstrap;
+
+    private final long clientId;
+
+    private final long renewIntervalMillis;
+
+    private final AtomicInteger requestIds = new AtomicInteger();
+
+    private volatile Session session;
+
+    private volatile boolean closed;
+
+    LockConnection(Bootstrap bootstrap, long clientId, long renewIntervalMillis) {
+        this.bootstrap = bootstrap;
+        this.clientId = clientId;
+        this.renewIntervalMillis = renewIntervalMillis;
+    }
+
+    /**
+     * 发送加锁请求
+     *
+     * @param waitMillis 服务端等待时间，小于0时一直等待
+     */
+    Pending acquire(long ownerId, long leaseMillis, long waitMillis, List<String> keys) {
+        Session current = connect();
+        Pending pending = new Pending(current, requestIds.incrementAndGet(), ownerId, keys);
+        current.send(pending, LockCommand.acquire(pending.requestId, ownerId, leaseMillis, waitMillis, keys));
+        return pending;
+    }
+
+    /**
+     * 发送解锁请求；连接已断开时锁已被服务端释放，直接返回NOT_HELD
+     */
+    CompletableFuture<Byte> release(long ownerId, List<String> keys) {
+        Session current = session;
+        if (current == null || !current.channel.isActive()) {
+            return CompletableFuture.completedFuture(LockProtocol.STATUS_NOT_HELD);
+        }
+        Pending pending = new Pending(current, requestIds.incrementAndGet(), ownerId, null);
+        current.send(pending, LockCommand.release(pending.requestId, ownerId, keys));
+        return pending.future;
+    }
+
+    /**
+     * 放弃等待加锁结果：通知服务端取消，之后才返回的加锁成功会被自动释放
+     */
+    void abandon(Pending pending) {
+        if (pending.future.completeExceptionally(new CancellationException())) {
+            pending.session.channel.writeAndFlush(LockCommand.cancel(pending.requestId).encode(pending.session.channel.alloc()),
+                    pending.session.channel.voidPromise());
+        } else if (!pending.future.isCompletedExceptionally() && pending.future.join() == LockProtocol.STATUS_OK) {
+            releaseQuietly(pending);
+        }
+    }
+
+    private void releaseQuietly(Pending pending) {
+        release(pending.ownerId, pending.keys).whenComplete((status, e) -> {
+            if (e != null || status != LockProtocol.STATUS_OK) {
+                LOGGER.warn("release abandoned remote lock fail, keys:{}, status:{}", pending.keys, status, e);
+            }
+        });
+    }
+
+    Session connect() {
+        Session current = session;
+        if (current != null && current.channel.isActive()) {
+            return current;
+        }
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("lock server connection closed");
+            }
+            current = session;
+            if (current != null && current.channel.isActive()) {
+                return current;
+            }
+            Session created = new Session();
+            Channel channel = bootstrap.clone()
+                    .handler(new ChannelInitializer<SocketChannel>() {
+                        @Override
+                        protected void initChannel(SocketChannel ch) {
+                            ch.pipeline()
+                                    .addLast(new FlushConsolidationHandler(256, true))
+                                    .addLast(LockProtocol.newFrameDecoder())
+                                    .addLast(created);
+                        }
+                    })
+                    .connect().syncUninterruptibly().channel();
+            created.start(channel);
+            session = created;
+            return created;
+        }
+    }
+
+    synchronized void close() {
+        closed = true;
+        if (session != null) {
+            session.channel.close().syncUninterruptibly();
+        }
+    }
+
+    /**
+     * 一次加锁或解锁请求
+     */
+    static final class Pending {
+        final Session session;
+        final int requestId;
+        final long ownerId;
+        /**
+         * 加锁请求的key，解锁请求为null
+         */
+        final List<String> keys;
+        final CompletableFuture<Byte> future = new CompletableFuture<>();
+
+        Pending(Session session, int requestId, long ownerId, List<String> keys) {
+            this.session = session;
+            this.requestId = requestId;
+            this.ownerId = ownerId;
+            this.keys = keys;
+        }
+    }
+
+    /**
+     * 一个物理连接及其上等待响应的请求
+     */
+    final class Session extends ChannelInboundHandlerAdapter {
+        private final ConcurrentHashMap<Integer, Pending> pending = new ConcurrentHashMap<>();
+
+        private Channel channel;
+
+        private ScheduledFuture<?> renewTask;
+
+        private void start(Channel channel) {
+            this.channel = channel;
+            channel.writeAndFlush(LockCommand.hello(clientId).encode(channel.alloc()), channel.voidPromise());
+            renewTask = channel.eventLoop().scheduleAtFixedRate(
+                    () -> channel.writeAndFlush(LockCommand.renew().encode(channel.alloc()), channel.voidPromise()),
+                    renewIntervalMillis, renewIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+
+        private void send(Pending request, LockCommand command) {
+            pending.put(request.requestId, request);
+            channel.writeAndFlush(command.encode(channel.alloc())).addListener((ChannelFutureListener) future -> {
+                if (!future.isSuccess() && pending.remove(request.requestId) != null) {
+                    request.future.completeExceptionally(future.cause());
+                }
+            });
+        }
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            ByteBuf frame = (ByteBuf) msg;
+            int requestId;
+            byte status;
+            try {
+                requestId = frame.readInt();
+                status = frame.readByte();
+            } finally {
+                frame.release();
+            }
+            Pending request = pending.remove(requestId);
+            if (request == null) {
+                return;
+            }
+            if (!request.future.complete(status) && request.keys != null && status == LockProtocol.STATUS_OK) {
+                releaseQuietly(request);
+            }
+        }
+
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+            if (renewTask != null) {
+                renewTask.cancel(false);
+            }
+            IllegalStateException closedException = new IllegalStateException("lock server connection closed");
+            for (Pending request : pending.values()) {
+                request.future.completeExceptionally(closedException);
+            }
+            pending.clear();
+            super.channelInactive(ctx);
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+            LOGGER.warn("lock server connection error, close {}", ctx.channel(), cause);
+            ctx.close();
+        }
+    }
+}
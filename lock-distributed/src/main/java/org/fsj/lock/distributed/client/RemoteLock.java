@@ -0,0 +1,105 @@
+package org.fsj.lock.distributed.client;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+import org.fsj.lock.distributed.protocol.LockProtocol;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * 一个key或一组key的远程锁，持有者为当前线程
+ */
+final class RemoteLock implements Lock {
+
+    private final LockConnection connection;
+
+    private final List<String> keys;
+
+    private final long leaseMillis;
+
+    private final long responseTimeoutMillis;
+
+    RemoteLock(LockConnection connection, List<String> keys, long leaseMillis, long responseTimeoutMillis) {
+        this.connection = connection;
+        this.keys = keys;
+        this.leaseMillis = leaseMillis;
+        this.responseTimeoutMillis = responseTimeoutMillis;
+    }
+
+    @Override
+    public void lock() {
+        LockConnection.Pending pending = connection.acquire(ownerId(), leaseMillis, -1, keys);
+        try {
+            Uninterruptibles.getUninterruptibly(pending.future);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("acquire remote lock fail:" + keys, e.getCause());
+        }
+    }
+
+    @Override
+    public void lockInterruptibly() throws InterruptedException {
+        await(connection.acquire(ownerId(), leaseMillis, -1, keys), -1);
+    }
+
+    @Override
+    public boolean tryLock() {
+        try {
+            return tryLock(0, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    @Override
+    public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+        long waitMillis = Math.max(0, unit.toMillis(time));
+        return await(connection.acquire(ownerId(), leaseMillis, waitMillis, keys), waitMillis + responseTimeoutMillis);
+    }
+
+    /**
+     * @param timeoutMillis 等待响应的时间，小于0时一直等待；超时或被中断时放弃本次请求
+     */
+    private boolean await(LockConnection.Pending pending, long timeoutMillis) throws InterruptedException {
+        try {
+            byte status = timeoutMillis < 0 ? pending.future.get() : pending.future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+            return status == LockProtocol.STATUS_OK;
+        } catch (InterruptedException e) {
+            connection.abandon(pending);
+            throw e;
+        } catch (TimeoutException e) {
+            connection.abandon(pending);
+            throw new IllegalStateException("acquire remote lock timeout, no response from lock server:" + keys);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("acquire remote lock fail:" + keys, e.getCause());
+        }
+    }
+
+    @Override
+    public void unlock() {
+        byte status;
+        try {
+            status = Uninterruptibles.getUninterruptibly(connection.release(ownerId(), keys), responseTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("release remote lock fail:" + keys, e.getCause());
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("release remote lock timeout:" + keys);
+        }
+        if (status != LockProtocol.STATUS_OK) {
+            throw new IllegalMonitorStateException("remote lock not held:" + keys);
+        }
+    }
+
+    @Override
+    public Condition newCondition() {
+        throw new UnsupportedOperationException();
+    }
+
+    private static long ownerId() {
+        return Thread.currentThread().getId();
+    }
+}
@@ -0,0 +1,207 @@
+package org.fsj.lock.distributed.client;
+
+import com.google.common.base.Preconditions;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.util.concurrent.ScheduledFuture;
+import org.fsj.lock.distributed.protocol.LockProtocol;
+import org.fsj.lock.manager.factory.AsyncLockFactory;
+import org.fsj.lock.manager.factory.LockFactory;
+import org.fsj.lock.manager.factory.LockHandle;
+
+import java.io.Closeable;
+import java.net.InetSocketAddress;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * {@link org.fsj.lock.distributed.server.LockServer}的客户端锁工厂
+ *
+ * <p>
+ * 所有key复用少量长连接（key按hash固定到一个连接），请求pipeline发送，等待中的加锁不占用连接；
+ * 联锁在一次请求内由服务端按key顺序获取。持有者以客户端id + 线程id标识，同一线程可重入，
+ * 解锁必须在加锁的线程上进行；异步加锁以独立的虚拟持有者获取，可以在任意线程释放。
+ * </p>
+ * <p>
+ * 租期由连接按{@value #DEFAULT_RENEW_INTERVAL_MILLIS}ms间隔统一续期，客户端进程宕机或连接断开后锁由服务端释放；
+ * 断开后持有的锁在解锁时抛出{@link IllegalMonitorStateException}。
+ * </p>
+ */
+public class RemoteLockFactory implements LockFactory, AsyncLockFactory, Closeable {
+
+    public static final int DEFAULT_CONNECTIONS = 2;
+
+    public static final long DEFAULT_LEASE_MILLIS = 30000;
+
+    /**
+     * 续期间隔，租期需大于该值的3倍
+     */
+    public static final long DEFAULT_RENEW_INTERVAL_MILLIS = 1000;
+
+    /**
+     * 在等待时间之外，等待服务端响应的最长时间
+     */
+    public static final long DEFAULT_RESPONSE_TIMEOUT_MILLIS = 3000;
+
+    /**
+     * 异步加锁的虚拟持有者id，从-1开始递减，不会与线程id冲突
+     */
+    private static final AtomicLong OWNER_ID_GENERATOR = new AtomicLong();
+
+    private final EventLoopGroup eventLoopGroup;
+
+    private final LockConnection[] connections;
+
+    private final long leaseMillis;
+
+    private final long responseTimeoutMillis;
+
+    public RemoteLockFactory(String host, int port) {
+        this(new InetSocketAddress(host, port), DEFAULT_CONNECTIONS);
+    }
+
+    /**
+     * 构造时即建立全部连接，服务不可用时抛出异常
+     */
+    public RemoteLockFactory(InetSocketAddress address, int connections) {
+        Preconditions.checkArgument(connections > 0, "connections必须大于0");
+        Objects.requireNonNull(address, "address");
+        this.leaseMillis = DEFAULT_LEASE_MILLIS;
+        this.responseTimeoutMillis = DEFAULT_RESPONSE_TIMEOUT_MILLIS;
+        this.eventLoopGroup = new NioEventLoopGroup(1);
+        Bootstrap bootstrap = new Bootstrap()
+                .group(eventLoopGroup)
+                .channel(NioSocketChannel.class)
+                .option(ChannelOption.TCP_NODELAY, true)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) responseTimeoutMillis)
+                .remoteAddress(address);
+        long clientId = UUID.randomUUID().getMostSignificantBits();
+        this.connections = new LockConnection[connections];
+        try {
+            for (int i = 0; i < connections; i++) {
+                this.connections[i] = new LockConnection(bootstrap, clientId, DEFAULT_RENEW_INTERVAL_MILLIS);
+                this.connections[i].connect();
+            }
+        } catch (RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    @Override
+    public Lock getLock(String lockKey) {
+        return getLock(lockKey, leaseMillis);
+    }
+
+    /**
+     * @param leaseMillis 租期，小于等于0时使用默认租期；需大于续期间隔的3倍
+     * @throws IllegalArgumentException 租期不大于续期间隔的3倍
+     */
+    @Override
+    public Lock getLock(String lockKey, long leaseMillis) {
+        return new RemoteLock(connection(lockKey), Collections.singletonList(lockKey), lease(leaseMillis), responseTimeoutMillis);
+    }
+
+    /**
+     * 一次请求内由服务端按字典序获取全部key
+     */
+    @Override
+    public Lock getMultiLock(List<String> lockKeys) {
+        return getMultiLock(lockKeys, leaseMillis);
+    }
+
+    @Override
+    public Lock getMultiLock(List<String> lockKeys, long leaseMillis) {
+        List<String> sortedKeys = LockFactory.sortedDistinct(lockKeys);
+        Preconditions.checkArgument(!sortedKeys.isEmpty(), "lockKeys不能为空");
+        return new RemoteLock(connection(sortedKeys.get(0)), sortedKeys, lease(leaseMillis), responseTimeoutMillis);
+    }
+
+    @Override
+    public CompletionStage<LockHandle> tryLockAsync(String lockKey, long timeout, TimeUnit unit) {
+        LockConnection connection = connection(lockKey);
+        long ownerId = OWNER_ID_GENERATOR.decrementAndGet();
+        long waitMillis = Math.max(0, unit.toMillis(timeout));
+        LockConnection.Pending pending = connection.acquire(ownerId, leaseMillis, waitMillis, Collections.singletonList(lockKey));
+        //等待时间之外responseTimeoutMillis内服务端仍未响应时放弃本次请求，与同步加锁一致
+        ScheduledFuture<?> timeoutTask = waitMillis > Long.MAX_VALUE - responseTimeoutMillis ? null
+                : eventLoopGroup.schedule(() -> connection.abandon(pending), waitMillis + responseTimeoutMillis, TimeUnit.MILLISECONDS);
+        return pending.future.handle((status, cause) -> {
+            if (timeoutTask != null) {
+                timeoutTask.cancel(false);
+            }
+            if (cause instanceof CancellationException) {
+                throw new IllegalStateException("acquire remote lock timeout, no response from lock server:" + lockKey);
+            }
+            if (cause != null) {
+                throw new IllegalStateException("acquire remote lock fail:" + lockKey, cause);
+            }
+            return status == LockProtocol.STATUS_OK ? new RemoteLockHandle(connection, lockKey, ownerId) : null;
+        });
+    }
+
+    /**
+     * @throws IllegalArgumentException 租期不大于续期间隔的3倍
+     */
+    private long lease(long leaseMillis) {
+        if (leaseMillis <= 0) {
+            return this.leaseMillis;
+        }
+        Preconditions.checkArgument(leaseMillis > 3 * DEFAULT_RENEW_INTERVAL_MILLIS,
+                "租期必须大于续期间隔的3倍, leaseMillis:%s, renewIntervalMillis:%s", leaseMillis, DEFAULT_RENEW_INTERVAL_MILLIS);
+        return leaseMillis;
+    }
+
+    private LockConnection connection(String lockKey) {
+        int h = lockKey.hashCode();
+        return connections[((h ^ (h >>> 16)) & Integer.MAX_VALUE) % connections.length];
+    }
+
+    @Override
+    public void close() {
+        for (LockConnection connection : connections) {
+            if (connection != null) {
+                connection.close();
+            }
+        }
+        eventLoopGroup.shutdownGracefully(0, 1, TimeUnit.SECONDS).syncUninterruptibly();
+    }
+
+    private static final class RemoteLockHandle implements LockHandle {
+        private final LockConnection connection;
+        private final String lockKey;
+        private final long ownerId;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private RemoteLockHandle(LockConnection connection, String lockKey, long ownerId) {
+            this.connection = connection;
+            this.lockKey = lockKey;
+            this.ownerId = ownerId;
+        }
+
+        @Override
+        public String getLockKey() {
+            return lockKey;
+        }
+
+        @Override
+        public CompletionStage<Void> unlockAsync() {
+            if (!released.compareAndSet(false, true)) {
+                return CompletableFuture.completedFuture(null);
+            }
+            return connection.release(ownerId, Collections.singletonList(lockKey)).thenApply(status -> null);
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package org.fsj.lock.distributed.protocol;
+
+import com.google.common.base.Preconditions;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * 锁服务的请求
+ *
+ * <p>
+ * 各操作的参数：
+ * </p>
+ * <ul>
+ * <li>HELLO：clientId(8)</li>
+ * <li>ACQUIRE：ownerId(8) leaseMillis(8) waitMillis(8) keys</li>
+ * <li>RELEASE：ownerId(8) keys</li>
+ * <li>CANCEL、RENEW：无，CANCEL的requestId为要取消的请求</li>
+ * </ul>
+ * keys为count(2)，之后每个key为length(2) + UTF-8字节；waitMillis小于0表示一直等待
+ */
+public final class LockCommand {
+
+    private static final String[] NO_KEYS = new String[0];
+
+    private final byte op;
+
+    private final int requestId;
+
+    private final long ownerId;
+
+    private final long leaseMillis;
+
+    private final long waitMillis;
+
+    private final String[] keys;
+
+    private LockCommand(byte op, int requestId, long ownerId, long leaseMillis, long waitMillis, String[] keys) {
+        this.op = op;
+        this.requestId = requestId;
+        this.ownerId = ownerId;
+        this.leaseMillis = leaseMillis;
+        this.waitMillis = waitMillis;
+        this.keys = keys;
+    }
+
+    public static LockCommand hello(long clientId) {
+        return new LockCommand(LockProtocol.OP_HELLO, 0, clientId, 0, 0, NO_KEYS);
+    }
+
+    /**
+     * @param keys 要获取的key，应已排序去重，所有客户端按同样的顺序获取才不会死锁
+     */
+    public static LockCommand acquire(int requestId, long ownerId, long leaseMillis, long waitMillis, List<String> keys) {
+        Preconditions.checkArgument(leaseMillis > 0, "leaseMillis必须大于0");
+        return new LockCommand(LockProtocol.OP_ACQUIRE, requestId, ownerId, leaseMillis, waitMillis, toKeys(keys));
+    }
+
+    public static LockCommand release(int requestId, long ownerId, List<String> keys) {
+        return new LockCommand(LockProtocol.OP_RELEASE, requestId, ownerId, 0, 0, toKeys(keys));
+    }
+
+    public static LockCommand cancel(int requestId) {
+        return new LockCommand(LockProtocol.OP_CANCEL, requestId, 0, 0, 0, NO_KEYS);
+    }
+
+    public static LockCommand renew() {
+        return new LockCommand(LockProtocol.OP_RENEW, 0, 0, 0, 0, NO_KEYS);
+    }
+
+    private static String[] toKeys(List<String> keys) {
+        Preconditions.checkArgument(!keys.isEmpty() && keys.size() <= 0xFFFF, "keys数量必须在1~65535之间");
+        for (String key : keys) {
+            Preconditions.checkArgument(ByteBufUtil.utf8Bytes(key) <= LockProtocol.MAX_KEY_LENGTH, "key过长:%s", key);
+        }
+        return keys.toArray(new String[0]);
+    }
+
+    /**
+     * 编码为一帧（含长度前缀）
+     */
+    public ByteBuf encode(ByteBufAllocator allocator) {
+        ByteBuf buf = allocator.ioBuffer(estimateLength());
+        int start = buf.writerIndex();
+        buf.writeInt(0);
+        buf.writeByte(op);
+        buf.writeInt(requestId);
+        switch (op) {
+            case LockProtocol.OP_HELLO:
+                buf.writeLong(ownerId);
+                break;
+            case LockProtocol.OP_ACQUIRE:
+                buf.writeLong(ownerId);
+                buf.writeLong(leaseMillis);
+                buf.writeLong(waitMillis);
+                writeKeys(buf);
+                break;
+            case LockProtocol.OP_RELEASE:
+                buf.writeLong(ownerId);
+                writeKeys(buf);
+                break;
+            default:
+                break;
+        }
+        buf.setInt(start, buf.writerIndex() - start - 4);
+        return buf;
+    }
+
+    private int estimateLength() {
+        int length = 4 + 1 + 4 + 24 + 2;
+        for (String key : keys) {
+            length += 2 + key.length();
+        }
+        return length;
+    }
+
+    private void writeKeys(ByteBuf buf) {
+        buf.writeShort(keys.length);
+        for (String key : keys) {
+            int lengthIndex = buf.writerIndex();
+            buf.writeShort(0);
+            int length = ByteBufUtil.writeUtf8(buf, key);
+            buf.setShort(lengthIndex, length);
+        }
+    }
+
+    /**
+     * 从一帧（不含长度前缀）解码
+     *
+     * @throws IllegalArgumentException 未知的操作
+     */
+    public static LockCommand decode(ByteBuf frame) {
+        byte op = frame.readByte();
+        int requestId = frame.readInt();
+        switch (op) {
+            case LockProtocol.OP_HELLO:
+                return new LockCommand(op, requestId, frame.readLong(), 0, 0, NO_KEYS);
+            case LockProtocol.OP_ACQUIRE:
+                long ownerId = frame.readLong();
+                long leaseMillis = frame.readLong();
+                long waitMillis = frame.readLong();
+                return new LockCommand(op, requestId, ownerId, leaseMillis, waitMillis, readKeys(frame));
+            case LockProtocol.OP_RELEASE:
+                return new LockCommand(op, requestId, frame.readLong(), 0, 0, readKeys(frame));
+            case LockProtocol.OP_CANCEL:
+            case LockProtocol.OP_RENEW:
+                return new LockCommand(op, requestId, 0, 0, 0, NO_KEYS);
+            default:
+                throw new IllegalArgumentException("unknown lock op:" + op);
+        }
+    }
+
+    private static String[] readKeys(ByteBuf frame) {
+        int count = frame.readUnsignedShort();
+        String[] keys = new String[count];
+        for (int i = 0; i < count; i++) {
+            int length = frame.readUnsignedShort();
+            keys[i] = frame.readCharSequence(length, StandardCharsets.UTF_8).toString();
+        }
+        return keys;
+    }
+
+    /**
+     * 编码一个响应帧（含长度前缀）
+     */
+    public static ByteBuf encodeResponse(ByteBufAllocator allocator, int requestId, byte status) {
+        ByteBuf buf = allocator.ioBuffer(4 + LockProtocol.RESPONSE_LENGTH);
+        buf.writeInt(LockProtocol.RESPONSE_LENGTH);
+        buf.writeInt(requestId);
+        buf.writeByte(status);
+        return buf;
+    }
+
+    public byte getOp() {
+        return op;
+    }
+
+    public int getRequestId() {
+        return requestId;
+    }
+
+    /**
+     * HELLO时为clientId
+     */
+    public long getOwnerId() {
+        return ownerId;
+    }
+
+    public long getLeaseMillis() {
+        return leaseMillis;
+    }
+
+    public long getWaitMillis() {
+        return waitMillis;
+    }
+
+    public String[] getKeys() {
+        return keys;
+    }
+}
@@ -0,0 +1,74 @@
+package org.fsj.lock.distributed.protocol;
+
+import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+
+/**
+ * 锁服务的二进制协议
+ *
+ * <p>
+ * 每一帧以4字节长度开头（不含自身），请求帧为：op(1) requestId(4) 操作参数，见{@link LockCommand}；
+ * 响应帧固定为：requestId(4) status(1)。同一连接上的请求可以连续发送（pipeline），
+ * 响应按处理完成的顺序返回，由requestId对应，等待中的加锁请求不阻塞之后的请求。
+ * </p>
+ */
+public final class LockProtocol {
+
+    /**
+     * 连接建立后首先发送，携带客户端id，同一客户端的多个连接视为同一个持有者身份，无响应
+     */
+    public static final byte OP_HELLO = 0;
+
+    /**
+     * 按顺序获取一组key，全部获取成功才返回成功，超时则释放已获取的部分
+     */
+    public static final byte OP_ACQUIRE = 1;
+
+    public static final byte OP_RELEASE = 2;
+
+    /**
+     * 取消requestId对应的等待中的加锁请求，被取消的请求返回{@link #STATUS_TIMEOUT}，本身无响应
+     */
+    public static final byte OP_CANCEL = 3;
+
+    /**
+     * 续期本连接持有的所有锁，无响应
+     */
+    public static final byte OP_RENEW = 4;
+
+    /**
+     * 加锁或解锁成功
+     */
+    public static final byte STATUS_OK = 0;
+
+    /**
+     * 等待超时或被取消，未获取锁
+     */
+    public static final byte STATUS_TIMEOUT = 1;
+
+    /**
+     * 解锁时锁不由该持有者持有
+     */
+    public static final byte STATUS_NOT_HELD = 2;
+
+    /**
+     * 单帧最大长度
+     */
+    public static final int MAX_FRAME_LENGTH = 16 * 1024 * 1024;
+
+    /**
+     * 单个key编码后的最大长度
+     */
+    public static final int MAX_KEY_LENGTH = 0xFFFF;
+
+    /**
+     * 响应帧的长度（不含长度前缀）
+     */
+    static final int RESPONSE_LENGTH = 5;
+
+    private LockProtocol() {
+    }
+
+    public static LengthFieldBasedFrameDecoder newFrameDecoder() {
+        return new LengthFieldBasedFrameDecoder(MAX_FRAME_LENGTH, 0, 4, 0, 4);
+    }
+}
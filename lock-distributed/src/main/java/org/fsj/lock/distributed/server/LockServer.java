@@ -0,0 +1,116 @@
+package org.fsj.lock.distributed.server;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoop;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.flush.FlushConsolidationHandler;
+import org.fsj.lock.distributed.protocol.LockProtocol;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 独立的内存锁服务
+ *
+ * <p>
+ * 所有连接和锁表都在同一个IO线程上处理（与Redis相同的单线程模型），锁表不需要加锁，
+ * 一次读取到的多个请求处理完后合并为一次flush。锁只保存在内存中，服务重启后全部丢失。
+ * </p>
+ * <p>
+ * 独立运行：{@code java -cp ... org.fsj.lock.distributed.server.LockServer [port]}，默认端口{@value #DEFAULT_PORT}
+ * </p>
+ */
+public class LockServer implements Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LockServer.class);
+
+    public static final int DEFAULT_PORT = 7379;
+
+    /**
+     * 检查租期过期的间隔
+     */
+    private static final long EXPIRE_CHECK_MILLIS = 200;
+
+    private final InetSocketAddress address;
+
+    private EventLoopGroup bossGroup;
+
+    private EventLoopGroup workerGroup;
+
+    private Channel serverChannel;
+
+    private LockTable lockTable;
+
+    /**
+     * @param address 监听地址，端口为0时随机分配
+     */
+    public LockServer(InetSocketAddress address) {
+        this.address = address;
+    }
+
+    public synchronized LockServer start() {
+        if (serverChannel != null) {
+            return this;
+        }
+        bossGroup = new NioEventLoopGroup(1);
+        workerGroup = new NioEventLoopGroup(1);
+        EventLoop eventLoop = workerGroup.next();
+        lockTable = new LockTable(eventLoop);
+        ServerBootstrap bootstrap = new ServerBootstrap()
+                .group(bossGroup, workerGroup)
+                .channel(NioServerSocketChannel.class)
+                .childOption(ChannelOption.TCP_NODELAY, true)
+                .childHandler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    protected void initChannel(SocketChannel ch) {
+                        ch.pipeline()
+                                .addLast(new FlushConsolidationHandler(256, true))
+                                .addLast(LockProtocol.newFrameDecoder())
+                                .addLast(new LockServerHandler(lockTable));
+                    }
+                });
+        serverChannel = bootstrap.bind(address).syncUninterruptibly().channel();
+        eventLoop.scheduleAtFixedRate(lockTable::expireLeases, EXPIRE_CHECK_MILLIS, EXPIRE_CHECK_MILLIS, TimeUnit.MILLISECONDS);
+        LOGGER.info("lock server started at {}", serverChannel.localAddress());
+        return this;
+    }
+
+    /**
+     * 实际监听的端口
+     */
+    public int getPort() {
+        return ((InetSocketAddress) serverChannel.localAddress()).getPort();
+    }
+
+    /**
+     * 当前被持有或等待的key数量
+     */
+    public int size() {
+        return workerGroup.submit(lockTable::size).syncUninterruptibly().getNow();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (serverChannel == null) {
+            return;
+        }
+        serverChannel.close().syncUninterruptibly();
+        bossGroup.shutdownGracefully(0, 1, TimeUnit.SECONDS).syncUninterruptibly();
+        workerGroup.shutdownGracefully(0, 1, TimeUnit.SECONDS).syncUninterruptibly();
+        serverChannel = null;
+    }
+
+    public static void main(String[] args) {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        LockServer server = new LockServer(new InetSocketAddress(port)).start();
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close, "lock-server-shutdown"));
+    }
+}
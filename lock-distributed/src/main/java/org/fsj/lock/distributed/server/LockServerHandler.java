@@ -0,0 +1,80 @@
+package org.fsj.lock.distributed.server;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import org.fsj.lock.distributed.protocol.LockCommand;
+import org.fsj.lock.distributed.protocol.LockProtocol;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 每个连接一个实例，把解码后的请求交给锁表；连接与锁表在同一个线程上，不需要切换线程
+ */
+final class LockServerHandler extends ChannelInboundHandlerAdapter {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LockServerHandler.class);
+
+    private final LockTable lockTable;
+
+    private LockSession session;
+
+    LockServerHandler(LockTable lockTable) {
+        this.lockTable = lockTable;
+    }
+
+    @Override
+    public void channelActive(ChannelHandlerContext ctx) throws Exception {
+        session = new LockSession(ctx.channel());
+        super.channelActive(ctx);
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+        ByteBuf frame = (ByteBuf) msg;
+        LockCommand command;
+        try {
+            command = LockCommand.decode(frame);
+        } finally {
+            frame.release();
+        }
+        switch (command.getOp()) {
+            case LockProtocol.OP_HELLO:
+                session.clientId = command.getOwnerId();
+                break;
+            case LockProtocol.OP_ACQUIRE:
+                if (command.getLeaseMillis() <= 0 || command.getKeys().length == 0) {
+                    throw new IllegalArgumentException("invalid acquire, lease:" + command.getLeaseMillis());
+                }
+                lockTable.acquire(session, command);
+                break;
+            case LockProtocol.OP_RELEASE:
+                lockTable.release(session, command);
+                break;
+            case LockProtocol.OP_CANCEL:
+                lockTable.cancel(session, command.getRequestId());
+                break;
+            case LockProtocol.OP_RENEW:
+                lockTable.renew(session);
+                break;
+            default:
+                break;
+        }
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        if (session != null) {
+            lockTable.close(session);
+        }
+        super.channelInactive(ctx);
+    }
+
+    /**
+     * 协议错误时关闭连接，该连接持有的锁随之释放
+     */
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+        LOGGER.warn("lock server connection error, close {}", session, cause);
+        ctx.close();
+    }
+}
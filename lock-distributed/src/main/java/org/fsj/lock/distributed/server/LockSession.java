@@ -0,0 +1,47 @@
+package org.fsj.lock.distributed.server;
+
+import io.netty.channel.Channel;
+import org.fsj.lock.distributed.protocol.LockCommand;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 一个客户端连接，只在锁表所在的线程上访问
+ */
+final class LockSession {
+
+    final Channel channel;
+
+    /**
+     * 客户端id，HELLO之前为0
+     */
+    long clientId;
+
+    /**
+     * 经由本连接获取、尚未释放的锁，续期和断开连接时使用
+     */
+    final Set<LockTable.LockState> held = new HashSet<>();
+
+    /**
+     * 等待中的加锁请求，按requestId索引，取消和断开连接时使用
+     */
+    final Map<Integer, LockTable.Waiter> waiters = new HashMap<>();
+
+    LockSession(Channel channel) {
+        this.channel = channel;
+    }
+
+    void respond(int requestId, byte status) {
+        if (channel.isActive()) {
+            channel.writeAndFlush(LockCommand.encodeResponse(channel.alloc(), requestId, status), channel.voidPromise());
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "LockSession{" + channel.remoteAddress() + ", clientId=" + clientId + '}';
+    }
+}
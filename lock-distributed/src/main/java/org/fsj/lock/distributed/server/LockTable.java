@@ -0,0 +1,285 @@
+package org.fsj.lock.distributed.server;
+
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.ScheduledFuture;
+import org.fsj.lock.distributed.protocol.LockCommand;
+import org.fsj.lock.distributed.protocol.LockProtocol;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 锁服务的内存锁表
+ *
+ * <p>
+ * 所有方法都在同一个线程（executor）上调用，内部不加锁。表中只保存被持有的key：
+ * 每个key记录持有者（客户端id + 持有者id，可重入）、租期和FIFO等待队列，释放时直接交给队首的等待者，
+ * 没有等待者时从表中移除。
+ * </p>
+ * <p>
+ * 一次加锁请求可以包含多个key，按请求中的顺序逐个获取，阻塞在某个key上时排入该key的队列，
+ * 获取到后继续下一个；超时或取消时释放已获取的部分并离开队列。不等待的请求（waitMillis为0）不排队。
+ * </p>
+ * <p>
+ * 持有者的租期由连接的续期请求刷新，超过租期未续期或连接断开时锁被释放。
+ * </p>
+ */
+final class LockTable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LockTable.class);
+
+    private final EventExecutor executor;
+
+    private final Map<String, LockState> locks = new HashMap<>();
+
+    LockTable(EventExecutor executor) {
+        this.executor = executor;
+    }
+
+    void acquire(LockSession session, LockCommand command) {
+        Waiter waiter = new Waiter(session, command);
+        if (advance(waiter)) {
+            session.respond(waiter.requestId, LockProtocol.STATUS_OK);
+            return;
+        }
+        long waitMillis = command.getWaitMillis();
+        if (waitMillis == 0) {
+            expire(waiter);
+            return;
+        }
+        session.waiters.put(waiter.requestId, waiter);
+        if (waitMillis > 0) {
+            waiter.timeout = executor.schedule(() -> expire(waiter), waitMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    void release(LockSession session, LockCommand command) {
+        boolean notHeld = false;
+        for (String key : command.getKeys()) {
+            LockState state = locks.get(key);
+            if (state == null || !state.isHeldBy(session.clientId, command.getOwnerId())) {
+                notHeld = true;
+                continue;
+            }
+            releaseOne(state);
+        }
+        session.respond(command.getRequestId(), notHeld ? LockProtocol.STATUS_NOT_HELD : LockProtocol.STATUS_OK);
+    }
+
+    void cancel(LockSession session, int requestId) {
+        Waiter waiter = session.waiters.get(requestId);
+        if (waiter != null) {
+            expire(waiter);
+        }
+    }
+
+    void renew(LockSession session) {
+        long now = System.currentTimeMillis();
+        for (LockState state : session.held) {
+            state.expireAt = now + state.leaseMillis;
+        }
+    }
+
+    /**
+     * 连接断开：放弃所有等待，释放经由该连接获取的锁
+     */
+    void close(LockSession session) {
+        for (Waiter waiter : session.waiters.values()) {
+            waiter.done = true;
+            if (waiter.timeout != null) {
+                waiter.timeout.cancel(false);
+            }
+            dequeue(waiter);
+        }
+        session.waiters.clear();
+        for (LockState state : new ArrayList<>(session.held)) {
+            state.holds = 0;
+            handoff(state);
+        }
+    }
+
+    /**
+     * 释放超过租期未续期的锁
+     */
+    void expireLeases() {
+        long now = System.currentTimeMillis();
+        List<LockState> expired = new ArrayList<>();
+        for (LockState state : locks.values()) {
+            if (state.holderSession != null && state.expireAt <= now) {
+                expired.add(state);
+            }
+        }
+        for (LockState state : expired) {
+            LOGGER.warn("lock lease expired, key:{}, holder:{}", state.key, state.holderSession);
+            state.holds = 0;
+            handoff(state);
+        }
+    }
+
+    int size() {
+        return locks.size();
+    }
+
+    /**
+     * key的等待队列长度，key未被持有时为0
+     */
+    int queued(String key) {
+        LockState state = locks.get(key);
+        return state == null ? 0 : state.waiters.size();
+    }
+
+    /**
+     * 从waiter.next开始逐个获取
+     *
+     * @return 全部获取成功时返回true；否则waiter已排入阻塞它的key的队列（不等待的请求不排队）
+     */
+    private boolean advance(Waiter waiter) {
+        while (waiter.next < waiter.keys.length) {
+            String key = waiter.keys[waiter.next];
+            LockState state = locks.get(key);
+            if (state == null) {
+                state = new LockState(key);
+                locks.put(key, state);
+            }
+            if (state.holderSession == null) {
+                grant(state, waiter);
+            } else if (state.isHeldBy(waiter.session.clientId, waiter.ownerId)) {
+                state.holds++;
+            } else {
+                if (waiter.mayWait) {
+                    state.waiters.add(waiter);
+                    waiter.blockedOn = state;
+                }
+                return false;
+            }
+            waiter.next++;
+        }
+        return true;
+    }
+
+    private void grant(LockState state, Waiter waiter) {
+        state.holderSession = waiter.session;
+        state.holderClientId = waiter.session.clientId;
+        state.holderOwnerId = waiter.ownerId;
+        state.holds = 1;
+        state.leaseMillis = waiter.leaseMillis;
+        state.expireAt = System.currentTimeMillis() + waiter.leaseMillis;
+        waiter.session.held.add(state);
+    }
+
+    private void releaseOne(LockState state) {
+        if (--state.holds == 0) {
+            handoff(state);
+        }
+    }
+
+    /**
+     * 锁已完全释放：交给队列中第一个仍在等待的请求，没有等待者时移除
+     */
+    private void handoff(LockState state) {
+        state.holderSession.held.remove(state);
+        state.holderSession = null;
+        Waiter waiter;
+        while ((waiter = state.waiters.poll()) != null) {
+            if (waiter.done) {
+                continue;
+            }
+            waiter.blockedOn = null;
+            grant(state, waiter);
+            waiter.next++;
+            if (advance(waiter)) {
+                complete(waiter, LockProtocol.STATUS_OK);
+            }
+            return;
+        }
+        locks.remove(state.key);
+    }
+
+    /**
+     * 超时或取消：离开等待队列，释放已获取的部分，返回TIMEOUT
+     */
+    private void expire(Waiter waiter) {
+        if (waiter.done) {
+            return;
+        }
+        dequeue(waiter);
+        for (int i = 0; i < waiter.next; i++) {
+            LockState state = locks.get(waiter.keys[i]);
+            if (state != null && state.isHeldBy(waiter.session.clientId, waiter.ownerId)) {
+                releaseOne(state);
+            }
+        }
+        complete(waiter, LockProtocol.STATUS_TIMEOUT);
+    }
+
+    private void dequeue(Waiter waiter) {
+        if (waiter.blockedOn != null) {
+            waiter.blockedOn.waiters.remove(waiter);
+            waiter.blockedOn = null;
+        }
+    }
+
+    private void complete(Waiter waiter, byte status) {
+        waiter.done = true;
+        if (waiter.timeout != null) {
+            waiter.timeout.cancel(false);
+        }
+        waiter.session.waiters.remove(waiter.requestId);
+        waiter.session.respond(waiter.requestId, status);
+    }
+
+    static final class LockState {
+        final String key;
+        final ArrayDeque<Waiter> waiters = new ArrayDeque<>(4);
+        LockSession holderSession;
+        long holderClientId;
+        long holderOwnerId;
+        int holds;
+        long leaseMillis;
+        long expireAt;
+
+        LockState(String key) {
+            this.key = key;
+        }
+
+        boolean isHeldBy(long clientId, long ownerId) {
+            return holderSession != null && holderClientId == clientId && holderOwnerId == ownerId;
+        }
+    }
+
+    static final class Waiter {
+        final LockSession session;
+        final int requestId;
+        final long ownerId;
+        final long leaseMillis;
+        final String[] keys;
+        /**
+         * 是否可以排队等待，waitMillis为0时不排队
+         */
+        final boolean mayWait;
+        /**
+         * 下一个要获取的key的下标，之前的已获取
+         */
+        int next;
+        /**
+         * 正在排队的key，未排队时为null
+         */
+        LockState blockedOn;
+        boolean done;
+        ScheduledFuture<?> timeout;
+
+        Waiter(LockSession session, LockCommand command) {
+            this.session = session;
+            this.requestId = command.getRequestId();
+            this.ownerId = command.getOwnerId();
+            this.leaseMillis = command.getLeaseMillis();
+            this.keys = command.getKeys();
+            this.mayWait = command.getWaitMillis() != 0;
+        }
+    }
+}
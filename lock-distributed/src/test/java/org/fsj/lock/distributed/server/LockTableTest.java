@@ -0,0 +1,212 @@
+package org.fsj.lock.distributed.server;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.fsj.lock.distributed.protocol.LockCommand;
+import org.fsj.lock.distributed.protocol.LockProtocol;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * 每个{@link EmbeddedChannel}模拟一个客户端连接，共享同一个锁表，所有操作都在测试线程上执行
+ */
+public class LockTableTest {
+    private static final long LEASE_MILLIS = 10000;
+
+    /**
+     * 不超时的等待
+     */
+    private static final long WAIT_FOREVER = -1;
+
+    /**
+     * 锁表的executor，等待超时的任务由{@link EmbeddedChannel#runPendingTasks()}执行
+     */
+    private final EmbeddedChannel clock = new EmbeddedChannel();
+
+    private final LockTable lockTable = new LockTable(clock.eventLoop());
+
+    @After
+    public void tearDown() {
+        clock.finishAndReleaseAll();
+    }
+
+    @Test
+    public void multiKeyAcquireRollsBackOnTimeout() throws InterruptedException {
+        Client a = new Client(1);
+        Client b = new Client(2);
+        assertEquals(Byte.valueOf(LockProtocol.STATUS_OK), b.poll(b.acquire(1, LEASE_MILLIS, 0, "k2")));
+
+        int request = a.acquire(1, LEASE_MILLIS, 50, "k1", "k2");
+        assertNull(a.poll(request));
+        assertEquals(1, lockTable.queued("k2"));
+        // k1已被a获取
+        assertEquals(Byte.valueOf(LockProtocol.STATUS_TIMEOUT), b.poll(b.acquire(2, LEASE_MILLIS, 0, "k1")));
+
+        Thread.sleep(100);
+        clock.runPendingTasks();
+        assertEquals(Byte.valueOf(LockProtocol.STATUS_TIMEOUT), a.poll(request));
+        assertEquals(0, lockTable.queued("k2"));
+        assertEquals(Byte.valueOf(LockProtocol.STATUS_OK), b.poll(b.acquire(2, LEASE_MILLIS, 0, "k1")));
+
+        // 超时的请求已离开k2的队列，释放后不会交给它
+        assertEquals(Byte.valueOf(LockProtocol.STATUS_OK), b.poll(b.release(1, "k2")));
+        assertEquals(Byte.valueOf(LockProtocol.STATUS_OK), b.poll(b.release(2, "k1")));
+        assertEquals(0, lockTable.size());
+        assertNull(a.poll(request));
+    }
+
+    @Test
+    public void multiKeyAcquireRollsBackOnCancel() {
+        Client a = new Client(1);
+        Client b = new Client(2);
+        assertEquals(Byte.valueOf(LockProtocol.STATUS_OK), b.poll(b.acquire(1, LEASE_MILLIS, 0, "k2")));
+
+        int request = a.acquire(1, LEASE_MILLIS, WAIT_FOREVER, "k1", "k2");
+        assertNull(a.poll(request));
+        assertEquals(1, lockTable.queued("k2"));
+        a.write(LockCommand.cancel(request));
+        assertEquals(Byte.valueOf(LockProtocol.STATUS_TIMEOUT), a.poll(request));
+        assertEquals(0, lockTable.queued("k2"));
+
+        assertEquals(Byte.valueOf(LockProtocol.STATUS_OK), b.poll(b.acquire(2, LEASE_MILLIS, 0, "k1")));
+        assertEquals(Byte.valueOf(LockProtocol.STATUS_OK), b.poll(b.release(1, "k2")));
+        assertEquals(Byte.valueOf(LockProtocol.STATUS_OK), b.poll(b.release(2, "k1")));
+        assertEquals(0, lockTable.size());
+    }
+
+    @Test
+    public void connectionDropReleasesHeldLocksAndWaits() {
+        Client a = new Client(1);
+        Client b = new Client(2);
+        assertEquals(Byte.valueOf(LockProtocol.STATUS_OK), a.poll(a.acquire(1, LEASE_MILLIS, 0, "k1", "k2")));
+        assertEquals(Byte.valueOf(LockProtocol.STATUS_OK), b.poll(b.acquire(1, LEASE_MILLIS, 0, "k3")));
+        int aWaiting = a.acquire(2, LEASE_MILLIS, WAIT_FOREVER, "k3");
+        int bWaiting = b.acquire(2, LEASE_MILLIS, WAIT_FOREVER, "k1", "k2");
+        assertNull(a.poll(aWaiting));
+        assertNull(b.poll(bWaiting));
+
+        a.channel.close();
+        assertEquals(Byte.valueOf(LockProtocol.STATUS_OK), b.poll(bWaiting));
+        assertEquals(0, lockTable.queued("k3"));
+
+        // a在k3上的等待已随连接断开移除
+        assertEquals(Byte.valueOf(LockProtocol.STATUS_OK), b.poll(b.release(1, "k3")));
+        assertEquals(Byte.valueOf(LockProtocol.STATUS_OK), b.poll(b.release(2, "k1", "k2")));
+        assertEquals(0, lockTable.size());
+    }
+
+    @Test
+    public void expiredLeaseIsHandedOffToNextWaiter() throws InterruptedException {
+        Client a = new Client(1);
+        Client b = new Client(2);
+        assertEquals(Byte.valueOf(LockProtocol.STATUS_OK), a.poll(a.acquire(1, 50, 0, "k")));
+        int waiting = b.acquire(1, LEASE_MILLIS, WAIT_FOREVER, "k");
+
+        lockTable.expireLeases();
+        assertNull(b.poll(waiting));
+
+        Thread.sleep(100);
+        lockTable.expireLeases();
+        assertEquals(Byte.valueOf(LockProtocol.STATUS_OK), b.poll(waiting));
+        assertEquals(Byte.valueOf(LockProtocol.STATUS_NOT_HELD), a.poll(a.release(1, "k")));
+        assertEquals(Byte.valueOf(LockProtocol.STATUS_OK), b.poll(b.release(1, "k")));
+        assertEquals(0, lockTable.size());
+    }
+
+    @Test
+    public void renewedLeaseIsKept() throws InterruptedException {
+        Client a = new Client(1);
+        assertEquals(Byte.valueOf(LockProtocol.STATUS_OK), a.poll(a.acquire(1, 200, 0, "k")));
+        for (int i = 0; i < 4; i++) {
+            Thread.sleep(100);
+            a.write(LockCommand.renew());
+            lockTable.expireLeases();
+        }
+        assertEquals(Byte.valueOf(LockProtocol.STATUS_OK), a.poll(a.release(1, "k")));
+    }
+
+    @Test
+    public void reentrantAcquireNeedsMatchingReleases() {
+        Client a = new Client(1);
+        assertEquals(Byte.valueOf(LockProtocol.STATUS_OK), a.poll(a.acquire(1, LEASE_MILLIS, 0, "k")));
+        assertEquals(Byte.valueOf(LockProtocol.STATUS_OK), a.poll(a.acquire(1, LEASE_MILLIS, 0, "k")));
+        // 同一连接上的其他持有者不可重入
+        assertEquals(Byte.valueOf(LockProtocol.STATUS_TIMEOUT), a.poll(a.acquire(2, LEASE_MILLIS, 0, "k")));
+
+        assertEquals(Byte.valueOf(LockProtocol.STATUS_OK), a.poll(a.release(1, "k")));
+        assertEquals(Byte.valueOf(LockProtocol.STATUS_TIMEOUT), a.poll(a.acquire(2, LEASE_MILLIS, 0, "k")));
+        assertEquals(Byte.valueOf(LockProtocol.STATUS_OK), a.poll(a.release(1, "k")));
+        assertEquals(0, lockTable.size());
+        assertEquals(Byte.valueOf(LockProtocol.STATUS_NOT_HELD), a.poll(a.release(1, "k")));
+    }
+
+    @Test
+    public void zeroWaitRequestIsNeverQueued() {
+        Client a = new Client(1);
+        Client b = new Client(2);
+        assertEquals(Byte.valueOf(LockProtocol.STATUS_OK), a.poll(a.acquire(1, LEASE_MILLIS, 0, "k")));
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(Byte.valueOf(LockProtocol.STATUS_TIMEOUT), b.poll(b.acquire(1, LEASE_MILLIS, 0, "k")));
+        }
+        assertEquals(0, lockTable.queued("k"));
+        assertEquals(Byte.valueOf(LockProtocol.STATUS_OK), a.poll(a.release(1, "k")));
+        // 没有交给任何不等待的请求
+        assertEquals(0, lockTable.size());
+        assertNull(b.channel.readOutbound());
+    }
+
+    /**
+     * 一个客户端连接，响应按requestId收集
+     */
+    private final class Client {
+        private final EmbeddedChannel channel = new EmbeddedChannel(LockProtocol.newFrameDecoder(), new LockServerHandler(lockTable));
+
+        private final Map<Integer, Byte> responses = new HashMap<>();
+
+        private int requestId;
+
+        Client(long clientId) {
+            write(LockCommand.hello(clientId));
+        }
+
+        int acquire(long ownerId, long leaseMillis, long waitMillis, String... keys) {
+            int id = ++requestId;
+            write(LockCommand.acquire(id, ownerId, leaseMillis, waitMillis, Arrays.asList(keys)));
+            return id;
+        }
+
+        int release(long ownerId, String... keys) {
+            int id = ++requestId;
+            write(LockCommand.release(id, ownerId, Arrays.asList(keys)));
+            return id;
+        }
+
+        void write(LockCommand command) {
+            channel.writeInbound(command.encode(UnpooledByteBufAllocator.DEFAULT));
+        }
+
+        /**
+         * @return 尚未响应时返回null
+         */
+        Byte poll(int id) {
+            ByteBuf response;
+            while ((response = channel.readOutbound()) != null) {
+                try {
+                    response.skipBytes(4);
+                    responses.put(response.readInt(), response.readByte());
+                } finally {
+                    response.release();
+                }
+            }
+            return responses.remove(id);
+        }
+    }
+}
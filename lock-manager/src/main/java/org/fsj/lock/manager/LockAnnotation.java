@@ -47,4 +47,91 @@ public @interface LockAnnotation {
      */
     String lockFailMethod() default "";
 
+    /**
+     * 批量加锁：keyIndexes中声明类型为集合或数组的参数（有且只能有一个）会展开为多个key，
+     * 对应的keys规则作用于每个元素；所有key排序去重后一次性全部获取，任何一个获取失败则全部放弃
+     */
+    boolean batch() default false;
+
+    /**
+     * 锁租期，单位为毫秒：持有者进程宕机后锁最多保留这么久，正常持有期间会自动续期。
+     *
+     * <p>
+     * 小于等于0时使用锁实现的默认租期，依赖具体锁实现是否支持租期；
+     * 自动续期的实现要求租期大于续期检查间隔的3倍（如Redisson实现默认间隔为1秒），否则加锁时抛出IllegalArgumentException
+     * </p>
+     */
+    int leaseTime() default -1;
+
+    /**
+     * 加锁模式，默认互斥；只读的方法使用READ可以与其他读并发执行，修改的方法使用WRITE。
+     *
+     * <p>
+     * 锁实现不支持读写锁时退化为互斥锁；批量加锁和异步方法只支持EXCLUSIVE
+     * </p>
+     */
+    LockMode mode() default LockMode.EXCLUSIVE;
+
+    /**
+     * 同一个key最多允许的并发持有者数量，大于1时使用信号量代替互斥锁（如按租户限制下游并发）。
+     *
+     * <p>
+     * 许可在方法结束（包括抛出异常）时释放，持有者进程宕机时按leaseTime过期；
+     * 锁实现不支持信号量时退化为互斥锁；只支持EXCLUSIVE模式下的单key同步方法
+     * </p>
+     */
+    int permits() default 1;
+
+    /**
+     * 获取锁的等待策略，默认由锁实现在timeout内等待。
+     *
+     * <p>
+     * 持有时间极短的本地锁可用SPIN_THEN_PARK，远程锁可用BACKOFF或DEADLINE_RETRY，只想尝试一次时用FAIL_FAST；
+     * 异步方法只支持BLOCKING
+     * </p>
+     */
+    WaitStrategy waitStrategy() default WaitStrategy.BLOCKING;
+
+    /**
+     * 合并本JVM内同一个key的并发调用：第一个调用者加锁执行方法，其余调用者不加锁，
+     * 等待并共享它的返回值或异常（包括获取锁失败时的降级结果、LockFailException），适合缓存回填等幂等的读方法。
+     *
+     * <p>
+     * 方法执行期间不会把结果缓存到结束之后；不支持批量加锁
+     * </p>
+     * <p>
+     * 合并只按加锁的key判断，不比较其余参数：key必须覆盖所有影响返回值的参数，
+     * 否则参数不同但key相同的调用会拿到别人的结果。注册时发现有参数未被keyIndexes引用会打印告警
+     * </p>
+     */
+    boolean singleFlight() default false;
+
+    /**
+     * lockKey的编码方式，默认lockPrefix_值_值...；COMPACT、HASHED可以缩短key，减少Redis内存和每次加锁、续期、解锁的网络字节。
+     *
+     * <p>
+     * 同一个锁在所有节点上必须使用相同的编码
+     * </p>
+     */
+    LockKeyEncoding keyEncoding() default LockKeyEncoding.PLAIN;
+
+    /**
+     * 本JVM内同一个key最多允许多少个调用同时等待锁，达到后新的调用不访问锁实现，直接按获取锁失败处理
+     * （执行降级方法或抛出LockFailException）；0表示已有本地调用持有时直接失败，小于0不限制。
+     *
+     * <p>
+     * 只支持单key的同步方法
+     * </p>
+     */
+    int maxWaiters() default -1;
+
+    /**
+     * 预计等待时间上限，单位为毫秒：排在前面的本地调用按该方法的平均持有时间估算，超过时直接按获取锁失败处理；小于0不限制。
+     *
+     * <p>
+     * 只支持单key的同步方法
+     * </p>
+     */
+    int maxExpectedWait() default -1;
+
 }
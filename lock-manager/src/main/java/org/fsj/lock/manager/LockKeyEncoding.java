@@ -0,0 +1,28 @@
+package org.fsj.lock.manager;
+
+/**
+ * lockKey的编码方式，加锁、续期、解锁和释放通知都使用编码后的key
+ *
+ * <p>
+ * 同一个锁在所有节点上必须使用相同的编码；修改编码相当于换了一把锁，需要在没有持有者时切换。
+ * 各编码的实现见{@link org.fsj.lock.manager.key.LockKeyCodecs}
+ * </p>
+ */
+public enum LockKeyEncoding {
+
+    /**
+     * lockPrefix_值_值...，值为String.valueOf
+     */
+    PLAIN,
+
+    /**
+     * 整数类型的值以36进制写出（19位的雪花id为12个字符），其余与PLAIN相同
+     */
+    COMPACT,
+
+    /**
+     * 保留可读的lockPrefix，其余部分较长时替换为128位哈希（22个字符）：lockPrefix_#哈希，
+     * 适合由多个较长字符串拼成的key；不同key哈希相同时只会多一些无谓的等待，不会破坏互斥
+     */
+    HASHED
+}
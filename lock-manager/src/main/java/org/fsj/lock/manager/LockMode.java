@@ -0,0 +1,26 @@
+package org.fsj.lock.manager;
+
+/**
+ * 加锁模式
+ *
+ * <p>
+ * READ/WRITE使用同一个key上的读写锁，与EXCLUSIVE使用的互斥锁是相互独立的锁，互不排斥，同一个key应只使用其中一种方式
+ * </p>
+ */
+public enum LockMode {
+
+    /**
+     * 互斥锁
+     */
+    EXCLUSIVE,
+
+    /**
+     * 读锁：与其他读锁共享，与写锁互斥
+     */
+    READ,
+
+    /**
+     * 写锁：与读锁、写锁都互斥
+     */
+    WRITE
+}
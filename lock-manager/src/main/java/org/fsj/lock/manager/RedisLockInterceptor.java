@@ -6,15 +6,14 @@ import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.reflect.MethodSignature;
 import org.fsj.lock.manager.factory.LockFactory;
-import org.springframework.beans.BeanUtils;
+import org.fsj.lock.manager.key.LockKeyExtractor;
 import org.springframework.core.Ordered;
 import org.springframework.util.ObjectUtils;
 
 import javax.annotation.Resource;
-import java.beans.PropertyDescriptor;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
-import java.lang.reflect.Modifier;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 
@@ -31,9 +30,11 @@ public class RedisLockInterceptor implements Ordered{
     @Resource
     LockFactory lockFactory;
 
+    private final ConcurrentHashMap<Method, LockKeyExtractor> lockKeyExtractors = new ConcurrentHashMap<>();
+
     @Around("@annotation(distributedLock)")
     public Object lockAround(ProceedingJoinPoint joinPoint, LockAnnotation distributedLock) {
-        final String lockKey = getLockKey(joinPoint.getArgs(), distributedLock);
+        final String lockKey = getLockKey(joinPoint, distributedLock);
         final  Lock lock = lockFactory.getLock(lockKey);
         MethodSignature methodSignature = (MethodSignature) joinPoint.getSignature();
         if (!lock(lock, distributedLock.timeout())) {
@@ -71,59 +72,18 @@ public class RedisLockInterceptor implements Ordered{
     /**
      * 解析加锁内容
      *
-     * @param args 要加锁方法入参
+     * @param joinPoint 要加锁方法
      * @param distributedLock 加锁配置（注解）
      * @return 要加锁的key
      */
-    private String getLockKey(Object[] args, LockAnnotation distributedLock) {
-        StringBuilder lockKey = new StringBuilder(distributedLock.lockPrefix());
-        String[] keys = distributedLock.keys();
-        int index = 0;
-        for (int keyIndex : distributedLock.keyIndexes()) {
-            Object arg = args[keyIndex];
-            String key = keys[index++];
-            if (isBasicType(key)) {
-                lockKey.append("_").append(arg);
-            } else {
-                lockKey.append("_").append(parseKey(arg, key));
-            }
-        }
-        return lockKey.toString();
-    }
-
-    /**
-     * 判断是否基础数据类型
-     *
-     * @param name 要判断的占位符
-     * @return true/false
-     */
-    private boolean isBasicType(String name) {
-        return "LONG".equalsIgnoreCase(name) || "INT".equalsIgnoreCase(name) || "STRING".equalsIgnoreCase(name);
-    }
-
-    /**
-     * 解析非基础数据类型的占位符
-     *
-     * @param obj 占位符对应参数
-     * @param key 占位符内容
-     * @return 解析后的内容
-     */
-    private String parseKey(Object obj, String key) {
-        String[] stirs = key.substring(1, key.length()).split("\\.");
-        Object currObj = obj;
-        for (String fieldName : stirs) {
-            try {
-                PropertyDescriptor propertyDescriptor = BeanUtils.getPropertyDescriptor(obj.getClass(), fieldName);
-                Method readMethod = propertyDescriptor.getReadMethod();
-                if (!Modifier.isPublic(readMethod.getDeclaringClass().getModifiers())) {
-                    readMethod.setAccessible(true);
-                }
-                currObj = readMethod.invoke(obj);
-            } catch (InvocationTargetException | IllegalAccessException e) {
-                throw new RuntimeException(e);
-            }
+    private String getLockKey(ProceedingJoinPoint joinPoint, LockAnnotation distributedLock) {
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        LockKeyExtractor extractor = lockKeyExtractors.get(method);
+        if (extractor == null) {
+            extractor = lockKeyExtractors.computeIfAbsent(method, m -> LockKeyExtractor.compile(m,
+                    distributedLock.lockPrefix(), distributedLock.keys(), distributedLock.keyIndexes()));
         }
-        return String.valueOf(currObj);
+        return extractor.extract(joinPoint.getArgs());
     }
 
     private Method findFallbackMethod(ProceedingJoinPoint joinPoint, String fallbackMethodName) {
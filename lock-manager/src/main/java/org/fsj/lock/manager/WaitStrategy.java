@@ -0,0 +1,39 @@
+package org.fsj.lock.manager;
+
+/**
+ * 获取锁的等待策略，timeout为等待的总时长
+ *
+ * <p>
+ * 各策略的实现见{@link org.fsj.lock.manager.wait.LockWaiters}
+ * </p>
+ */
+public enum WaitStrategy {
+
+    /**
+     * 调用一次tryLock(timeout)，由锁实现负责等待
+     */
+    BLOCKING,
+
+    /**
+     * 只尝试一次，不等待，忽略timeout：失败立即降级
+     */
+    FAIL_FAST,
+
+    /**
+     * 先在当前线程上自旋重试一小段时间（单核机器不自旋），仍未获取时再tryLock(剩余时间)挂起等待；
+     * 适合持有时间只有几微秒的本地锁，避免线程切换
+     */
+    SPIN_THEN_PARK,
+
+    /**
+     * 反复tryLock()，两次之间按指数增长的随机间隔（full jitter）休眠，直到超时；
+     * 适合远程锁，避免大量等待者同时重试打到Redis等服务端
+     */
+    BACKOFF,
+
+    /**
+     * 在timeout内反复tryLock(剩余时间)：锁实现抛出异常（如网络抖动）或提前返回失败时，退避后用剩余时间重试，
+     * 超时后仍失败才抛出最后一次异常或返回失败
+     */
+    DEADLINE_RETRY
+}
@@ -0,0 +1,96 @@
+package org.fsj.lock.manager.admission;
+
+import org.fsj.lock.manager.factory.LocalLockTable;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 一个加锁方法按key的本地准入控制：排队过长时直接拒绝，不再访问锁实现
+ *
+ * <p>
+ * 每个调用在获取锁前{@link #tryAdmit}、方法结束（或获取锁失败）后{@link #exit}，按key记录本JVM内正在进行的调用数；
+ * 除去可同时持有的permits个，其余都在等待锁。等待者已达maxWaiters，或预计等待时间
+ * （排在前面的等待者和持有者按平均持有时间依次执行完）超过maxExpectedWait时拒绝。
+ * 平均持有时间是该方法所有key的指数移动平均，只统计获取成功的调用。
+ * </p>
+ */
+public final class AdmissionControl {
+
+    /**
+     * 指数移动平均的平滑系数为1/2^EWMA_SHIFT
+     */
+    private static final int EWMA_SHIFT = 3;
+
+    private final LocalLockTable<Void> inFlight = new LocalLockTable<>(() -> null);
+
+    private final int maxWaiters;
+
+    private final long maxExpectedWaitNanos;
+
+    private final int permits;
+
+    /**
+     * 平均持有时间，并发更新时丢失个别样本不影响估计
+     */
+    private volatile long holdNanosEwma;
+
+    /**
+     * @param maxWaiters            同一个key最多允许的本地等待者，小于0不限制
+     * @param maxExpectedWaitMillis 预计等待时间上限，小于0不限制
+     * @param permits               同一个key可同时持有的数量
+     */
+    public AdmissionControl(int maxWaiters, long maxExpectedWaitMillis, int permits) {
+        this.maxWaiters = maxWaiters;
+        this.maxExpectedWaitNanos = maxExpectedWaitMillis < 0 ? -1L : TimeUnit.MILLISECONDS.toNanos(maxExpectedWaitMillis);
+        this.permits = Math.max(permits, 1);
+    }
+
+    /**
+     * 尝试进入等待
+     *
+     * @return 准入凭证，结束后交给{@link #exit}；被拒绝时返回null
+     */
+    public LocalLockTable.Entry<Void> tryAdmit(String lockKey) {
+        LocalLockTable.Entry<Void> ticket = inFlight.retain(lockKey);
+        int ahead = ticket.getRefs() - 1;
+        if (ahead < permits) {
+            return ticket;
+        }
+        int waiters = ahead - permits;
+        if (maxWaiters >= 0 && waiters >= maxWaiters) {
+            inFlight.release(ticket);
+            return null;
+        }
+        if (maxExpectedWaitNanos >= 0 && (waiters / permits + 1) * holdNanosEwma > maxExpectedWaitNanos) {
+            inFlight.release(ticket);
+            return null;
+        }
+        return ticket;
+    }
+
+    public void exit(LocalLockTable.Entry<Void> ticket) {
+        inFlight.release(ticket);
+    }
+
+    /**
+     * 记录一次持有时间
+     */
+    public void recordHold(long holdNanos) {
+        long ewma = holdNanosEwma;
+        holdNanosEwma = ewma == 0L ? holdNanos : ewma + ((holdNanos - ewma) >> EWMA_SHIFT);
+    }
+
+    /**
+     * 平均持有时间（纳秒）
+     */
+    public long getHoldNanosEwma() {
+        return holdNanosEwma;
+    }
+
+    /**
+     * 当前有本地调用的key数量
+     */
+    public int size() {
+        return inFlight.size();
+    }
+}
@@ -0,0 +1,49 @@
+package org.fsj.lock.manager.diagnostics;
+
+/**
+ * 有本地等待者的key的快照
+ */
+public final class ContendedKey {
+
+    private final String key;
+    private final int holders;
+    private final int waiters;
+    private final long longestHeldMillis;
+
+    public ContendedKey(String key, int holders, int waiters, long longestHeldMillis) {
+        this.key = key;
+        this.holders = holders;
+        this.waiters = waiters;
+        this.longestHeldMillis = longestHeldMillis;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * 本节点的持有者数量，为0时锁被其他节点持有（或正在交接）
+     */
+    public int getHolders() {
+        return holders;
+    }
+
+    /**
+     * 本节点正在同步等待该key的线程数
+     */
+    public int getWaiters() {
+        return waiters;
+    }
+
+    /**
+     * 本节点持有者中最长的持有时间，没有持有者时为0
+     */
+    public long getLongestHeldMillis() {
+        return longestHeldMillis;
+    }
+
+    @Override
+    public String toString() {
+        return key + "{holders=" + holders + ", waiters=" + waiters + ", longestHeld=" + longestHeldMillis + "ms}";
+    }
+}
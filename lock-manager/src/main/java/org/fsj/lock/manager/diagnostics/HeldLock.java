@@ -0,0 +1,93 @@
+package org.fsj.lock.manager.diagnostics;
+
+/**
+ * 一次正在持有的锁的快照
+ */
+public final class HeldLock {
+
+    private final String key;
+    private final String method;
+    private final String mode;
+    private final String threadName;
+    private final long threadId;
+    private final String threadState;
+    private final boolean async;
+    private final long acquiredAt;
+    private final long heldMillis;
+    private final String acquireStack;
+
+    public HeldLock(String key, String method, String mode, String threadName, long threadId, String threadState,
+                    boolean async, long acquiredAt, long heldMillis, String acquireStack) {
+        this.key = key;
+        this.method = method;
+        this.mode = mode;
+        this.threadName = threadName;
+        this.threadId = threadId;
+        this.threadState = threadState;
+        this.async = async;
+        this.acquiredAt = acquiredAt;
+        this.heldMillis = heldMillis;
+        this.acquireStack = acquireStack;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * 加锁方法的description或编程式加锁的操作名称
+     */
+    public String getMethod() {
+        return method;
+    }
+
+    public String getMode() {
+        return mode;
+    }
+
+    /**
+     * 获取到锁的线程，异步方法为完成加锁回调的线程，不一定是执行方法体的线程
+     */
+    public String getThreadName() {
+        return threadName;
+    }
+
+    public long getThreadId() {
+        return threadId;
+    }
+
+    /**
+     * 取快照时该线程的状态
+     */
+    public String getThreadState() {
+        return threadState;
+    }
+
+    public boolean isAsync() {
+        return async;
+    }
+
+    /**
+     * 获取到锁的时间戳，毫秒
+     */
+    public long getAcquiredAt() {
+        return acquiredAt;
+    }
+
+    public long getHeldMillis() {
+        return heldMillis;
+    }
+
+    /**
+     * 获取锁时的调用栈，未采样时为null
+     */
+    public String getAcquireStack() {
+        return acquireStack;
+    }
+
+    @Override
+    public String toString() {
+        return key + "{method=" + method + ", mode=" + mode + ", thread=" + threadName + "(" + threadId + ", " + threadState + ")"
+                + (async ? ", async" : "") + ", held=" + heldMillis + "ms}";
+    }
+}
@@ -0,0 +1,388 @@
+package org.fsj.lock.manager.diagnostics;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.fsj.lock.manager.factory.LocalLockTable;
+import org.fsj.lock.manager.metadata.LockMethodMetadata;
+import org.fsj.lock.manager.metrics.LockMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.io.Closeable;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 本节点当前持有的锁和等待者的登记表，用于排查锁长时间不释放和等待时间突增
+ *
+ * <p>
+ * 作为{@link LockMetrics}设置到拦截器或{@link org.fsj.lock.manager.template.LockTemplate}上（与其他埋点一起时用
+ * {@link org.fsj.lock.manager.metrics.CompositeLockMetrics}组合）：获取锁时登记持有者（key、方法、线程、时间），
+ * 释放时移除；同步加锁在开始等待时计入该key的等待者。每次加锁只有一次按key的引用计数和一个持有者对象，
+ * 获取锁时的调用栈按stackSampleRate采样记录，不采样时不取调用栈。
+ * </p>
+ * <p>
+ * 后台线程定期检查，持有时间超过longHoldMillis的锁每次持有只告警一次，日志中带有采样的加锁调用栈和持有线程当前的调用栈。
+ * 可通过{@link #registerMBean(String)}注册到平台MBeanServer查看当前持有者、等待者数量和文本诊断信息。
+ * 只能看到本节点的持有者：key有等待者但没有持有者时，锁被其他节点持有。
+ * </p>
+ */
+public class HeldLockRegistry implements LockMetrics, HeldLockRegistryMXBean, Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(HeldLockRegistry.class);
+
+    public static final long DEFAULT_LONG_HOLD_MILLIS = 10000;
+
+    private static final long MIN_CHECK_INTERVAL_MILLIS = 10;
+
+    private static final long MAX_CHECK_INTERVAL_MILLIS = 1000;
+
+    private static final String NODE = ManagementFactory.getRuntimeMXBean().getName();
+
+    /**
+     * 引用计数 = 等待者 + 持有者
+     */
+    private final LocalLockTable<KeyState> lockTable = new LocalLockTable<>(KeyState::new);
+
+    /**
+     * 当前线程正在同步等待的key
+     */
+    private final ThreadLocal<LocalLockTable.Entry<KeyState>> waiting = new ThreadLocal<>();
+
+    private final long longHoldNanos;
+
+    private final int stackSampleRate;
+
+    private final LongAdder longHolds = new LongAdder();
+
+    private final ScheduledExecutorService watchdog;
+
+    public HeldLockRegistry() {
+        this(DEFAULT_LONG_HOLD_MILLIS, 0);
+    }
+
+    /**
+     * @param longHoldMillis  持有时间告警阈值
+     * @param stackSampleRate 记录加锁调用栈的采样率倒数，1表示每次都记录，0表示不记录
+     */
+    public HeldLockRegistry(long longHoldMillis, int stackSampleRate) {
+        Preconditions.checkArgument(longHoldMillis > 0, "longHoldMillis必须大于0");
+        Preconditions.checkArgument(stackSampleRate >= 0, "stackSampleRate不能小于0");
+        this.longHoldNanos = TimeUnit.MILLISECONDS.toNanos(longHoldMillis);
+        this.stackSampleRate = stackSampleRate;
+        long checkInterval = Math.max(MIN_CHECK_INTERVAL_MILLIS, Math.min(MAX_CHECK_INTERVAL_MILLIS, longHoldMillis / 4));
+        this.watchdog = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("held-lock-watchdog-%d").setDaemon(true).build());
+        this.watchdog.scheduleWithFixedDelay(this::checkLongHolds, checkInterval, checkInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 持有时间自行计算，不需要拦截器计时
+     */
+    @Override
+    public boolean shouldTime() {
+        return false;
+    }
+
+    @Override
+    public void onAcquiring(LockMethodMetadata metadata, String lockKey) {
+        LocalLockTable.Entry<KeyState> previous = waiting.get();
+        if (previous != null) {
+            lockTable.release(previous);
+        }
+        waiting.set(lockTable.retain(lockKey));
+    }
+
+    @Override
+    public void onAcquired(LockMethodMetadata metadata, String lockKey, long waitNanos) {
+        LocalLockTable.Entry<KeyState> entry = stopWaiting(lockKey);
+        if (entry == null) {
+            entry = lockTable.retain(lockKey);
+        }
+        Throwable acquireStack = stackSampleRate > 0 && (stackSampleRate == 1 || ThreadLocalRandom.current().nextInt(stackSampleRate) == 0)
+                ? new Throwable("acquire stack") : null;
+        entry.getLock().add(new Holder(metadata, Thread.currentThread(), acquireStack));
+    }
+
+    @Override
+    public void onRejected(LockMethodMetadata metadata, String lockKey, long waitNanos, boolean fallback) {
+        LocalLockTable.Entry<KeyState> entry = stopWaiting(lockKey);
+        if (entry != null) {
+            lockTable.release(entry);
+        }
+    }
+
+    /**
+     * 只处理获取锁时的异常，方法体的异常在onReleased中释放
+     */
+    @Override
+    public void onError(LockMethodMetadata metadata, String lockKey, Throwable error) {
+        LocalLockTable.Entry<KeyState> entry = stopWaiting(lockKey);
+        if (entry != null) {
+            lockTable.release(entry);
+        }
+    }
+
+    @Override
+    public void onReleased(LockMethodMetadata metadata, String lockKey, long holdNanos) {
+        LocalLockTable.Entry<KeyState> entry = lockTable.get(lockKey);
+        if (entry != null && entry.getLock().remove(metadata, Thread.currentThread())) {
+            lockTable.release(entry);
+        }
+    }
+
+    /**
+     * @return 当前线程正在等待该key时返回其条目，否则返回null
+     */
+    private LocalLockTable.Entry<KeyState> stopWaiting(String lockKey) {
+        LocalLockTable.Entry<KeyState> entry = waiting.get();
+        if (entry == null || !entry.getKey().equals(lockKey)) {
+            return null;
+        }
+        waiting.set(null);
+        return entry;
+    }
+
+    private void checkLongHolds() {
+        try {
+            long now = System.nanoTime();
+            List<HolderAt> flagged = new ArrayList<>();
+            lockTable.forEach(entry -> {
+                for (Holder holder : entry.getLock().holders()) {
+                    if (!holder.flagged && now - holder.acquiredNanos > longHoldNanos) {
+                        holder.flagged = true;
+                        flagged.add(new HolderAt(entry.getKey(), holder));
+                    }
+                }
+            });
+            for (HolderAt hold : flagged) {
+                longHolds.increment();
+                LOGGER.warn("lock held too long, key:{}, method:{}, thread:{}, held:{}ms{}", hold.key,
+                        hold.holder.metadata.getDescription(), hold.holder.thread.getName(),
+                        TimeUnit.NANOSECONDS.toMillis(now - hold.holder.acquiredNanos), stacks(hold.holder));
+            }
+        } catch (RuntimeException e) {
+            LOGGER.warn("check long held locks fail", e);
+        }
+    }
+
+    /**
+     * 采样的加锁调用栈和持有线程当前的调用栈（异步方法的持有线程没有意义，不输出）
+     */
+    private static String stacks(Holder holder) {
+        StringBuilder stacks = new StringBuilder();
+        if (holder.acquireStack != null) {
+            stacks.append("\n  acquired at:");
+            appendStack(stacks, holder.acquireStack.getStackTrace());
+        }
+        if (!holder.metadata.isAsync()) {
+            stacks.append("\n  holder thread ").append(holder.thread.getState()).append(':');
+            appendStack(stacks, holder.thread.getStackTrace());
+        }
+        return stacks.toString();
+    }
+
+    private static void appendStack(StringBuilder stacks, StackTraceElement[] stack) {
+        for (StackTraceElement element : stack) {
+            stacks.append("\n    at ").append(element);
+        }
+    }
+
+    @Override
+    public String getNode() {
+        return NODE;
+    }
+
+    @Override
+    public int getHeldLockCount() {
+        int[] count = new int[1];
+        lockTable.forEach(entry -> count[0] += entry.getLock().holders().size());
+        return count[0];
+    }
+
+    @Override
+    public long getLongHoldCount() {
+        return longHolds.sum();
+    }
+
+    @Override
+    public List<HeldLock> getHeldLocks() {
+        long now = System.nanoTime();
+        long nowMillis = System.currentTimeMillis();
+        List<HeldLock> heldLocks = new ArrayList<>();
+        lockTable.forEach(entry -> {
+            for (Holder holder : entry.getLock().holders()) {
+                heldLocks.add(holder.snapshot(entry.getKey(), now, nowMillis));
+            }
+        });
+        heldLocks.sort(Comparator.comparingLong(HeldLock::getHeldMillis).reversed());
+        return heldLocks;
+    }
+
+    @Override
+    public List<ContendedKey> getContendedKeys() {
+        long now = System.nanoTime();
+        List<ContendedKey> contendedKeys = new ArrayList<>();
+        lockTable.forEach(entry -> {
+            List<Holder> holders = entry.getLock().holders();
+            int waiters = entry.getRefs() - holders.size();
+            if (waiters <= 0) {
+                return;
+            }
+            long longestHeldNanos = 0;
+            for (Holder holder : holders) {
+                longestHeldNanos = Math.max(longestHeldNanos, now - holder.acquiredNanos);
+            }
+            contendedKeys.add(new ContendedKey(entry.getKey(), holders.size(), waiters,
+                    TimeUnit.NANOSECONDS.toMillis(longestHeldNanos)));
+        });
+        contendedKeys.sort(Comparator.comparingInt(ContendedKey::getWaiters).reversed());
+        return contendedKeys;
+    }
+
+    @Override
+    public String dump() {
+        long now = System.nanoTime();
+        StringBuilder dump = new StringBuilder("held locks, node=").append(NODE)
+                .append(", longHoldMillis=").append(TimeUnit.NANOSECONDS.toMillis(longHoldNanos))
+                .append(", longHolds=").append(longHolds.sum());
+        lockTable.forEach(entry -> {
+            List<Holder> holders = entry.getLock().holders();
+            dump.append("\nkey=").append(entry.getKey())
+                    .append(", holders=").append(holders.size())
+                    .append(", waiters=").append(Math.max(0, entry.getRefs() - holders.size()));
+            for (Holder holder : holders) {
+                long heldNanos = now - holder.acquiredNanos;
+                dump.append("\n  ").append(holder.metadata.getDescription())
+                        .append(", mode=").append(holder.metadata.getMode())
+                        .append(", thread=").append(holder.thread.getName())
+                        .append(holder.metadata.isAsync() ? "(async)" : "")
+                        .append(", held=").append(TimeUnit.NANOSECONDS.toMillis(heldNanos)).append("ms");
+                if (heldNanos > longHoldNanos) {
+                    dump.append(stacks(holder));
+                } else if (holder.acquireStack != null) {
+                    dump.append("\n  acquired at:");
+                    appendStack(dump, holder.acquireStack.getStackTrace());
+                }
+            }
+        });
+        return dump.toString();
+    }
+
+    /**
+     * 以{@code org.fsj.lock:type=HeldLocks,name=<name>}注册到平台MBeanServer
+     */
+    public ObjectName registerMBean(String name) throws JMException {
+        ObjectName objectName = new ObjectName("org.fsj.lock:type=HeldLocks,name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        return objectName;
+    }
+
+    @Override
+    public void close() {
+        watchdog.shutdownNow();
+    }
+
+    /**
+     * 一个key在本节点的持有者，按获取顺序倒序链接，通常只有一个持有者，不再分配集合
+     */
+    static final class KeyState {
+        private Holder head;
+
+        synchronized void add(Holder holder) {
+            holder.next = head;
+            head = holder;
+        }
+
+        /**
+         * 优先移除当前线程的持有者，异步方法在其他线程释放时移除同一方法最早的持有者
+         *
+         * @return 是否移除，在登记表设置之前获取的锁没有持有者
+         */
+        synchronized boolean remove(LockMethodMetadata metadata, Thread thread) {
+            Holder found = null;
+            Holder foundPrev = null;
+            for (Holder prev = null, holder = head; holder != null; prev = holder, holder = holder.next) {
+                if (holder.metadata == metadata) {
+                    found = holder;
+                    foundPrev = prev;
+                    if (holder.thread == thread) {
+                        break;
+                    }
+                }
+            }
+            if (found == null) {
+                return false;
+            }
+            if (foundPrev == null) {
+                head = found.next;
+            } else {
+                foundPrev.next = found.next;
+            }
+            found.next = null;
+            return true;
+        }
+
+        synchronized List<Holder> holders() {
+            List<Holder> holders = new ArrayList<>(2);
+            for (Holder holder = head; holder != null; holder = holder.next) {
+                holders.add(holder);
+            }
+            return holders;
+        }
+    }
+
+    static final class Holder {
+        private final LockMethodMetadata metadata;
+        private final Thread thread;
+        private final long acquiredNanos = System.nanoTime();
+
+        /**
+         * 未采样时为null
+         */
+        private final Throwable acquireStack;
+
+        /**
+         * 是否已告警，只由检查线程读写
+         */
+        private boolean flagged;
+
+        private Holder next;
+
+        Holder(LockMethodMetadata metadata, Thread thread, Throwable acquireStack) {
+            this.metadata = metadata;
+            this.thread = thread;
+            this.acquireStack = acquireStack;
+        }
+
+        HeldLock snapshot(String key, long now, long nowMillis) {
+            long heldMillis = TimeUnit.NANOSECONDS.toMillis(now - acquiredNanos);
+            String stack = null;
+            if (acquireStack != null) {
+                StringBuilder stacks = new StringBuilder();
+                appendStack(stacks, acquireStack.getStackTrace());
+                stack = stacks.toString().trim();
+            }
+            return new HeldLock(key, metadata.getDescription(), metadata.getMode().name(), thread.getName(), thread.getId(),
+                    thread.getState().name(), metadata.isAsync(), nowMillis - heldMillis, heldMillis, stack);
+        }
+    }
+
+    private static final class HolderAt {
+        private final String key;
+        private final Holder holder;
+
+        HolderAt(String key, Holder holder) {
+            this.key = key;
+            this.holder = holder;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package org.fsj.lock.manager.diagnostics;
+
+import java.util.List;
+
+/**
+ * 当前持有的锁的JMX视图
+ */
+public interface HeldLockRegistryMXBean {
+
+    /**
+     * 本节点标识，pid@host
+     */
+    String getNode();
+
+    /**
+     * 当前持有的锁数量
+     */
+    int getHeldLockCount();
+
+    /**
+     * 累计超过持有时间阈值的次数
+     */
+    long getLongHoldCount();
+
+    /**
+     * 当前持有的锁，按持有时间从长到短
+     */
+    List<HeldLock> getHeldLocks();
+
+    /**
+     * 有本地等待者的key，按等待者数量从多到少
+     */
+    List<ContendedKey> getContendedKeys();
+
+    /**
+     * 文本形式的诊断信息：持有者、等待者数量、采样的加锁调用栈，以及超过阈值的持有线程当前的调用栈
+     */
+    String dump();
+}
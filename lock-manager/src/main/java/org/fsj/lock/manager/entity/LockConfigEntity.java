@@ -1,5 +1,12 @@
 package org.fsj.lock.manager.entity;
 
+import com.google.common.base.Preconditions;
+import org.fsj.lock.manager.LockAnnotation;
+import org.fsj.lock.manager.LockMode;
+import org.fsj.lock.manager.WaitStrategy;
+import org.fsj.lock.manager.key.LockKeyCodec;
+import org.fsj.lock.manager.key.LockKeyCodecs;
+
 public class LockConfigEntity {
     /**
      * 要加锁的key，有特定规则，和${@code keyIndexes}对应，用于解析keyIndex对应的值
@@ -33,21 +40,79 @@ public class LockConfigEntity {
      */
     private String lockFailMethod;
 
+    /**
+     * 是否批量加锁，集合参数展开为多个key一次性获取
+     */
+    private boolean batch;
+
+    /**
+     * 锁租期，单位为毫秒，小于等于0时使用锁实现的默认租期
+     */
+    private int leaseTime = -1;
+
+    /**
+     * 加锁模式，默认互斥
+     */
+    private LockMode mode = LockMode.EXCLUSIVE;
+
+    /**
+     * 同一个key最多允许的并发持有者数量，大于1时使用信号量
+     */
+    private int permits = 1;
+
+    /**
+     * 获取锁的等待策略，默认由锁实现在timeout内等待
+     */
+    private WaitStrategy waitStrategy = WaitStrategy.BLOCKING;
+
+    /**
+     * 是否合并本JVM内同一个key的并发调用，共享第一个调用者的结果
+     */
+    private boolean singleFlight;
+
+    /**
+     * lockKey编码，默认lockPrefix_值_值...
+     */
+    private LockKeyCodec keyCodec = LockKeyCodecs.PLAIN;
+
+    /**
+     * 同一个key最多允许的本地等待者，小于0不限制
+     */
+    private int maxWaiters = -1;
+
+    /**
+     * 预计等待时间上限，单位为毫秒，小于0不限制
+     */
+    private int maxExpectedWait = -1;
+
+    /**
+     * 冻结后不能再修改，注册为加锁方法元数据的配置都是冻结的副本
+     */
+    private boolean frozen;
+
+    /**
+     * @return 副本，修改不影响配置
+     */
     public String[] getKeys() {
-        return keys;
+        return keys == null ? null : keys.clone();
     }
 
     public LockConfigEntity setKeys(String[] keys) {
-        this.keys = keys;
+        checkNotFrozen();
+        this.keys = keys == null ? null : keys.clone();
         return this;
     }
 
+    /**
+     * @return 副本，修改不影响配置
+     */
     public int[] getKeyIndexes() {
-        return keyIndexes;
+        return keyIndexes == null ? null : keyIndexes.clone();
     }
 
     public LockConfigEntity setKeyIndexes(int[] keyIndexes) {
-        this.keyIndexes = keyIndexes;
+        checkNotFrozen();
+        this.keyIndexes = keyIndexes == null ? null : keyIndexes.clone();
         return this;
     }
 
@@ -56,6 +121,7 @@ public class LockConfigEntity {
     }
 
     public LockConfigEntity setTimeout(int timeout) {
+        checkNotFrozen();
         this.timeout = timeout;
         return this;
     }
@@ -65,6 +131,7 @@ public class LockConfigEntity {
     }
 
     public LockConfigEntity setLockPrefix(String lockPrefix) {
+        checkNotFrozen();
         this.lockPrefix = lockPrefix;
         return this;
     }
@@ -74,7 +141,153 @@ public class LockConfigEntity {
     }
 
     public LockConfigEntity setLockFailMethod(String lockFailMethod) {
+        checkNotFrozen();
         this.lockFailMethod = lockFailMethod;
         return this;
     }
+
+    public boolean isBatch() {
+        return batch;
+    }
+
+    public LockConfigEntity setBatch(boolean batch) {
+        checkNotFrozen();
+        this.batch = batch;
+        return this;
+    }
+
+    public int getLeaseTime() {
+        return leaseTime;
+    }
+
+    public LockConfigEntity setLeaseTime(int leaseTime) {
+        checkNotFrozen();
+        this.leaseTime = leaseTime;
+        return this;
+    }
+
+    public LockMode getMode() {
+        return mode;
+    }
+
+    public LockConfigEntity setMode(LockMode mode) {
+        checkNotFrozen();
+        this.mode = mode;
+        return this;
+    }
+
+    public int getPermits() {
+        return permits;
+    }
+
+    public LockConfigEntity setPermits(int permits) {
+        checkNotFrozen();
+        this.permits = permits;
+        return this;
+    }
+
+    public WaitStrategy getWaitStrategy() {
+        return waitStrategy;
+    }
+
+    public LockConfigEntity setWaitStrategy(WaitStrategy waitStrategy) {
+        checkNotFrozen();
+        this.waitStrategy = waitStrategy;
+        return this;
+    }
+
+    public boolean isSingleFlight() {
+        return singleFlight;
+    }
+
+    public LockConfigEntity setSingleFlight(boolean singleFlight) {
+        checkNotFrozen();
+        this.singleFlight = singleFlight;
+        return this;
+    }
+
+    public LockKeyCodec getKeyCodec() {
+        return keyCodec;
+    }
+
+    public LockConfigEntity setKeyCodec(LockKeyCodec keyCodec) {
+        checkNotFrozen();
+        this.keyCodec = keyCodec;
+        return this;
+    }
+
+    public int getMaxWaiters() {
+        return maxWaiters;
+    }
+
+    public LockConfigEntity setMaxWaiters(int maxWaiters) {
+        checkNotFrozen();
+        this.maxWaiters = maxWaiters;
+        return this;
+    }
+
+    public int getMaxExpectedWait() {
+        return maxExpectedWait;
+    }
+
+    public LockConfigEntity setMaxExpectedWait(int maxExpectedWait) {
+        checkNotFrozen();
+        this.maxExpectedWait = maxExpectedWait;
+        return this;
+    }
+
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    /**
+     * 返回冻结的副本，已冻结时返回自身；冻结后调用setter抛出IllegalStateException
+     */
+    public LockConfigEntity freeze() {
+        if (frozen) {
+            return this;
+        }
+        LockConfigEntity copy = new LockConfigEntity()
+                .setKeys(keys)
+                .setKeyIndexes(keyIndexes)
+                .setTimeout(timeout)
+                .setLockPrefix(lockPrefix)
+                .setLockFailMethod(lockFailMethod)
+                .setBatch(batch)
+                .setLeaseTime(leaseTime)
+                .setMode(mode)
+                .setPermits(permits)
+                .setWaitStrategy(waitStrategy)
+                .setSingleFlight(singleFlight)
+                .setKeyCodec(keyCodec)
+                .setMaxWaiters(maxWaiters)
+                .setMaxExpectedWait(maxExpectedWait);
+        copy.frozen = true;
+        return copy;
+    }
+
+    private void checkNotFrozen() {
+        Preconditions.checkState(!frozen, "加锁配置已注册，不能修改");
+    }
+
+    /**
+     * 将注解转换为LockConfigEntity
+     */
+    public static LockConfigEntity fromAnnotation(LockAnnotation lockAnnotation) {
+        return new LockConfigEntity()
+                .setLockPrefix(lockAnnotation.lockPrefix())
+                .setKeyIndexes(lockAnnotation.keyIndexes())
+                .setKeys(lockAnnotation.keys())
+                .setLockFailMethod(lockAnnotation.lockFailMethod())
+                .setTimeout(lockAnnotation.timeout())
+                .setBatch(lockAnnotation.batch())
+                .setLeaseTime(lockAnnotation.leaseTime())
+                .setMode(lockAnnotation.mode())
+                .setPermits(lockAnnotation.permits())
+                .setWaitStrategy(lockAnnotation.waitStrategy())
+                .setSingleFlight(lockAnnotation.singleFlight())
+                .setKeyCodec(LockKeyCodecs.of(lockAnnotation.keyEncoding()))
+                .setMaxWaiters(lockAnnotation.maxWaiters())
+                .setMaxExpectedWait(lockAnnotation.maxExpectedWait());
+    }
 }
@@ -0,0 +1,113 @@
+package org.fsj.lock.manager.factory;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 本地异步锁：不绑定线程、不可重入，等待者以FIFO队列排队，获取和超时都通过future通知，不阻塞调用线程
+ */
+final class AsyncLocalLock {
+
+    private static final CompletableFuture<Boolean> ACQUIRED = CompletableFuture.completedFuture(Boolean.TRUE);
+
+    private static final CompletableFuture<Boolean> NOT_ACQUIRED = CompletableFuture.completedFuture(Boolean.FALSE);
+
+    private static final ScheduledThreadPoolExecutor TIMEOUT_SCHEDULER;
+
+    static {
+        TIMEOUT_SCHEDULER = new ScheduledThreadPoolExecutor(1,
+                new ThreadFactoryBuilder().setNameFormat("async-local-lock-timeout-%d").setDaemon(true).build());
+        TIMEOUT_SCHEDULER.setRemoveOnCancelPolicy(true);
+    }
+
+    private final ArrayDeque<CompletableFuture<Boolean>> waiters = new ArrayDeque<>();
+
+    private boolean held;
+
+    /**
+     * 获取锁
+     *
+     * @return 获取成功时完成为true，超时时完成为false
+     */
+    CompletableFuture<Boolean> acquire(long timeout, TimeUnit unit) {
+        if (timeout <= 0) {
+            return tryAcquire() ? ACQUIRED : NOT_ACQUIRED;
+        }
+        CompletableFuture<Boolean> waiter = acquire();
+        if (waiter.isDone()) {
+            return waiter;
+        }
+        ScheduledFuture<?> timeoutTask = TIMEOUT_SCHEDULER.schedule(() -> cancel(waiter), timeout, unit);
+        waiter.whenComplete((acquired, cause) -> timeoutTask.cancel(false));
+        return waiter;
+    }
+
+    /**
+     * 获取锁，不设置超时，由调用者在放弃等待时{@link #cancel(CompletableFuture)}
+     *
+     * @return 获取成功时完成为true
+     */
+    CompletableFuture<Boolean> acquire() {
+        CompletableFuture<Boolean> waiter;
+        synchronized (this) {
+            if (!held) {
+                held = true;
+                return ACQUIRED;
+            }
+            waiter = new CompletableFuture<>();
+            waiters.add(waiter);
+        }
+        return waiter;
+    }
+
+    /**
+     * 不等待获取锁
+     */
+    synchronized boolean tryAcquire() {
+        if (held) {
+            return false;
+        }
+        held = true;
+        return true;
+    }
+
+    /**
+     * 放弃等待
+     *
+     * @return 是否放弃成功，返回false时锁已移交给该等待者，调用者需要持有或释放
+     */
+    boolean cancel(CompletableFuture<Boolean> waiter) {
+        if (!waiter.complete(Boolean.FALSE)) {
+            return Boolean.FALSE.equals(waiter.getNow(Boolean.FALSE));
+        }
+        synchronized (this) {
+            waiters.remove(waiter);
+        }
+        return true;
+    }
+
+    /**
+     * 释放锁，有等待者时直接移交给队首的等待者
+     */
+    void release() {
+        for (; ; ) {
+            CompletableFuture<Boolean> next;
+            synchronized (this) {
+                next = waiters.poll();
+                if (next == null) {
+                    held = false;
+                    return;
+                }
+            }
+            //等待者可能刚好超时，移交失败时继续找下一个
+            if (next.complete(Boolean.TRUE)) {
+                return;
+            }
+        }
+    }
+}
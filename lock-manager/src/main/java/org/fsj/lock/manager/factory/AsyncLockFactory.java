@@ -0,0 +1,37 @@
+package org.fsj.lock.manager.factory;
+
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 异步锁管理中心，加锁等待不阻塞调用线程
+ */
+public interface AsyncLockFactory {
+
+    /**
+     * 异步获取锁
+     *
+     * @param lockKey 要加锁的key
+     * @param timeout 获取锁超时等待时间
+     * @param unit    时间单位
+     * @return 获取成功时完成为锁句柄，超时未获取时完成为null
+     */
+    CompletionStage<LockHandle> tryLockAsync(String lockKey, long timeout, TimeUnit unit);
+
+    /**
+     * 是否支持异步加锁；组合其他锁实现的工厂（如分片、两级）在被组合的实现不支持时返回false
+     */
+    default boolean isAsyncSupported() {
+        return true;
+    }
+
+    /**
+     * 锁实现支持异步加锁时返回对应的AsyncLockFactory，否则返回null
+     */
+    static AsyncLockFactory of(LockFactory lockFactory) {
+        if (lockFactory instanceof AsyncLockFactory && ((AsyncLockFactory) lockFactory).isAsyncSupported()) {
+            return (AsyncLockFactory) lockFactory;
+        }
+        return null;
+    }
+}
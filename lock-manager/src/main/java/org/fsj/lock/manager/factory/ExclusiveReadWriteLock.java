@@ -0,0 +1,26 @@
+package org.fsj.lock.manager.factory;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+
+/**
+ * 读锁和写锁是同一把互斥锁，用于不支持读写锁的实现
+ */
+final class ExclusiveReadWriteLock implements ReadWriteLock {
+
+    private final Lock lock;
+
+    ExclusiveReadWriteLock(Lock lock) {
+        this.lock = lock;
+    }
+
+    @Override
+    public Lock readLock() {
+        return lock;
+    }
+
+    @Override
+    public Lock writeLock() {
+        return lock;
+    }
+}
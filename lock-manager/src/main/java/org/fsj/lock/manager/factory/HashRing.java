@@ -0,0 +1,78 @@
+package org.fsj.lock.manager.factory;
+
+import com.google.common.base.Preconditions;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 一致性hash环
+ *
+ * <p>
+ * 每个节点按名称生成virtualNodes个虚拟节点，key顺时针落到第一个虚拟节点所属的节点；
+ * 虚拟节点的位置只与节点名称有关，增删一个节点时只有约1/N的key改变归属。
+ * </p>
+ *
+ * @param <T> 节点类型
+ */
+final class HashRing<T> {
+
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+    private final long[] points;
+
+    private final Object[] owners;
+
+    HashRing(Map<String, ? extends T> nodes, int virtualNodes) {
+        Preconditions.checkArgument(!nodes.isEmpty(), "nodes不能为空");
+        Preconditions.checkArgument(virtualNodes > 0, "virtualNodes必须大于0");
+        List<Point> ring = new ArrayList<>(nodes.size() * virtualNodes);
+        for (Map.Entry<String, ? extends T> node : nodes.entrySet()) {
+            for (int i = 0; i < virtualNodes; i++) {
+                ring.add(new Point(hash(node.getKey() + '#' + i), node.getKey(), node.getValue()));
+            }
+        }
+        //位置相同时按名称排序，保证与节点的加入顺序无关
+        ring.sort(Comparator.<Point>comparingLong(point -> point.hash).thenComparing(point -> point.name));
+        this.points = new long[ring.size()];
+        this.owners = new Object[ring.size()];
+        for (int i = 0; i < ring.size(); i++) {
+            points[i] = ring.get(i).hash;
+            owners[i] = ring.get(i).owner;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    T get(String routingKey) {
+        int index = Arrays.binarySearch(points, hash(routingKey));
+        if (index < 0) {
+            index = -index - 1;
+            if (index == points.length) {
+                index = 0;
+            }
+        }
+        return (T) owners[index];
+    }
+
+    static long hash(String value) {
+        return HASH_FUNCTION.hashString(value, StandardCharsets.UTF_8).asLong();
+    }
+
+    private static final class Point {
+        private final long hash;
+        private final String name;
+        private final Object owner;
+
+        private Point(long hash, String name, Object owner) {
+            this.hash = hash;
+            this.name = name;
+            this.owner = owner;
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package org.fsj.lock.manager.factory;
+
+import java.util.Date;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 本地互斥锁：同步加锁和异步加锁共用同一个key的状态
+ *
+ * <p>
+ * 同步加锁先获取线程绑定、可重入的{@link ReentrantLock}，首次持有时再获取{@link AsyncLocalLock}；
+ * 异步加锁只获取{@link AsyncLocalLock}。同一时刻最多一个同步线程参与竞争异步锁，
+ * 因此同步和异步的持有者互斥，同步持有者之间仍按ReentrantLock的公平性排队。
+ * </p>
+ */
+final class LocalExclusiveLock implements Lock {
+    private final ReentrantLock local;
+
+    private final AsyncLocalLock gate = new AsyncLocalLock();
+
+    LocalExclusiveLock(boolean fair) {
+        this.local = new ReentrantLock(fair);
+    }
+
+    AsyncLocalLock getGate() {
+        return gate;
+    }
+
+    @Override
+    public void lock() {
+        local.lock();
+        if (local.getHoldCount() == 1) {
+            gate.acquire().join();
+        }
+    }
+
+    @Override
+    public void lockInterruptibly() throws InterruptedException {
+        local.lockInterruptibly();
+        if (local.getHoldCount() == 1) {
+            awaitGate(Long.MAX_VALUE);
+        }
+    }
+
+    @Override
+    public boolean tryLock() {
+        if (!local.tryLock()) {
+            return false;
+        }
+        if (local.getHoldCount() == 1 && !gate.tryAcquire()) {
+            local.unlock();
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(time);
+        long deadline = System.nanoTime() + nanos;
+        if (!local.tryLock(nanos, TimeUnit.NANOSECONDS)) {
+            return false;
+        }
+        if (local.getHoldCount() == 1) {
+            return awaitGate(nanos >= Long.MAX_VALUE / 2 ? Long.MAX_VALUE : deadline - System.nanoTime());
+        }
+        return true;
+    }
+
+    /**
+     * 已持有local时等待异步锁，失败时释放local
+     */
+    private boolean awaitGate(long nanos) throws InterruptedException {
+        if (gate.tryAcquire()) {
+            return true;
+        }
+        if (nanos <= 0) {
+            local.unlock();
+            return false;
+        }
+        CompletableFuture<Boolean> waiter = gate.acquire();
+        try {
+            if (nanos == Long.MAX_VALUE) {
+                waiter.get();
+            } else {
+                waiter.get(nanos, TimeUnit.NANOSECONDS);
+            }
+            return true;
+        } catch (TimeoutException e) {
+            if (gate.cancel(waiter)) {
+                local.unlock();
+                return false;
+            }
+            //取消前已移交给当前线程
+            return true;
+        } catch (InterruptedException e) {
+            if (!gate.cancel(waiter)) {
+                gate.release();
+            }
+            local.unlock();
+            throw e;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    @Override
+    public void unlock() {
+        if (local.isHeldByCurrentThread() && local.getHoldCount() == 1) {
+            gate.release();
+        }
+        local.unlock();
+    }
+
+    /**
+     * 等待期间释放异步锁，被唤醒重新持有local后再不可中断地获取异步锁
+     */
+    @Override
+    public Condition newCondition() {
+        return new GatedCondition(local.newCondition());
+    }
+
+    private final class GatedCondition implements Condition {
+        private final Condition condition;
+
+        GatedCondition(Condition condition) {
+            this.condition = condition;
+        }
+
+        private void releaseGate() {
+            if (!local.isHeldByCurrentThread()) {
+                throw new IllegalMonitorStateException();
+            }
+            gate.release();
+        }
+
+        private void reacquireGate() {
+            gate.acquire().join();
+        }
+
+        @Override
+        public void await() throws InterruptedException {
+            releaseGate();
+            try {
+                condition.await();
+            } finally {
+                reacquireGate();
+            }
+        }
+
+        @Override
+        public void awaitUninterruptibly() {
+            releaseGate();
+            try {
+                condition.awaitUninterruptibly();
+            } finally {
+                reacquireGate();
+            }
+        }
+
+        @Override
+        public long awaitNanos(long nanosTimeout) throws InterruptedException {
+            releaseGate();
+            try {
+                return condition.awaitNanos(nanosTimeout);
+            } finally {
+                reacquireGate();
+            }
+        }
+
+        @Override
+        public boolean await(long time, TimeUnit unit) throws InterruptedException {
+            releaseGate();
+            try {
+                return condition.await(time, unit);
+            } finally {
+                reacquireGate();
+            }
+        }
+
+        @Override
+        public boolean awaitUntil(Date deadline) throws InterruptedException {
+            releaseGate();
+            try {
+                return condition.awaitUntil(deadline);
+            } finally {
+                reacquireGate();
+            }
+        }
+
+        @Override
+        public void signal() {
+            condition.signal();
+        }
+
+        @Override
+        public void signalAll() {
+            condition.signalAll();
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package org.fsj.lock.manager.factory;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 按key引用计数的本地锁表
+ *
+ * <p>
+ * 持有者和等待者在使用锁前{@link #retain(String)}、用完后{@link #release(Entry)}，
+ * 最后一个使用者释放时条目从表中移除，表的大小只和当前正在使用的key数量相关。
+ * 同一时刻同一个key只会对应一个存活的条目：引用计数降为0的条目会被标记为失效（-1），
+ * 之后的retain不会再复用它，而是创建新的条目。
+ * </p>
+ *
+ * @param <L> 锁类型
+ */
+public final class LocalLockTable<L> {
+
+    private final ConcurrentHashMap<String, Entry<L>> entries = new ConcurrentHashMap<>();
+
+    private final Function<String, L> lockFactory;
+
+    public LocalLockTable(Supplier<L> lockSupplier) {
+        this.lockFactory = lockKey -> lockSupplier.get();
+    }
+
+    /**
+     * @param lockFactory 按key创建锁，用于锁实例与key相关的场景
+     */
+    public LocalLockTable(Function<String, L> lockFactory) {
+        this.lockFactory = lockFactory;
+    }
+
+    /**
+     * 获取key对应的条目并增加引用计数，不存在时原子地创建
+     */
+    public Entry<L> retain(String lockKey) {
+        Entry<L> created = null;
+        for (; ; ) {
+            Entry<L> entry = entries.get(lockKey);
+            if (entry == null) {
+                if (created == null) {
+                    created = new Entry<>(lockKey, lockFactory.apply(lockKey));
+                }
+                entry = entries.putIfAbsent(lockKey, created);
+                if (entry == null) {
+                    return created;
+                }
+            }
+            if (entry.tryRetain()) {
+                return entry;
+            }
+            //条目已失效，帮忙移除后重试
+            entries.remove(lockKey, entry);
+        }
+    }
+
+    /**
+     * 减少引用计数，最后一个使用者释放时移除条目
+     */
+    public void release(Entry<L> entry) {
+        if (Entry.REFS.decrementAndGet(entry) == 0 && Entry.REFS.compareAndSet(entry, 0, -1)) {
+            entries.remove(entry.key, entry);
+        }
+    }
+
+    /**
+     * 获取当前存活的条目，只应由已retain的使用者调用
+     *
+     * @return 不存在时返回null
+     */
+    public Entry<L> get(String lockKey) {
+        return entries.get(lockKey);
+    }
+
+    /**
+     * 遍历当前的条目，不保证看到遍历期间的变化，只用于诊断
+     */
+    public void forEach(Consumer<Entry<L>> action) {
+        entries.values().forEach(action);
+    }
+
+    /**
+     * 当前正在使用的key数量
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    public static final class Entry<L> {
+        @SuppressWarnings({"rawtypes", "unchecked"})
+        private static final AtomicIntegerFieldUpdater<Entry<?>> REFS =
+                (AtomicIntegerFieldUpdater<Entry<?>>) (AtomicIntegerFieldUpdater) AtomicIntegerFieldUpdater.newUpdater(Entry.class, "refs");
+
+        private final String key;
+        private final L lock;
+        private volatile int refs = 1;
+
+        private Entry(String key, L lock) {
+            this.key = key;
+            this.lock = lock;
+        }
+
+        private boolean tryRetain() {
+            for (; ; ) {
+                int current = refs;
+                if (current <= 0) {
+                    return false;
+                }
+                if (REFS.compareAndSet(this, current, current + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public L getLock() {
+            return lock;
+        }
+
+        public int getRefs() {
+            return refs;
+        }
+    }
+}
@@ -1,6 +1,12 @@
 package org.fsj.lock.manager.factory;
 
+import org.fsj.lock.manager.LockMode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
 import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
 
 /**
  * 锁管理中心
@@ -9,4 +15,112 @@ public interface LockFactory {
 
     Lock getLock(String lockKey);
 
+    /**
+     * 以指定租期获取锁实例，持有者进程宕机后锁最多保留leaseMillis；不支持租期的实现忽略该参数
+     *
+     * @param leaseMillis 租期，小于等于0时使用实现的默认租期
+     */
+    default Lock getLock(String lockKey, long leaseMillis) {
+        return getLock(lockKey);
+    }
+
+    /**
+     * 获取一组key的联锁，加锁时要么全部获取成功，要么全部放弃
+     *
+     * <p>
+     * 默认实现按key字典序逐个获取，所有调用方顺序一致，因此不会死锁；
+     * 远程实现应覆盖该方法，在一次网络往返内完成全部key的获取
+     * </p>
+     *
+     * @param lockKeys 要加锁的key，可以无序、重复
+     */
+    default Lock getMultiLock(List<String> lockKeys) {
+        List<String> sortedKeys = sortedDistinct(lockKeys);
+        List<Lock> locks = new ArrayList<>(sortedKeys.size());
+        for (String lockKey : sortedKeys) {
+            locks.add(getLock(lockKey));
+        }
+        return new OrderedMultiLock(locks);
+    }
+
+    /**
+     * 以指定租期获取一组key的联锁
+     *
+     * @param leaseMillis 租期，小于等于0时使用实现的默认租期
+     */
+    default Lock getMultiLock(List<String> lockKeys, long leaseMillis) {
+        return getMultiLock(lockKeys);
+    }
+
+    /**
+     * 获取key对应的读写锁：读锁之间共享，写锁与读锁、写锁互斥
+     *
+     * <p>
+     * 所有实现的读写锁与{@link #getLock(String)}返回的互斥锁都是相互独立的锁，互不排斥，同一个key应只使用其中一种方式；
+     * 远程实现以{@link #readWriteKey(String)}作为读写锁的key，与互斥锁的存储互不干扰。
+     * 默认实现的读锁和写锁都是readWriteKey对应的互斥锁，即退化为互斥
+     * </p>
+     */
+    default ReadWriteLock getReadWriteLock(String lockKey) {
+        return new ExclusiveReadWriteLock(getLock(readWriteKey(lockKey)));
+    }
+
+    /**
+     * 以指定租期获取读写锁
+     *
+     * @param leaseMillis 租期，小于等于0时使用实现的默认租期
+     */
+    default ReadWriteLock getReadWriteLock(String lockKey, long leaseMillis) {
+        return getReadWriteLock(lockKey);
+    }
+
+    /**
+     * 获取key对应的信号量，最多permits个持有者同时持有
+     *
+     * <p>
+     * 返回的Lock每次调用新建，一个实例同时只持有一个许可，释放许可的线程可以与获取的线程不同；
+     * 默认实现退化为{@link #getLock(String, long)}返回的互斥锁
+     * </p>
+     *
+     * @param permits     许可数量
+     * @param leaseMillis 许可租期，小于等于0时使用实现的默认租期
+     */
+    default Lock getSemaphore(String lockKey, int permits, long leaseMillis) {
+        return getLock(lockKey, leaseMillis);
+    }
+
+    /**
+     * 按加锁模式获取锁实例
+     *
+     * @param leaseMillis 租期，小于等于0时使用实现的默认租期
+     */
+    default Lock getLock(String lockKey, LockMode lockMode, long leaseMillis) {
+        switch (lockMode) {
+            case READ:
+                return getReadWriteLock(lockKey, leaseMillis).readLock();
+            case WRITE:
+                return getReadWriteLock(lockKey, leaseMillis).writeLock();
+            default:
+                return getLock(lockKey, leaseMillis);
+        }
+    }
+
+    /**
+     * 读写锁使用的key，与同名互斥锁的key区分
+     */
+    static String readWriteKey(String lockKey) {
+        return lockKey + ":rw";
+    }
+
+    /**
+     * 按字典序排序并去重；已经严格升序（如拦截器解析出的批量key）时直接返回，不再排序
+     */
+    static List<String> sortedDistinct(List<String> lockKeys) {
+        for (int i = 1; i < lockKeys.size(); i++) {
+            if (lockKeys.get(i - 1).compareTo(lockKeys.get(i)) >= 0) {
+                return new ArrayList<>(new TreeSet<>(lockKeys));
+            }
+        }
+        return lockKeys;
+    }
 }
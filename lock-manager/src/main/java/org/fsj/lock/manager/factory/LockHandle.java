@@ -0,0 +1,16 @@
+package org.fsj.lock.manager.factory;
+
+import java.util.concurrent.CompletionStage;
+
+/**
+ * 异步加锁成功后得到的锁句柄，不绑定线程，可以在任意线程释放
+ */
+public interface LockHandle {
+
+    String getLockKey();
+
+    /**
+     * 释放锁，重复调用只有第一次生效
+     */
+    CompletionStage<Void> unlockAsync();
+}
@@ -0,0 +1,23 @@
+package org.fsj.lock.manager.factory;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 不绑定线程的虚拟持有者id
+ *
+ * <p>
+ * RLock以clientId:threadId标识持有者，使用显式threadId的API时传入这里生成的id，
+ * 加锁和解锁可以在不同线程完成；id从-1开始递减，不会与真实线程id冲突
+ * </p>
+ */
+final class LockOwners {
+
+    private static final AtomicLong OWNER_ID_GENERATOR = new AtomicLong();
+
+    private LockOwners() {
+    }
+
+    static long nextOwnerId() {
+        return OWNER_ID_GENERATOR.decrementAndGet();
+    }
+}
@@ -0,0 +1,170 @@
+package org.fsj.lock.manager.factory;
+
+import com.google.common.base.Preconditions;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 分布式锁"正被其他持有者持有"状态的本地缓存，timeout为0的加锁命中时不访问服务端直接失败
+ *
+ * <p>
+ * 只由获取失败的结果写入，过期时间取服务端返回的占用者剩余租期，且不超过maxTtlMillis；
+ * 收到该key的解锁消息时移除，订阅断开或重建时清空，订阅建立前不生效。
+ * 缓存只会让加锁失败，从不代替服务端授予锁；占用者宕机（没有解锁消息）时最多误判到剩余租期结束。
+ * </p>
+ * <p>
+ * 解锁消息和加锁结果经不同的连接到达，顺序不确定：发起加锁前取key所在分段的版本，
+ * 写入前后版本有变化（期间收到过解锁消息）则不写入，避免把已释放的key缓存为被持有。
+ * </p>
+ */
+public final class NegativeLockCache {
+
+    private static final int STRIPES = 64;
+
+    private final long maxTtlNanos;
+
+    private final int maxKeys;
+
+    /**
+     * key -> 缓存到期的System.nanoTime()
+     */
+    private final ConcurrentHashMap<String, Long> heldUntil = new ConcurrentHashMap<>();
+
+    /**
+     * 各分段收到解锁消息的次数
+     */
+    private final AtomicLongArray versions = new AtomicLongArray(STRIPES);
+
+    private final LongAdder hits = new LongAdder();
+
+    private volatile boolean active;
+
+    /**
+     * @param maxTtlMillis 单个key最长缓存时间
+     * @param maxKeys      最多缓存的key数量，超出后不再写入直到有条目过期
+     */
+    public NegativeLockCache(long maxTtlMillis, int maxKeys) {
+        Preconditions.checkArgument(maxTtlMillis > 0, "maxTtlMillis必须大于0");
+        Preconditions.checkArgument(maxKeys > 0, "maxKeys必须大于0");
+        this.maxTtlNanos = TimeUnit.MILLISECONDS.toNanos(maxTtlMillis);
+        this.maxKeys = maxKeys;
+    }
+
+    /**
+     * 是否缓存为被其他持有者持有，过期的条目顺便移除
+     */
+    public boolean isHeld(String lockKey) {
+        if (!active) {
+            return false;
+        }
+        Long until = heldUntil.get(lockKey);
+        if (until == null) {
+            return false;
+        }
+        if (until - System.nanoTime() > 0) {
+            hits.increment();
+            return true;
+        }
+        heldUntil.remove(lockKey, until);
+        return false;
+    }
+
+    /**
+     * 发起加锁前取版本，传给{@link #onRejected}
+     */
+    long version(String lockKey) {
+        return versions.get(stripe(lockKey));
+    }
+
+    /**
+     * 加锁失败时写入
+     *
+     * @param version 发起加锁前的版本
+     * @param ttlMillis 服务端返回的占用者剩余租期，-1为不过期（按maxTtlMillis），其余小于等于0的值不写入
+     */
+    void onRejected(String lockKey, long version, long ttlMillis) {
+        if (!active || (ttlMillis <= 0 && ttlMillis != -1)) {
+            return;
+        }
+        long ttlNanos = ttlMillis == -1 ? maxTtlNanos : Math.min(maxTtlNanos, TimeUnit.MILLISECONDS.toNanos(ttlMillis));
+        if (heldUntil.size() >= maxKeys && !evictExpired()) {
+            return;
+        }
+        int stripe = stripe(lockKey);
+        if (versions.get(stripe) != version) {
+            return;
+        }
+        Long until = System.nanoTime() + ttlNanos;
+        heldUntil.put(lockKey, until);
+        //写入的同时收到解锁消息
+        if (versions.get(stripe) != version) {
+            heldUntil.remove(lockKey, until);
+        }
+    }
+
+    /**
+     * 收到解锁消息
+     */
+    void invalidate(String lockKey) {
+        versions.incrementAndGet(stripe(lockKey));
+        heldUntil.remove(lockKey);
+    }
+
+    /**
+     * 订阅建立或重建：之前可能漏掉了解锁消息，清空后开始生效
+     */
+    void activate() {
+        clear();
+        active = true;
+    }
+
+    /**
+     * 订阅断开，清空且不再生效
+     */
+    void deactivate() {
+        active = false;
+        clear();
+    }
+
+    private void clear() {
+        for (int i = 0; i < STRIPES; i++) {
+            versions.incrementAndGet(i);
+        }
+        heldUntil.clear();
+    }
+
+    /**
+     * @return 是否腾出了空间
+     */
+    private boolean evictExpired() {
+        long now = System.nanoTime();
+        heldUntil.entrySet().removeIf(entry -> entry.getValue() - now <= 0);
+        return heldUntil.size() < maxKeys;
+    }
+
+    private static int stripe(String lockKey) {
+        int h = lockKey.hashCode();
+        return (h ^ (h >>> 16)) & (STRIPES - 1);
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    /**
+     * 当前缓存的key数量，可能包含已过期未移除的条目
+     */
+    public int size() {
+        return heldUntil.size();
+    }
+
+    /**
+     * 命中（本地直接失败）的次数
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+}
@@ -0,0 +1,95 @@
+package org.fsj.lock.manager.factory;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * 按固定顺序获取的联锁，获取失败时逆序释放已获取的锁
+ *
+ * <p>
+ * 调用方需保证所有线程传入的锁顺序一致，超时时间是所有锁共享的总时间
+ * </p>
+ */
+public class OrderedMultiLock implements Lock {
+
+    private final List<Lock> locks;
+
+    public OrderedMultiLock(List<Lock> locks) {
+        this.locks = locks;
+    }
+
+    @Override
+    public void lock() {
+        for (Lock lock : locks) {
+            lock.lock();
+        }
+    }
+
+    @Override
+    public void lockInterruptibly() throws InterruptedException {
+        int acquired = 0;
+        try {
+            for (Lock lock : locks) {
+                lock.lockInterruptibly();
+                acquired++;
+            }
+        } finally {
+            if (acquired < locks.size()) {
+                unlock(acquired);
+            }
+        }
+    }
+
+    @Override
+    public boolean tryLock() {
+        int acquired = 0;
+        for (Lock lock : locks) {
+            if (!lock.tryLock()) {
+                unlock(acquired);
+                return false;
+            }
+            acquired++;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(time);
+        int acquired = 0;
+        try {
+            for (Lock lock : locks) {
+                if (!lock.tryLock(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                    return false;
+                }
+                acquired++;
+            }
+            return true;
+        } finally {
+            if (acquired < locks.size()) {
+                unlock(acquired);
+            }
+        }
+    }
+
+    @Override
+    public void unlock() {
+        unlock(locks.size());
+    }
+
+    /**
+     * 逆序释放前count个锁
+     */
+    private void unlock(int count) {
+        for (int i = count - 1; i >= 0; i--) {
+            locks.get(i).unlock();
+        }
+    }
+
+    @Override
+    public Condition newCondition() {
+        throw new UnsupportedOperationException("newCondition");
+    }
+}
@@ -0,0 +1,272 @@
+package org.fsj.lock.manager.factory;
+
+import com.google.common.base.Preconditions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 多数派锁工厂（Redlock）：同一个key在N个相互独立的节点上加锁，N/2+1个节点获取成功才算加锁成功
+ *
+ * <p>
+ * 加锁请求同时发给所有节点，第N/2+1个成功返回时即完成，耗时取决于中位数节点而不是各节点耗时之和；
+ * 从开始到获得多数派的耗时加上时钟漂移（有效期的1%）超过有效期validityMillis时视为失败。
+ * 失败时已获取的节点、以及决定之后才返回成功的节点都会异步释放；解锁时异步释放所有节点，不等待结果。
+ * </p>
+ * <p>
+ * 节点需实现{@link AsyncLockFactory}（如各自连接一个Redis实例的{@link RedissonLockFactory}），
+ * 租期和持有期间的续期由节点负责，leaseMillis被忽略。锁不可重入，一个Lock实例同一时刻只能持有一次，可以在任意线程解锁。
+ * </p>
+ * <p>
+ * 有效期与节点租期的关系：Redlock中有效期为"节点租期 - 获取耗时 - 时钟漂移"，获取之后锁只在剩余有效期内可靠。
+ * 这里各节点在获取成功时即开始续期，持有期间不会因为租期而过期，有效期只约束获取耗时：
+ * 最先获取的节点在等待多数派期间即使续期失败，也要在其租期结束前获得多数派，
+ * 因此validityMillis必须不大于节点租期减去可接受的时钟漂移（默认10秒，Redisson节点默认租期30秒）。
+ * </p>
+ */
+public class QuorumLockFactory implements LockFactory, AsyncLockFactory {
+    private static final Logger LOGGER = LoggerFactory.getLogger(QuorumLockFactory.class);
+
+    /**
+     * 默认有效期
+     */
+    public static final long DEFAULT_VALIDITY_MILLIS = 10000;
+
+    /**
+     * 等待时间之外，等待各节点返回结果的最长时间
+     */
+    private static final long RESPONSE_TIMEOUT_MILLIS = 3000;
+
+    /**
+     * lock()两次尝试之间的最大随机间隔，避免多个竞争者同时各拿到少数节点后反复失败
+     */
+    private static final long MAX_RETRY_DELAY_MILLIS = 50;
+
+    private final List<AsyncLockFactory> nodes;
+
+    private final int quorum;
+
+    private final long validityMillis;
+
+    public QuorumLockFactory(List<? extends AsyncLockFactory> nodes) {
+        this(nodes, DEFAULT_VALIDITY_MILLIS);
+    }
+
+    /**
+     * @param nodes          相互独立的节点，通常为奇数个
+     * @param validityMillis 有效期，获得多数派的耗时超过该值时加锁失败；必须不大于节点租期减去时钟漂移
+     */
+    public QuorumLockFactory(List<? extends AsyncLockFactory> nodes, long validityMillis) {
+        Preconditions.checkArgument(nodes != null && !nodes.isEmpty(), "nodes不能为空");
+        Preconditions.checkArgument(validityMillis > 0, "validityMillis必须大于0");
+        for (AsyncLockFactory node : nodes) {
+            Preconditions.checkArgument(node.isAsyncSupported(), "节点不支持异步加锁:%s", node);
+        }
+        this.nodes = new ArrayList<>(nodes);
+        this.quorum = nodes.size() / 2 + 1;
+        this.validityMillis = validityMillis;
+    }
+
+    @Override
+    public Lock getLock(String lockKey) {
+        return new QuorumLock(lockKey);
+    }
+
+    @Override
+    public CompletionStage<LockHandle> tryLockAsync(String lockKey, long timeout, TimeUnit unit) {
+        return new Acquisition(lockKey).start(timeout, unit);
+    }
+
+    public int getQuorum() {
+        return quorum;
+    }
+
+    /**
+     * 一次加锁：各节点的结果到达后计数，达到多数派或多数派已不可能时决定结果
+     */
+    private final class Acquisition implements LockHandle {
+        private final String lockKey;
+        private final LockHandle[] handles = new LockHandle[nodes.size()];
+        private final CompletableFuture<LockHandle> result = new CompletableFuture<>();
+        private long startNanos;
+        private int granted;
+        private int failed;
+        private boolean released;
+
+        private Acquisition(String lockKey) {
+            this.lockKey = lockKey;
+        }
+
+        private CompletableFuture<LockHandle> start(long timeout, TimeUnit unit) {
+            startNanos = System.nanoTime();
+            for (int i = 0; i < handles.length; i++) {
+                int index = i;
+                try {
+                    nodes.get(i).tryLockAsync(lockKey, timeout, unit)
+                            .whenComplete((handle, error) -> onResult(index, handle, error));
+                } catch (RuntimeException e) {
+                    onResult(index, null, e);
+                }
+            }
+            return result;
+        }
+
+        private void onResult(int index, LockHandle handle, Throwable error) {
+            boolean releaseLate = false;
+            boolean reachQuorum = false;
+            boolean loseQuorum = false;
+            synchronized (this) {
+                if (handle == null) {
+                    loseQuorum = ++failed == handles.length - quorum + 1;
+                } else if (released) {
+                    releaseLate = true;
+                } else {
+                    handles[index] = handle;
+                    reachQuorum = ++granted == quorum;
+                }
+            }
+            if (error != null) {
+                LOGGER.warn("quorum lock, node {} acquire fail:{}", index, lockKey, error);
+            }
+            if (releaseLate) {
+                handle.unlockAsync();
+            } else if (reachQuorum) {
+                long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+                if (elapsedMillis + validityMillis / 100 + 1 < validityMillis) {
+                    if (!result.complete(this)) {
+                        unlockAsync();
+                    }
+                } else {
+                    LOGGER.warn("quorum lock, acquire exceed validity, elapsed:{}ms, key:{}", elapsedMillis, lockKey);
+                    abort();
+                }
+            } else if (loseQuorum) {
+                abort();
+            }
+        }
+
+        /**
+         * 放弃本次加锁，释放已获取的节点
+         */
+        private void abort() {
+            result.complete(null);
+            unlockAsync();
+        }
+
+        @Override
+        public String getLockKey() {
+            return lockKey;
+        }
+
+        @Override
+        public CompletionStage<Void> unlockAsync() {
+            List<CompletableFuture<Void>> unlocks = new ArrayList<>(handles.length);
+            synchronized (this) {
+                released = true;
+                for (int i = 0; i < handles.length; i++) {
+                    if (handles[i] != null) {
+                        unlocks.add(handles[i].unlockAsync().toCompletableFuture());
+                        handles[i] = null;
+                    }
+                }
+            }
+            return CompletableFuture.allOf(unlocks.toArray(new CompletableFuture<?>[0]));
+        }
+    }
+
+    private final class QuorumLock implements Lock {
+        private final String lockKey;
+        private volatile Acquisition held;
+
+        private QuorumLock(String lockKey) {
+            this.lockKey = lockKey;
+        }
+
+        @Override
+        public void lock() {
+            boolean interrupted = false;
+            for (; ; ) {
+                try {
+                    lockInterruptibly();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public void lockInterruptibly() throws InterruptedException {
+            while (!tryLock(validityMillis, TimeUnit.MILLISECONDS)) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(ThreadLocalRandom.current().nextLong(MAX_RETRY_DELAY_MILLIS)));
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            }
+        }
+
+        @Override
+        public boolean tryLock() {
+            try {
+                return tryLock(0, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+
+        @Override
+        public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+            if (held != null) {
+                throw new IllegalStateException("quorum lock is not reentrant:" + lockKey);
+            }
+            Acquisition acquisition = new Acquisition(lockKey);
+            CompletableFuture<LockHandle> result = acquisition.start(time, unit);
+            try {
+                if (result.get(unit.toMillis(time) + RESPONSE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS) == null) {
+                    return false;
+                }
+            } catch (InterruptedException e) {
+                acquisition.abort();
+                throw e;
+            } catch (TimeoutException e) {
+                acquisition.abort();
+                return false;
+            } catch (ExecutionException e) {
+                acquisition.abort();
+                throw new IllegalStateException("acquire quorum lock fail:" + lockKey, e.getCause());
+            }
+            held = acquisition;
+            return true;
+        }
+
+        @Override
+        public void unlock() {
+            Acquisition acquisition = held;
+            if (acquisition == null) {
+                throw new IllegalMonitorStateException("quorum lock not held:" + lockKey);
+            }
+            held = null;
+            acquisition.unlockAsync();
+        }
+
+        @Override
+        public Condition newCondition() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
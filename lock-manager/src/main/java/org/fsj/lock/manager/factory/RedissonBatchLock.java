@@ -0,0 +1,231 @@
+package org.fsj.lock.manager.factory;
+
+import org.redisson.api.RScript;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * 基于Lua脚本的Redis批量锁
+ *
+ * <p>
+ * 一次脚本调用（一次网络往返）检查并获取全部key，任何一个key被其他持有者占用则一个都不获取。
+ * 数据结构与{@link org.redisson.api.RLock}一致（hash的field为clientId:threadId，值为重入次数），
+ * 释放时向相同的channel发布解锁消息，因此可以和单key的RLock混用同一个key。
+ * 持有期间每个key由{@link RedissonLeaseManager}续期。
+ * 等待时订阅被占用key的解锁channel，收到解锁消息或占用者租期结束时重试，不轮询。
+ * 集群模式下一次脚本的所有key必须在同一个slot，需要通过hash tag（如lock_{order}_1）保证。
+ * </p>
+ */
+class RedissonBatchLock implements Lock {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RedissonBatchLock.class);
+
+    /**
+     * KEYS：要加锁的key；ARGV[1]：租期毫秒，ARGV[2]：持有者
+     * 获取成功返回nil，否则返回{占用者剩余的租期, 被占用key的下标（从1开始）}
+     */
+    static final String ACQUIRE_SCRIPT =
+            "for i = 1, #KEYS do " +
+                "if (redis.call('exists', KEYS[i]) == 1) and (redis.call('hexists', KEYS[i], ARGV[2]) == 0) then " +
+                    "return {redis.call('pttl', KEYS[i]), i}; " +
+                "end; " +
+            "end; " +
+            "for i = 1, #KEYS do " +
+                "redis.call('hincrby', KEYS[i], ARGV[2], 1); " +
+                "redis.call('pexpire', KEYS[i], ARGV[1]); " +
+            "end; " +
+            "return nil;";
+
+    /**
+     * KEYS：要解锁的key；ARGV[1]：解锁消息，ARGV[2]：租期毫秒，ARGV[3]：持有者，ARGV[4...]：各key对应的channel
+     * 返回实际释放的key数量
+     */
+    private static final String RELEASE_SCRIPT =
+            "local released = 0; " +
+            "for i = 1, #KEYS do " +
+                "if (redis.call('hexists', KEYS[i], ARGV[3]) == 1) then " +
+                    "local counter = redis.call('hincrby', KEYS[i], ARGV[3], -1); " +
+                    "if (counter > 0) then " +
+                        "redis.call('pexpire', KEYS[i], ARGV[2]); " +
+                    "else " +
+                        "redis.call('del', KEYS[i]); " +
+                        "redis.call('publish', ARGV[3 + i], ARGV[1]); " +
+                    "end; " +
+                    "released = released + 1; " +
+                "end; " +
+            "end; " +
+            "return released;";
+
+    private final RScript script;
+
+    private final String clientId;
+
+    private final List<Object> lockKeys;
+
+    private final String routingKey;
+
+    private final Object[] releaseArgs;
+
+    private final long leaseMillis;
+
+    private final RedissonLeaseManager leaseManager;
+
+    private final RedissonUnlockSubscriptions unlockSubscriptions;
+
+    RedissonBatchLock(RedissonClient redissonClient, String clientId, List<String> sortedLockKeys,
+                      long leaseMillis, RedissonLeaseManager leaseManager, RedissonUnlockSubscriptions unlockSubscriptions) {
+        this.script = redissonClient.getScript(StringCodec.INSTANCE);
+        this.clientId = clientId;
+        this.lockKeys = Collections.unmodifiableList(new ArrayList<Object>(sortedLockKeys));
+        this.routingKey = sortedLockKeys.get(0);
+        this.leaseMillis = leaseMillis;
+        this.leaseManager = leaseManager;
+        this.unlockSubscriptions = unlockSubscriptions;
+        this.releaseArgs = new Object[3 + sortedLockKeys.size()];
+        this.releaseArgs[0] = RedissonLeaseManager.UNLOCK_MESSAGE;
+        this.releaseArgs[1] = String.valueOf(leaseMillis);
+        for (int i = 0; i < sortedLockKeys.size(); i++) {
+            releaseArgs[3 + i] = RedissonLeaseManager.channelName(sortedLockKeys.get(i));
+        }
+    }
+
+    private String lockName(long threadId) {
+        return clientId + ":" + threadId;
+    }
+
+    /**
+     * @return 获取成功返回null，否则返回{占用者剩余租期, 被占用key的下标（从1开始）}
+     */
+    private List<Long> tryAcquire(long threadId) {
+        return script.eval(routingKey, RScript.Mode.READ_WRITE, ACQUIRE_SCRIPT, RScript.ReturnType.MULTI,
+                lockKeys, String.valueOf(leaseMillis), lockName(threadId));
+    }
+
+    /**
+     * 被占用key的解锁channel
+     */
+    private String blockedChannel(List<Long> blocked) {
+        return (String) releaseArgs[2 + blocked.get(1).intValue()];
+    }
+
+    @Override
+    public void lock() {
+        boolean interrupted = false;
+        for (; ; ) {
+            try {
+                lockInterruptibly();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void lockInterruptibly() throws InterruptedException {
+        tryLock(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public boolean tryLock() {
+        long threadId = Thread.currentThread().getId();
+        if (tryAcquire(threadId) != null) {
+            return false;
+        }
+        onAcquired(threadId);
+        return true;
+    }
+
+    /**
+     * 先订阅被占用key的解锁channel再重试，订阅之前发布的解锁消息不会错过；被占用的key变化时改为订阅新的key
+     */
+    @Override
+    public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+        long threadId = Thread.currentThread().getId();
+        List<Long> blocked = tryAcquire(threadId);
+        if (blocked == null) {
+            onAcquired(threadId);
+            return true;
+        }
+        long waitMillis = unit.toMillis(time);
+        if (waitMillis <= 0) {
+            return false;
+        }
+        long deadline = waitMillis >= Long.MAX_VALUE / 2 ? Long.MAX_VALUE : System.currentTimeMillis() + waitMillis;
+        RedissonUnlockSubscriptions.Subscription subscription = null;
+        try {
+            for (; ; ) {
+                String channel = blockedChannel(blocked);
+                if (subscription == null || !subscription.getChannel().equals(channel)) {
+                    if (subscription != null) {
+                        unlockSubscriptions.unsubscribe(subscription);
+                        subscription = null;
+                    }
+                    subscription = unlockSubscriptions.subscribe(channel);
+                } else {
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0) {
+                        return false;
+                    }
+                    long ttl = blocked.get(0);
+                    subscription.await(ttl > 0 ? Math.min(ttl, remaining) : remaining);
+                }
+                blocked = tryAcquire(threadId);
+                if (blocked == null) {
+                    onAcquired(threadId);
+                    return true;
+                }
+            }
+        } finally {
+            if (subscription != null) {
+                unlockSubscriptions.unsubscribe(subscription);
+            }
+        }
+    }
+
+    @Override
+    public void unlock() {
+        long threadId = Thread.currentThread().getId();
+        Object[] args = releaseArgs.clone();
+        args[2] = lockName(threadId);
+        Long released = script.eval(routingKey, RScript.Mode.READ_WRITE, RELEASE_SCRIPT, RScript.ReturnType.INTEGER,
+                lockKeys, args);
+        onReleased(threadId);
+        if (released == null || released == 0) {
+            throw new IllegalMonitorStateException("attempt to unlock batch lock, not locked by current thread:" + lockName(threadId));
+        }
+        if (released < lockKeys.size()) {
+            LOGGER.warn("batch lock partially expired before unlock, released:{}/{}, first key:{}", released, lockKeys.size(), routingKey);
+        }
+    }
+
+    private void onAcquired(long threadId) {
+        String lockName = lockName(threadId);
+        for (Object lockKey : lockKeys) {
+            leaseManager.register((String) lockKey, lockName, leaseMillis);
+        }
+    }
+
+    private void onReleased(long threadId) {
+        String lockName = lockName(threadId);
+        for (Object lockKey : lockKeys) {
+            leaseManager.deregister((String) lockKey, lockName);
+        }
+    }
+
+    @Override
+    public Condition newCondition() {
+        throw new UnsupportedOperationException("newCondition");
+    }
+}
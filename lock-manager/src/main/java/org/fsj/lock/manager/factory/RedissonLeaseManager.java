@@ -0,0 +1,463 @@
+package org.fsj.lock.manager.factory;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.redisson.api.RBatch;
+import org.redisson.api.RFuture;
+import org.redisson.api.RScript;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分布式锁租期管理
+ *
+ * <p>
+ * 记录本进程持有的所有Redis锁（key + 持有者），由一个调度线程统一续期：
+ * 每个tick把到期需要续期的锁放进一个{@link RBatch}，Redisson按节点分组后每个节点只发送一次pipeline，
+ * 定时器和网络往返的数量只和Redis节点数相关，不再是每把锁一个watchdog定时器。
+ * 每把锁在租期过去1/3时续期；续期时发现锁已不属于本进程（租期已过被其他人获取）则停止续期并告警。
+ * {@link #close()}时以pipeline方式释放仍持有的锁，避免其他节点等到租期结束。
+ * </p>
+ * <p>
+ * 读写锁的读锁每次重入另有一个超时key，续期时一并续期，见{@link LeaseKind}。
+ * </p>
+ */
+public class RedissonLeaseManager implements Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RedissonLeaseManager.class);
+
+    /**
+     * KEYS[1]：锁；ARGV[1]：租期毫秒，ARGV[2]：持有者
+     */
+    private static final String RENEW_SCRIPT =
+            "if (redis.call('hexists', KEYS[1], ARGV[2]) == 1) then " +
+                "redis.call('pexpire', KEYS[1], ARGV[1]); " +
+                "return 1; " +
+            "end; " +
+            "return 0;";
+
+    /**
+     * KEYS[1]：锁；ARGV[1]：持有者，ARGV[2]：channel，ARGV[3]：解锁消息
+     */
+    private static final String RELEASE_SCRIPT =
+            "if (redis.call('hexists', KEYS[1], ARGV[1]) == 1) then " +
+                "redis.call('del', KEYS[1]); " +
+                "redis.call('publish', ARGV[2], ARGV[3]); " +
+                "return 1; " +
+            "end; " +
+            "return 0;";
+
+    /**
+     * 读锁续期：续期本持有者每次重入的超时key，锁本身的过期时间只延长不缩短。
+     * KEYS[1]：锁，KEYS[2]：超时key前缀；ARGV[1]：租期毫秒，ARGV[2]：持有者
+     */
+    private static final String READ_RENEW_SCRIPT =
+            "local counter = redis.call('hget', KEYS[1], ARGV[2]); " +
+            "if (counter == false) then " +
+                "return 0; " +
+            "end; " +
+            "for i = tonumber(counter), 1, -1 do " +
+                "redis.call('pexpire', KEYS[2] .. ':' .. ARGV[2] .. ':rwlock_timeout:' .. i, ARGV[1]); " +
+            "end; " +
+            "if (redis.call('pttl', KEYS[1]) < tonumber(ARGV[1])) then " +
+                "redis.call('pexpire', KEYS[1], ARGV[1]); " +
+            "end; " +
+            "return 1;";
+
+    /**
+     * 读锁释放：删除本持有者的计数和超时key，没有其他持有者时删除锁并通知等待者。
+     * KEYS[1]：锁，KEYS[2]：超时key前缀；ARGV[1]：持有者，ARGV[2]：channel，ARGV[3]：解锁消息
+     */
+    private static final String READ_RELEASE_SCRIPT =
+            "local counter = redis.call('hget', KEYS[1], ARGV[1]); " +
+            "if (counter == false) then " +
+                "return 0; " +
+            "end; " +
+            "for i = tonumber(counter), 1, -1 do " +
+                "redis.call('del', KEYS[2] .. ':' .. ARGV[1] .. ':rwlock_timeout:' .. i); " +
+            "end; " +
+            "redis.call('hdel', KEYS[1], ARGV[1]); " +
+            "if (redis.call('hlen', KEYS[1]) > 1) then " +
+                "return 1; " +
+            "end; " +
+            "redis.call('del', KEYS[1]); " +
+            "redis.call('publish', ARGV[2], ARGV[3]); " +
+            "return 1;";
+
+    /**
+     * 信号量续期：许可未过期时更新其过期时间，并把zset和信号量的过期时间延长到不少于ARGV[3]。
+     * KEYS[1]：许可过期时间zset，KEYS[2]：信号量；ARGV[1]：许可id，ARGV[2]：新的过期时间戳，ARGV[3]：key的过期时间
+     */
+    private static final String SEMAPHORE_RENEW_SCRIPT =
+            "if (redis.call('zscore', KEYS[1], ARGV[1]) ~= false) then " +
+                "redis.call('zadd', KEYS[1], ARGV[2], ARGV[1]); " +
+                "for i = 1, 2 do " +
+                    "if (redis.call('pttl', KEYS[i]) < tonumber(ARGV[3])) then " +
+                        "redis.call('pexpire', KEYS[i], ARGV[3]); " +
+                    "end; " +
+                "end; " +
+                "return 1; " +
+            "end; " +
+            "return 0;";
+
+    /**
+     * 延长信号量和许可过期时间zset的过期时间，已有的过期时间更长时不变。
+     * KEYS[1]：信号量，KEYS[2]：许可过期时间zset；ARGV[1]：key的过期时间
+     */
+    private static final String SEMAPHORE_EXPIRE_SCRIPT =
+            "for i = 1, 2 do " +
+                "if (redis.call('pttl', KEYS[i]) < tonumber(ARGV[1])) then " +
+                    "redis.call('pexpire', KEYS[i], ARGV[1]); " +
+                "end; " +
+            "end; " +
+            "return 1;";
+
+    /**
+     * 信号量释放：许可未过期时归还并通知等待者。
+     * KEYS[1]：信号量，KEYS[2]：许可过期时间zset；ARGV[1]：许可id，ARGV[2]：channel
+     */
+    private static final String SEMAPHORE_RELEASE_SCRIPT =
+            "if (redis.call('zrem', KEYS[2], ARGV[1]) == 1) then " +
+                "local value = redis.call('incrby', KEYS[1], 1); " +
+                "redis.call('publish', ARGV[2], value); " +
+                "return 1; " +
+            "end; " +
+            "return 0;";
+
+    /**
+     * 与RedissonLock一致的解锁消息
+     */
+    static final String UNLOCK_MESSAGE = "0";
+
+    /**
+     * 与RedissonWriteLock一致的解锁消息，唤醒所有等待者
+     */
+    static final String READ_UNLOCK_MESSAGE = "1";
+
+    /**
+     * RedissonLock解锁消息channel的前缀
+     */
+    static final String CHANNEL_PREFIX = "redisson_lock__channel:";
+
+    /**
+     * 锁的类型，决定续期、释放使用的脚本和解锁通知的channel
+     */
+    enum LeaseKind {
+        /**
+         * RLock，持有者字段为clientId:threadId
+         */
+        LOCK,
+        /**
+         * 读写锁的读锁，持有者字段为clientId:threadId，每次重入另有一个超时key
+         */
+        READ,
+        /**
+         * 读写锁的写锁，持有者字段为clientId:threadId:write
+         */
+        WRITE,
+        /**
+         * RPermitExpirableSemaphore的许可，持有者为许可id，过期时间记录在{name}:timeout中
+         */
+        SEMAPHORE
+    }
+
+    private final RedissonClient redissonClient;
+
+    private final ScheduledExecutorService scheduler;
+
+    private final ConcurrentHashMap<LeaseKey, Lease> leases = new ConcurrentHashMap<>();
+
+    private final long tickMillis;
+
+    /**
+     * @param tickMillis 检查续期的间隔，需小于最短租期的1/3
+     */
+    public RedissonLeaseManager(RedissonClient redissonClient, long tickMillis) {
+        Preconditions.checkArgument(tickMillis > 0, "tickMillis必须大于0");
+        this.redissonClient = Objects.requireNonNull(redissonClient, "redissonClient");
+        this.tickMillis = tickMillis;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("redisson-lock-lease-%d").setDaemon(true).build());
+        this.scheduler.scheduleWithFixedDelay(this::renewDue, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 与RedissonLock一致的channel名称
+     */
+    static String channelName(String lockKey) {
+        return CHANNEL_PREFIX + keyPrefix(lockKey);
+    }
+
+    /**
+     * 与RedissonReadWriteLock一致的channel名称
+     */
+    static String readWriteChannelName(String lockKey) {
+        return "redisson_rwlock:" + keyPrefix(lockKey);
+    }
+
+    /**
+     * 与RedissonPermitExpirableSemaphore一致的channel名称
+     */
+    static String semaphoreChannelName(String lockKey) {
+        return "redisson_sc:" + keyPrefix(lockKey);
+    }
+
+    /**
+     * 与RedissonPermitExpirableSemaphore一致的许可过期时间zset名称
+     */
+    static String semaphoreTimeoutName(String lockKey) {
+        return keyPrefix(lockKey) + ":timeout";
+    }
+
+    /**
+     * 信号量key的过期时间：租期的2倍，持有许可期间每次续期（间隔为租期的1/3）都会延长，
+     * 所有许可归还后空闲超过该时间由Redis删除
+     */
+    static long semaphoreKeyTtl(long leaseMillis) {
+        return leaseMillis * 2;
+    }
+
+    /**
+     * 获取许可后异步延长信号量key的过期时间：第一次获取许可时才创建的zset在第一次续期前也有过期时间
+     */
+    void expireSemaphore(String lockKey, long leaseMillis) {
+        String timeoutName = semaphoreTimeoutName(lockKey);
+        redissonClient.getScript(StringCodec.INSTANCE).evalAsync(lockKey, RScript.Mode.READ_WRITE, SEMAPHORE_EXPIRE_SCRIPT,
+                RScript.ReturnType.INTEGER, Arrays.<Object>asList(lockKey, timeoutName), String.valueOf(semaphoreKeyTtl(leaseMillis)));
+    }
+
+    /**
+     * 与锁落在同一个slot的关联key前缀
+     */
+    private static String keyPrefix(String lockKey) {
+        return lockKey.contains("{") ? lockKey : "{" + lockKey + "}";
+    }
+
+    public long getTickMillis() {
+        return tickMillis;
+    }
+
+    /**
+     * 校验租期大于续期检查间隔的3倍，否则续期可能晚于租期结束
+     *
+     * @throws IllegalArgumentException 租期过短
+     */
+    public void checkLease(long leaseMillis) {
+        Preconditions.checkArgument(leaseMillis > 3 * tickMillis,
+                "租期必须大于续期检查间隔的3倍, leaseMillis:%s, tickMillis:%s", leaseMillis, tickMillis);
+    }
+
+    /**
+     * 登记一次加锁，重入时只增加计数
+     */
+    public void register(String lockKey, String ownerName, long leaseMillis) {
+        register(lockKey, ownerName, leaseMillis, LeaseKind.LOCK);
+    }
+
+    /**
+     * 登记一次指定类型的加锁
+     *
+     * @param ownerName 锁中的持有者字段
+     */
+    void register(String lockKey, String ownerName, long leaseMillis, LeaseKind kind) {
+        leases.compute(new LeaseKey(lockKey, ownerName, kind), (key, lease) -> {
+            if (lease == null) {
+                return new Lease(key, leaseMillis, kind);
+            }
+            lease.holds++;
+            return lease;
+        });
+    }
+
+    /**
+     * 登记一次解锁，计数归零后不再续期
+     */
+    public void deregister(String lockKey, String ownerName) {
+        deregister(lockKey, ownerName, LeaseKind.LOCK);
+    }
+
+    /**
+     * 登记一次指定类型的解锁
+     */
+    void deregister(String lockKey, String ownerName, LeaseKind kind) {
+        leases.computeIfPresent(new LeaseKey(lockKey, ownerName, kind), (key, lease) -> --lease.holds > 0 ? lease : null);
+    }
+
+    /**
+     * 该持有者是否持有（登记过且未解锁）该互斥锁
+     */
+    boolean isHeld(String lockKey, String ownerName) {
+        return leases.containsKey(new LeaseKey(lockKey, ownerName, LeaseKind.LOCK));
+    }
+
+    /**
+     * 当前续期中的锁数量
+     */
+    public int size() {
+        return leases.size();
+    }
+
+    private void renewDue() {
+        try {
+            long now = System.currentTimeMillis();
+            RBatch batch = null;
+            List<Lease> renewing = new ArrayList<>();
+            List<RFuture<Long>> results = new ArrayList<>();
+            for (Lease lease : leases.values()) {
+                if (lease.nextRenewAt > now) {
+                    continue;
+                }
+                if (batch == null) {
+                    batch = redissonClient.createBatch();
+                }
+                results.add(renew(batch, lease, now));
+                lease.nextRenewAt = now + lease.leaseMillis / 3;
+                renewing.add(lease);
+            }
+            if (batch == null) {
+                return;
+            }
+            batch.execute();
+            for (int i = 0; i < renewing.size(); i++) {
+                Lease lease = renewing.get(i);
+                Long renewed = results.get(i).getNow();
+                if (renewed != null && renewed == 0 && leases.remove(lease.key, lease)) {
+                    LOGGER.warn("lock lease lost, key:{}, owner:{}", lease.key.lockKey, lease.key.ownerName);
+                }
+            }
+        } catch (RuntimeException e) {
+            LOGGER.warn("renew lock leases fail", e);
+        }
+    }
+
+    /**
+     * 停止续期，并释放本进程仍持有的锁
+     */
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        if (leases.isEmpty() || redissonClient.isShutdown()) {
+            return;
+        }
+        try {
+            RBatch batch = redissonClient.createBatch();
+            for (Lease lease : leases.values()) {
+                release(batch, lease);
+            }
+            batch.execute();
+            LOGGER.info("release held locks on shutdown:{}", leases.size());
+        } catch (RuntimeException e) {
+            LOGGER.warn("release held locks on shutdown fail", e);
+        } finally {
+            leases.clear();
+        }
+    }
+
+    private RFuture<Long> renew(RBatch batch, Lease lease, long now) {
+        String lockKey = lease.key.lockKey;
+        if (lease.kind == LeaseKind.SEMAPHORE) {
+            String timeoutName = semaphoreTimeoutName(lockKey);
+            return batch.getScript(StringCodec.INSTANCE).evalAsync(timeoutName, RScript.Mode.READ_WRITE, SEMAPHORE_RENEW_SCRIPT,
+                    RScript.ReturnType.INTEGER, Arrays.<Object>asList(timeoutName, lockKey),
+                    lease.key.ownerName, String.valueOf(now + lease.leaseMillis), String.valueOf(semaphoreKeyTtl(lease.leaseMillis)));
+        }
+        if (lease.kind == LeaseKind.READ) {
+            return batch.getScript(StringCodec.INSTANCE).evalAsync(lockKey, RScript.Mode.READ_WRITE, READ_RENEW_SCRIPT,
+                    RScript.ReturnType.INTEGER, Arrays.<Object>asList(lockKey, keyPrefix(lockKey)),
+                    String.valueOf(lease.leaseMillis), lease.key.ownerName);
+        }
+        return batch.getScript(StringCodec.INSTANCE).evalAsync(lockKey, RScript.Mode.READ_WRITE, RENEW_SCRIPT,
+                RScript.ReturnType.INTEGER, Collections.<Object>singletonList(lockKey),
+                String.valueOf(lease.leaseMillis), lease.key.ownerName);
+    }
+
+    private void release(RBatch batch, Lease lease) {
+        String lockKey = lease.key.lockKey;
+        switch (lease.kind) {
+            case READ:
+                batch.getScript(StringCodec.INSTANCE).evalAsync(lockKey, RScript.Mode.READ_WRITE, READ_RELEASE_SCRIPT,
+                        RScript.ReturnType.INTEGER, Arrays.<Object>asList(lockKey, keyPrefix(lockKey)),
+                        lease.key.ownerName, readWriteChannelName(lockKey), UNLOCK_MESSAGE);
+                break;
+            case SEMAPHORE:
+                batch.getScript(StringCodec.INSTANCE).evalAsync(lockKey, RScript.Mode.READ_WRITE, SEMAPHORE_RELEASE_SCRIPT,
+                        RScript.ReturnType.INTEGER, Arrays.<Object>asList(lockKey, semaphoreTimeoutName(lockKey)),
+                        lease.key.ownerName, semaphoreChannelName(lockKey));
+                break;
+            case WRITE:
+                batch.getScript(StringCodec.INSTANCE).evalAsync(lockKey, RScript.Mode.READ_WRITE, RELEASE_SCRIPT,
+                        RScript.ReturnType.INTEGER, Collections.<Object>singletonList(lockKey),
+                        lease.key.ownerName, readWriteChannelName(lockKey), READ_UNLOCK_MESSAGE);
+                break;
+            default:
+                batch.getScript(StringCodec.INSTANCE).evalAsync(lockKey, RScript.Mode.READ_WRITE, RELEASE_SCRIPT,
+                        RScript.ReturnType.INTEGER, Collections.<Object>singletonList(lockKey),
+                        lease.key.ownerName, channelName(lockKey), UNLOCK_MESSAGE);
+                break;
+        }
+    }
+
+    /**
+     * 同一个key、同一个持有者的不同类型的锁（如读锁和互斥锁）分别登记
+     */
+    private static final class LeaseKey {
+        private final String lockKey;
+        private final String ownerName;
+        private final LeaseKind kind;
+
+        LeaseKey(String lockKey, String ownerName, LeaseKind kind) {
+            this.lockKey = lockKey;
+            this.ownerName = ownerName;
+            this.kind = kind;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof LeaseKey)) {
+                return false;
+            }
+            LeaseKey that = (LeaseKey) o;
+            return lockKey.equals(that.lockKey) && ownerName.equals(that.ownerName) && kind == that.kind;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * lockKey.hashCode() + ownerName.hashCode()) + kind.hashCode();
+        }
+    }
+
+    private static final class Lease {
+        private final LeaseKey key;
+        private final long leaseMillis;
+        private final LeaseKind kind;
+
+        /**
+         * 只在ConcurrentHashMap.compute中修改
+         */
+        private int holds = 1;
+
+        private volatile long nextRenewAt;
+
+        Lease(LeaseKey key, long leaseMillis, LeaseKind kind) {
+            this.key = key;
+            this.leaseMillis = leaseMillis;
+            this.kind = kind;
+            this.nextRenewAt = System.currentTimeMillis() + leaseMillis / 3;
+        }
+    }
+}
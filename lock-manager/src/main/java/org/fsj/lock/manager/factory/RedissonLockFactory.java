@@ -1,24 +1,681 @@
 package org.fsj.lock.manager.factory;
 
 
+import com.google.common.base.Preconditions;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
 import org.redisson.Redisson;
+import org.redisson.api.RLock;
+import org.redisson.api.RPatternTopic;
+import org.redisson.api.RPermitExpirableSemaphore;
+import org.redisson.api.RReadWriteLock;
+import org.redisson.api.RScript;
+import org.redisson.api.RedissonClient;
+import org.redisson.api.listener.PatternStatusListener;
+import org.redisson.client.codec.StringCodec;
 import org.redisson.config.Config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.io.Closeable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
 
+/**
+ * 基于Redisson的分布式锁工厂
+ *
+ * <p>
+ * 整个工厂共享一个{@link RedissonClient}（连接池、事件循环只创建一次），构造时即建立连接并预热，
+ * {@link #close()}时释放；锁句柄按lockKey缓存，缓存有上限，超出后按LRU淘汰。
+ * RLock句柄本身不记录持有状态（持有者由clientId+threadId标识），被淘汰后重新创建的句柄仍可正常解锁。
+ * </p>
+ * <p>
+ * 所有锁都以显式租期获取（不启用RLock自带的watchdog），由工厂内的{@link RedissonLeaseManager}统一批量续期，
+ * 关闭工厂时释放仍持有的锁。
+ * </p>
+ * <p>
+ * 读写锁基于{@link RReadWriteLock}，句柄单独缓存，租期和续期方式与互斥锁相同；
+ * Redis中使用{@link LockFactory#readWriteKey(String)}，与同名互斥锁的hash分开，读锁的释放不会删除互斥锁。
+ * </p>
+ * <p>
+ * 信号量基于{@link RPermitExpirableSemaphore}：每个许可有独立的过期时间，持有期间同样由续期管理器续期，
+ * 持有者宕机后许可过期，下次获取时自动归还。Redis中的key为{@link #semaphoreKey(String, int)}，与同名互斥锁分开，
+ * 并且不同许可数量是不同的信号量（与本地实现按许可数量分表一致）：修改permits后使用新的信号量，
+ * 滚动发布期间新旧许可数量的调用方互不限制。许可数量在key不存在时初始化；信号量key的过期时间为租期的2倍，
+ * 获取和续期许可时延长，所有许可归还后空闲超过该时间由Redis删除，之后再使用时重新初始化。
+ * </p>
+ * <p>
+ * 异步加锁基于RLock的异步API，以每次加锁独立的虚拟持有者身份获取，可以在任意线程释放，等待期间不占用调用线程。
+ * </p>
+ * <p>
+ * 可选开启{@link NegativeLockCache}（{@link #enableNegativeCache}）：timeout为0的互斥锁加锁以一次脚本调用获取并取回占用者的剩余租期，
+ * 失败时缓存"被其他持有者持有"，之后同一个key的timeout为0的加锁在本地直接失败，直到收到解锁消息或剩余租期结束。
+ * </p>
+ */
+public class RedissonLockFactory implements LockFactory, AsyncLockFactory, Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RedissonLockFactory.class);
 
-public class RedissonLockFactory implements LockFactory {
+    /**
+     * 默认缓存的锁句柄数量上限
+     */
+    public static final int DEFAULT_MAX_CACHED_LOCKS = 10000;
 
-    private Config config;
+    /**
+     * 默认续期检查间隔
+     */
+    public static final long DEFAULT_LEASE_TICK_MILLIS = 1000;
+
+    /**
+     * 信号量不存在时初始化许可数量并清除残留的许可过期时间zset，然后把两者的过期时间延长到不少于ARGV[2]。
+     * KEYS[1]：信号量，KEYS[2]：许可过期时间zset；ARGV[1]：许可数量，ARGV[2]：key的过期时间
+     */
+    private static final String SEMAPHORE_INIT_SCRIPT =
+            "if (redis.call('exists', KEYS[1]) == 0) then " +
+                "redis.call('set', KEYS[1], ARGV[1]); " +
+                "redis.call('del', KEYS[2]); " +
+            "end; " +
+            "for i = 1, 2 do " +
+                "if (redis.call('pttl', KEYS[i]) < tonumber(ARGV[2])) then " +
+                    "redis.call('pexpire', KEYS[i], ARGV[2]); " +
+                "end; " +
+            "end; " +
+            "return 1;";
+
+    private final RedissonClient redissonClient;
+
+    /**
+     * client是否由本工厂创建，由本工厂创建的client在close时一并shutdown
+     */
+    private final boolean ownClient;
+
+    private final LoadingCache<String, LeasedRedissonLock> lockCache;
+
+    private final LoadingCache<String, LeasedReadWriteLock> readWriteLockCache;
+
+    private final LoadingCache<String, SemaphoreEntry> semaphoreCache;
+
+    /**
+     * 与RLock一致的持有者前缀
+     */
+    private final String clientId;
+
+    /**
+     * 默认租期，与watchdog超时时间一致
+     */
+    private final long leaseMillis;
+
+    private final RedissonLeaseManager leaseManager;
+
+    /**
+     * 批量锁等待时订阅解锁消息
+     */
+    private final RedissonUnlockSubscriptions unlockSubscriptions;
+
+    /**
+     * 未开启时为null
+     */
+    private volatile NegativeLockCache negativeCache;
+
+    /**
+     * 订阅解锁消息的topic，未开启negativeCache时为null
+     */
+    private RPatternTopic unlockTopic;
+
+    private int[] unlockListenerIds;
+
+    private final RScript script;
 
     public RedissonLockFactory(Config config) {
-        this.config = config;
+        this(config, DEFAULT_MAX_CACHED_LOCKS);
+    }
+
+    public RedissonLockFactory(Config config, int maxCachedLocks) {
+        this(Redisson.create(Objects.requireNonNull(config, "config")), maxCachedLocks, true);
+    }
+
+    /**
+     * 使用外部管理的client，close时不会shutdown该client
+     */
+    public RedissonLockFactory(RedissonClient redissonClient, int maxCachedLocks) {
+        this(redissonClient, maxCachedLocks, false);
+    }
+
+    private RedissonLockFactory(RedissonClient redissonClient, int maxCachedLocks, boolean ownClient) {
+        Preconditions.checkArgument(maxCachedLocks > 0, "maxCachedLocks必须大于0");
+        this.redissonClient = Objects.requireNonNull(redissonClient, "redissonClient");
+        this.ownClient = ownClient;
+        this.clientId = ((Redisson) redissonClient).getConnectionManager().getId().toString();
+        this.leaseMillis = redissonClient.getConfig().getLockWatchdogTimeout();
+        this.leaseManager = new RedissonLeaseManager(redissonClient, Math.min(DEFAULT_LEASE_TICK_MILLIS, Math.max(1, leaseMillis / 4)));
+        this.unlockSubscriptions = new RedissonUnlockSubscriptions(redissonClient);
+        this.script = redissonClient.getScript(StringCodec.INSTANCE);
+        this.lockCache = CacheBuilder.newBuilder()
+                .maximumSize(maxCachedLocks)
+                .build(new CacheLoader<String, LeasedRedissonLock>() {
+                    @Override
+                    public LeasedRedissonLock load(String lockKey) {
+                        return new LeasedRedissonLock(RedissonLockFactory.this.redissonClient.getLock(lockKey), leaseMillis,
+                                RedissonLeaseManager.LeaseKind.LOCK);
+                    }
+                });
+        this.readWriteLockCache = CacheBuilder.newBuilder()
+                .maximumSize(maxCachedLocks)
+                .build(new CacheLoader<String, LeasedReadWriteLock>() {
+                    @Override
+                    public LeasedReadWriteLock load(String lockKey) {
+                        return new LeasedReadWriteLock(
+                                RedissonLockFactory.this.redissonClient.getReadWriteLock(LockFactory.readWriteKey(lockKey)), leaseMillis);
+                    }
+                });
+        this.semaphoreCache = CacheBuilder.newBuilder()
+                .maximumSize(maxCachedLocks)
+                .build(new CacheLoader<String, SemaphoreEntry>() {
+                    @Override
+                    public SemaphoreEntry load(String semaphoreKey) {
+                        return new SemaphoreEntry(RedissonLockFactory.this.redissonClient.getPermitExpirableSemaphore(semaphoreKey));
+                    }
+                });
+        warmUp();
     }
 
     @Override
     public Lock getLock(String lockKey) {
-        Redisson redisson = (Redisson) Redisson.create(config);
-        return redisson.getLock(lockKey);
+        return lockCache.getUnchecked(lockKey);
+    }
+
+    /**
+     * @param leaseMillis 租期，小于等于0时使用默认租期；需大于续期检查间隔的3倍
+     * @throws IllegalArgumentException 租期不大于续期检查间隔的3倍
+     */
+    @Override
+    public Lock getLock(String lockKey, long leaseMillis) {
+        LeasedRedissonLock lock = lockCache.getUnchecked(lockKey);
+        if (leaseMillis <= 0 || leaseMillis == this.leaseMillis) {
+            return lock;
+        }
+        leaseManager.checkLease(leaseMillis);
+        return new LeasedRedissonLock(lock.rLock, leaseMillis, RedissonLeaseManager.LeaseKind.LOCK);
+    }
+
+    @Override
+    public ReadWriteLock getReadWriteLock(String lockKey) {
+        return readWriteLockCache.getUnchecked(lockKey);
+    }
+
+    /**
+     * @param leaseMillis 租期，小于等于0时使用默认租期；需大于续期检查间隔的3倍
+     * @throws IllegalArgumentException 租期不大于续期检查间隔的3倍
+     */
+    @Override
+    public ReadWriteLock getReadWriteLock(String lockKey, long leaseMillis) {
+        LeasedReadWriteLock lock = readWriteLockCache.getUnchecked(lockKey);
+        if (leaseMillis <= 0 || leaseMillis == this.leaseMillis) {
+            return lock;
+        }
+        leaseManager.checkLease(leaseMillis);
+        return new LeasedReadWriteLock(lock.rReadWriteLock, leaseMillis);
+    }
+
+    /**
+     * @param leaseMillis 许可租期，小于等于0时使用默认租期；需大于续期检查间隔的3倍
+     * @throws IllegalArgumentException 租期不大于续期检查间隔的3倍
+     */
+    @Override
+    public Lock getSemaphore(String lockKey, int permits, long leaseMillis) {
+        Preconditions.checkArgument(permits > 0, "permits必须大于0");
+        if (leaseMillis > 0) {
+            leaseManager.checkLease(leaseMillis);
+        }
+        SemaphoreEntry entry = semaphoreCache.getUnchecked(semaphoreKey(lockKey, permits));
+        return new LeasedPermitLock(entry, permits, leaseMillis > 0 ? leaseMillis : this.leaseMillis);
+    }
+
+    /**
+     * 获取许可前确保信号量存在，并且剩余过期时间不少于本次租期（第一次续期前不会过期）：
+     * 延长后经过一个租期才再次执行，key被删除（如Redis数据丢失）后最多一个租期内重新初始化
+     */
+    private void ensureSemaphore(SemaphoreEntry entry, int permits, long leaseMillis) {
+        long ttl = RedissonLeaseManager.semaphoreKeyTtl(leaseMillis);
+        long now = System.nanoTime();
+        if (ttl <= entry.ttlMillis && now - entry.refreshAtNanos < 0) {
+            return;
+        }
+        String name = entry.semaphore.getName();
+        script.eval(name, RScript.Mode.READ_WRITE, SEMAPHORE_INIT_SCRIPT, RScript.ReturnType.INTEGER,
+                Arrays.<Object>asList(name, RedissonLeaseManager.semaphoreTimeoutName(name)), String.valueOf(permits), String.valueOf(ttl));
+        entry.refreshAtNanos = now + TimeUnit.MILLISECONDS.toNanos(ttl - leaseMillis);
+        entry.ttlMillis = ttl;
+    }
+
+    /**
+     * 信号量在Redis中的key：与同名互斥锁的hash区分，并按许可数量区分
+     */
+    static String semaphoreKey(String lockKey, int permits) {
+        return lockKey + ":semaphore:" + permits;
+    }
+
+    @Override
+    public CompletionStage<LockHandle> tryLockAsync(String lockKey, long timeout, TimeUnit unit) {
+        RLock lock = lockCache.getUnchecked(lockKey).rLock;
+        long ownerId = LockOwners.nextOwnerId();
+        NegativeLockCache cache = negativeCache;
+        if (timeout <= 0 && cache != null) {
+            return tryLockNowAsync(cache, lock, ownerId);
+        }
+        return lock.tryLockAsync(unit.toMillis(timeout), leaseMillis, TimeUnit.MILLISECONDS, ownerId)
+                .thenApply(acquired -> {
+                    if (!acquired) {
+                        return null;
+                    }
+                    leaseManager.register(lockKey, ownerName(ownerId), leaseMillis);
+                    return new RedissonLockHandle(lock, ownerId);
+                });
+    }
+
+    /**
+     * 异步句柄的持有者唯一，命中缓存时不可能是自己持有
+     */
+    private CompletionStage<LockHandle> tryLockNowAsync(NegativeLockCache cache, RLock lock, long ownerId) {
+        String lockKey = lock.getName();
+        if (cache.isHeld(lockKey)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        long version = cache.version(lockKey);
+        String ownerName = ownerName(ownerId);
+        return script.<List<Long>>evalAsync(lockKey, RScript.Mode.READ_WRITE, RedissonBatchLock.ACQUIRE_SCRIPT, RScript.ReturnType.MULTI,
+                Collections.<Object>singletonList(lockKey), String.valueOf(leaseMillis), ownerName)
+                .thenApply(blocked -> {
+                    if (blocked != null) {
+                        cache.onRejected(lockKey, version, blocked.get(0));
+                        return null;
+                    }
+                    leaseManager.register(lockKey, ownerName, leaseMillis);
+                    return new RedissonLockHandle(lock, ownerId);
+                });
+    }
+
+    /**
+     * 开启timeout为0的互斥锁加锁的本地快速失败缓存，订阅所有key的解锁消息；重复调用返回已开启的缓存
+     *
+     * <p>
+     * 只作用于互斥锁（同步加锁和异步加锁），不作用于读写锁、信号量和批量加锁
+     * </p>
+     *
+     * @param maxTtlMillis 单个key最长缓存时间，实际不超过占用者的剩余租期
+     * @param maxKeys      最多缓存的key数量
+     */
+    public synchronized NegativeLockCache enableNegativeCache(long maxTtlMillis, int maxKeys) {
+        if (negativeCache != null) {
+            return negativeCache;
+        }
+        NegativeLockCache cache = new NegativeLockCache(maxTtlMillis, maxKeys);
+        RPatternTopic topic = redissonClient.getPatternTopic(RedissonLeaseManager.CHANNEL_PREFIX + "*", StringCodec.INSTANCE);
+        int statusListenerId = topic.addListener(new PatternStatusListener() {
+            @Override
+            public void onPSubscribe(String pattern) {
+                LOGGER.info("negative lock cache, subscribe unlock channel:{}", pattern);
+                cache.activate();
+            }
+
+            @Override
+            public void onPUnsubscribe(String pattern) {
+                LOGGER.info("negative lock cache, unsubscribe unlock channel:{}", pattern);
+                cache.deactivate();
+            }
+        });
+        int messageListenerId = topic.addListener(String.class, (pattern, channel, message) -> onUnlockMessage(cache, channel.toString()));
+        cache.activate();
+        this.unlockTopic = topic;
+        this.unlockListenerIds = new int[]{statusListenerId, messageListenerId};
+        this.negativeCache = cache;
+        return cache;
+    }
+
+    /**
+     * channel为前缀加{key}或者本身带hash tag的key，两种key都可能对应同一个channel，都移除
+     */
+    private static void onUnlockMessage(NegativeLockCache cache, String channel) {
+        String lockKey = channel.substring(RedissonLeaseManager.CHANNEL_PREFIX.length());
+        cache.invalidate(lockKey);
+        if (lockKey.length() > 1 && lockKey.charAt(0) == '{' && lockKey.charAt(lockKey.length() - 1) == '}') {
+            cache.invalidate(lockKey.substring(1, lockKey.length() - 1));
+        }
+    }
+
+    public NegativeLockCache getNegativeCache() {
+        return negativeCache;
+    }
+
+    @Override
+    public Lock getMultiLock(List<String> lockKeys) {
+        return getMultiLock(lockKeys, leaseMillis);
+    }
+
+    /**
+     * 一次脚本调用获取全部key，集群模式下所有key需通过hash tag落在同一个slot
+     *
+     * @throws IllegalArgumentException 租期不大于续期检查间隔的3倍
+     */
+    @Override
+    public Lock getMultiLock(List<String> lockKeys, long leaseMillis) {
+        if (lockKeys.isEmpty()) {
+            return new OrderedMultiLock(Collections.<Lock>emptyList());
+        }
+        if (leaseMillis > 0) {
+            leaseManager.checkLease(leaseMillis);
+        }
+        return new RedissonBatchLock(redissonClient, clientId, LockFactory.sortedDistinct(lockKeys),
+                leaseMillis > 0 ? leaseMillis : this.leaseMillis, leaseManager, unlockSubscriptions);
+    }
+
+    public RedissonClient getRedissonClient() {
+        return redissonClient;
+    }
+
+    public RedissonLeaseManager getLeaseManager() {
+        return leaseManager;
+    }
+
+    /**
+     * 与RLock一致的持有者名称
+     */
+    private String ownerName(long threadId) {
+        return clientId + ":" + threadId;
+    }
+
+    /**
+     * 预热：启动时ping所有节点，确保连接已建立，避免首次加锁承担建连开销
+     */
+    private void warmUp() {
+        if (!redissonClient.getNodesGroup().pingAll()) {
+            LOGGER.warn("redisson warm up, ping redis nodes fail");
+        }
+    }
+
+    /**
+     * 以显式租期获取的RLock，持有期间由{@link RedissonLeaseManager}续期
+     */
+    final class LeasedRedissonLock implements Lock {
+        private final RLock rLock;
+        private final long leaseMillis;
+        private final RedissonLeaseManager.LeaseKind kind;
+
+        LeasedRedissonLock(RLock rLock, long leaseMillis, RedissonLeaseManager.LeaseKind kind) {
+            this.rLock = rLock;
+            this.leaseMillis = leaseMillis;
+            this.kind = kind;
+        }
+
+        @Override
+        public void lock() {
+            rLock.lock(leaseMillis, TimeUnit.MILLISECONDS);
+            onAcquired();
+        }
+
+        @Override
+        public void lockInterruptibly() throws InterruptedException {
+            rLock.lockInterruptibly(leaseMillis, TimeUnit.MILLISECONDS);
+            onAcquired();
+        }
+
+        @Override
+        public boolean tryLock() {
+            try {
+                return tryLock(0, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+
+        @Override
+        public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+            NegativeLockCache cache = negativeCache;
+            if (time <= 0 && cache != null && kind == RedissonLeaseManager.LeaseKind.LOCK) {
+                return tryLockNow(cache);
+            }
+            if (!rLock.tryLock(unit.toMillis(time), leaseMillis, TimeUnit.MILLISECONDS)) {
+                return false;
+            }
+            onAcquired();
+            return true;
+        }
+
+        @Override
+        public void unlock() {
+            try {
+                rLock.unlock();
+            } finally {
+                leaseManager.deregister(rLock.getName(), holderName(), kind);
+            }
+        }
+
+        private void onAcquired() {
+            leaseManager.register(rLock.getName(), holderName(), leaseMillis, kind);
+        }
+
+        /**
+         * 不等待加锁：命中缓存且不是当前线程持有（重入）时直接失败，否则以一次脚本调用获取，失败时写入缓存
+         */
+        private boolean tryLockNow(NegativeLockCache cache) {
+            String lockKey = rLock.getName();
+            String holderName = holderName();
+            if (cache.isHeld(lockKey) && !leaseManager.isHeld(lockKey, holderName)) {
+                return false;
+            }
+            long version = cache.version(lockKey);
+            List<Long> blocked = script.eval(lockKey, RScript.Mode.READ_WRITE, RedissonBatchLock.ACQUIRE_SCRIPT, RScript.ReturnType.MULTI,
+                    Collections.<Object>singletonList(lockKey), String.valueOf(leaseMillis), holderName);
+            if (blocked != null) {
+                cache.onRejected(lockKey, version, blocked.get(0));
+                return false;
+            }
+            onAcquired();
+            return true;
+        }
+
+        /**
+         * 锁中的持有者字段，写锁与RedissonWriteLock一致带:write后缀
+         */
+        private String holderName() {
+            String ownerName = ownerName(Thread.currentThread().getId());
+            return kind == RedissonLeaseManager.LeaseKind.WRITE ? ownerName + ":write" : ownerName;
+        }
+
+        @Override
+        public Condition newCondition() {
+            throw new UnsupportedOperationException("newCondition");
+        }
+
+        public String getName() {
+            return rLock.getName();
+        }
+    }
+
+    /**
+     * 以显式租期获取的RReadWriteLock，读锁和写锁都由{@link RedissonLeaseManager}续期
+     */
+    final class LeasedReadWriteLock implements ReadWriteLock {
+        private final RReadWriteLock rReadWriteLock;
+        private final LeasedRedissonLock readLock;
+        private final LeasedRedissonLock writeLock;
+
+        LeasedReadWriteLock(RReadWriteLock rReadWriteLock, long leaseMillis) {
+            this.rReadWriteLock = rReadWriteLock;
+            this.readLock = new LeasedRedissonLock(rReadWriteLock.readLock(), leaseMillis, RedissonLeaseManager.LeaseKind.READ);
+            this.writeLock = new LeasedRedissonLock(rReadWriteLock.writeLock(), leaseMillis, RedissonLeaseManager.LeaseKind.WRITE);
+        }
+
+        @Override
+        public Lock readLock() {
+            return readLock;
+        }
+
+        @Override
+        public Lock writeLock() {
+            return writeLock;
+        }
+    }
+
+    /**
+     * 缓存的信号量句柄
+     */
+    static final class SemaphoreEntry {
+        private final RPermitExpirableSemaphore semaphore;
+
+        /**
+         * 最近一次初始化时延长到的key过期时间，为0时尚未初始化
+         */
+        private volatile long ttlMillis;
+
+        /**
+         * 需要再次初始化的时间（System.nanoTime）
+         */
+        private volatile long refreshAtNanos;
+
+        SemaphoreEntry(RPermitExpirableSemaphore semaphore) {
+            this.semaphore = semaphore;
+        }
+    }
+
+    /**
+     * 信号量的一次持有，获取的许可id保存在实例中，持有期间由{@link RedissonLeaseManager}续期
+     */
+    final class LeasedPermitLock implements Lock {
+        private final SemaphoreEntry entry;
+        private final RPermitExpirableSemaphore semaphore;
+        private final int permits;
+        private final long leaseMillis;
+
+        /**
+         * 持有许可时不为null
+         */
+        private volatile String permitId;
+
+        LeasedPermitLock(SemaphoreEntry entry, int permits, long leaseMillis) {
+            this.entry = entry;
+            this.semaphore = entry.semaphore;
+            this.permits = permits;
+            this.leaseMillis = leaseMillis;
+        }
+
+        @Override
+        public void lock() {
+            try {
+                lockInterruptibly();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("acquire permit interrupted:" + semaphore.getName(), e);
+            }
+        }
+
+        @Override
+        public void lockInterruptibly() throws InterruptedException {
+            ensureSemaphore(entry, permits, leaseMillis);
+            onAcquired(semaphore.acquire(leaseMillis, TimeUnit.MILLISECONDS));
+        }
+
+        @Override
+        public boolean tryLock() {
+            try {
+                return tryLock(0, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+
+        @Override
+        public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+            ensureSemaphore(entry, permits, leaseMillis);
+            String acquired = semaphore.tryAcquire(unit.toMillis(time), leaseMillis, TimeUnit.MILLISECONDS);
+            if (acquired == null) {
+                return false;
+            }
+            onAcquired(acquired);
+            return true;
+        }
+
+        private void onAcquired(String acquired) {
+            permitId = acquired;
+            leaseManager.register(semaphore.getName(), acquired, leaseMillis, RedissonLeaseManager.LeaseKind.SEMAPHORE);
+            leaseManager.expireSemaphore(semaphore.getName(), leaseMillis);
+        }
+
+        /**
+         * 许可已过期（租期内未能续期）时只告警，不抛出异常
+         */
+        @Override
+        public void unlock() {
+            String held = permitId;
+            if (held == null) {
+                throw new IllegalMonitorStateException("permit not held:" + semaphore.getName());
+            }
+            permitId = null;
+            leaseManager.deregister(semaphore.getName(), held, RedissonLeaseManager.LeaseKind.SEMAPHORE);
+            if (!semaphore.tryRelease(held)) {
+                LOGGER.warn("permit lease lost, key:{}, permit:{}", semaphore.getName(), held);
+            }
+        }
+
+        @Override
+        public Condition newCondition() {
+            throw new UnsupportedOperationException("newCondition");
+        }
+    }
+
+    final class RedissonLockHandle implements LockHandle {
+        private final RLock lock;
+        private final long ownerId;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        RedissonLockHandle(RLock lock, long ownerId) {
+            this.lock = lock;
+            this.ownerId = ownerId;
+        }
+
+        @Override
+        public String getLockKey() {
+            return lock.getName();
+        }
+
+        @Override
+        public CompletionStage<Void> unlockAsync() {
+            if (!released.compareAndSet(false, true)) {
+                return CompletableFuture.completedFuture(null);
+            }
+            leaseManager.deregister(lock.getName(), ownerName(ownerId));
+            return lock.unlockAsync(ownerId);
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (unlockTopic != null && !redissonClient.isShutdown()) {
+                for (int listenerId : unlockListenerIds) {
+                    unlockTopic.removeListener(listenerId);
+                }
+                negativeCache.deactivate();
+            }
+        }
+        leaseManager.close();
+        lockCache.invalidateAll();
+        readWriteLockCache.invalidateAll();
+        semaphoreCache.invalidateAll();
+        if (ownClient && !redissonClient.isShutdown()) {
+            redissonClient.shutdown();
+        }
     }
 
 }
@@ -0,0 +1,117 @@
+package org.fsj.lock.manager.factory;
+
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 等待Redis锁时对解锁channel的共享订阅
+ *
+ * <p>
+ * 同一个channel只订阅一次：第一个等待者订阅，最后一个等待者退出时取消订阅。
+ * 收到解锁消息时唤醒该channel上所有等待者重试，未收到消息时等待者最多等到占用者的租期结束。
+ * </p>
+ */
+final class RedissonUnlockSubscriptions {
+
+    private final RedissonClient redissonClient;
+
+    private final ConcurrentHashMap<String, Subscription> subscriptions = new ConcurrentHashMap<>();
+
+    RedissonUnlockSubscriptions(RedissonClient redissonClient) {
+        this.redissonClient = redissonClient;
+    }
+
+    /**
+     * 订阅channel，返回时已在Redis上生效；用完后必须{@link #unsubscribe(Subscription)}
+     */
+    Subscription subscribe(String channel) {
+        for (; ; ) {
+            Subscription subscription = subscriptions.computeIfAbsent(channel, Subscription::new);
+            synchronized (subscription) {
+                if (subscription.closed) {
+                    continue;
+                }
+                if (subscription.refs == 0) {
+                    RTopic topic = redissonClient.getTopic(channel, StringCodec.INSTANCE);
+                    try {
+                        subscription.listenerId = topic.addListener(String.class, (ignored, message) -> subscription.signal());
+                    } catch (RuntimeException e) {
+                        subscription.closed = true;
+                        subscriptions.remove(channel, subscription);
+                        throw e;
+                    }
+                    subscription.topic = topic;
+                }
+                subscription.refs++;
+                return subscription;
+            }
+        }
+    }
+
+    void unsubscribe(Subscription subscription) {
+        synchronized (subscription) {
+            if (--subscription.refs > 0) {
+                return;
+            }
+            subscription.closed = true;
+            subscriptions.remove(subscription.channel, subscription);
+            subscription.topic.removeListenerAsync(subscription.listenerId);
+        }
+    }
+
+    /**
+     * 当前订阅的channel数量
+     */
+    int size() {
+        return subscriptions.size();
+    }
+
+    static final class Subscription {
+        private final String channel;
+        private final Semaphore signal = new Semaphore(0);
+        private final AtomicInteger waiters = new AtomicInteger();
+
+        /**
+         * 以下字段由synchronized保护
+         */
+        private int refs;
+        private boolean closed;
+        private RTopic topic;
+        private int listenerId;
+
+        Subscription(String channel) {
+            this.channel = channel;
+        }
+
+        String getChannel() {
+            return channel;
+        }
+
+        /**
+         * 等待解锁消息
+         *
+         * @return 是否收到消息，超时返回false
+         */
+        boolean await(long timeoutMillis) throws InterruptedException {
+            waiters.incrementAndGet();
+            try {
+                return signal.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS);
+            } finally {
+                waiters.decrementAndGet();
+            }
+        }
+
+        /**
+         * 唤醒所有等待者，多出的许可只会让之后的等待者多重试一次
+         */
+        private void signal() {
+            signal.release(Math.max(1, waiters.get()));
+        }
+    }
+}
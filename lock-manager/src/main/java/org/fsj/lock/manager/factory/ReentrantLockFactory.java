@@ -1,25 +1,408 @@
 package org.fsj.lock.manager.factory;
 
-import java.util.Objects;
+import com.google.common.base.Preconditions;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * 基于ReentrantLock的本地锁工厂
+ *
+ * <p>
+ * 默认按key引用计数：持有者和等待者都计数，最后一个使用者释放后key即被移除，内存只和正在使用的key数量相关；
+ * 指定stripes时使用固定数量的分段锁，不同key可能映射到同一把锁，适合key空间极大且允许偶尔误竞争的场景。
+ * 读写锁基于{@link ReentrantReadWriteLock}，使用独立的锁表（或分段），与互斥锁互不排斥。
+ * 信号量基于{@link Semaphore}，按许可数量分表、按key引用计数（分段模式下也不分段）。
+ * </p>
+ * <p>
+ * 异步加锁与同步互斥锁共用同一个key的状态（{@link LocalExclusiveLock}），两者互斥；
+ * 异步持有不绑定线程、不可重入，等待者按FIFO排队。
+ * </p>
+ */
+public class ReentrantLockFactory implements LockFactory, AsyncLockFactory {
+    private static final Function<LocalExclusiveLock, Lock> EXCLUSIVE_VIEW = lock -> lock;
+
+    private static final Function<ReentrantReadWriteLock, Lock> READ_VIEW = ReentrantReadWriteLock::readLock;
+
+    private static final Function<ReentrantReadWriteLock, Lock> WRITE_VIEW = ReentrantReadWriteLock::writeLock;
+
+    private final boolean fair;
+
+    /**
+     * 引用计数模式下的锁表，分段模式下为null
+     */
+    private final LocalLockTable<LocalExclusiveLock> lockTable;
 
-public class ReentrantLockFactory implements LockFactory{
-    private boolean fair;
-    private static final ConcurrentHashMap<String ,Lock> cache = new ConcurrentHashMap<>();
+    /**
+     * 分段模式下的锁，引用计数模式下为null
+     */
+    private final LocalExclusiveLock[] stripes;
+
+    /**
+     * 引用计数模式下的读写锁表，分段模式下为null
+     */
+    private final LocalLockTable<ReentrantReadWriteLock> readWriteLockTable;
+
+    /**
+     * 分段模式下的读写锁，与stripes一一对应，引用计数模式下为null
+     */
+    private final ReentrantReadWriteLock[] readWriteStripes;
+
+    /**
+     * 许可数量 -> 信号量表
+     */
+    private final ConcurrentHashMap<Integer, LocalLockTable<Semaphore>> semaphoreTables = new ConcurrentHashMap<>();
 
     public ReentrantLockFactory(boolean fair) {
         this.fair = fair;
+        this.lockTable = new LocalLockTable<>(() -> new LocalExclusiveLock(fair));
+        this.stripes = null;
+        this.readWriteLockTable = new LocalLockTable<>(() -> new ReentrantReadWriteLock(fair));
+        this.readWriteStripes = null;
+    }
+
+    /**
+     * 分段模式
+     *
+     * @param fair    是否公平锁
+     * @param stripes 分段数量，向上取整为2的幂
+     */
+    public ReentrantLockFactory(boolean fair, int stripes) {
+        Preconditions.checkArgument(stripes > 0 && stripes <= 1 << 30, "stripes不合法:%s", stripes);
+        this.fair = fair;
+        this.lockTable = null;
+        this.stripes = new LocalExclusiveLock[stripes == 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1];
+        this.readWriteLockTable = null;
+        this.readWriteStripes = new ReentrantReadWriteLock[this.stripes.length];
+        for (int i = 0; i < this.stripes.length; i++) {
+            this.stripes[i] = new LocalExclusiveLock(fair);
+            this.readWriteStripes[i] = new ReentrantReadWriteLock(fair);
+        }
     }
 
     @Override
     public Lock getLock(String lockKey) {
-        Lock lock = cache.get(lockKey);
-        if (Objects.isNull(lock)){
-            lock = new ReentrantLock(fair);
-            cache.put(lockKey,lock);
+        if (stripes != null) {
+            return stripes[stripeIndex(lockKey)];
+        }
+        return new RefCountedLock<>(lockTable, lockKey, EXCLUSIVE_VIEW);
+    }
+
+    @Override
+    public ReadWriteLock getReadWriteLock(String lockKey) {
+        if (readWriteStripes != null) {
+            return readWriteStripes[stripeIndex(lockKey)];
+        }
+        return new RefCountedReadWriteLock(readWriteLockTable, lockKey);
+    }
+
+    /**
+     * 本地信号量没有租期，忽略leaseMillis
+     */
+    @Override
+    public Lock getSemaphore(String lockKey, int permits, long leaseMillis) {
+        Preconditions.checkArgument(permits > 0, "permits必须大于0");
+        LocalLockTable<Semaphore> semaphoreTable = semaphoreTables.get(permits);
+        if (semaphoreTable == null) {
+            semaphoreTable = semaphoreTables.computeIfAbsent(permits, k -> new LocalLockTable<>(() -> new Semaphore(k, fair)));
+        }
+        return new RefCountedSemaphore(semaphoreTable, lockKey);
+    }
+
+    @Override
+    public CompletionStage<LockHandle> tryLockAsync(String lockKey, long timeout, TimeUnit unit) {
+        if (stripes != null) {
+            AsyncLocalLock gate = stripes[stripeIndex(lockKey)].getGate();
+            return gate.acquire(timeout, unit).thenApply(acquired ->
+                    acquired ? new AsyncLocalLockHandle(lockKey, gate, null, null) : null);
+        }
+        LocalLockTable.Entry<LocalExclusiveLock> entry = lockTable.retain(lockKey);
+        AsyncLocalLock gate = entry.getLock().getGate();
+        return gate.acquire(timeout, unit).thenApply(acquired -> {
+            if (acquired) {
+                return new AsyncLocalLockHandle(lockKey, gate, lockTable, entry);
+            }
+            lockTable.release(entry);
+            return null;
+        });
+    }
+
+    /**
+     * 分段模式下多个key可能落在同一分段，按分段下标排序去重后获取，保证顺序一致
+     */
+    @Override
+    public Lock getMultiLock(List<String> lockKeys) {
+        if (stripes == null) {
+            return LockFactory.super.getMultiLock(lockKeys);
+        }
+        TreeSet<Integer> indexes = new TreeSet<>();
+        for (String lockKey : lockKeys) {
+            indexes.add(stripeIndex(lockKey));
+        }
+        List<Lock> locks = new ArrayList<>(indexes.size());
+        for (Integer index : indexes) {
+            locks.add(stripes[index]);
+        }
+        return new OrderedMultiLock(locks);
+    }
+
+    private int stripeIndex(String lockKey) {
+        int h = lockKey.hashCode();
+        return (h ^ (h >>> 16)) & (stripes.length - 1);
+    }
+
+    public boolean isFair() {
+        return fair;
+    }
+
+    /**
+     * 当前锁表中的key数量（互斥锁、读写锁和信号量），分段模式下互斥锁和读写锁按分段数量计
+     */
+    public int size() {
+        int size = stripes != null ? stripes.length : lockTable.size() + readWriteLockTable.size();
+        for (LocalLockTable<Semaphore> semaphoreTable : semaphoreTables.values()) {
+            size += semaphoreTable.size();
+        }
+        return size;
+    }
+
+    static final class AsyncLocalLockHandle implements LockHandle {
+        private static final CompletableFuture<Void> DONE = CompletableFuture.completedFuture(null);
+
+        private final String lockKey;
+        private final AsyncLocalLock gate;
+
+        /**
+         * 分段模式下为null
+         */
+        private final LocalLockTable<LocalExclusiveLock> lockTable;
+        private final LocalLockTable.Entry<LocalExclusiveLock> entry;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        AsyncLocalLockHandle(String lockKey, AsyncLocalLock gate,
+                             LocalLockTable<LocalExclusiveLock> lockTable, LocalLockTable.Entry<LocalExclusiveLock> entry) {
+            this.lockKey = lockKey;
+            this.gate = gate;
+            this.lockTable = lockTable;
+            this.entry = entry;
+        }
+
+        @Override
+        public String getLockKey() {
+            return lockKey;
+        }
+
+        @Override
+        public CompletionStage<Void> unlockAsync() {
+            if (released.compareAndSet(false, true)) {
+                gate.release();
+                if (lockTable != null) {
+                    lockTable.release(entry);
+                }
+            }
+            return DONE;
+        }
+    }
+
+    /**
+     * 信号量表中某个key的一次持有，加锁时retain、解锁或加锁失败时release
+     */
+    static final class RefCountedSemaphore implements Lock {
+        private final LocalLockTable<Semaphore> semaphoreTable;
+        private final String lockKey;
+
+        /**
+         * 持有许可时不为null
+         */
+        private volatile LocalLockTable.Entry<Semaphore> held;
+
+        RefCountedSemaphore(LocalLockTable<Semaphore> semaphoreTable, String lockKey) {
+            this.semaphoreTable = semaphoreTable;
+            this.lockKey = lockKey;
+        }
+
+        @Override
+        public void lock() {
+            LocalLockTable.Entry<Semaphore> entry = semaphoreTable.retain(lockKey);
+            entry.getLock().acquireUninterruptibly();
+            held = entry;
+        }
+
+        @Override
+        public void lockInterruptibly() throws InterruptedException {
+            LocalLockTable.Entry<Semaphore> entry = semaphoreTable.retain(lockKey);
+            try {
+                entry.getLock().acquire();
+            } catch (InterruptedException e) {
+                semaphoreTable.release(entry);
+                throw e;
+            }
+            held = entry;
+        }
+
+        @Override
+        public boolean tryLock() {
+            LocalLockTable.Entry<Semaphore> entry = semaphoreTable.retain(lockKey);
+            if (entry.getLock().tryAcquire()) {
+                held = entry;
+                return true;
+            }
+            semaphoreTable.release(entry);
+            return false;
+        }
+
+        @Override
+        public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+            LocalLockTable.Entry<Semaphore> entry = semaphoreTable.retain(lockKey);
+            boolean acquired = false;
+            try {
+                acquired = entry.getLock().tryAcquire(time, unit);
+                if (acquired) {
+                    held = entry;
+                }
+                return acquired;
+            } finally {
+                if (!acquired) {
+                    semaphoreTable.release(entry);
+                }
+            }
+        }
+
+        @Override
+        public void unlock() {
+            LocalLockTable.Entry<Semaphore> entry = held;
+            if (entry == null) {
+                throw new IllegalMonitorStateException("permit not held:" + lockKey);
+            }
+            held = null;
+            entry.getLock().release();
+            semaphoreTable.release(entry);
+        }
+
+        /**
+         * 信号量没有条件
+         */
+        @Override
+        public Condition newCondition() {
+            throw new UnsupportedOperationException("newCondition");
+        }
+    }
+
+    /**
+     * 读写锁表中某个key的视图，读锁和写锁共享同一个引用计数条目
+     */
+    static final class RefCountedReadWriteLock implements ReadWriteLock {
+        private final Lock readLock;
+        private final Lock writeLock;
+
+        RefCountedReadWriteLock(LocalLockTable<ReentrantReadWriteLock> lockTable, String lockKey) {
+            this.readLock = new RefCountedLock<>(lockTable, lockKey, READ_VIEW);
+            this.writeLock = new RefCountedLock<>(lockTable, lockKey, WRITE_VIEW);
+        }
+
+        @Override
+        public Lock readLock() {
+            return readLock;
+        }
+
+        @Override
+        public Lock writeLock() {
+            return writeLock;
+        }
+    }
+
+    /**
+     * 锁表中某个key的视图，每次加锁时retain、解锁或加锁失败时release
+     *
+     * @param <L> 锁表中的锁类型，通过view取得实际加解锁的Lock
+     */
+    static final class RefCountedLock<L> implements Lock {
+        private final LocalLockTable<L> lockTable;
+        private final String lockKey;
+        private final Function<L, Lock> view;
+
+        RefCountedLock(LocalLockTable<L> lockTable, String lockKey, Function<L, Lock> view) {
+            this.lockTable = lockTable;
+            this.lockKey = lockKey;
+            this.view = view;
+        }
+
+        @Override
+        public void lock() {
+            view.apply(lockTable.retain(lockKey).getLock()).lock();
+        }
+
+        @Override
+        public void lockInterruptibly() throws InterruptedException {
+            LocalLockTable.Entry<L> entry = lockTable.retain(lockKey);
+            try {
+                view.apply(entry.getLock()).lockInterruptibly();
+            } catch (InterruptedException e) {
+                lockTable.release(entry);
+                throw e;
+            }
+        }
+
+        @Override
+        public boolean tryLock() {
+            LocalLockTable.Entry<L> entry = lockTable.retain(lockKey);
+            if (view.apply(entry.getLock()).tryLock()) {
+                return true;
+            }
+            lockTable.release(entry);
+            return false;
+        }
+
+        @Override
+        public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+            LocalLockTable.Entry<L> entry = lockTable.retain(lockKey);
+            boolean locked = false;
+            try {
+                locked = view.apply(entry.getLock()).tryLock(time, unit);
+                return locked;
+            } finally {
+                if (!locked) {
+                    lockTable.release(entry);
+                }
+            }
+        }
+
+        @Override
+        public void unlock() {
+            LocalLockTable.Entry<L> entry = lockTable.get(lockKey);
+            if (entry == null) {
+                throw new IllegalMonitorStateException("lock not held:" + lockKey);
+            }
+            view.apply(entry.getLock()).unlock();
+            lockTable.release(entry);
+        }
+
+        /**
+         * 委托给当前条目中的锁，调用时必须持有该锁；条件只在本次持有期间有效，
+         * 所有持有者和等待者都释放后条目被移除，再次加锁得到的是新的锁
+         *
+         * @throws IllegalMonitorStateException 锁表中没有该key（未持有锁）
+         * @throws UnsupportedOperationException 读锁不支持条件，与{@link ReentrantReadWriteLock.ReadLock}一致
+         */
+        @Override
+        public Condition newCondition() {
+            LocalLockTable.Entry<L> entry = lockTable.get(lockKey);
+            if (entry == null) {
+                throw new IllegalMonitorStateException("lock not held:" + lockKey);
+            }
+            return view.apply(entry.getLock()).newCondition();
         }
-        return lock;
     }
 }
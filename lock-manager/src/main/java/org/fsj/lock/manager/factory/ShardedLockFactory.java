@@ -0,0 +1,194 @@
+package org.fsj.lock.manager.factory;
+
+import com.google.common.base.Preconditions;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * 分片锁工厂：按一致性hash把key分散到多个后端锁工厂（如多个Redis实例各自的{@link RedissonLockFactory}）
+ *
+ * <p>
+ * key先经过路由函数得到路由key，再在hash环上找到所属分片，同一个key总是落在同一个分片。
+ * 默认路由为{@link #hashTagRouting()}：key中包含非空的{@code {tag}}时只按tag路由，
+ * 例如前缀配置为{@code {order}}时该前缀的所有key都在同一分片，批量加锁只需访问一个后端；
+ * {@link #prefixRouting(char)}则按前缀路由，同一前缀的key都集中在一个分片上。
+ * </p>
+ * <p>
+ * 分片以名称标识，hash环位置只与名称有关：增删分片时用新的分片集合重新构造工厂，只有约1/N的key改变归属。
+ * 切换期间新旧工厂中迁移的key互不排斥，需要在切换前停止加锁或等待持有者释放。
+ * </p>
+ * <p>
+ * 联锁按分片分组，每组在一次调用内由对应分片获取，各组按分片名称的顺序获取，保证不会死锁。
+ * 只有所有分片都支持异步加锁时才支持异步加锁。工厂不负责关闭后端。
+ * </p>
+ */
+public class ShardedLockFactory implements LockFactory, AsyncLockFactory {
+
+    /**
+     * 每个分片默认的虚拟节点数
+     */
+    public static final int DEFAULT_VIRTUAL_NODES = 160;
+
+    private final Map<String, LockFactory> shards;
+
+    private final HashRing<String> ring;
+
+    private final Function<String, String> routing;
+
+    /**
+     * 是否所有分片都支持异步加锁
+     */
+    private final boolean asyncSupported;
+
+    /**
+     * @param shards 分片名称 -> 后端锁工厂，名称在重新分片前后需保持不变
+     */
+    public ShardedLockFactory(Map<String, ? extends LockFactory> shards) {
+        this(shards, DEFAULT_VIRTUAL_NODES, hashTagRouting());
+    }
+
+    /**
+     * @param shards       分片名称 -> 后端锁工厂，名称在重新分片前后需保持不变
+     * @param virtualNodes 每个分片的虚拟节点数
+     * @param routing      lockKey -> 路由key
+     */
+    public ShardedLockFactory(Map<String, ? extends LockFactory> shards, int virtualNodes, Function<String, String> routing) {
+        Preconditions.checkArgument(shards != null && !shards.isEmpty(), "shards不能为空");
+        this.shards = Collections.unmodifiableMap(new LinkedHashMap<>(shards));
+        Map<String, String> names = new LinkedHashMap<>();
+        for (String name : shards.keySet()) {
+            names.put(name, name);
+        }
+        this.ring = new HashRing<>(names, virtualNodes);
+        this.routing = Objects.requireNonNull(routing, "routing");
+        boolean asyncSupported = true;
+        for (LockFactory shard : this.shards.values()) {
+            asyncSupported &= AsyncLockFactory.of(shard) != null;
+        }
+        this.asyncSupported = asyncSupported;
+    }
+
+    /**
+     * 按hash tag路由：key中第一个{@code {}之后到第一个{@code }}之间的内容非空时以其路由，否则以整个key路由
+     */
+    public static Function<String, String> hashTagRouting() {
+        return ShardedLockFactory::hashTag;
+    }
+
+    /**
+     * 按前缀路由：以key中第一个separator之前的部分路由，不包含separator时以整个key路由
+     *
+     * <p>
+     * lockKey的格式为prefix_value...，以'_'为分隔符时同一前缀（前缀本身不含'_'）的key都落在同一分片，
+     * 代价是单个前缀的流量无法分散
+     * </p>
+     */
+    public static Function<String, String> prefixRouting(char separator) {
+        return lockKey -> {
+            int end = lockKey.indexOf(separator);
+            return end < 0 ? lockKey : lockKey.substring(0, end);
+        };
+    }
+
+    private static String hashTag(String lockKey) {
+        int start = lockKey.indexOf('{');
+        if (start >= 0) {
+            int end = lockKey.indexOf('}', start + 1);
+            if (end > start + 1) {
+                return lockKey.substring(start + 1, end);
+            }
+        }
+        return lockKey;
+    }
+
+    /**
+     * key所属分片的名称
+     */
+    public String shardOf(String lockKey) {
+        return ring.get(routing.apply(lockKey));
+    }
+
+    private LockFactory shard(String lockKey) {
+        return shards.get(shardOf(lockKey));
+    }
+
+    @Override
+    public Lock getLock(String lockKey) {
+        return shard(lockKey).getLock(lockKey);
+    }
+
+    @Override
+    public Lock getLock(String lockKey, long leaseMillis) {
+        return shard(lockKey).getLock(lockKey, leaseMillis);
+    }
+
+    @Override
+    public Lock getMultiLock(List<String> lockKeys) {
+        return getMultiLock(lockKeys, -1);
+    }
+
+    @Override
+    public Lock getMultiLock(List<String> lockKeys, long leaseMillis) {
+        TreeMap<String, List<String>> groups = new TreeMap<>();
+        for (String lockKey : lockKeys) {
+            groups.computeIfAbsent(shardOf(lockKey), name -> new ArrayList<>()).add(lockKey);
+        }
+        List<Lock> locks = new ArrayList<>(groups.size());
+        for (Map.Entry<String, List<String>> group : groups.entrySet()) {
+            locks.add(shards.get(group.getKey()).getMultiLock(group.getValue(), leaseMillis));
+        }
+        return locks.size() == 1 ? locks.get(0) : new OrderedMultiLock(locks);
+    }
+
+    @Override
+    public ReadWriteLock getReadWriteLock(String lockKey) {
+        return shard(lockKey).getReadWriteLock(lockKey);
+    }
+
+    @Override
+    public ReadWriteLock getReadWriteLock(String lockKey, long leaseMillis) {
+        return shard(lockKey).getReadWriteLock(lockKey, leaseMillis);
+    }
+
+    @Override
+    public Lock getSemaphore(String lockKey, int permits, long leaseMillis) {
+        return shard(lockKey).getSemaphore(lockKey, permits, leaseMillis);
+    }
+
+    /**
+     * 要求所有分片都支持异步加锁，见{@link #isAsyncSupported()}
+     *
+     * @throws UnsupportedOperationException 有分片不支持异步加锁
+     */
+    @Override
+    public CompletionStage<LockHandle> tryLockAsync(String lockKey, long timeout, TimeUnit unit) {
+        if (!asyncSupported) {
+            throw new UnsupportedOperationException("not all shards support async lock:" + shards.keySet());
+        }
+        return ((AsyncLockFactory) shard(lockKey)).tryLockAsync(lockKey, timeout, unit);
+    }
+
+    /**
+     * 所有分片都支持异步加锁时返回true；只有部分分片支持时返回false，
+     * 否则异步方法是否可用取决于key落在哪个分片
+     */
+    @Override
+    public boolean isAsyncSupported() {
+        return asyncSupported;
+    }
+
+    public Map<String, LockFactory> getShards() {
+        return shards;
+    }
+}
@@ -0,0 +1,294 @@
+package org.fsj.lock.manager.factory;
+
+import com.google.common.base.Preconditions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 两级锁工厂：本地锁 + 分布式锁
+ *
+ * <p>
+ * 同一个JVM内同一个key的调用方先在本地锁上排队，只有本地锁的持有者才去竞争分布式锁，
+ * 分布式锁的竞争者数量从"线程数"降为"节点数"。
+ * 当分布式锁工厂实现了{@link AsyncLockFactory}时，以不绑定线程的{@link LockHandle}加锁，释放时如果本地还有等待者
+ * 且持有时间未超过{@code maxHandoffMillis}，分布式锁不释放，直接交给下一个本地等待者，
+ * 省去一次释放和一次加锁的网络往返；超过该时间则必须释放，避免其他节点饥饿。
+ * </p>
+ * <p>
+ * 异步加锁不经过本地锁，直接委托给分布式锁工厂，由分布式锁保证与同步持有者互斥；
+ * 分布式锁工厂不支持异步加锁时{@link #isAsyncSupported()}返回false。
+ * </p>
+ */
+public class TwoTierLockFactory implements LockFactory, AsyncLockFactory {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TwoTierLockFactory.class);
+
+    private final LockFactory remoteLockFactory;
+
+    private final long maxHandoffNanos;
+
+    private final LocalLockTable<Tier> lockTable;
+
+    /**
+     * @param remoteLockFactory 分布式锁工厂
+     * @param fair              本地锁是否公平
+     * @param maxHandoffMillis  分布式锁在本地连续移交的最长时间，0表示不移交
+     */
+    public TwoTierLockFactory(LockFactory remoteLockFactory, boolean fair, long maxHandoffMillis) {
+        Preconditions.checkArgument(maxHandoffMillis >= 0, "maxHandoffMillis不能小于0");
+        this.remoteLockFactory = Objects.requireNonNull(remoteLockFactory, "remoteLockFactory");
+        this.maxHandoffNanos = TimeUnit.MILLISECONDS.toNanos(maxHandoffMillis);
+        this.lockTable = new LocalLockTable<>(() -> new Tier(fair));
+    }
+
+    @Override
+    public Lock getLock(String lockKey) {
+        return new TwoTierLock(lockKey);
+    }
+
+    @Override
+    public CompletionStage<LockHandle> tryLockAsync(String lockKey, long timeout, TimeUnit unit) {
+        AsyncLockFactory asyncLockFactory = AsyncLockFactory.of(remoteLockFactory);
+        if (asyncLockFactory == null) {
+            throw new UnsupportedOperationException("remote lock factory does not support async lock");
+        }
+        return asyncLockFactory.tryLockAsync(lockKey, timeout, unit);
+    }
+
+    @Override
+    public boolean isAsyncSupported() {
+        return AsyncLockFactory.of(remoteLockFactory) != null;
+    }
+
+    /**
+     * 当前本地锁表中的key数量
+     */
+    public int size() {
+        return lockTable.size();
+    }
+
+    /**
+     * 一个key的两级锁状态，remote相关字段只由本地锁持有者读写
+     */
+    static final class Tier {
+        private final ReentrantLock local;
+
+        /**
+         * 当前持有的分布式锁，未持有时为null
+         */
+        private volatile Lock remote;
+
+        /**
+         * 以不绑定线程的方式持有分布式锁时的句柄（可移交），否则为null
+         */
+        private LockHandle remoteHandle;
+
+        private long remoteSince;
+
+        Tier(boolean fair) {
+            this.local = new ReentrantLock(fair);
+        }
+    }
+
+    final class TwoTierLock implements Lock {
+        private final String lockKey;
+
+        TwoTierLock(String lockKey) {
+            this.lockKey = lockKey;
+        }
+
+        @Override
+        public void lock() {
+            boolean interrupted = false;
+            for (; ; ) {
+                try {
+                    lockInterruptibly();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public void lockInterruptibly() throws InterruptedException {
+            tryLock(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public boolean tryLock() {
+            LocalLockTable.Entry<Tier> entry = lockTable.retain(lockKey);
+            Tier tier = entry.getLock();
+            if (!tier.local.tryLock()) {
+                lockTable.release(entry);
+                return false;
+            }
+            boolean acquired = false;
+            try {
+                acquired = tier.local.getHoldCount() > 1 || tier.remote != null || acquireRemote(tier, 0L);
+                return acquired;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            } finally {
+                if (!acquired) {
+                    abandon(entry);
+                }
+            }
+        }
+
+        @Override
+        public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+            long nanos = unit.toNanos(time);
+            long deadline = nanos >= Long.MAX_VALUE / 2 ? Long.MAX_VALUE : System.nanoTime() + nanos;
+            LocalLockTable.Entry<Tier> entry = lockTable.retain(lockKey);
+            Tier tier = entry.getLock();
+            boolean locked = false;
+            try {
+                locked = tier.local.tryLock(time, unit);
+            } finally {
+                if (!locked) {
+                    cleanUp(tier);
+                    lockTable.release(entry);
+                }
+            }
+            if (!locked) {
+                return false;
+            }
+            boolean acquired = false;
+            try {
+                //本线程重入，或分布式锁已由上一个本地持有者移交
+                acquired = tier.local.getHoldCount() > 1 || tier.remote != null
+                        || acquireRemote(tier, Math.max(0L, deadline - System.nanoTime()));
+                return acquired;
+            } finally {
+                if (!acquired) {
+                    abandon(entry);
+                }
+            }
+        }
+
+        private boolean acquireRemote(Tier tier, long waitNanos) throws InterruptedException {
+            Lock remote = remoteLockFactory.getLock(lockKey);
+            AsyncLockFactory asyncLockFactory = maxHandoffNanos > 0 ? AsyncLockFactory.of(remoteLockFactory) : null;
+            if (asyncLockFactory != null) {
+                LockHandle handle = tryLockHandle(asyncLockFactory, lockKey, waitNanos);
+                if (handle == null) {
+                    return false;
+                }
+                tier.remoteHandle = handle;
+            } else {
+                if (!remote.tryLock(waitNanos, TimeUnit.NANOSECONDS)) {
+                    return false;
+                }
+                tier.remoteHandle = null;
+            }
+            tier.remoteSince = System.nanoTime();
+            tier.remote = remote;
+            return true;
+        }
+
+        @Override
+        public void unlock() {
+            LocalLockTable.Entry<Tier> entry = lockTable.get(lockKey);
+            if (entry == null || !entry.getLock().local.isHeldByCurrentThread()) {
+                throw new IllegalMonitorStateException("lock not held:" + lockKey);
+            }
+            Tier tier = entry.getLock();
+            if (tier.local.getHoldCount() == 1) {
+                boolean handoff = tier.remoteHandle != null && tier.local.hasQueuedThreads()
+                        && System.nanoTime() - tier.remoteSince < maxHandoffNanos;
+                if (!handoff) {
+                    releaseRemote(tier);
+                }
+            }
+            tier.local.unlock();
+            cleanUp(tier);
+            lockTable.release(entry);
+        }
+
+        /**
+         * 本地锁已获取但分布式锁获取失败时放弃本地锁
+         */
+        private void abandon(LocalLockTable.Entry<Tier> entry) {
+            entry.getLock().local.unlock();
+            cleanUp(entry.getLock());
+            lockTable.release(entry);
+        }
+
+        @Override
+        public Condition newCondition() {
+            throw new UnsupportedOperationException("newCondition");
+        }
+    }
+
+    /**
+     * 分布式锁已移交但接收者超时放弃时，由最后一个离开的线程负责释放，避免分布式锁无人持有却不释放
+     */
+    private void cleanUp(Tier tier) {
+        if (tier.remote == null || tier.local.isLocked() || !tier.local.tryLock()) {
+            return;
+        }
+        try {
+            if (!tier.local.hasQueuedThreads()) {
+                releaseRemote(tier);
+            }
+        } finally {
+            tier.local.unlock();
+        }
+    }
+
+    /**
+     * 释放分布式锁，只能由本地锁持有者调用
+     */
+    private void releaseRemote(Tier tier) {
+        Lock remote = tier.remote;
+        if (remote == null) {
+            return;
+        }
+        tier.remote = null;
+        LockHandle handle = tier.remoteHandle;
+        if (handle == null) {
+            remote.unlock();
+            return;
+        }
+        tier.remoteHandle = null;
+        try {
+            handle.unlockAsync().toCompletableFuture().join();
+        } catch (RuntimeException e) {
+            LOGGER.warn("two tier lock, release remote lock fail:{}", handle.getLockKey(), e);
+        }
+    }
+
+    /**
+     * 获取不绑定线程的分布式锁句柄，可在本地等待者之间移交
+     */
+    private static LockHandle tryLockHandle(AsyncLockFactory factory, String lockKey, long waitNanos) throws InterruptedException {
+        CompletableFuture<LockHandle> future = factory.tryLockAsync(lockKey, waitNanos, TimeUnit.NANOSECONDS).toCompletableFuture();
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            //等待被中断后如果最终加锁成功，需要释放掉
+            future.whenComplete((handle, cause) -> {
+                if (handle != null) {
+                    handle.unlockAsync();
+                }
+            });
+            throw e;
+        } catch (ExecutionException e) {
+            LOGGER.warn("two tier lock, acquire remote lock fail:{}", lockKey, e.getCause());
+            return null;
+        }
+    }
+}
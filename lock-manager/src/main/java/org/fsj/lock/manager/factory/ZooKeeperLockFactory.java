@@ -0,0 +1,294 @@
+package org.fsj.lock.manager.factory;
+
+import com.google.common.base.Preconditions;
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.framework.recipes.locks.InterProcessMutex;
+import org.apache.curator.retry.ExponentialBackoffRetry;
+import org.apache.curator.utils.PathUtils;
+import org.apache.curator.utils.ZKPaths;
+import org.apache.zookeeper.KeeperException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * 基于ZooKeeper的分布式锁工厂
+ *
+ * <p>
+ * 每个key对应basePath下的一级锁路径（key中的'/'等字符被转义，见{@link #encodeNodeName(String)}），加锁时在其下创建临时顺序节点，序号最小者持有锁，
+ * 其余等待者只监听排在自己前一位的节点：释放时只唤醒下一个等待者（不会惊群），按创建顺序先到先得。
+ * 持有者会话失效（进程宕机、长时间断连）时临时节点被删除，锁随之释放，因此不需要租期，leaseMillis被忽略。
+ * </p>
+ * <p>
+ * 整个工厂共享一个{@link CuratorFramework}会话；锁实例（{@link InterProcessMutex}，按线程可重入）按key引用计数缓存，
+ * 本地最后一个使用者释放后移除，并在后台尝试删除已空闲的锁路径（仍有子节点时删除失败，由其他使用者继续使用）；
+ * ZooKeeper 3.5及以上锁路径以container节点创建，服务端也会清理。
+ * </p>
+ * <p>
+ * 解锁必须在加锁的线程上进行。
+ * </p>
+ */
+public class ZooKeeperLockFactory implements LockFactory, Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ZooKeeperLockFactory.class);
+
+    /**
+     * 默认锁路径的根节点
+     */
+    public static final String DEFAULT_BASE_PATH = "/fsj-lock";
+
+    /**
+     * 构造时等待连接建立的最长时间
+     */
+    private static final long CONNECT_TIMEOUT_MILLIS = 15000;
+
+    private final CuratorFramework client;
+
+    /**
+     * client是否由本工厂创建，由本工厂创建的client在close时一并关闭
+     */
+    private final boolean ownClient;
+
+    private final String basePath;
+
+    private final LocalLockTable<InterProcessMutex> lockTable;
+
+    public ZooKeeperLockFactory(String connectString) {
+        this(connectString, DEFAULT_BASE_PATH);
+    }
+
+    public ZooKeeperLockFactory(String connectString, String basePath) {
+        this(CuratorFrameworkFactory.newClient(Objects.requireNonNull(connectString, "connectString"),
+                new ExponentialBackoffRetry(1000, 3)), basePath, true);
+    }
+
+    /**
+     * 使用外部管理的client（需已start），close时不会关闭该client
+     */
+    public ZooKeeperLockFactory(CuratorFramework client, String basePath) {
+        this(client, basePath, false);
+    }
+
+    private ZooKeeperLockFactory(CuratorFramework client, String basePath, boolean ownClient) {
+        this.client = Objects.requireNonNull(client, "client");
+        Preconditions.checkArgument(basePath != null && !"/".equals(basePath), "basePath不能为空或根节点");
+        this.basePath = PathUtils.validatePath(basePath);
+        this.ownClient = ownClient;
+        this.lockTable = new LocalLockTable<>(lockKey -> new InterProcessMutex(this.client, lockPath(lockKey)));
+        if (ownClient) {
+            client.start();
+        }
+        awaitConnected();
+    }
+
+    @Override
+    public Lock getLock(String lockKey) {
+        return new ZooKeeperLock(Objects.requireNonNull(lockKey, "lockKey"));
+    }
+
+    /**
+     * 本地正在使用的key数量
+     */
+    public int size() {
+        return lockTable.size();
+    }
+
+    public String getBasePath() {
+        return basePath;
+    }
+
+    private String lockPath(String lockKey) {
+        return ZKPaths.makePath(basePath, encodeNodeName(lockKey));
+    }
+
+    /**
+     * 将key编码为basePath下的一级节点名：'/'、'%'和ZooKeeper不允许的字符以%XX（或%uXXXX）转义，
+     * 空串、"."、".."整体转义；不需要转义的key原样返回。编码是单射的，不同key不会落到同一个节点
+     */
+    static String encodeNodeName(String lockKey) {
+        if (lockKey.isEmpty()) {
+            return "%";
+        }
+        if (".".equals(lockKey) || "..".equals(lockKey)) {
+            return lockKey.replace(".", "%2E");
+        }
+        int i = 0;
+        while (i < lockKey.length() && !needsEscape(lockKey.charAt(i))) {
+            i++;
+        }
+        if (i == lockKey.length()) {
+            return lockKey;
+        }
+        StringBuilder sb = new StringBuilder(lockKey.length() + 8).append(lockKey, 0, i);
+        for (; i < lockKey.length(); i++) {
+            char c = lockKey.charAt(i);
+            if (!needsEscape(c)) {
+                sb.append(c);
+            } else if (c < 0x100) {
+                sb.append(String.format("%%%02X", (int) c));
+            } else {
+                sb.append(String.format("%%u%04X", (int) c));
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 与{@link PathUtils#validatePath(String)}不允许的字符一致，另加'/'和转义字符'%'
+     */
+    private static boolean needsEscape(char c) {
+        return c == '/' || c == '%'
+                || c <= '\u001f'
+                || (c >= '\u007f' && c <= '\u009F')
+                || (c >= '\ud800' && c <= '\uf8ff')
+                || (c >= '\ufff0' && c <= '\uffff');
+    }
+
+    private void awaitConnected() {
+        try {
+            if (!client.blockUntilConnected((int) CONNECT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                LOGGER.warn("zookeeper lock factory, connect timeout after {}ms", CONNECT_TIMEOUT_MILLIS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 释放引用，本地最后一个使用者释放后在后台删除锁路径
+     */
+    private void release(LocalLockTable.Entry<InterProcessMutex> entry) {
+        lockTable.release(entry);
+        if (entry.getRefs() < 0) {
+            deleteIdlePath(entry.getKey());
+        }
+    }
+
+    private void deleteIdlePath(String lockKey) {
+        try {
+            client.delete().inBackground((c, event) -> {
+                int rc = event.getResultCode();
+                if (rc != KeeperException.Code.OK.intValue()
+                        && rc != KeeperException.Code.NOTEMPTY.intValue()
+                        && rc != KeeperException.Code.NONODE.intValue()) {
+                    LOGGER.debug("delete idle lock path fail, path:{}, rc:{}", event.getPath(), rc);
+                }
+            }).forPath(lockPath(lockKey));
+        } catch (Exception e) {
+            LOGGER.debug("delete idle lock path fail, lockKey:{}", lockKey, e);
+        }
+    }
+
+    private static IllegalStateException acquireFail(String lockKey, Exception e) {
+        return new IllegalStateException("acquire zookeeper lock fail:" + lockKey, e);
+    }
+
+    @Override
+    public void close() {
+        if (ownClient) {
+            client.close();
+        }
+    }
+
+    /**
+     * 锁表中某个key的视图，每次加锁时retain、解锁或加锁失败时release
+     */
+    private final class ZooKeeperLock implements Lock {
+        private final String lockKey;
+
+        private ZooKeeperLock(String lockKey) {
+            this.lockKey = lockKey;
+        }
+
+        @Override
+        public void lock() {
+            LocalLockTable.Entry<InterProcessMutex> entry = lockTable.retain(lockKey);
+            boolean locked = false;
+            try {
+                entry.getLock().acquire();
+                locked = true;
+            } catch (Exception e) {
+                throw acquireFail(lockKey, e);
+            } finally {
+                if (!locked) {
+                    release(entry);
+                }
+            }
+        }
+
+        @Override
+        public void lockInterruptibly() throws InterruptedException {
+            LocalLockTable.Entry<InterProcessMutex> entry = lockTable.retain(lockKey);
+            boolean locked = false;
+            try {
+                entry.getLock().acquire();
+                locked = true;
+            } catch (InterruptedException e) {
+                throw e;
+            } catch (Exception e) {
+                throw acquireFail(lockKey, e);
+            } finally {
+                if (!locked) {
+                    release(entry);
+                }
+            }
+        }
+
+        @Override
+        public boolean tryLock() {
+            try {
+                return tryLock(0, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+
+        @Override
+        public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+            LocalLockTable.Entry<InterProcessMutex> entry = lockTable.retain(lockKey);
+            boolean locked = false;
+            try {
+                locked = entry.getLock().acquire(time, unit);
+                return locked;
+            } catch (InterruptedException e) {
+                throw e;
+            } catch (Exception e) {
+                throw acquireFail(lockKey, e);
+            } finally {
+                if (!locked) {
+                    release(entry);
+                }
+            }
+        }
+
+        /**
+         * 节点删除失败（如连接中断）时本地仍视为已释放，节点在会话失效后由服务端删除
+         */
+        @Override
+        public void unlock() {
+            LocalLockTable.Entry<InterProcessMutex> entry = lockTable.get(lockKey);
+            if (entry == null) {
+                throw new IllegalMonitorStateException("zookeeper lock not held:" + lockKey);
+            }
+            try {
+                entry.getLock().release();
+            } catch (IllegalMonitorStateException e) {
+                throw e;
+            } catch (Exception e) {
+                LOGGER.warn("release zookeeper lock fail, lockKey:{}", lockKey, e);
+            }
+            release(entry);
+        }
+
+        @Override
+        public Condition newCondition() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
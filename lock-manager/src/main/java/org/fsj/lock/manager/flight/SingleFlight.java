@@ -0,0 +1,57 @@
+package org.fsj.lock.manager.flight;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 一个加锁方法正在执行中的调用，按lockKey合并本JVM内的并发调用
+ *
+ * <p>
+ * 第一个调用者（leader）登记后去加锁、执行方法，其余调用者拿到leader的{@link Flight}等待同一个结果或异常；
+ * leader结束（异步方法为返回的future完成）时移除登记，之后的调用重新执行。
+ * </p>
+ */
+public final class SingleFlight {
+
+    private final ConcurrentHashMap<String, Flight> flights = new ConcurrentHashMap<>();
+
+    /**
+     * 登记为leader
+     *
+     * @param flight 当前线程新建的调用
+     * @return 已在执行中的调用，为null时当前线程成为leader，结束后必须调用{@link #end}
+     */
+    public Flight begin(String lockKey, Flight flight) {
+        return flights.putIfAbsent(lockKey, flight);
+    }
+
+    /**
+     * leader结束，先移除登记再完成结果，之后到达的调用不会拿到已完成的旧结果
+     */
+    public void end(String lockKey, Flight flight, Object value, Throwable error) {
+        flights.remove(lockKey, flight);
+        if (error != null) {
+            flight.completeExceptionally(error);
+        } else {
+            flight.complete(value);
+        }
+    }
+
+    /**
+     * 正在执行中的key数量
+     */
+    public int size() {
+        return flights.size();
+    }
+
+    /**
+     * 执行中的调用，记录leader线程：leader在方法体内重入同一个key时直接执行，不等待自己
+     */
+    public static final class Flight extends CompletableFuture<Object> {
+        private final Thread leader = Thread.currentThread();
+
+        public boolean isLeader() {
+            return leader == Thread.currentThread();
+        }
+    }
+}
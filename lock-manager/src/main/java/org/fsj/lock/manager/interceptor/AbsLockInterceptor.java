@@ -1,56 +1,432 @@
 package org.fsj.lock.manager.interceptor;
 
 import com.google.common.base.Preconditions;
-import org.apache.commons.lang3.StringUtils;
 import org.aspectj.lang.ProceedingJoinPoint;
-import org.aspectj.lang.Signature;
 import org.aspectj.lang.reflect.MethodSignature;
+import org.fsj.lock.manager.LockAnnotation;
 import org.fsj.lock.manager.LockFailException;
+import org.fsj.lock.manager.LockMode;
+import org.fsj.lock.manager.WaitStrategy;
+import org.fsj.lock.manager.admission.AdmissionControl;
 import org.fsj.lock.manager.entity.LockConfigEntity;
+import org.fsj.lock.manager.factory.AsyncLockFactory;
+import org.fsj.lock.manager.factory.LocalLockTable;
+import org.fsj.lock.manager.flight.SingleFlight;
+import org.fsj.lock.manager.key.LockKeyExtractor;
+import org.fsj.lock.manager.metadata.LockMetadataRegistry;
+import org.fsj.lock.manager.metadata.LockMethodMetadata;
+import org.fsj.lock.manager.metrics.LockMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.BeanUtils;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
 
-import java.beans.PropertyDescriptor;
 import java.lang.annotation.Annotation;
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
-import java.lang.reflect.Modifier;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.locks.Lock;
 
 public abstract class AbsLockInterceptor {
     private static final Logger LOGGER = LoggerFactory.getLogger(AbsLockInterceptor.class);
 
+    private final LockMetadataRegistry lockMetadataRegistry;
+
+    /**
+     * 异步方法获取锁后执行方法体的线程池，为null时使用{@link ForkJoinPool#commonPool()}
+     */
+    private volatile Executor asyncExecutor;
+
+    /**
+     * 加锁埋点，为null时不记录
+     */
+    private volatile LockMetrics lockMetrics;
+
+    /**
+     * 子类是否覆盖了已废弃的{@link #getLockKey(ProceedingJoinPoint, LockConfigEntity)}，覆盖时仍按该方法解析key
+     */
+    private final boolean legacyLockKey;
+
+    protected AbsLockInterceptor() {
+        this(new LockMetadataRegistry());
+    }
+
+    /**
+     * @param lockMetadataRegistry 与容器中注册的BeanPostProcessor共享，可在启动时预构建并校验元数据
+     */
+    protected AbsLockInterceptor(LockMetadataRegistry lockMetadataRegistry) {
+        this.lockMetadataRegistry = Objects.requireNonNull(lockMetadataRegistry, "lockMetadataRegistry");
+        Method legacyGetLockKey = ReflectionUtils.findMethod(getClass(), "getLockKey", ProceedingJoinPoint.class, LockConfigEntity.class);
+        this.legacyLockKey = legacyGetLockKey != null && legacyGetLockKey.getDeclaringClass() != AbsLockInterceptor.class;
+        Method lockConfigConverter = ReflectionUtils.findMethod(getClass(), "lockAnnotation2LockConfig", Annotation.class);
+        if (lockConfigConverter != null && lockConfigConverter.getDeclaringClass() != AbsLockInterceptor.class) {
+            lockMetadataRegistry.setLockConfigConverter(this::lockAnnotation2LockConfig);
+        }
+    }
+
     public Object lockAround(ProceedingJoinPoint joinPoint, Annotation annotation) throws Throwable{
-        final LockConfigEntity lockConfigEntity = lockAnnotation2LockConfig(annotation);
-        String lockKey = getLockKey(joinPoint, lockConfigEntity);
-        MethodSignature methodSignature = (MethodSignature) joinPoint.getSignature();
-        Lock lock = getLock(lockKey);
-        if (!lock( lock,lockKey,lockConfigEntity.getTimeout())) {
-            LOGGER.info("{}-{}, get lock fail:{}", joinPoint.getTarget().getClass().getName(), methodSignature.getName(), lockKey);
-            String failMethod = lockConfigEntity.getLockFailMethod();
-            if (StringUtils.isBlank(failMethod)) {
-                throw new LockFailException(joinPoint.getTarget().getClass().getName() + "--" + methodSignature.getName() + "...key=" + lockKey);
-            }
-            return invokeFallbackMethod(joinPoint, failMethod);
-        }
-        LOGGER.info("{}-{}, get lock success:{}", joinPoint.getTarget().getClass().getName(), methodSignature.getName(), lockKey);
+        final Object target = joinPoint.getTarget();
+        final LockMethodMetadata metadata = getLockMethodMetadata(target, (MethodSignature) joinPoint.getSignature(), annotation);
+        if (metadata.isBatch()) {
+            List<String> lockKeys = getLockKeys(joinPoint, metadata);
+            return syncLockAround(joinPoint, target, metadata, describeLockKeys(lockKeys),
+                    getMultiLock(lockKeys, metadata.getLeaseTime()), null);
+        }
+        final String lockKey = getLockKey(joinPoint, metadata);
+        if (metadata.getSingleFlight() != null) {
+            return singleFlightAround(joinPoint, target, metadata, lockKey);
+        }
+        return lockAround(joinPoint, target, metadata, lockKey);
+    }
+
+    /**
+     * 单key加锁
+     */
+    private Object lockAround(ProceedingJoinPoint joinPoint, Object target, LockMethodMetadata metadata, String lockKey) throws Throwable {
+        if (!metadata.isAsync() && HeldLocks.current().contains(getLockScope(), lockKey, metadata.getMode(), metadata.getPermits())) {
+            return nestedLockAround(joinPoint, metadata, lockKey);
+        }
+        if (metadata.isAsync()) {
+            AsyncLockFactory asyncLockFactory = getAsyncLockFactory();
+            if (asyncLockFactory == null) {
+                //同步锁绑定线程，无法在返回的future完成时释放
+                throw new LockFailException(metadata.getDescription() + "...async method requires an AsyncLockFactory, key=" + lockKey);
+            }
+            return asyncLockAround(joinPoint, target, metadata, asyncLockFactory, lockKey);
+        }
+        final AdmissionControl admission = metadata.getAdmissionControl();
+        if (admission == null) {
+            return syncLockAround(joinPoint, target, metadata, lockKey, getLock(metadata, lockKey), null);
+        }
+        LocalLockTable.Entry<Void> ticket = admission.tryAdmit(lockKey);
+        if (ticket == null) {
+            return shed(joinPoint, target, metadata, lockKey);
+        }
+        try {
+            return syncLockAround(joinPoint, target, metadata, lockKey, getLock(metadata, lockKey), admission);
+        } finally {
+            admission.exit(ticket);
+        }
+    }
+
+    private Lock getLock(LockMethodMetadata metadata, String lockKey) {
+        return metadata.getPermits() > 1
+                ? getSemaphore(lockKey, metadata.getPermits(), metadata.getLeaseTime())
+                : getLock(lockKey, metadata.getMode(), metadata.getLeaseTime());
+    }
+
+    /**
+     * 本地等待者过多，不访问锁实现，按获取锁失败处理
+     */
+    private Object shed(ProceedingJoinPoint joinPoint, Object target, LockMethodMetadata metadata, String lockKey) throws Throwable {
+        LOGGER.debug("{}, too many local waiters, reject:{}", metadata.getDescription(), lockKey);
+        final LockMetrics metrics = lockMetrics;
+        if (metrics != null) {
+            metrics.onShed(metadata, lockKey, metadata.hasFallback());
+        }
+        if (!metadata.hasFallback()) {
+            throw new LockFailException(metadata.getDescription() + "...too many waiters, key=" + lockKey);
+        }
+        return metadata.getFallbackInvoker().invoke(target, joinPoint.getArgs());
+    }
+
+    /**
+     * 合并同一个key的并发调用：leader加锁执行，其余调用等待leader的结果；
+     * 异步方法的leader在返回的future完成后才结束，其余调用立即返回共享该结果的future
+     */
+    private Object singleFlightAround(ProceedingJoinPoint joinPoint, Object target, LockMethodMetadata metadata, String lockKey) throws Throwable {
+        final SingleFlight singleFlight = metadata.getSingleFlight();
+        final SingleFlight.Flight flight = new SingleFlight.Flight();
+        final SingleFlight.Flight inFlight = singleFlight.begin(lockKey, flight);
+        if (inFlight != null) {
+            if (inFlight.isLeader()) {
+                return lockAround(joinPoint, target, metadata, lockKey);
+            }
+            LOGGER.debug("{}, share in-flight result:{}", metadata.getDescription(), lockKey);
+            final LockMetrics metrics = lockMetrics;
+            if (metrics != null) {
+                metrics.onShared(metadata, lockKey);
+            }
+            if (metadata.isAsync()) {
+                CompletableFuture<Object> shared = new CompletableFuture<>();
+                completeWith(shared, inFlight);
+                return shared;
+            }
+            return awaitFlight(joinPoint, target, metadata, lockKey, inFlight);
+        }
+        Object result;
+        try {
+            result = lockAround(joinPoint, target, metadata, lockKey);
+        } catch (Throwable throwable) {
+            singleFlight.end(lockKey, flight, null, throwable);
+            throw throwable;
+        }
+        if (metadata.isAsync() && result != null) {
+            ((CompletionStage<?>) result).whenComplete((value, error) ->
+                    singleFlight.end(lockKey, flight, value, error == null ? null : unwrap(error)));
+        } else {
+            singleFlight.end(lockKey, flight, result, null);
+        }
+        return result;
+    }
+
+    /**
+     * 最多等待leader的结果timeout毫秒，与不合并时等待锁的时间相同；
+     * 超时或等待期间线程被中断时与获取锁失败相同，执行降级方法或抛出LockFailException
+     */
+    private Object awaitFlight(ProceedingJoinPoint joinPoint, Object target, LockMethodMetadata metadata, String lockKey,
+                               SingleFlight.Flight inFlight) throws Throwable {
+        final LockMetrics metrics = lockMetrics;
+        final boolean timed = metrics != null && metrics.shouldTime();
+        final long startNanos = timed ? System.nanoTime() : 0L;
+        try {
+            return inFlight.get(Math.max(0, metadata.getTimeout()), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw e.getCause();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (TimeoutException e) {
+            LOGGER.debug("{}, wait in-flight result timeout:{}", metadata.getDescription(), lockKey);
+        }
+        if (metrics != null) {
+            metrics.onRejected(metadata, lockKey, timed ? System.nanoTime() - startNanos : -1L, metadata.hasFallback());
+        }
+        if (!metadata.hasFallback()) {
+            throw new LockFailException(metadata.getDescription() + "...key=" + lockKey);
+        }
+        return metadata.getFallbackInvoker().invoke(target, joinPoint.getArgs());
+    }
+
+    /**
+     * 当前线程已持有同一个key的锁（外层加锁方法直接或间接调用），不再加锁解锁，只记录埋点
+     */
+    private Object nestedLockAround(ProceedingJoinPoint joinPoint, LockMethodMetadata metadata, String lockKey) throws Throwable {
+        LOGGER.debug("{}, lock already held by current thread:{}", metadata.getDescription(), lockKey);
+        final LockMetrics metrics = lockMetrics;
+        final boolean timed = metrics != null && metrics.shouldTime();
+        final long acquiredNanos = timed ? System.nanoTime() : 0L;
+        if (metrics != null) {
+            metrics.onAcquired(metadata, lockKey, timed ? 0L : -1L);
+        }
         try {
             return joinPoint.proceed();
-        }finally {
-            unlock(lock);
-            LOGGER.info("{}-{}, release lock:{}", joinPoint.getTarget().getClass().getName(), methodSignature.getName(), lockKey);
+        } catch (Throwable throwable) {
+            if (metrics != null) {
+                metrics.onError(metadata, lockKey, throwable);
+            }
+            throw throwable;
+        } finally {
+            if (metrics != null) {
+                metrics.onReleased(metadata, lockKey, timed ? System.nanoTime() - acquiredNanos : -1L);
+            }
+        }
+    }
+
+    /**
+     * @param admission 不为null时记录持有时间，用于估算等待时间
+     */
+    private Object syncLockAround(ProceedingJoinPoint joinPoint, Object target, LockMethodMetadata metadata,
+                                  String lockKey, Lock lock, AdmissionControl admission) throws Throwable {
+        final LockMetrics metrics = lockMetrics;
+        final boolean timed = metrics != null && metrics.shouldTime();
+        final long startNanos = timed ? System.nanoTime() : 0L;
+        if (metrics != null) {
+            metrics.onAcquiring(metadata, lockKey);
+        }
+        int attempts;
+        try {
+            attempts = acquire(lock, lockKey, metadata);
+        } catch (RuntimeException | Error e) {
+            if (metrics != null) {
+                metrics.onError(metadata, lockKey, e);
+            }
+            throw e;
+        }
+        final long acquiredNanos = timed || admission != null ? System.nanoTime() : 0L;
+        final boolean locked = attempts > 0;
+        if (metrics != null && attempts != 0) {
+            metrics.onAttempted(metadata, lockKey, Math.abs(attempts));
+        }
+        if (!locked) {
+            LOGGER.debug("{}, get lock fail:{}", metadata.getDescription(), lockKey);
+            if (metrics != null) {
+                metrics.onRejected(metadata, lockKey, timed ? acquiredNanos - startNanos : -1L, metadata.hasFallback());
+            }
+            if (!metadata.hasFallback()) {
+                throw new LockFailException(metadata.getDescription() + "...key=" + lockKey);
+            }
+            return metadata.getFallbackInvoker().invoke(target, joinPoint.getArgs());
+        }
+        LOGGER.debug("{}, get lock success:{}", metadata.getDescription(), lockKey);
+        if (metrics != null) {
+            metrics.onAcquired(metadata, lockKey, timed ? acquiredNanos - startNanos : -1L);
+        }
+        final HeldLocks held = metadata.isBatch() ? null : HeldLocks.current();
+        if (held != null) {
+            held.push(getLockScope(), lockKey, metadata.getMode(), metadata.getPermits());
+        }
+        try {
+            return joinPoint.proceed();
+        } catch (Throwable throwable) {
+            if (metrics != null) {
+                metrics.onError(metadata, lockKey, throwable);
+            }
+            throw throwable;
+        } finally {
+            if (held != null) {
+                held.pop();
+            }
+            if (admission != null) {
+                admission.recordHold(System.nanoTime() - acquiredNanos);
+            }
+            try {
+                unlock(lock);
+            } finally {
+                if (metrics != null) {
+                    metrics.onReleased(metadata, lockKey, timed ? System.nanoTime() - acquiredNanos : -1L);
+                }
+            }
+            LOGGER.debug("{}, release lock:{}", metadata.getDescription(), lockKey);
+        }
+    }
+
+    /**
+     * 异步方法加锁：等待锁不阻塞调用线程，方法返回的future完成后才释放锁
+     */
+    private CompletableFuture<Object> asyncLockAround(ProceedingJoinPoint joinPoint, Object target, LockMethodMetadata metadata,
+                                                      AsyncLockFactory asyncLockFactory, String lockKey) {
+        final CompletableFuture<Object> result = new CompletableFuture<>();
+        final LockMetrics metrics = lockMetrics;
+        final boolean timed = metrics != null && metrics.shouldTime();
+        final long startNanos = timed ? System.nanoTime() : 0L;
+        asyncLockFactory.tryLockAsync(lockKey, metadata.getTimeout(), TimeUnit.MILLISECONDS).whenComplete((handle, cause) -> {
+            final long acquiredNanos = timed ? System.nanoTime() : 0L;
+            if (cause != null) {
+                if (metrics != null) {
+                    metrics.onError(metadata, lockKey, unwrap(cause));
+                }
+                result.completeExceptionally(unwrap(cause));
+                return;
+            }
+            if (handle == null) {
+                LOGGER.debug("{}, get lock fail:{}", metadata.getDescription(), lockKey);
+                if (metrics != null) {
+                    metrics.onRejected(metadata, lockKey, timed ? acquiredNanos - startNanos : -1L, metadata.hasFallback());
+                }
+                if (!metadata.hasFallback()) {
+                    result.completeExceptionally(new LockFailException(metadata.getDescription() + "...key=" + lockKey));
+                    return;
+                }
+                try {
+                    completeWith(result, (CompletionStage<?>) metadata.getFallbackInvoker().invoke(target, joinPoint.getArgs()));
+                } catch (Throwable throwable) {
+                    result.completeExceptionally(throwable);
+                }
+                return;
+            }
+            LOGGER.debug("{}, get lock success:{}", metadata.getDescription(), lockKey);
+            if (metrics != null) {
+                metrics.onAcquired(metadata, lockKey, timed ? acquiredNanos - startNanos : -1L);
+            }
+            Runnable proceed = () -> {
+                CompletableFuture<Object> invocation = new CompletableFuture<>();
+                HeldLocks held = HeldLocks.current();
+                held.push(getLockScope(), lockKey, metadata.getMode(), metadata.getPermits());
+                try {
+                    completeWith(invocation, (CompletionStage<?>) joinPoint.proceed());
+                } catch (Throwable throwable) {
+                    invocation.completeExceptionally(throwable);
+                } finally {
+                    held.pop();
+                }
+                invocation.whenComplete((value, error) -> handle.unlockAsync().whenComplete((ignored, unlockError) -> {
+                    if (metrics != null) {
+                        if (error != null) {
+                            metrics.onError(metadata, lockKey, unwrap(error));
+                        }
+                        metrics.onReleased(metadata, lockKey, timed ? System.nanoTime() - acquiredNanos : -1L);
+                    }
+                    if (unlockError != null) {
+                        LOGGER.warn("{}, release lock fail:{}", metadata.getDescription(), lockKey, unlockError);
+                    } else {
+                        LOGGER.debug("{}, release lock:{}", metadata.getDescription(), lockKey);
+                    }
+                    if (error != null) {
+                        result.completeExceptionally(unwrap(error));
+                    } else {
+                        result.complete(value);
+                    }
+                }));
+            };
+            Executor executor = asyncExecutor;
+            try {
+                (executor != null ? executor : ForkJoinPool.commonPool()).execute(proceed);
+            } catch (RuntimeException e) {
+                handle.unlockAsync().whenComplete((ignored, unlockError) -> {
+                    if (metrics != null) {
+                        metrics.onError(metadata, lockKey, e);
+                        metrics.onReleased(metadata, lockKey, timed ? System.nanoTime() - acquiredNanos : -1L);
+                    }
+                    if (unlockError != null) {
+                        LOGGER.warn("{}, release lock fail:{}", metadata.getDescription(), lockKey, unlockError);
+                    }
+                    result.completeExceptionally(e);
+                });
+            }
+        });
+        return result;
+    }
+
+    private static void completeWith(CompletableFuture<Object> future, CompletionStage<?> stage) {
+        if (stage == null) {
+            future.complete(null);
+            return;
+        }
+        stage.whenComplete((value, error) -> {
+            if (error != null) {
+                future.completeExceptionally(unwrap(error));
+            } else {
+                future.complete(value);
+            }
+        });
+    }
+
+    private static Throwable unwrap(Throwable throwable) {
+        if (throwable instanceof CompletionException && throwable.getCause() != null) {
+            return throwable.getCause();
         }
+        return throwable;
     }
 
     /**
-     * 将注解转换为LockConfigEntity
+     * 获取加锁方法元数据，未在启动时注册的方法在第一次被拦截时构建
+     */
+    private LockMethodMetadata getLockMethodMetadata(Object target, MethodSignature methodSignature, Annotation annotation) {
+        Class<?> targetClass = ClassUtils.getUserClass(target);
+        Method method = methodSignature.getMethod();
+        LockMethodMetadata metadata = lockMetadataRegistry.getMetadata(targetClass, method);
+        if (metadata == null) {
+            metadata = lockMetadataRegistry.register(targetClass, method, lockAnnotation2LockConfig(annotation));
+        }
+        return metadata;
+    }
+
+    /**
+     * 将注解转换为LockConfigEntity，覆盖时启动扫描也使用覆盖后的转换
      * @param annotation
      * @return
      */
-    public abstract LockConfigEntity lockAnnotation2LockConfig(Annotation annotation);
+    public LockConfigEntity lockAnnotation2LockConfig(Annotation annotation) {
+        return LockConfigEntity.fromAnnotation((LockAnnotation) annotation);
+    }
     /**
      * 获取锁实例
      * @param lockKey
@@ -58,6 +434,88 @@ public abstract class AbsLockInterceptor {
      */
     public abstract Lock getLock(String lockKey);
 
+    /**
+     * 获取一组key的联锁实例
+     * @param lockKeys 按字典序排序并去重的key
+     * @return
+     */
+    public abstract Lock getMultiLock(List<String> lockKeys);
+
+    /**
+     * 以指定租期获取锁实例，默认忽略租期
+     * @param leaseMillis 租期，小于等于0时使用锁实现的默认租期
+     * @return
+     */
+    public Lock getLock(String lockKey, long leaseMillis) {
+        return getLock(lockKey);
+    }
+
+    /**
+     * 以指定租期获取一组key的联锁实例，默认忽略租期
+     * @param leaseMillis 租期，小于等于0时使用锁实现的默认租期
+     * @return
+     */
+    public Lock getMultiLock(List<String> lockKeys, long leaseMillis) {
+        return getMultiLock(lockKeys);
+    }
+
+    /**
+     * 按加锁模式获取锁实例，默认忽略模式（读写都退化为互斥锁）
+     * @param lockMode    加锁模式
+     * @param leaseMillis 租期，小于等于0时使用锁实现的默认租期
+     * @return
+     */
+    public Lock getLock(String lockKey, LockMode lockMode, long leaseMillis) {
+        return getLock(lockKey, leaseMillis);
+    }
+
+    /**
+     * 获取信号量实例，默认退化为互斥锁
+     * @param permits     许可数量
+     * @param leaseMillis 许可租期，小于等于0时使用锁实现的默认租期
+     * @return
+     */
+    public Lock getSemaphore(String lockKey, int permits, long leaseMillis) {
+        return getLock(lockKey, leaseMillis);
+    }
+
+    /**
+     * 当前线程已持有的锁所属的范围，同一个范围内嵌套调用同一个key时直接执行，不再访问锁实现；
+     * 默认为拦截器自身，内置拦截器返回所用的LockFactory，与使用同一个LockFactory的{@link org.fsj.lock.manager.template.LockTemplate}互相识别
+     */
+    protected Object getLockScope() {
+        return this;
+    }
+
+    /**
+     * 获取异步锁管理中心，返回null时异步方法加锁抛出LockFailException
+     * @return
+     */
+    public AsyncLockFactory getAsyncLockFactory() {
+        return null;
+    }
+
+    /**
+     * 设置异步方法获取锁后执行方法体的线程池，未设置时使用{@link ForkJoinPool#commonPool()}，
+     * 方法体不会在分布式锁客户端的IO线程、超时调度线程或释放锁的线程上执行；
+     * 线程池拒绝任务时释放锁并以拒绝异常完成方法返回的future
+     */
+    public void setAsyncExecutor(Executor asyncExecutor) {
+        this.asyncExecutor = asyncExecutor;
+    }
+
+
+    /**
+     * 设置加锁埋点，如{@link org.fsj.lock.manager.metrics.LockMetricsRegistry}、
+     * {@link org.fsj.lock.manager.journal.LockEventJournal}，多个时用{@link org.fsj.lock.manager.metrics.CompositeLockMetrics}组合，为null时关闭
+     */
+    public void setLockMetrics(LockMetrics lockMetrics) {
+        this.lockMetrics = lockMetrics;
+    }
+
+    public LockMetrics getLockMetrics() {
+        return lockMetrics;
+    }
 
     /**
      * 获取分布式锁
@@ -74,6 +532,24 @@ public abstract class AbsLockInterceptor {
         }
     }
 
+    /**
+     * 按加锁方法的等待策略获取锁，BLOCKING策略调用{@link #lock(Lock, String, int)}
+     *
+     * @return 调用tryLock的次数：获取成功为正数，失败为负数，线程被中断时为0
+     */
+    protected int acquire(Lock lock, String lockKey, LockMethodMetadata metadata) {
+        if (metadata.getWaitStrategy() == WaitStrategy.BLOCKING) {
+            return lock(lock, lockKey, metadata.getTimeout()) ? 1 : -1;
+        }
+        Preconditions.checkArgument(Objects.nonNull(lock), "加锁时获取的lock为null");
+        try {
+            return metadata.getLockWaiter().acquire(lock, metadata.getTimeout());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 0;
+        }
+    }
+
     public void unlock(Lock lock) {
         Preconditions.checkArgument(Objects.nonNull(lock), "解锁时获取的lock为null");
         lock.unlock();
@@ -84,88 +560,55 @@ public abstract class AbsLockInterceptor {
     /**
      * 解析加锁内容
      *
-     * @param joinPoint            要加锁方法入参
-     * @param lockConfigEntity 加锁配置（注解）
+     * @param joinPoint 要加锁方法入参
+     * @param metadata  加锁方法元数据
      * @return 要加锁的key
      */
-    public String getLockKey(ProceedingJoinPoint joinPoint, LockConfigEntity lockConfigEntity) {
-        final Object[] args = joinPoint.getArgs();
-        StringBuilder lockKey = new StringBuilder(lockConfigEntity.getLockPrefix());
-        String[] keys = lockConfigEntity.getKeys();
-        int index = 0;
-        for (int keyIndex : lockConfigEntity.getKeyIndexes()) {
-            Object arg = args[keyIndex];
-            String key = keys[index++];
-            if (isBasicType(key)) {
-                lockKey.append("_").append(arg);
-            } else {
-                lockKey.append("_").append(parseKey(arg, key));
-            }
+    public String getLockKey(ProceedingJoinPoint joinPoint, LockMethodMetadata metadata) {
+        if (legacyLockKey) {
+            return getLockKey(joinPoint, metadata.getLockConfig());
         }
-        return lockKey.toString();
+        return metadata.getLockKeyExtractor().extract(joinPoint.getArgs());
     }
+
     /**
-     * 判断是否基础数据类型
+     * 解析加锁内容，子类覆盖该方法时{@link #getLockKey(ProceedingJoinPoint, LockMethodMetadata)}调用覆盖后的实现
      *
-     * @param name 要判断的占位符
-     * @return true/false
+     * @param joinPoint        要加锁方法入参
+     * @param lockConfigEntity 加锁配置（注解）
+     * @return 要加锁的key
+     * @deprecated 覆盖{@link #getLockKey(ProceedingJoinPoint, LockMethodMetadata)}，使用元数据中预编译的key提取器
      */
-    private boolean isBasicType(String name) {
-        return StringUtils.equalsIgnoreCase(name, "LONG") || StringUtils.equalsIgnoreCase(name, "INT")
-                || StringUtils.equalsIgnoreCase(name, "STRING");
+    @Deprecated
+    public String getLockKey(ProceedingJoinPoint joinPoint, LockConfigEntity lockConfigEntity) {
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        LockMethodMetadata metadata = lockMetadataRegistry.getMetadata(ClassUtils.getUserClass(joinPoint.getTarget()), method);
+        if (metadata != null) {
+            return metadata.getLockKeyExtractor().extract(joinPoint.getArgs());
+        }
+        return LockKeyExtractor.compile(method, lockConfigEntity.getLockPrefix(), lockConfigEntity.getKeys(),
+                lockConfigEntity.getKeyIndexes(), false, lockConfigEntity.getKeyCodec()).extract(joinPoint.getArgs());
     }
 
     /**
-     * 解析非基础数据类型的占位符
+     * 批量加锁时解析所有加锁内容
      *
-     * @param obj 占位符对应参数
-     * @param key 占位符内容
-     * @return 解析后的内容
-     */
-    private String parseKey(Object obj, String key) {
-        String[] stirs = key.substring(1, key.length()).split("\\.");
-        Object currObj = obj;
-        for (String fieldName : stirs) {
-            try {
-                PropertyDescriptor propertyDescriptor = BeanUtils.getPropertyDescriptor(obj.getClass(), fieldName);
-                Method readMethod = propertyDescriptor.getReadMethod();
-                if (!Modifier.isPublic(readMethod.getDeclaringClass().getModifiers())) {
-                    readMethod.setAccessible(true);
-                }
-                currObj = readMethod.invoke(obj);
-            } catch (InvocationTargetException | IllegalAccessException e) {
-                throw new RuntimeException(e);
-            }
-        }
-        return String.valueOf(currObj);
-    }
-
-    private Method findFallbackMethod(ProceedingJoinPoint joinPoint, String fallbackMethodName) {
-        Signature signature = joinPoint.getSignature();
-        MethodSignature methodSignature = (MethodSignature) signature;
-        Method method = methodSignature.getMethod();
-        Class<?>[] parameterTypes = method.getParameterTypes();
-        Method fallbackMethod = null;
-        try {
-            //这里通过判断必须取和原方法一样参数的fallback方法
-            fallbackMethod = joinPoint.getTarget().getClass().getMethod(fallbackMethodName, parameterTypes);
-        } catch (NoSuchMethodException e) {
-            throw new LockFailException(e);
-        }
-        return fallbackMethod;
+     * @param joinPoint 要加锁方法入参
+     * @param metadata  加锁方法元数据
+     * @return 按字典序排序并去重的key
+     */
+    public List<String> getLockKeys(ProceedingJoinPoint joinPoint, LockMethodMetadata metadata) {
+        return metadata.getLockKeyExtractor().extractAll(joinPoint.getArgs());
     }
 
-
-    private Object invokeFallbackMethod(ProceedingJoinPoint joinPoint, String fallback) {
-        Method method = findFallbackMethod(joinPoint, fallback);
-        method.setAccessible(true);
-        try {
-            Object invoke = method.invoke(joinPoint.getTarget(), joinPoint.getArgs());
-            return invoke;
-        } catch (IllegalAccessException | InvocationTargetException e) {
-            throw new LockFailException(e);
+    /**
+     * 批量key用于日志和异常信息的简短描述
+     */
+    private String describeLockKeys(List<String> lockKeys) {
+        if (lockKeys.size() <= 1) {
+            return lockKeys.toString();
         }
+        return "[" + lockKeys.get(0) + " ... " + lockKeys.get(lockKeys.size() - 1) + "](" + lockKeys.size() + ")";
     }
 
-
 }
@@ -4,10 +4,12 @@ import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
 import org.fsj.lock.manager.LockAnnotation;
+import org.fsj.lock.manager.LockMode;
+import org.fsj.lock.manager.factory.AsyncLockFactory;
 import org.fsj.lock.manager.factory.LockFactory;
-import org.fsj.lock.manager.entity.LockConfigEntity;
+import org.fsj.lock.manager.metadata.LockMetadataRegistry;
 
-import java.lang.annotation.Annotation;
+import java.util.List;
 import java.util.concurrent.locks.Lock;
 
 @Aspect
@@ -20,25 +22,54 @@ public class DistributedLockInterceptor extends AbsLockInterceptor {
         this.lockFactory = lockFactory;
     }
 
+    public DistributedLockInterceptor(LockFactory lockFactory, LockMetadataRegistry lockMetadataRegistry) {
+        super(lockMetadataRegistry);
+        this.lockFactory = lockFactory;
+    }
+
     @Around("@annotation(lockAnnotation)")
     public Object around(ProceedingJoinPoint joinPoint, LockAnnotation lockAnnotation) throws Throwable {
        return lockAround(joinPoint,lockAnnotation);
     }
 
     @Override
-    public LockConfigEntity lockAnnotation2LockConfig(Annotation annotation) {
-        LockAnnotation distributedLock = (LockAnnotation) annotation;
-        return new LockConfigEntity()
-                .setLockPrefix(distributedLock.lockPrefix())
-                .setKeyIndexes(distributedLock.keyIndexes())
-                .setKeys(distributedLock.keys())
-                .setLockFailMethod(distributedLock.lockFailMethod())
-                .setTimeout(distributedLock.timeout());
+    public Lock getLock(String lockKey) {
+        return lockFactory.getLock(lockKey);
     }
 
     @Override
-    public Lock getLock(String lockKey) {
-        return lockFactory.getLock(lockKey);
+    public Lock getMultiLock(List<String> lockKeys) {
+        return lockFactory.getMultiLock(lockKeys);
+    }
+
+    @Override
+    public Lock getLock(String lockKey, long leaseMillis) {
+        return lockFactory.getLock(lockKey, leaseMillis);
+    }
+
+    @Override
+    public Lock getMultiLock(List<String> lockKeys, long leaseMillis) {
+        return lockFactory.getMultiLock(lockKeys, leaseMillis);
+    }
+
+    @Override
+    public Lock getLock(String lockKey, LockMode lockMode, long leaseMillis) {
+        return lockFactory.getLock(lockKey, lockMode, leaseMillis);
+    }
+
+    @Override
+    public Lock getSemaphore(String lockKey, int permits, long leaseMillis) {
+        return lockFactory.getSemaphore(lockKey, permits, leaseMillis);
+    }
+
+    @Override
+    public AsyncLockFactory getAsyncLockFactory() {
+        return AsyncLockFactory.of(lockFactory);
+    }
+
+    @Override
+    protected Object getLockScope() {
+        return lockFactory;
     }
 
 
@@ -0,0 +1,91 @@
+package org.fsj.lock.manager.interceptor;
+
+import org.fsj.lock.manager.LockMode;
+
+import java.util.Arrays;
+
+/**
+ * 当前线程通过拦截器或{@link org.fsj.lock.manager.template.LockTemplate}持有的锁，按加锁顺序入栈，解锁前出栈
+ *
+ * <p>
+ * 嵌套深度通常只有几层，用数组线性查找，入栈出栈不分配对象；只由所属线程访问，不需要同步。
+ * 每个锁记录所属的范围（通常是{@link org.fsj.lock.manager.factory.LockFactory}），只有同一个范围内的锁互相可见；
+ * 同一个key的互斥锁、读锁、写锁、信号量是不同的锁，按加锁模式和许可数量区分
+ * </p>
+ */
+public final class HeldLocks {
+
+    private static final ThreadLocal<HeldLocks> CURRENT = ThreadLocal.withInitial(HeldLocks::new);
+
+    private static final int INITIAL_CAPACITY = 4;
+
+    private Object[] scopes = new Object[INITIAL_CAPACITY];
+
+    private String[] lockKeys = new String[INITIAL_CAPACITY];
+
+    private LockMode[] modes = new LockMode[INITIAL_CAPACITY];
+
+    private int[] permits = new int[INITIAL_CAPACITY];
+
+    private int size;
+
+    private HeldLocks() {
+    }
+
+    /**
+     * 当前线程持有的锁
+     */
+    public static HeldLocks current() {
+        return CURRENT.get();
+    }
+
+    public boolean contains(Object scope, String lockKey, LockMode mode, int permits) {
+        for (int i = size - 1; i >= 0; i--) {
+            if (scopes[i] == scope && modes[i] == mode && this.permits[i] == permits && lockKeys[i].equals(lockKey)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void push(Object scope, String lockKey, LockMode mode, int permits) {
+        if (size == lockKeys.length) {
+            scopes = Arrays.copyOf(scopes, size << 1);
+            lockKeys = Arrays.copyOf(lockKeys, size << 1);
+            modes = Arrays.copyOf(modes, size << 1);
+            this.permits = Arrays.copyOf(this.permits, size << 1);
+        }
+        scopes[size] = scope;
+        lockKeys[size] = lockKey;
+        modes[size] = mode;
+        this.permits[size] = permits;
+        size++;
+    }
+
+    /**
+     * 弹出栈顶，与push成对调用
+     */
+    public void pop() {
+        size--;
+        scopes[size] = null;
+        lockKeys[size] = null;
+        modes[size] = null;
+    }
+
+    /**
+     * 移除最近入栈的一个匹配的锁，解锁顺序与加锁顺序不一致时使用
+     */
+    public void remove(Object scope, String lockKey, LockMode mode, int permits) {
+        for (int i = size - 1; i >= 0; i--) {
+            if (scopes[i] == scope && modes[i] == mode && this.permits[i] == permits && lockKeys[i].equals(lockKey)) {
+                int moved = size - 1 - i;
+                System.arraycopy(scopes, i + 1, scopes, i, moved);
+                System.arraycopy(lockKeys, i + 1, lockKeys, i, moved);
+                System.arraycopy(modes, i + 1, modes, i, moved);
+                System.arraycopy(this.permits, i + 1, this.permits, i, moved);
+                pop();
+                return;
+            }
+        }
+    }
+}
@@ -4,10 +4,15 @@ import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
 import org.fsj.lock.manager.LockAnnotation;
-import org.fsj.lock.manager.entity.LockConfigEntity;
+import org.fsj.lock.manager.LockMode;
+import org.fsj.lock.manager.factory.AsyncLockFactory;
 import org.fsj.lock.manager.factory.LockFactory;
+import org.fsj.lock.manager.metadata.LockMetadataRegistry;
+import org.fsj.lock.manager.metadata.LockMethodMetadata;
 
-import java.lang.annotation.Annotation;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.locks.Lock;
 
 @Aspect
@@ -16,33 +21,79 @@ public class ReentrantLockInterceptor extends AbsLockInterceptor {
 
     private LockFactory lockFactory;
 
+    /**
+     * 方法签名作为key，每个方法只生成一次
+     */
+    private final ConcurrentHashMap<LockMethodMetadata, String> signatureKeys = new ConcurrentHashMap<>();
+
     public ReentrantLockInterceptor(LockFactory lockFactory) {
         this.lockFactory = lockFactory;
     }
 
+    public ReentrantLockInterceptor(LockFactory lockFactory, LockMetadataRegistry lockMetadataRegistry) {
+        super(lockMetadataRegistry);
+        this.lockFactory = lockFactory;
+    }
+
     @Around("@annotation(lockAnnotation)")
     public Object around(ProceedingJoinPoint joinPoint, LockAnnotation lockAnnotation) throws Throwable {
        return lockAround(joinPoint,lockAnnotation);
     }
 
     @Override
-    public LockConfigEntity lockAnnotation2LockConfig(Annotation annotation) {
-        LockAnnotation distributedLock = (LockAnnotation) annotation;
-        return new LockConfigEntity()
-                .setLockPrefix(distributedLock.lockPrefix())
-                .setKeyIndexes(distributedLock.keyIndexes())
-                .setKeys(distributedLock.keys())
-                .setLockFailMethod(distributedLock.lockFailMethod())
-                .setTimeout(distributedLock.timeout());
+    public Lock getLock(String lockKey) {
+        return lockFactory.getLock(lockKey);
     }
 
     @Override
-    public Lock getLock(String lockKey) {
-        return lockFactory.getLock(lockKey);
+    public Lock getMultiLock(List<String> lockKeys) {
+        return lockFactory.getMultiLock(lockKeys);
+    }
+
+    @Override
+    public Lock getLock(String lockKey, long leaseMillis) {
+        return lockFactory.getLock(lockKey, leaseMillis);
+    }
+
+    @Override
+    public Lock getMultiLock(List<String> lockKeys, long leaseMillis) {
+        return lockFactory.getMultiLock(lockKeys, leaseMillis);
+    }
+
+    @Override
+    public Lock getLock(String lockKey, LockMode lockMode, long leaseMillis) {
+        return lockFactory.getLock(lockKey, lockMode, leaseMillis);
+    }
+
+    @Override
+    public Lock getSemaphore(String lockKey, int permits, long leaseMillis) {
+        return lockFactory.getSemaphore(lockKey, permits, leaseMillis);
+    }
+
+    @Override
+    public AsyncLockFactory getAsyncLockFactory() {
+        return AsyncLockFactory.of(lockFactory);
+    }
+
+    @Override
+    protected Object getLockScope() {
+        return lockFactory;
+    }
+
+    @Override
+    public String getLockKey(ProceedingJoinPoint joinPoint, LockMethodMetadata metadata) {
+        String lockKey = signatureKeys.get(metadata);
+        if (lockKey == null) {
+            lockKey = signatureKeys.computeIfAbsent(metadata, key -> joinPoint.getSignature().toString());
+        }
+        return lockKey;
     }
 
+    /**
+     * 与单key方法一致按方法签名加锁，批量方法也只锁一个key
+     */
     @Override
-    public String getLockKey(ProceedingJoinPoint joinPoint, LockConfigEntity lockConfigEntity) {
-        return joinPoint.getSignature().toString();
+    public List<String> getLockKeys(ProceedingJoinPoint joinPoint, LockMethodMetadata metadata) {
+        return Collections.singletonList(getLockKey(joinPoint, metadata));
     }
 }
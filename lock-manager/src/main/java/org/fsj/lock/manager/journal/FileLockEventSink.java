@@ -0,0 +1,72 @@
+package org.fsj.lock.manager.journal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 以制表符分隔的文本行追加写入文件，每批事件刷新一次
+ *
+ * <p>
+ * 列依次为：时间戳（毫秒）、事件类型、方法、lockKey、线程id、耗时（纳秒，未计时为-1）、异常类名
+ * </p>
+ */
+public class FileLockEventSink implements LockEventSink {
+    private static final Logger LOGGER = LoggerFactory.getLogger(FileLockEventSink.class);
+
+    private final BufferedWriter writer;
+
+    private final StringBuilder line = new StringBuilder(256);
+
+    public FileLockEventSink(Path path) {
+        try {
+            this.writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void onEvent(LockEvent event) {
+        line.setLength(0);
+        line.append(event.getTimeMillis()).append('\t')
+                .append(event.getType()).append('\t')
+                .append(event.getMetadata().getDescription()).append('\t')
+                .append(event.getLockKey()).append('\t')
+                .append(event.getThreadId()).append('\t')
+                .append(event.getDurationNanos()).append('\t')
+                .append(event.getError() == null ? "" : event.getError().getClass().getName())
+                .append('\n');
+        try {
+            writer.append(line);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void flush() {
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            writer.close();
+        } catch (IOException e) {
+            LOGGER.warn("close lock event file fail", e);
+        }
+    }
+}
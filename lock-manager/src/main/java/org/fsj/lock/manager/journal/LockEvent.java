@@ -0,0 +1,86 @@
+package org.fsj.lock.manager.journal;
+
+import org.fsj.lock.manager.metadata.LockMethodMetadata;
+
+/**
+ * 环形缓冲区中预分配的事件槽
+ *
+ * <p>
+ * 只引用已有对象（元数据、lockKey、异常），写入时不分配内存。
+ * 槽在{@link LockEventSink#onEvent(LockEvent)}返回后会被复用，sink需要保留内容时必须自行复制。
+ * </p>
+ */
+public final class LockEvent {
+
+    /**
+     * 已发布的序号，等于消费者期望的序号时内容可读
+     */
+    volatile long sequence = -1L;
+
+    private LockEventType type;
+
+    private LockMethodMetadata metadata;
+
+    private String lockKey;
+
+    private long threadId;
+
+    private long timeMillis;
+
+    private long durationNanos;
+
+    private Throwable error;
+
+    void set(LockEventType type, LockMethodMetadata metadata, String lockKey, long durationNanos, Throwable error) {
+        this.type = type;
+        this.metadata = metadata;
+        this.lockKey = lockKey;
+        this.threadId = Thread.currentThread().getId();
+        this.timeMillis = System.currentTimeMillis();
+        this.durationNanos = durationNanos;
+        this.error = error;
+    }
+
+    /**
+     * 释放引用，避免缓冲区长期持有业务对象
+     */
+    void clear() {
+        this.metadata = null;
+        this.lockKey = null;
+        this.error = null;
+    }
+
+    public LockEventType getType() {
+        return type;
+    }
+
+    public LockMethodMetadata getMetadata() {
+        return metadata;
+    }
+
+    public String getLockKey() {
+        return lockKey;
+    }
+
+    public long getThreadId() {
+        return threadId;
+    }
+
+    /**
+     * 事件发生的时间戳（毫秒）
+     */
+    public long getTimeMillis() {
+        return timeMillis;
+    }
+
+    /**
+     * 等待或持有锁的时间，未计时为-1
+     */
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    public Throwable getError() {
+        return error;
+    }
+}
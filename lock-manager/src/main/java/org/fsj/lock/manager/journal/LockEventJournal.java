@@ -0,0 +1,254 @@
+package org.fsj.lock.manager.journal;
+
+import com.google.common.base.Preconditions;
+import org.fsj.lock.manager.metadata.LockMethodMetadata;
+import org.fsj.lock.manager.metrics.LockMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 异步的加锁事件日志
+ *
+ * <p>
+ * 作为{@link LockMetrics}设置到拦截器上：加锁线程只把事件写入预分配的环形缓冲区（一次CAS + 几个字段赋值），
+ * 不加锁、不阻塞、不分配内存；缓冲区满时丢弃事件并计数。
+ * 后台消费线程批量取出事件交给各{@link LockEventSink}（日志、文件、统计等），格式化和IO都在消费线程上完成。
+ * </p>
+ * <p>
+ * 成功和释放事件按采样率记录，超时、降级和异常事件总是记录；可以按lock前缀单独设置采样率，0表示不记录该前缀。
+ * 默认不计时，事件中的耗时为-1，需要等待、持有时间时通过{@link #setTimed(boolean)}开启。
+ * </p>
+ */
+public class LockEventJournal implements LockMetrics, Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LockEventJournal.class);
+
+    public static final int DEFAULT_CAPACITY = 8192;
+
+    /**
+     * 每批最多处理的事件数，处理完一批后推进消费位置并刷新sink
+     */
+    private static final int MAX_BATCH = 256;
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final LockEvent[] slots;
+
+    private final int mask;
+
+    /**
+     * 下一个待写入的序号
+     */
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * 下一个待消费的序号，只由消费线程推进
+     */
+    private final AtomicLong head = new AtomicLong();
+
+    private final LongAdder dropped = new LongAdder();
+
+    private final List<LockEventSink> sinks;
+
+    private final ConcurrentHashMap<String, Integer> prefixSampleRates = new ConcurrentHashMap<>();
+
+    private volatile int sampleRate = 1;
+
+    private volatile boolean timed;
+
+    private volatile boolean running = true;
+
+    private final Thread consumer;
+
+    public LockEventJournal(List<LockEventSink> sinks) {
+        this(DEFAULT_CAPACITY, sinks);
+    }
+
+    /**
+     * @param capacity 缓冲区大小，向上取整为2的幂
+     * @param sinks    事件输出端
+     */
+    public LockEventJournal(int capacity, List<LockEventSink> sinks) {
+        Preconditions.checkArgument(capacity > 0 && capacity <= 1 << 30, "capacity不合法:%s", capacity);
+        Preconditions.checkArgument(sinks != null && !sinks.isEmpty(), "sinks不能为空");
+        int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.slots = new LockEvent[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new LockEvent();
+        }
+        this.mask = size - 1;
+        this.sinks = new ArrayList<>(sinks);
+        this.consumer = new Thread(this::consume, "lock-event-journal");
+        this.consumer.setDaemon(true);
+        this.consumer.start();
+    }
+
+    /**
+     * 成功和释放事件的采样率倒数，1表示全部记录
+     */
+    public void setSampleRate(int sampleRate) {
+        Preconditions.checkArgument(sampleRate > 0, "sampleRate必须大于0");
+        this.sampleRate = sampleRate;
+    }
+
+    /**
+     * 单独设置某个lock前缀的采样率倒数，0表示不记录该前缀的任何事件
+     */
+    public void setPrefixSampleRate(String lockPrefix, int sampleRate) {
+        Preconditions.checkArgument(sampleRate >= 0, "sampleRate不能小于0");
+        prefixSampleRates.put(lockPrefix, sampleRate);
+    }
+
+    /**
+     * 是否记录等待、持有时间，开启后每次加锁多读两次时钟
+     */
+    public void setTimed(boolean timed) {
+        this.timed = timed;
+    }
+
+    /**
+     * 因缓冲区满丢弃的事件数
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    @Override
+    public boolean shouldTime() {
+        return timed;
+    }
+
+    @Override
+    public void onAcquired(LockMethodMetadata metadata, String lockKey, long waitNanos) {
+        if (sampled(metadata, false)) {
+            publish(LockEventType.ACQUIRED, metadata, lockKey, waitNanos, null);
+        }
+    }
+
+    @Override
+    public void onRejected(LockMethodMetadata metadata, String lockKey, long waitNanos, boolean fallback) {
+        if (sampled(metadata, true)) {
+            publish(fallback ? LockEventType.FALLBACK : LockEventType.REJECTED, metadata, lockKey, waitNanos, null);
+        }
+    }
+
+    @Override
+    public void onReleased(LockMethodMetadata metadata, String lockKey, long holdNanos) {
+        if (sampled(metadata, false)) {
+            publish(LockEventType.RELEASED, metadata, lockKey, holdNanos, null);
+        }
+    }
+
+    @Override
+    public void onError(LockMethodMetadata metadata, String lockKey, Throwable error) {
+        if (sampled(metadata, true)) {
+            publish(LockEventType.ERROR, metadata, lockKey, -1L, error);
+        }
+    }
+
+    private boolean sampled(LockMethodMetadata metadata, boolean always) {
+        int rate = sampleRate;
+        if (!prefixSampleRates.isEmpty()) {
+            Integer prefixRate = prefixSampleRates.get(metadata.getLockKeyExtractor().getLockPrefix());
+            if (prefixRate != null) {
+                rate = prefixRate;
+            }
+        }
+        if (rate <= 0) {
+            return false;
+        }
+        return always || rate == 1 || ThreadLocalRandom.current().nextInt(rate) == 0;
+    }
+
+    private void publish(LockEventType type, LockMethodMetadata metadata, String lockKey, long durationNanos, Throwable error) {
+        long sequence;
+        do {
+            sequence = tail.get();
+            if (sequence - head.get() >= slots.length) {
+                dropped.increment();
+                return;
+            }
+        } while (!tail.compareAndSet(sequence, sequence + 1));
+        LockEvent event = slots[(int) sequence & mask];
+        event.set(type, metadata, lockKey, durationNanos, error);
+        event.sequence = sequence;
+    }
+
+    private void consume() {
+        while (running) {
+            if (drain() == 0) {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            }
+        }
+        while (drain() > 0) {
+            //关闭前处理完剩余事件
+        }
+    }
+
+    /**
+     * 处理一批已发布的事件
+     *
+     * @return 处理的事件数
+     */
+    private int drain() {
+        long sequence = head.get();
+        int count = 0;
+        while (count < MAX_BATCH) {
+            LockEvent event = slots[(int) sequence & mask];
+            if (event.sequence != sequence) {
+                break;
+            }
+            for (LockEventSink sink : sinks) {
+                try {
+                    sink.onEvent(event);
+                } catch (RuntimeException e) {
+                    LOGGER.warn("lock event sink fail:{}", sink, e);
+                }
+            }
+            event.clear();
+            sequence++;
+            count++;
+        }
+        if (count > 0) {
+            head.lazySet(sequence);
+            for (LockEventSink sink : sinks) {
+                try {
+                    sink.flush();
+                } catch (RuntimeException e) {
+                    LOGGER.warn("lock event sink flush fail:{}", sink, e);
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 停止消费线程，处理完已发布的事件后关闭sink
+     */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(consumer);
+        try {
+            consumer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (LockEventSink sink : sinks) {
+            try {
+                sink.close();
+            } catch (RuntimeException e) {
+                LOGGER.warn("lock event sink close fail:{}", sink, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package org.fsj.lock.manager.journal;
+
+/**
+ * 加锁事件的输出端，只在{@link LockEventJournal}的消费线程上调用，无需线程安全
+ */
+public interface LockEventSink {
+
+    /**
+     * 处理一个事件，event在返回后会被复用
+     */
+    void onEvent(LockEvent event);
+
+    /**
+     * 一批事件处理完成，缓冲输出的sink在这里刷新
+     */
+    default void flush() {
+    }
+
+    /**
+     * 日志关闭时调用
+     */
+    default void close() {
+    }
+}
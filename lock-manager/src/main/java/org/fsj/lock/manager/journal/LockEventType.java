@@ -0,0 +1,27 @@
+package org.fsj.lock.manager.journal;
+
+/**
+ * 加锁事件类型
+ */
+public enum LockEventType {
+    /**
+     * 获取锁成功，耗时为等待时间
+     */
+    ACQUIRED,
+    /**
+     * 获取锁超时，抛出LockFailException，耗时为等待时间
+     */
+    REJECTED,
+    /**
+     * 获取锁超时，执行降级方法，耗时为等待时间
+     */
+    FALLBACK,
+    /**
+     * 释放锁，耗时为持有时间
+     */
+    RELEASED,
+    /**
+     * 加锁、方法执行或解锁时抛出异常
+     */
+    ERROR
+}
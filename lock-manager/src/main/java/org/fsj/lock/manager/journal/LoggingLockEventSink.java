@@ -0,0 +1,33 @@
+package org.fsj.lock.manager.journal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 以slf4j输出加锁事件，日志内容与原先拦截器中的INFO日志一致，但在消费线程上输出
+ */
+public class LoggingLockEventSink implements LockEventSink {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LoggingLockEventSink.class);
+
+    @Override
+    public void onEvent(LockEvent event) {
+        String description = event.getMetadata().getDescription();
+        switch (event.getType()) {
+            case ACQUIRED:
+                LOGGER.info("{}, get lock success:{}", description, event.getLockKey());
+                break;
+            case REJECTED:
+            case FALLBACK:
+                LOGGER.info("{}, get lock fail:{}", description, event.getLockKey());
+                break;
+            case RELEASED:
+                LOGGER.info("{}, release lock:{}", description, event.getLockKey());
+                break;
+            case ERROR:
+                LOGGER.warn("{}, lock error:{}", description, event.getLockKey(), event.getError());
+                break;
+            default:
+                break;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package org.fsj.lock.manager.journal;
+
+import org.fsj.lock.manager.metrics.LockMetrics;
+
+import java.util.Objects;
+
+/**
+ * 把事件转交给{@link LockMetrics}（如{@link org.fsj.lock.manager.metrics.LockMetricsRegistry}），
+ * 统计在消费线程上完成，加锁线程只负责写入事件
+ *
+ * <p>
+ * 统计结果受日志采样率影响：按采样记录的成功、释放事件对应的计数也是采样值
+ * </p>
+ */
+public class MetricsLockEventSink implements LockEventSink {
+
+    private final LockMetrics lockMetrics;
+
+    public MetricsLockEventSink(LockMetrics lockMetrics) {
+        this.lockMetrics = Objects.requireNonNull(lockMetrics, "lockMetrics");
+    }
+
+    @Override
+    public void onEvent(LockEvent event) {
+        switch (event.getType()) {
+            case ACQUIRED:
+                lockMetrics.onAcquired(event.getMetadata(), event.getLockKey(), event.getDurationNanos());
+                break;
+            case REJECTED:
+                lockMetrics.onRejected(event.getMetadata(), event.getLockKey(), event.getDurationNanos(), false);
+                break;
+            case FALLBACK:
+                lockMetrics.onRejected(event.getMetadata(), event.getLockKey(), event.getDurationNanos(), true);
+                break;
+            case RELEASED:
+                lockMetrics.onReleased(event.getMetadata(), event.getLockKey(), event.getDurationNanos());
+                break;
+            case ERROR:
+                lockMetrics.onError(event.getMetadata(), event.getLockKey(), event.getError());
+                break;
+            default:
+                break;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package org.fsj.lock.manager.key;
+
+/**
+ * lockKey编码，由{@link LockKeyExtractor}逐个追加key片段后生成最终的key
+ *
+ * <p>
+ * 实现必须无状态、线程安全，同样的输入总是得到同样的key
+ * </p>
+ */
+public interface LockKeyCodec {
+
+    /**
+     * 追加一个key片段，包括片段前的分隔符
+     *
+     * @param part 参数或属性的值，可能为null
+     */
+    void appendPart(StringBuilder key, Object part);
+
+    /**
+     * 所有片段追加完成后生成最终的key，可以修改key
+     *
+     * @param prefixLength lockPrefix的长度，之后为各片段
+     */
+    String finish(StringBuilder key, int prefixLength);
+}
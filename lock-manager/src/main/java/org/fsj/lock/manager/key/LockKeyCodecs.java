@@ -0,0 +1,117 @@
+package org.fsj.lock.manager.key;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import org.fsj.lock.manager.LockKeyEncoding;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+/**
+ * 各{@link LockKeyEncoding}的实现
+ */
+public final class LockKeyCodecs {
+
+    static final char SEPARATOR = '_';
+
+    /**
+     * lockPrefix_值_值...
+     */
+    public static final LockKeyCodec PLAIN = new LockKeyCodec() {
+        @Override
+        public void appendPart(StringBuilder key, Object part) {
+            key.append(SEPARATOR).append(part);
+        }
+
+        @Override
+        public String finish(StringBuilder key, int prefixLength) {
+            return key.toString();
+        }
+    };
+
+    /**
+     * 整数类型的值以36进制写出
+     */
+    public static final LockKeyCodec COMPACT = new LockKeyCodec() {
+        @Override
+        public void appendPart(StringBuilder key, Object part) {
+            key.append(SEPARATOR);
+            if (part instanceof Long || part instanceof Integer || part instanceof Short || part instanceof Byte) {
+                key.append(Long.toString(((Number) part).longValue(), Character.MAX_RADIX));
+            } else {
+                key.append(part);
+            }
+        }
+
+        @Override
+        public String finish(StringBuilder key, int prefixLength) {
+            return key.toString();
+        }
+    };
+
+    /**
+     * lockPrefix之后的部分替换为128位哈希
+     */
+    public static final LockKeyCodec HASHED = new LockKeyCodec() {
+        private final HashFunction hashFunction = Hashing.murmur3_128();
+
+        /**
+         * 分隔符 + '#' + 16字节哈希的base64url编码；更短的部分不哈希，与哈希后的key长度不同，不会相同
+         */
+        private final int hashedTailLength = 2 + 22;
+
+        @Override
+        public void appendPart(StringBuilder key, Object part) {
+            PLAIN.appendPart(key, part);
+        }
+
+        @Override
+        public String finish(StringBuilder key, int prefixLength) {
+            if (key.length() - prefixLength < hashedTailLength) {
+                return key.toString();
+            }
+            byte[] hash = hashFunction.hashString(key.subSequence(prefixLength, key.length()), StandardCharsets.UTF_8).asBytes();
+            key.setLength(prefixLength);
+            key.append(SEPARATOR).append('#');
+            appendBase64Url(key, hash);
+            return key.toString();
+        }
+    };
+
+    private static final char[] BASE64_URL = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_".toCharArray();
+
+    private LockKeyCodecs() {
+    }
+
+    /**
+     * 无填充的base64url编码，直接写入key，16字节为22个字符
+     */
+    private static void appendBase64Url(StringBuilder key, byte[] bytes) {
+        int i = 0;
+        for (; i + 3 <= bytes.length; i += 3) {
+            int chunk = (bytes[i] & 0xff) << 16 | (bytes[i + 1] & 0xff) << 8 | (bytes[i + 2] & 0xff);
+            key.append(BASE64_URL[chunk >>> 18]).append(BASE64_URL[chunk >>> 12 & 0x3f])
+                    .append(BASE64_URL[chunk >>> 6 & 0x3f]).append(BASE64_URL[chunk & 0x3f]);
+        }
+        int remaining = bytes.length - i;
+        if (remaining == 1) {
+            int chunk = (bytes[i] & 0xff) << 16;
+            key.append(BASE64_URL[chunk >>> 18]).append(BASE64_URL[chunk >>> 12 & 0x3f]);
+        } else if (remaining == 2) {
+            int chunk = (bytes[i] & 0xff) << 16 | (bytes[i + 1] & 0xff) << 8;
+            key.append(BASE64_URL[chunk >>> 18]).append(BASE64_URL[chunk >>> 12 & 0x3f]).append(BASE64_URL[chunk >>> 6 & 0x3f]);
+        }
+    }
+
+    public static LockKeyCodec of(LockKeyEncoding encoding) {
+        switch (Objects.requireNonNull(encoding, "encoding")) {
+            case COMPACT:
+                return COMPACT;
+            case HASHED:
+                return HASHED;
+            case PLAIN:
+            default:
+                return PLAIN;
+        }
+    }
+}
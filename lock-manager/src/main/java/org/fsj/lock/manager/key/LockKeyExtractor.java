@@ -0,0 +1,374 @@
+package org.fsj.lock.manager.key;
+
+import com.google.common.base.Preconditions;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.BeanUtils;
+import org.springframework.core.ResolvableType;
+
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.TreeSet;
+
+/**
+ * 预编译的lockKey提取器
+ *
+ * <p>
+ * 由{@link #compile(Method, String, String[], int[])}在方法第一次被拦截时根据keys/keyIndexes编译生成，
+ * 之后每次调用只需按参数下标取值、沿预先解析好的getter（MethodHandle）取属性并拼接，
+ * 不再重复做正则拆分、PropertyDescriptor查找和反射调用。片段的写法和最终形式由{@link LockKeyCodec}决定。
+ * </p>
+ *
+ * keys的规则与{@link org.fsj.lock.manager.LockAnnotation#keys()}一致：<br />
+ * 基础类型：String,Int,Long <br />
+ * 引用类型：以.开头，格式为.field.field... <br />
+ * 批量模式下，声明类型为集合或数组的参数会被展开，对应的key规则作用于每个元素
+ */
+public final class LockKeyExtractor {
+
+    /**
+     * 每个key片段预估长度，用于首次构建key时初始化StringBuilder容量
+     */
+    private static final int ESTIMATED_PART_LENGTH = 16;
+
+    private final String lockPrefix;
+
+    private final KeyPart[] parts;
+
+    private final LockKeyCodec codec;
+
+    /**
+     * 批量模式下需要展开的片段位置，非批量模式为-1
+     */
+    private final int expandPart;
+
+    /**
+     * 上一次生成的key长度，用于预估StringBuilder容量；并发写入无需同步，只是一个估计值
+     */
+    private int sizeHint;
+
+    private LockKeyExtractor(String lockPrefix, KeyPart[] parts, int expandPart, LockKeyCodec codec) {
+        this.lockPrefix = lockPrefix;
+        this.parts = parts;
+        this.codec = codec;
+        this.expandPart = expandPart;
+        this.sizeHint = lockPrefix.length() + parts.length * (ESTIMATED_PART_LENGTH + 1);
+    }
+
+    /**
+     * 编译lockKey提取器
+     *
+     * @param method     加锁方法，用于获取参数声明类型以提前解析属性
+     * @param lockPrefix lock 前缀
+     * @param keys       key规则
+     * @param keyIndexes key所在参数位置
+     * @return 提取器
+     */
+    public static LockKeyExtractor compile(Method method, String lockPrefix, String[] keys, int[] keyIndexes) {
+        return compile(method, lockPrefix, keys, keyIndexes, false);
+    }
+
+    /**
+     * 编译lockKey提取器
+     *
+     * @param batch 是否批量模式，批量模式下keyIndexes中有且只能有一个集合或数组类型的参数
+     */
+    public static LockKeyExtractor compile(Method method, String lockPrefix, String[] keys, int[] keyIndexes, boolean batch) {
+        return compile(method, lockPrefix, keys, keyIndexes, batch, LockKeyCodecs.PLAIN);
+    }
+
+    /**
+     * 编译lockKey提取器
+     *
+     * @param codec key编码
+     */
+    public static LockKeyExtractor compile(Method method, String lockPrefix, String[] keys, int[] keyIndexes, boolean batch,
+                                           LockKeyCodec codec) {
+        Objects.requireNonNull(codec, "codec");
+        Preconditions.checkArgument(keys.length == keyIndexes.length,
+                "keys和keyIndexes数量不一致:%s", method);
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        KeyPart[] parts = new KeyPart[keys.length];
+        int expandPart = -1;
+        for (int i = 0; i < keys.length; i++) {
+            int keyIndex = keyIndexes[i];
+            Preconditions.checkArgument(keyIndex >= 0 && keyIndex < parameterTypes.length,
+                    "keyIndex越界:%s, method:%s", keyIndex, method);
+            Class<?> parameterType = parameterTypes[keyIndex];
+            if (batch && isExpandable(parameterType)) {
+                Preconditions.checkArgument(expandPart < 0, "批量加锁只能展开一个集合参数:%s", method);
+                expandPart = i;
+                parameterType = elementType(method, keyIndex);
+            }
+            parts[i] = compilePart(parameterType, keyIndex, keys[i]);
+        }
+        Preconditions.checkArgument(!batch || expandPart >= 0, "批量加锁需要一个集合或数组类型的key参数:%s", method);
+        return new LockKeyExtractor(StringUtils.defaultString(lockPrefix), parts, expandPart, codec);
+    }
+
+    /**
+     * 只有lockPrefix和编码的提取器，供编程式加锁通过{@link #join}直接拼接值
+     */
+    public static LockKeyExtractor of(String lockPrefix, LockKeyCodec codec) {
+        Objects.requireNonNull(codec, "codec");
+        return new LockKeyExtractor(StringUtils.defaultString(lockPrefix), new KeyPart[0], -1, codec);
+    }
+
+    private static boolean isExpandable(Class<?> parameterType) {
+        return parameterType.isArray() || Iterable.class.isAssignableFrom(parameterType);
+    }
+
+    private static Class<?> elementType(Method method, int keyIndex) {
+        Class<?> parameterType = method.getParameterTypes()[keyIndex];
+        if (parameterType.isArray()) {
+            return parameterType.getComponentType();
+        }
+        Class<?> elementType = ResolvableType.forMethodParameter(method, keyIndex).as(Iterable.class).resolveGeneric(0);
+        return elementType == null ? Object.class : elementType;
+    }
+
+    private static KeyPart compilePart(Class<?> parameterType, int keyIndex, String key) {
+        if (isBasicType(key)) {
+            return new KeyPart(keyIndex, null);
+        }
+        Preconditions.checkArgument(StringUtils.startsWith(key, ".") && key.length() > 1, "key规则不合法:%s", key);
+        String[] fieldNames = StringUtils.split(key.substring(1), '.');
+        PropertyAccessor[] path = new PropertyAccessor[fieldNames.length];
+        Class<?> currType = parameterType;
+        for (int i = 0; i < fieldNames.length; i++) {
+            path[i] = new PropertyAccessor(fieldNames[i], currType);
+            currType = path[i].declaredResultType();
+        }
+        return new KeyPart(keyIndex, path);
+    }
+
+    /**
+     * 判断是否基础数据类型
+     *
+     * @param name 要判断的占位符
+     * @return true/false
+     */
+    private static boolean isBasicType(String name) {
+        return StringUtils.equalsIgnoreCase(name, "LONG") || StringUtils.equalsIgnoreCase(name, "INT")
+                || StringUtils.equalsIgnoreCase(name, "STRING");
+    }
+
+    /**
+     * 根据方法入参生成lockKey
+     *
+     * @param args 要加锁方法入参
+     * @return 要加锁的key
+     */
+    public String extract(Object[] args) {
+        StringBuilder lockKey = new StringBuilder(sizeHint).append(lockPrefix);
+        for (KeyPart part : parts) {
+            codec.appendPart(lockKey, part.resolve(args));
+        }
+        return finishKey(lockKey);
+    }
+
+    /**
+     * 以给定的值作为唯一片段生成lockKey，不读取方法入参
+     */
+    public String join(Object value) {
+        StringBuilder lockKey = new StringBuilder(sizeHint).append(lockPrefix);
+        codec.appendPart(lockKey, value);
+        return finishKey(lockKey);
+    }
+
+    /**
+     * 以给定的两个值依次作为片段生成lockKey
+     */
+    public String join(Object first, Object second) {
+        StringBuilder lockKey = new StringBuilder(sizeHint).append(lockPrefix);
+        codec.appendPart(lockKey, first);
+        codec.appendPart(lockKey, second);
+        return finishKey(lockKey);
+    }
+
+    /**
+     * 以给定的值依次作为片段生成lockKey
+     */
+    public String join(Object[] values) {
+        StringBuilder lockKey = new StringBuilder(sizeHint).append(lockPrefix);
+        for (Object value : values) {
+            codec.appendPart(lockKey, value);
+        }
+        return finishKey(lockKey);
+    }
+
+    private String finishKey(StringBuilder lockKey) {
+        if (lockKey.length() > sizeHint) {
+            sizeHint = lockKey.length();
+        }
+        return codec.finish(lockKey, lockPrefix.length());
+    }
+
+    /**
+     * 批量模式下根据方法入参生成所有lockKey
+     *
+     * @param args 要加锁方法入参
+     * @return 按字典序排序并去重的key，集合参数为空时返回空列表
+     */
+    public List<String> extractAll(Object[] args) {
+        Preconditions.checkState(isBatch(), "非批量加锁");
+        KeyPart expand = parts[expandPart];
+        Object elements = args[expand.keyIndex];
+        if (elements == null) {
+            return Collections.emptyList();
+        }
+        StringBuilder lockKey = new StringBuilder(sizeHint).append(lockPrefix);
+        for (int i = 0; i < expandPart; i++) {
+            codec.appendPart(lockKey, parts[i].resolve(args));
+        }
+        int headLength = lockKey.length();
+        Object[] tail = new Object[parts.length - expandPart - 1];
+        for (int i = 0; i < tail.length; i++) {
+            tail[i] = parts[expandPart + 1 + i].resolve(args);
+        }
+        TreeSet<String> lockKeys = new TreeSet<>();
+        if (elements instanceof Iterable) {
+            for (Object element : (Iterable<?>) elements) {
+                lockKeys.add(expandKey(lockKey, headLength, expand.resolvePath(element), tail));
+            }
+        } else {
+            int length = Array.getLength(elements);
+            for (int i = 0; i < length; i++) {
+                lockKeys.add(expandKey(lockKey, headLength, expand.resolvePath(Array.get(elements, i)), tail));
+            }
+        }
+        return new ArrayList<>(lockKeys);
+    }
+
+    /**
+     * 在展开片段之前的公共部分之后追加一个元素和其余片段
+     */
+    private String expandKey(StringBuilder lockKey, int headLength, Object element, Object[] tail) {
+        lockKey.setLength(headLength);
+        codec.appendPart(lockKey, element);
+        for (Object part : tail) {
+            codec.appendPart(lockKey, part);
+        }
+        return codec.finish(lockKey, lockPrefix.length());
+    }
+
+    public boolean isBatch() {
+        return expandPart >= 0;
+    }
+
+    public String getLockPrefix() {
+        return lockPrefix;
+    }
+
+    /**
+     * 一个key片段：参数下标 + 可选的属性路径
+     */
+    private static final class KeyPart {
+        private final int keyIndex;
+        private final PropertyAccessor[] path;
+
+        KeyPart(int keyIndex, PropertyAccessor[] path) {
+            this.keyIndex = keyIndex;
+            this.path = path;
+        }
+
+        Object resolve(Object[] args) {
+            return resolvePath(args[keyIndex]);
+        }
+
+        Object resolvePath(Object root) {
+            Object currObj = root;
+            if (path == null) {
+                return currObj;
+            }
+            for (PropertyAccessor accessor : path) {
+                if (currObj == null) {
+                    return null;
+                }
+                currObj = accessor.get(currObj);
+            }
+            return currObj;
+        }
+    }
+
+    /**
+     * 单个属性的读取器，缓存最近一次解析到的getter（单态内联缓存），类型不匹配时按运行时类型重新解析
+     */
+    private static final class PropertyAccessor {
+        private final String fieldName;
+        private volatile Getter getter;
+
+        PropertyAccessor(String fieldName, Class<?> declaredType) {
+            this.fieldName = fieldName;
+            this.getter = Getter.resolve(declaredType, fieldName);
+        }
+
+        Class<?> declaredResultType() {
+            Getter current = getter;
+            return current == null ? Object.class : current.resultType;
+        }
+
+        Object get(Object obj) {
+            Getter current = getter;
+            if (current == null || !current.type.isInstance(obj)) {
+                current = Getter.resolve(obj.getClass(), fieldName);
+                if (current == null) {
+                    throw new IllegalArgumentException("属性不存在或不可读:" + obj.getClass().getName() + "." + fieldName);
+                }
+                getter = current;
+            }
+            try {
+                return (Object) current.handle.invokeExact(obj);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable throwable) {
+                throw new RuntimeException(throwable);
+            }
+        }
+    }
+
+    private static final class Getter {
+        private static final MethodType GENERIC_GETTER = MethodType.methodType(Object.class, Object.class);
+
+        private final Class<?> type;
+        private final Class<?> resultType;
+        private final MethodHandle handle;
+
+        private Getter(Class<?> type, Class<?> resultType, MethodHandle handle) {
+            this.type = type;
+            this.resultType = resultType;
+            this.handle = handle;
+        }
+
+        /**
+         * 解析属性getter，属性不存在时返回null
+         */
+        static Getter resolve(Class<?> type, String fieldName) {
+            if (Objects.isNull(type) || type.isPrimitive() || type == Object.class) {
+                return null;
+            }
+            PropertyDescriptor propertyDescriptor = BeanUtils.getPropertyDescriptor(type, fieldName);
+            if (propertyDescriptor == null || propertyDescriptor.getReadMethod() == null) {
+                return null;
+            }
+            Method readMethod = propertyDescriptor.getReadMethod();
+            if (!Modifier.isPublic(readMethod.getDeclaringClass().getModifiers())) {
+                readMethod.setAccessible(true);
+            }
+            try {
+                MethodHandle handle = MethodHandles.lookup().unreflect(readMethod).asType(GENERIC_GETTER);
+                return new Getter(type, readMethod.getReturnType(), handle);
+            } catch (IllegalAccessException e) {
+                throw new IllegalArgumentException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package org.fsj.lock.manager.metadata;
+
+import org.fsj.lock.manager.LockFailException;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * 预先绑定的降级方法调用器
+ *
+ * <p>
+ * 启动（或方法第一次被拦截）时把降级方法转换为(target, args)形式的MethodHandle，
+ * 加锁失败时直接调用，不再查找方法、setAccessible以及走反射Method.invoke
+ * </p>
+ */
+public final class FallbackInvoker {
+
+    private static final MethodType INVOKER_TYPE = MethodType.methodType(Object.class, Object.class, Object[].class);
+
+    private final Method fallbackMethod;
+
+    private final MethodHandle handle;
+
+    private FallbackInvoker(Method fallbackMethod, MethodHandle handle) {
+        this.fallbackMethod = fallbackMethod;
+        this.handle = handle;
+    }
+
+    static FallbackInvoker bind(Method fallbackMethod) {
+        fallbackMethod.setAccessible(true);
+        int parameterCount = fallbackMethod.getParameterCount();
+        try {
+            MethodHandle handle = MethodHandles.lookup().unreflect(fallbackMethod);
+            if (Modifier.isStatic(fallbackMethod.getModifiers())) {
+                handle = MethodHandles.dropArguments(handle, 0, Object.class);
+            }
+            handle = handle.asType(MethodType.genericMethodType(parameterCount + 1))
+                    .asSpreader(Object[].class, parameterCount)
+                    .asType(INVOKER_TYPE);
+            return new FallbackInvoker(fallbackMethod, handle);
+        } catch (IllegalAccessException e) {
+            throw new LockFailException(e);
+        }
+    }
+
+    /**
+     * 调用降级方法
+     *
+     * @param target 被拦截的对象
+     * @param args   被拦截方法的入参
+     * @return 降级方法返回值
+     */
+    public Object invoke(Object target, Object[] args) {
+        try {
+            return (Object) handle.invokeExact(target, args);
+        } catch (Throwable throwable) {
+            throw new LockFailException(throwable);
+        }
+    }
+
+    public Method getFallbackMethod() {
+        return fallbackMethod;
+    }
+}
@@ -0,0 +1,244 @@
+package org.fsj.lock.manager.metadata;
+
+import com.google.common.base.Preconditions;
+import org.apache.commons.lang3.StringUtils;
+import org.fsj.lock.manager.LockAnnotation;
+import org.fsj.lock.manager.LockFailException;
+import org.fsj.lock.manager.LockMode;
+import org.fsj.lock.manager.WaitStrategy;
+import org.fsj.lock.manager.entity.LockConfigEntity;
+import org.fsj.lock.manager.key.LockKeyExtractor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanInitializationException;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * 加锁方法元数据注册中心
+ *
+ * <p>
+ * 作为BeanPostProcessor注册到容器后，会在bean初始化前扫描带{@link LockAnnotation}的方法，
+ * 提前构建{@link LockMethodMetadata}并校验降级方法（方法名存在、入参一致、返回值兼容），
+ * 配置错误时启动直接失败；未被扫描到的方法在第一次被拦截时懒加载构建。
+ * 注解默认按{@link LockConfigEntity#fromAnnotation(LockAnnotation)}转换，
+ * 拦截器覆盖了lockAnnotation2LockConfig时通过{@link #setLockConfigConverter(Function)}改为拦截器的转换。
+ * </p>
+ */
+public class LockMetadataRegistry implements BeanPostProcessor {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LockMetadataRegistry.class);
+
+    private final ConcurrentHashMap<Class<?>, ConcurrentHashMap<Method, LockMethodMetadata>> registry = new ConcurrentHashMap<>();
+
+    /**
+     * 编程式加锁的操作，按名称注册
+     */
+    private final ConcurrentHashMap<String, LockMethodMetadata> operations = new ConcurrentHashMap<>();
+
+    /**
+     * 扫描时将注解转换为LockConfigEntity
+     */
+    private volatile Function<? super LockAnnotation, LockConfigEntity> lockConfigConverter = LockConfigEntity::fromAnnotation;
+
+    private boolean customConverter;
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) throws BeansException {
+        Class<?> targetClass = ClassUtils.getUserClass(bean);
+        for (Method method : ReflectionUtils.getUniqueDeclaredMethods(targetClass)) {
+            LockAnnotation lockAnnotation = method.getAnnotation(LockAnnotation.class);
+            if (lockAnnotation == null) {
+                continue;
+            }
+            try {
+                register(targetClass, method, lockConfigConverter.apply(lockAnnotation));
+            } catch (RuntimeException e) {
+                throw new BeanInitializationException("加锁方法配置错误, bean:" + beanName + ", method:" + method, e);
+            }
+        }
+        return bean;
+    }
+
+    /**
+     * 设置扫描时注解的转换，与拦截器的lockAnnotation2LockConfig保持一致；
+     * 之前按默认转换构建的方法元数据被丢弃，在扫描或第一次被拦截时按新的转换重新构建
+     *
+     * @throws IllegalStateException 已被其他拦截器设置过，共享同一个注册中心的拦截器只能有一个自定义转换
+     */
+    public synchronized void setLockConfigConverter(Function<? super LockAnnotation, LockConfigEntity> lockConfigConverter) {
+        Preconditions.checkNotNull(lockConfigConverter, "lockConfigConverter不能为空");
+        Preconditions.checkState(!customConverter, "注解转换已被其他拦截器设置，不能共享同一个LockMetadataRegistry");
+        this.lockConfigConverter = lockConfigConverter;
+        this.customConverter = true;
+        registry.clear();
+    }
+
+    /**
+     * 获取已注册的元数据
+     *
+     * @return 未注册时返回null
+     */
+    public LockMethodMetadata getMetadata(Class<?> targetClass, Method method) {
+        ConcurrentHashMap<Method, LockMethodMetadata> methods = registry.get(targetClass);
+        return methods == null ? null : methods.get(method);
+    }
+
+    /**
+     * 构建并注册元数据，已注册则直接返回已有元数据；元数据持有lockConfig冻结的副本，之后修改lockConfig不影响已注册的方法
+     *
+     * @throws LockFailException 降级方法不存在或签名不一致，或加锁模式、许可数量、等待策略、singleFlight、准入限制与批量/异步方法冲突，或批量加锁的异步方法
+     */
+    public LockMethodMetadata register(Class<?> targetClass, Method method, LockConfigEntity lockConfig) {
+        ConcurrentHashMap<Method, LockMethodMetadata> methods = registry.computeIfAbsent(targetClass, k -> new ConcurrentHashMap<>());
+        LockMethodMetadata metadata = methods.get(method);
+        if (metadata != null) {
+            return metadata;
+        }
+        lockConfig = lockConfig.freeze();
+        metadata = new LockMethodMetadata(targetClass, method, lockConfig,
+                LockKeyExtractor.compile(method, lockConfig.getLockPrefix(), lockConfig.getKeys(), lockConfig.getKeyIndexes(),
+                        lockConfig.isBatch(), lockConfig.getKeyCodec()),
+                resolveFallback(targetClass, method, lockConfig.getLockFailMethod()));
+        checkMode(metadata);
+        checkPermits(metadata);
+        checkWaitStrategy(metadata);
+        if (metadata.isBatch() && metadata.isAsync()) {
+            throw new LockFailException("批量加锁不支持异步方法:" + metadata.getDescription());
+        }
+        if (metadata.getSingleFlight() != null && metadata.isBatch()) {
+            throw new LockFailException("批量加锁不支持singleFlight:" + metadata.getDescription());
+        }
+        if (metadata.getSingleFlight() != null) {
+            checkSingleFlightKey(metadata, method, lockConfig.getKeyIndexes());
+        }
+        if (metadata.getAdmissionControl() != null && (metadata.isBatch() || metadata.isAsync())) {
+            throw new LockFailException("maxWaiters、maxExpectedWait只支持单key同步方法:" + metadata.getDescription());
+        }
+        LockMethodMetadata previous = methods.putIfAbsent(method, metadata);
+        if (previous != null) {
+            return previous;
+        }
+        LOGGER.debug("register lock method:{}", metadata.getDescription());
+        return metadata;
+    }
+
+    /**
+     * 获取已注册的编程式加锁操作
+     *
+     * @return 未注册时返回null
+     */
+    public LockMethodMetadata getOperation(String name) {
+        return operations.get(name);
+    }
+
+    /**
+     * 构建并注册编程式加锁的操作，已注册则直接返回已有元数据
+     *
+     * <p>
+     * 只使用timeout、lockPrefix、leaseTime、mode、permits、waitStrategy、keyCodec，keys、keyIndexes、lockFailMethod被忽略
+     * </p>
+     *
+     * @param name 操作名称，用于日志、异常信息和埋点，相当于加锁方法的description
+     * @throws LockFailException 加锁模式、许可数量不合法，或配置了batch、singleFlight、maxWaiters、maxExpectedWait
+     */
+    public LockMethodMetadata registerOperation(String name, LockConfigEntity lockConfig) {
+        Preconditions.checkArgument(StringUtils.isNotBlank(name), "name不能为空");
+        LockMethodMetadata metadata = operations.get(name);
+        if (metadata != null) {
+            return metadata;
+        }
+        lockConfig = lockConfig.freeze();
+        metadata = new LockMethodMetadata(name, lockConfig, LockKeyExtractor.of(lockConfig.getLockPrefix(), lockConfig.getKeyCodec()));
+        checkMode(metadata);
+        checkPermits(metadata);
+        if (metadata.isBatch() || metadata.getSingleFlight() != null || metadata.getAdmissionControl() != null) {
+            throw new LockFailException("编程式加锁不支持batch、singleFlight、maxWaiters、maxExpectedWait:" + name);
+        }
+        LockMethodMetadata previous = operations.putIfAbsent(name, metadata);
+        if (previous != null) {
+            return previous;
+        }
+        LOGGER.debug("register lock operation:{}", name);
+        return metadata;
+    }
+
+    /**
+     * 读写锁只支持单key的同步方法
+     */
+    private void checkMode(LockMethodMetadata metadata) {
+        if (metadata.getMode() == LockMode.EXCLUSIVE) {
+            return;
+        }
+        if (metadata.isBatch()) {
+            throw new LockFailException("批量加锁不支持" + metadata.getMode() + "模式:" + metadata.getDescription());
+        }
+        if (metadata.isAsync()) {
+            throw new LockFailException("异步方法不支持" + metadata.getMode() + "模式:" + metadata.getDescription());
+        }
+    }
+
+    /**
+     * 信号量只支持互斥模式下单key的同步方法
+     */
+    private void checkPermits(LockMethodMetadata metadata) {
+        if (metadata.getPermits() < 1) {
+            throw new LockFailException("permits必须大于0:" + metadata.getDescription());
+        }
+        if (metadata.getPermits() == 1) {
+            return;
+        }
+        if (metadata.getMode() != LockMode.EXCLUSIVE || metadata.isBatch() || metadata.isAsync()) {
+            throw new LockFailException("permits大于1时只支持EXCLUSIVE模式的单key同步方法:" + metadata.getDescription());
+        }
+    }
+
+    /**
+     * 异步方法由异步锁实现负责等待，只支持BLOCKING
+     */
+    private void checkWaitStrategy(LockMethodMetadata metadata) {
+        if (metadata.getWaitStrategy() != WaitStrategy.BLOCKING && metadata.isAsync()) {
+            throw new LockFailException("异步方法不支持" + metadata.getWaitStrategy() + "等待策略:" + metadata.getDescription());
+        }
+    }
+
+    /**
+     * singleFlight按key合并调用，有参数不参与key时参数不同的调用也可能共享结果，只告警不阻止启动
+     */
+    private void checkSingleFlightKey(LockMethodMetadata metadata, Method method, int[] keyIndexes) {
+        boolean[] referenced = new boolean[method.getParameterCount()];
+        for (int keyIndex : keyIndexes) {
+            if (keyIndex >= 0 && keyIndex < referenced.length) {
+                referenced[keyIndex] = true;
+            }
+        }
+        for (int i = 0; i < referenced.length; i++) {
+            if (!referenced[i]) {
+                LOGGER.warn("singleFlight method has parameter not in lock key, calls with different values share one result, "
+                        + "method:{}, parameter index:{}", metadata.getDescription(), i);
+            }
+        }
+    }
+
+    private FallbackInvoker resolveFallback(Class<?> targetClass, Method method, String fallbackMethodName) {
+        if (StringUtils.isBlank(fallbackMethodName)) {
+            return null;
+        }
+        Method fallbackMethod;
+        try {
+            //这里通过判断必须取和原方法一样参数的fallback方法
+            fallbackMethod = targetClass.getMethod(fallbackMethodName, method.getParameterTypes());
+        } catch (NoSuchMethodException e) {
+            throw new LockFailException("降级方法不存在或入参不一致:" + targetClass.getName() + "." + fallbackMethodName, e);
+        }
+        if (!ClassUtils.isAssignable(method.getReturnType(), fallbackMethod.getReturnType())) {
+            throw new LockFailException("降级方法返回值与加锁方法不一致:" + fallbackMethod);
+        }
+        return FallbackInvoker.bind(fallbackMethod);
+    }
+}
@@ -0,0 +1,174 @@
+package org.fsj.lock.manager.metadata;
+
+import org.fsj.lock.manager.LockMode;
+import org.fsj.lock.manager.WaitStrategy;
+import org.fsj.lock.manager.admission.AdmissionControl;
+import org.fsj.lock.manager.entity.LockConfigEntity;
+import org.fsj.lock.manager.flight.SingleFlight;
+import org.fsj.lock.manager.key.LockKeyExtractor;
+import org.fsj.lock.manager.wait.LockWaiter;
+import org.fsj.lock.manager.wait.LockWaiters;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * 加锁方法的元数据，每个(目标类, 方法)只构建一次，构建后不再修改
+ *
+ * <p>
+ * 编程式加锁的操作（{@link LockMetadataRegistry#registerOperation}）也用该类描述，
+ * 此时targetClass、method为null，description为操作名称，没有降级方法且不是异步方法
+ * </p>
+ */
+public final class LockMethodMetadata {
+
+    /**
+     * 编程式加锁的操作为null
+     */
+    private final Class<?> targetClass;
+
+    /**
+     * 编程式加锁的操作为null
+     */
+    private final Method method;
+
+    /**
+     * 冻结的配置，不能修改
+     */
+    private final LockConfigEntity lockConfig;
+
+    private final LockKeyExtractor lockKeyExtractor;
+
+    /**
+     * 未配置降级方法时为null
+     */
+    private final FallbackInvoker fallbackInvoker;
+
+    /**
+     * 类名--方法名（编程式加锁为操作名称），用于日志和异常信息
+     */
+    private final String description;
+
+    /**
+     * 返回值是否为CompletionStage/CompletableFuture，异步方法在返回的future完成后才释放锁；
+     * 异步方法不支持批量加锁，且锁实现必须支持{@link org.fsj.lock.manager.factory.AsyncLockFactory}
+     */
+    private final boolean async;
+
+    /**
+     * 等待策略的实现，按配置解析一次
+     */
+    private final LockWaiter lockWaiter;
+
+    /**
+     * 未开启singleFlight时为null
+     */
+    private final SingleFlight singleFlight;
+
+    /**
+     * 未配置maxWaiters、maxExpectedWait时为null
+     */
+    private final AdmissionControl admissionControl;
+
+    LockMethodMetadata(Class<?> targetClass, Method method, LockConfigEntity lockConfig,
+                       LockKeyExtractor lockKeyExtractor, FallbackInvoker fallbackInvoker) {
+        this(targetClass, method, lockConfig, lockKeyExtractor, fallbackInvoker,
+                targetClass.getName() + "--" + method.getName(), isAsync(method.getReturnType()));
+    }
+
+    /**
+     * 编程式加锁的操作
+     */
+    LockMethodMetadata(String name, LockConfigEntity lockConfig, LockKeyExtractor lockKeyExtractor) {
+        this(null, null, lockConfig, lockKeyExtractor, null, name, false);
+    }
+
+    private LockMethodMetadata(Class<?> targetClass, Method method, LockConfigEntity lockConfig, LockKeyExtractor lockKeyExtractor,
+                               FallbackInvoker fallbackInvoker, String description, boolean async) {
+        this.targetClass = targetClass;
+        this.method = method;
+        this.lockConfig = lockConfig.freeze();
+        this.lockKeyExtractor = lockKeyExtractor;
+        this.fallbackInvoker = fallbackInvoker;
+        this.description = description;
+        this.async = async;
+        this.lockWaiter = LockWaiters.of(lockConfig.getWaitStrategy());
+        this.singleFlight = lockConfig.isSingleFlight() ? new SingleFlight() : null;
+        this.admissionControl = lockConfig.getMaxWaiters() >= 0 || lockConfig.getMaxExpectedWait() >= 0
+                ? new AdmissionControl(lockConfig.getMaxWaiters(), lockConfig.getMaxExpectedWait(), lockConfig.getPermits())
+                : null;
+    }
+
+    private static boolean isAsync(Class<?> returnType) {
+        return CompletionStage.class.isAssignableFrom(returnType) && returnType.isAssignableFrom(CompletableFuture.class);
+    }
+
+    public Class<?> getTargetClass() {
+        return targetClass;
+    }
+
+    public Method getMethod() {
+        return method;
+    }
+
+    public LockConfigEntity getLockConfig() {
+        return lockConfig;
+    }
+
+    public int getTimeout() {
+        return lockConfig.getTimeout();
+    }
+
+    public int getLeaseTime() {
+        return lockConfig.getLeaseTime();
+    }
+
+    public LockMode getMode() {
+        return lockConfig.getMode();
+    }
+
+    public int getPermits() {
+        return lockConfig.getPermits();
+    }
+
+    public WaitStrategy getWaitStrategy() {
+        return lockConfig.getWaitStrategy();
+    }
+
+    public LockWaiter getLockWaiter() {
+        return lockWaiter;
+    }
+
+    public SingleFlight getSingleFlight() {
+        return singleFlight;
+    }
+
+    public AdmissionControl getAdmissionControl() {
+        return admissionControl;
+    }
+
+    public boolean isBatch() {
+        return lockConfig.isBatch();
+    }
+
+    public boolean isAsync() {
+        return async;
+    }
+
+    public LockKeyExtractor getLockKeyExtractor() {
+        return lockKeyExtractor;
+    }
+
+    public boolean hasFallback() {
+        return fallbackInvoker != null;
+    }
+
+    public FallbackInvoker getFallbackInvoker() {
+        return fallbackInvoker;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+}
@@ -0,0 +1,82 @@
+package org.fsj.lock.manager.metrics;
+
+import org.fsj.lock.manager.metadata.LockMethodMetadata;
+
+import java.util.Arrays;
+
+/**
+ * 依次回调多个{@link LockMetrics}，任何一个需要计时则本次调用计时
+ */
+public class CompositeLockMetrics implements LockMetrics {
+
+    private final LockMetrics[] delegates;
+
+    public CompositeLockMetrics(LockMetrics... delegates) {
+        this.delegates = Arrays.copyOf(delegates, delegates.length);
+    }
+
+    @Override
+    public boolean shouldTime() {
+        boolean timed = false;
+        for (LockMetrics delegate : delegates) {
+            timed |= delegate.shouldTime();
+        }
+        return timed;
+    }
+
+    @Override
+    public void onAcquiring(LockMethodMetadata metadata, String lockKey) {
+        for (LockMetrics delegate : delegates) {
+            delegate.onAcquiring(metadata, lockKey);
+        }
+    }
+
+    @Override
+    public void onAttempted(LockMethodMetadata metadata, String lockKey, int attempts) {
+        for (LockMetrics delegate : delegates) {
+            delegate.onAttempted(metadata, lockKey, attempts);
+        }
+    }
+
+    @Override
+    public void onShared(LockMethodMetadata metadata, String lockKey) {
+        for (LockMetrics delegate : delegates) {
+            delegate.onShared(metadata, lockKey);
+        }
+    }
+
+    @Override
+    public void onShed(LockMethodMetadata metadata, String lockKey, boolean fallback) {
+        for (LockMetrics delegate : delegates) {
+            delegate.onShed(metadata, lockKey, fallback);
+        }
+    }
+
+    @Override
+    public void onAcquired(LockMethodMetadata metadata, String lockKey, long waitNanos) {
+        for (LockMetrics delegate : delegates) {
+            delegate.onAcquired(metadata, lockKey, waitNanos);
+        }
+    }
+
+    @Override
+    public void onRejected(LockMethodMetadata metadata, String lockKey, long waitNanos, boolean fallback) {
+        for (LockMetrics delegate : delegates) {
+            delegate.onRejected(metadata, lockKey, waitNanos, fallback);
+        }
+    }
+
+    @Override
+    public void onReleased(LockMethodMetadata metadata, String lockKey, long holdNanos) {
+        for (LockMetrics delegate : delegates) {
+            delegate.onReleased(metadata, lockKey, holdNanos);
+        }
+    }
+
+    @Override
+    public void onError(LockMethodMetadata metadata, String lockKey, Throwable error) {
+        for (LockMetrics delegate : delegates) {
+            delegate.onError(metadata, lockKey, error);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package org.fsj.lock.manager.metrics;
+
+import com.google.common.base.Preconditions;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 有界的热点key统计（Space-Saving算法）
+ *
+ * <p>
+ * 最多跟踪capacity个key，内存固定；计数为估计值，真实次数在[count - error, count]之间，
+ * 出现频率超过1/capacity的key一定在结果中。
+ * 按1/sampleRate采样后再加锁更新，热路径上大部分调用只有一次随机数判断。
+ * </p>
+ */
+public final class HeavyHitters {
+
+    private final int capacity;
+
+    private final int sampleRate;
+
+    /**
+     * 只在synchronized中访问
+     */
+    private final HashMap<String, Counter> counters;
+
+    /**
+     * @param capacity   跟踪的key数量上限
+     * @param sampleRate 采样率的倒数，1表示每次都记录
+     */
+    public HeavyHitters(int capacity, int sampleRate) {
+        Preconditions.checkArgument(capacity > 0, "capacity必须大于0");
+        Preconditions.checkArgument(sampleRate > 0, "sampleRate必须大于0");
+        this.capacity = capacity;
+        this.sampleRate = sampleRate;
+        this.counters = new HashMap<>(capacity * 2);
+    }
+
+    public void offer(String key) {
+        if (sampleRate > 1 && ThreadLocalRandom.current().nextInt(sampleRate) != 0) {
+            return;
+        }
+        synchronized (this) {
+            Counter counter = counters.get(key);
+            if (counter != null) {
+                counter.count++;
+                return;
+            }
+            if (counters.size() < capacity) {
+                counters.put(key, new Counter(key, 1, 0));
+                return;
+            }
+            Counter min = null;
+            for (Counter candidate : counters.values()) {
+                if (min == null || candidate.count < min.count) {
+                    min = candidate;
+                }
+            }
+            counters.remove(min.key);
+            counters.put(key, new Counter(key, min.count + 1, min.count));
+        }
+    }
+
+    /**
+     * @return 按估计次数倒序的前limit个key，次数已按采样率折算
+     */
+    public List<HotKey> top(int limit) {
+        List<HotKey> hotKeys = new ArrayList<>();
+        synchronized (this) {
+            for (Counter counter : counters.values()) {
+                hotKeys.add(new HotKey(counter.key, counter.count * sampleRate, counter.error * sampleRate));
+            }
+        }
+        Collections.sort(hotKeys, (a, b) -> Long.compare(b.getCount(), a.getCount()));
+        return hotKeys.size() > limit ? new ArrayList<>(hotKeys.subList(0, limit)) : hotKeys;
+    }
+
+    private static final class Counter {
+        private final String key;
+        private long count;
+        private final long error;
+
+        Counter(String key, long count, long error) {
+            this.key = key;
+            this.count = count;
+            this.error = error;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package org.fsj.lock.manager.metrics;
+
+/**
+ * 热点key及其估计的加锁次数
+ */
+public final class HotKey {
+
+    private final String key;
+    private final long count;
+    private final long error;
+
+    public HotKey(String key, long count, long error) {
+        this.key = key;
+        this.count = count;
+        this.error = error;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * 估计次数，可能偏大
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * 估计次数的最大误差
+     */
+    public long getError() {
+        return error;
+    }
+
+    @Override
+    public String toString() {
+        return key + "=" + count + "(error=" + error + ")";
+    }
+}
@@ -0,0 +1,101 @@
+package org.fsj.lock.manager.metrics;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 无锁的对数-线性直方图（纳秒）
+ *
+ * <p>
+ * 每个2的幂区间再等分为{@value #SUB_BUCKETS}个子桶，相对误差不超过12.5%，固定488个桶覆盖整个long范围。
+ * 记录一次只有一次数组下标计算和两次原子累加，不分配对象；快照不阻塞记录，但不保证各统计量之间严格一致。
+ * 多个直方图可以合并为一个快照。
+ * </p>
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+    private final LongAdder sum = new LongAdder();
+
+    private final LongAccumulator max = new LongAccumulator(Long::max, 0L);
+
+    public void record(long nanos) {
+        long value = Math.max(0L, nanos);
+        buckets.incrementAndGet(bucketIndex(value));
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * 桶内最大值
+     */
+    static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int group = index >>> SUB_BUCKET_BITS;
+        int subBucket = index & (SUB_BUCKETS - 1);
+        long lowerBound = (long) (SUB_BUCKETS + subBucket) << (group - 1);
+        return lowerBound + (1L << (group - 1)) - 1;
+    }
+
+    public LatencySnapshot snapshot() {
+        return snapshot(Collections.singletonList(this));
+    }
+
+    /**
+     * 合并多个直方图的快照
+     */
+    public static LatencySnapshot snapshot(Collection<LatencyHistogram> histograms) {
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        long sumValue = 0;
+        long maxValue = 0;
+        for (LatencyHistogram histogram : histograms) {
+            for (int i = 0; i < BUCKETS; i++) {
+                long count = histogram.buckets.get(i);
+                counts[i] += count;
+                total += count;
+            }
+            sumValue += histogram.sum.sum();
+            maxValue = Math.max(maxValue, histogram.max.get());
+        }
+        return new LatencySnapshot(total, total == 0 ? 0L : sumValue / total, maxValue,
+                percentile(counts, total, 0.5, maxValue), percentile(counts, total, 0.9, maxValue),
+                percentile(counts, total, 0.99, maxValue), percentile(counts, total, 0.999, maxValue));
+    }
+
+    private static long percentile(long[] counts, long total, double quantile, long maxValue) {
+        if (total == 0) {
+            return 0L;
+        }
+        long rank = (long) Math.ceil(total * quantile);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(bucketUpperBound(i), maxValue);
+            }
+        }
+        return maxValue;
+    }
+}
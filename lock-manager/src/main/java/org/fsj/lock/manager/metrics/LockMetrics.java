@@ -0,0 +1,80 @@
+package org.fsj.lock.manager.metrics;
+
+import org.fsj.lock.manager.metadata.LockMethodMetadata;
+
+/**
+ * 加锁过程的埋点回调
+ *
+ * <p>
+ * 由拦截器在加锁方法的调用线程（异步方法为完成回调所在线程）上同步调用，实现必须足够轻量且线程安全。
+ * 内置实现为{@link LockMetricsRegistry}；接入Micrometer等监控系统时实现该接口，
+ * 通过{@code AbsLockInterceptor#setLockMetrics}设置即可，两种拦截器行为一致。
+ * </p>
+ */
+public interface LockMetrics {
+
+    /**
+     * 本次调用是否计时，在加锁前调用；不计时的调用回调中的时间参数为-1。
+     * 计时需要多次读取时钟，对耗时敏感时可以抽样计时
+     */
+    default boolean shouldTime() {
+        return true;
+    }
+
+    /**
+     * 开始同步获取锁，在获取锁之前调用；之后在同一线程上必然调用一次{@link #onAcquired}、{@link #onRejected}，
+     * 或在获取锁时抛出异常时调用{@link #onError}。嵌套调用已持有的key、异步加锁、本地准入拒绝时不调用
+     */
+    default void onAcquiring(LockMethodMetadata metadata, String lockKey) {
+    }
+
+    /**
+     * 同步获取锁结束（成功或超时）时调用，在{@link #onAcquired}/{@link #onRejected}之前；
+     * 获取锁时抛出异常时不调用
+     *
+     * @param attempts 按等待策略调用tryLock的次数，BLOCKING、FAIL_FAST为1
+     */
+    default void onAttempted(LockMethodMetadata metadata, String lockKey, int attempts) {
+    }
+
+    /**
+     * singleFlight方法的调用没有加锁，共享了同一个key上正在执行的调用的结果
+     */
+    default void onShared(LockMethodMetadata metadata, String lockKey) {
+    }
+
+    /**
+     * 本地等待者超过maxWaiters或预计等待时间超过maxExpectedWait，没有访问锁实现直接拒绝，不计入onRejected
+     *
+     * @param fallback 是否执行降级方法，否则抛出LockFailException
+     */
+    default void onShed(LockMethodMetadata metadata, String lockKey, boolean fallback) {
+    }
+
+    /**
+     * 获取锁成功
+     *
+     * @param waitNanos 等待锁的时间，不计时为-1
+     */
+    void onAcquired(LockMethodMetadata metadata, String lockKey, long waitNanos);
+
+    /**
+     * 获取锁失败（超时）
+     *
+     * @param waitNanos 等待锁的时间，不计时为-1
+     * @param fallback  是否执行降级方法，否则抛出LockFailException
+     */
+    void onRejected(LockMethodMetadata metadata, String lockKey, long waitNanos, boolean fallback);
+
+    /**
+     * 释放锁
+     *
+     * @param holdNanos 持有锁的时间，不计时为-1
+     */
+    void onReleased(LockMethodMetadata metadata, String lockKey, long holdNanos);
+
+    /**
+     * 加锁、方法执行或解锁时抛出异常
+     */
+    void onError(LockMethodMetadata metadata, String lockKey, Throwable error);
+}
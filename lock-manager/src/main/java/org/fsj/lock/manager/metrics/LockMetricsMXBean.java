@@ -0,0 +1,29 @@
+package org.fsj.lock.manager.metrics;
+
+import java.util.List;
+
+/**
+ * 加锁统计的JMX视图
+ */
+public interface LockMetricsMXBean {
+
+    /**
+     * 按方法统计
+     */
+    List<LockStatsSnapshot> getMethodStats();
+
+    /**
+     * 按lock前缀统计
+     */
+    List<LockStatsSnapshot> getPrefixStats();
+
+    /**
+     * 按等待策略统计
+     */
+    List<LockStatsSnapshot> getWaitStrategyStats();
+
+    /**
+     * 最热的key
+     */
+    List<HotKey> getHotKeys();
+}
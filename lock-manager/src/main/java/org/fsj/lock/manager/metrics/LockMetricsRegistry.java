@@ -0,0 +1,188 @@
+package org.fsj.lock.manager.metrics;
+
+import com.google.common.base.Preconditions;
+import org.fsj.lock.manager.WaitStrategy;
+import org.fsj.lock.manager.metadata.LockMethodMetadata;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 内置的加锁统计：按方法、lock前缀和等待策略三个维度记录等待/持有时间直方图和成功、超时、降级、异常次数，
+ * 并统计最热的key
+ *
+ * <p>
+ * 热路径上只记录方法维度（一次以元数据为key的哈希查找加几次无锁累加），lock前缀和等待策略维度在读取时合并；
+ * 计时（读取时钟）和热点key均按采样记录，直方图中的次数为采样次数，计数器为精确值。
+ * 可通过{@link #registerMBean(String)}注册到平台MBeanServer，或由调用方定期读取快照导出到其他监控系统。
+ * </p>
+ */
+public class LockMetricsRegistry implements LockMetrics, LockMetricsMXBean {
+
+    public static final int DEFAULT_HOT_KEY_CAPACITY = 64;
+
+    public static final int DEFAULT_HOT_KEY_SAMPLE_RATE = 16;
+
+    public static final int DEFAULT_TIMING_SAMPLE_RATE = 8;
+
+    private final ConcurrentHashMap<LockMethodMetadata, LockStats> statsByMetadata = new ConcurrentHashMap<>();
+
+    /**
+     * 按方法描述，重载方法共用一份统计
+     */
+    private final ConcurrentHashMap<String, LockStats> methodStats = new ConcurrentHashMap<>();
+
+    private final HeavyHitters hotKeys;
+
+    private final int hotKeyCapacity;
+
+    private final int timingSampleRate;
+
+    public LockMetricsRegistry() {
+        this(DEFAULT_HOT_KEY_CAPACITY, DEFAULT_HOT_KEY_SAMPLE_RATE, DEFAULT_TIMING_SAMPLE_RATE);
+    }
+
+    /**
+     * @param hotKeyCapacity   热点key跟踪数量
+     * @param hotKeySampleRate 热点key采样率的倒数，1表示每次都记录
+     * @param timingSampleRate 计时采样率的倒数，1表示每次都计时；计数不受影响
+     */
+    public LockMetricsRegistry(int hotKeyCapacity, int hotKeySampleRate, int timingSampleRate) {
+        Preconditions.checkArgument(hotKeyCapacity > 0, "hotKeyCapacity必须大于0");
+        Preconditions.checkArgument(timingSampleRate > 0, "timingSampleRate必须大于0");
+        this.hotKeyCapacity = hotKeyCapacity;
+        this.timingSampleRate = timingSampleRate;
+        this.hotKeys = new HeavyHitters(hotKeyCapacity, hotKeySampleRate);
+    }
+
+    @Override
+    public boolean shouldTime() {
+        return timingSampleRate == 1 || ThreadLocalRandom.current().nextInt(timingSampleRate) == 0;
+    }
+
+    @Override
+    public void onAttempted(LockMethodMetadata metadata, String lockKey, int attempts) {
+        stats(metadata).attempts.add(attempts);
+    }
+
+    @Override
+    public void onShared(LockMethodMetadata metadata, String lockKey) {
+        stats(metadata).shared.increment();
+        hotKeys.offer(lockKey);
+    }
+
+    @Override
+    public void onShed(LockMethodMetadata metadata, String lockKey, boolean fallback) {
+        LockStats stats = stats(metadata);
+        stats.shed.increment();
+        if (fallback) {
+            stats.fallback.increment();
+        }
+        hotKeys.offer(lockKey);
+    }
+
+    @Override
+    public void onAcquired(LockMethodMetadata metadata, String lockKey, long waitNanos) {
+        LockStats stats = stats(metadata);
+        stats.acquired.increment();
+        if (waitNanos >= 0) {
+            stats.waitTime.record(waitNanos);
+        }
+        hotKeys.offer(lockKey);
+    }
+
+    @Override
+    public void onRejected(LockMethodMetadata metadata, String lockKey, long waitNanos, boolean fallback) {
+        LockStats stats = stats(metadata);
+        stats.timedOut.increment();
+        if (waitNanos >= 0) {
+            stats.waitTime.record(waitNanos);
+        }
+        if (fallback) {
+            stats.fallback.increment();
+        }
+        hotKeys.offer(lockKey);
+    }
+
+    @Override
+    public void onReleased(LockMethodMetadata metadata, String lockKey, long holdNanos) {
+        if (holdNanos >= 0) {
+            stats(metadata).holdTime.record(holdNanos);
+        }
+    }
+
+    @Override
+    public void onError(LockMethodMetadata metadata, String lockKey, Throwable error) {
+        stats(metadata).exception.increment();
+    }
+
+    private LockStats stats(LockMethodMetadata metadata) {
+        LockStats stats = statsByMetadata.get(metadata);
+        if (stats == null) {
+            stats = statsByMetadata.computeIfAbsent(metadata, key -> methodStats.computeIfAbsent(key.getDescription(),
+                    description -> new LockStats(description,
+                            key.getLockKeyExtractor().getLockPrefix(), key.getWaitStrategy())));
+        }
+        return stats;
+    }
+
+    @Override
+    public List<LockStatsSnapshot> getMethodStats() {
+        List<LockStatsSnapshot> snapshots = new ArrayList<>(methodStats.size());
+        for (LockStats stats : methodStats.values()) {
+            snapshots.add(stats.snapshot());
+        }
+        return snapshots;
+    }
+
+    @Override
+    public List<LockStatsSnapshot> getPrefixStats() {
+        Map<String, List<LockStats>> byPrefix = new TreeMap<>();
+        for (LockStats stats : methodStats.values()) {
+            byPrefix.computeIfAbsent(stats.getLockPrefix(), prefix -> new ArrayList<>()).add(stats);
+        }
+        List<LockStatsSnapshot> snapshots = new ArrayList<>(byPrefix.size());
+        for (Map.Entry<String, List<LockStats>> entry : byPrefix.entrySet()) {
+            snapshots.add(LockStats.merge(entry.getKey(), entry.getValue()));
+        }
+        return snapshots;
+    }
+
+    /**
+     * 重载方法共用一份统计，按其中第一个被记录的方法的等待策略归类
+     */
+    @Override
+    public List<LockStatsSnapshot> getWaitStrategyStats() {
+        Map<WaitStrategy, List<LockStats>> byStrategy = new EnumMap<>(WaitStrategy.class);
+        for (LockStats stats : methodStats.values()) {
+            byStrategy.computeIfAbsent(stats.getWaitStrategy(), strategy -> new ArrayList<>()).add(stats);
+        }
+        List<LockStatsSnapshot> snapshots = new ArrayList<>(byStrategy.size());
+        for (Map.Entry<WaitStrategy, List<LockStats>> entry : byStrategy.entrySet()) {
+            snapshots.add(LockStats.merge(entry.getKey().name(), entry.getValue()));
+        }
+        return snapshots;
+    }
+
+    @Override
+    public List<HotKey> getHotKeys() {
+        return hotKeys.top(hotKeyCapacity);
+    }
+
+    /**
+     * 以{@code org.fsj.lock:type=LockMetrics,name=<name>}注册到平台MBeanServer
+     */
+    public ObjectName registerMBean(String name) throws JMException {
+        ObjectName objectName = new ObjectName("org.fsj.lock:type=LockMetrics,name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        return objectName;
+    }
+}
@@ -0,0 +1,85 @@
+package org.fsj.lock.manager.metrics;
+
+import org.fsj.lock.manager.WaitStrategy;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 一个加锁方法的统计，lock前缀、等待策略维度的统计在读取时由同前缀、同策略的方法合并得到
+ */
+final class LockStats {
+
+    private final String name;
+
+    private final String lockPrefix;
+
+    private final WaitStrategy waitStrategy;
+
+    final LatencyHistogram waitTime = new LatencyHistogram();
+
+    final LatencyHistogram holdTime = new LatencyHistogram();
+
+    final LongAdder acquired = new LongAdder();
+
+    final LongAdder timedOut = new LongAdder();
+
+    final LongAdder fallback = new LongAdder();
+
+    final LongAdder exception = new LongAdder();
+
+    final LongAdder attempts = new LongAdder();
+
+    final LongAdder shared = new LongAdder();
+
+    final LongAdder shed = new LongAdder();
+
+    LockStats(String name, String lockPrefix, WaitStrategy waitStrategy) {
+        this.name = name;
+        this.lockPrefix = lockPrefix;
+        this.waitStrategy = waitStrategy;
+    }
+
+    String getLockPrefix() {
+        return lockPrefix;
+    }
+
+    WaitStrategy getWaitStrategy() {
+        return waitStrategy;
+    }
+
+    LockStatsSnapshot snapshot() {
+        return new LockStatsSnapshot(name, acquired.sum(), timedOut.sum(), fallback.sum(), exception.sum(),
+                attempts.sum(), shared.sum(), shed.sum(), waitTime.snapshot(), holdTime.snapshot());
+    }
+
+    /**
+     * 合并多个方法的统计
+     */
+    static LockStatsSnapshot merge(String name, Collection<LockStats> stats) {
+        long acquired = 0;
+        long timedOut = 0;
+        long fallback = 0;
+        long exception = 0;
+        long attempts = 0;
+        long shared = 0;
+        long shed = 0;
+        List<LatencyHistogram> waitTimes = new ArrayList<>(stats.size());
+        List<LatencyHistogram> holdTimes = new ArrayList<>(stats.size());
+        for (LockStats lockStats : stats) {
+            acquired += lockStats.acquired.sum();
+            timedOut += lockStats.timedOut.sum();
+            fallback += lockStats.fallback.sum();
+            exception += lockStats.exception.sum();
+            attempts += lockStats.attempts.sum();
+            shared += lockStats.shared.sum();
+            shed += lockStats.shed.sum();
+            waitTimes.add(lockStats.waitTime);
+            holdTimes.add(lockStats.holdTime);
+        }
+        return new LockStatsSnapshot(name, acquired, timedOut, fallback, exception, attempts, shared, shed,
+                LatencyHistogram.snapshot(waitTimes), LatencyHistogram.snapshot(holdTimes));
+    }
+}
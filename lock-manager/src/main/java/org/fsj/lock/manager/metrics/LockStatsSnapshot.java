@@ -0,0 +1,102 @@
+package org.fsj.lock.manager.metrics;
+
+/**
+ * 一个维度（方法、lock前缀或等待策略）的加锁统计快照
+ */
+public final class LockStatsSnapshot {
+
+    private final String name;
+    private final long acquired;
+    private final long timedOut;
+    private final long fallback;
+    private final long exception;
+    private final long attempts;
+    private final long shared;
+    private final long shed;
+    private final LatencySnapshot waitTime;
+    private final LatencySnapshot holdTime;
+
+    public LockStatsSnapshot(String name, long acquired, long timedOut, long fallback, long exception,
+                             long attempts, long shared, long shed, LatencySnapshot waitTime, LatencySnapshot holdTime) {
+        this.name = name;
+        this.acquired = acquired;
+        this.timedOut = timedOut;
+        this.fallback = fallback;
+        this.exception = exception;
+        this.attempts = attempts;
+        this.shared = shared;
+        this.shed = shed;
+        this.waitTime = waitTime;
+        this.holdTime = holdTime;
+    }
+
+    /**
+     * 方法描述、lock前缀或等待策略
+     */
+    public String getName() {
+        return name;
+    }
+
+    public long getAcquired() {
+        return acquired;
+    }
+
+    /**
+     * 获取锁超时次数，包含执行降级方法的次数
+     */
+    public long getTimedOut() {
+        return timedOut;
+    }
+
+    /**
+     * 获取锁超时或被准入控制拒绝后执行降级方法的次数
+     */
+    public long getFallback() {
+        return fallback;
+    }
+
+    public long getException() {
+        return exception;
+    }
+
+    /**
+     * 同步获取锁（成功和超时）时调用tryLock的总次数，除以acquired+timedOut为平均每次加锁的尝试次数
+     */
+    public long getAttempts() {
+        return attempts;
+    }
+
+    /**
+     * singleFlight方法未加锁、共享正在执行的调用结果的次数，不计入acquired/timedOut
+     */
+    public long getShared() {
+        return shared;
+    }
+
+    /**
+     * 本地等待者过多、没有访问锁实现直接拒绝的次数，不计入timedOut；执行降级方法的次数计入fallback
+     */
+    public long getShed() {
+        return shed;
+    }
+
+    /**
+     * 等待锁的时间（纳秒），包含获取成功和超时
+     */
+    public LatencySnapshot getWaitTime() {
+        return waitTime;
+    }
+
+    /**
+     * 持有锁的时间（纳秒）
+     */
+    public LatencySnapshot getHoldTime() {
+        return holdTime;
+    }
+
+    @Override
+    public String toString() {
+        return name + "{acquired=" + acquired + ", timedOut=" + timedOut + ", fallback=" + fallback
+                + ", exception=" + exception + ", attempts=" + attempts + ", shared=" + shared + ", shed=" + shed + ", wait=[" + waitTime + "], hold=[" + holdTime + "]}";
+    }
+}
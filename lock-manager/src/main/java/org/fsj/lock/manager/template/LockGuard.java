@@ -0,0 +1,86 @@
+package org.fsj.lock.manager.template;
+
+import org.fsj.lock.manager.interceptor.HeldLocks;
+import org.fsj.lock.manager.metadata.LockMethodMetadata;
+import org.fsj.lock.manager.metrics.LockMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.locks.Lock;
+
+/**
+ * {@link LockTemplate#lock}获取到的一次锁持有，用try-with-resources在close时解锁
+ *
+ * <p>
+ * 每次加锁新建实例（不复用），重复close无效，不会释放之后的持有；需在加锁的线程上close。
+ * 当前线程已持有同一个锁时（嵌套加锁）close不解锁。
+ * 方法体抛出的异常不经过close，不会记录到{@link LockMetrics#onError}。
+ * </p>
+ */
+public final class LockGuard implements AutoCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LockGuard.class);
+
+    private final LockMethodMetadata metadata;
+
+    private final String lockKey;
+
+    /**
+     * 嵌套加锁时为null
+     */
+    private final Lock lock;
+
+    /**
+     * 加锁时入栈的持有记录，嵌套加锁时为null
+     */
+    private final HeldLocks held;
+
+    private final Object scope;
+
+    private final LockMetrics metrics;
+
+    private final boolean timed;
+
+    private final long acquiredNanos;
+
+    private boolean closed;
+
+    LockGuard(LockMethodMetadata metadata, String lockKey, Lock lock, HeldLocks held, Object scope,
+              LockMetrics metrics, boolean timed, long acquiredNanos) {
+        this.metadata = metadata;
+        this.lockKey = lockKey;
+        this.lock = lock;
+        this.held = held;
+        this.scope = scope;
+        this.metrics = metrics;
+        this.timed = timed;
+        this.acquiredNanos = acquiredNanos;
+    }
+
+    public String getLockKey() {
+        return lockKey;
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        final long holdNanos = timed ? System.nanoTime() - acquiredNanos : -1L;
+        if (lock == null) {
+            if (metrics != null) {
+                metrics.onReleased(metadata, lockKey, holdNanos);
+            }
+            return;
+        }
+        held.remove(scope, lockKey, metadata.getMode(), metadata.getPermits());
+        try {
+            lock.unlock();
+        } finally {
+            if (metrics != null) {
+                metrics.onReleased(metadata, lockKey, holdNanos);
+            }
+        }
+        LOGGER.debug("{}, release lock:{}", metadata.getDescription(), lockKey);
+    }
+}
@@ -0,0 +1,51 @@
+package org.fsj.lock.manager.template;
+
+import org.fsj.lock.manager.metadata.LockMethodMetadata;
+
+/**
+ * 编程式加锁的操作：预先注册的加锁配置和key生成规则，由{@link LockTemplate#operation}创建，线程安全，应复用
+ *
+ * <p>
+ * key由lockPrefix和keyCodec拼接，与相同lockPrefix、keyEncoding的加锁方法生成的key一致
+ * </p>
+ */
+public final class LockOperation {
+
+    private final LockMethodMetadata metadata;
+
+    LockOperation(LockMethodMetadata metadata) {
+        this.metadata = metadata;
+    }
+
+    /**
+     * 生成lockKey：lockPrefix + 一个片段
+     */
+    public String key(Object part) {
+        return metadata.getLockKeyExtractor().join(part);
+    }
+
+    /**
+     * 生成lockKey：lockPrefix + 两个片段
+     */
+    public String key(Object first, Object second) {
+        return metadata.getLockKeyExtractor().join(first, second);
+    }
+
+    /**
+     * 生成lockKey：lockPrefix + 依次拼接各片段，parts为null时按一个null片段处理
+     */
+    public String key(Object... parts) {
+        if (parts == null) {
+            return key((Object) null);
+        }
+        return metadata.getLockKeyExtractor().join(parts);
+    }
+
+    public String getName() {
+        return metadata.getDescription();
+    }
+
+    public LockMethodMetadata getMetadata() {
+        return metadata;
+    }
+}
@@ -0,0 +1,305 @@
+package org.fsj.lock.manager.template;
+
+import com.google.common.base.Preconditions;
+import org.fsj.lock.manager.LockFailException;
+import org.fsj.lock.manager.WaitStrategy;
+import org.fsj.lock.manager.entity.LockConfigEntity;
+import org.fsj.lock.manager.factory.LockFactory;
+import org.fsj.lock.manager.interceptor.HeldLocks;
+import org.fsj.lock.manager.metadata.LockMetadataRegistry;
+import org.fsj.lock.manager.metadata.LockMethodMetadata;
+import org.fsj.lock.manager.metrics.LockMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Supplier;
+
+/**
+ * 编程式加锁，不经过AOP代理，可以只锁住方法中的一段代码
+ *
+ * <p>
+ * 与{@link org.fsj.lock.manager.interceptor.DistributedLockInterceptor}使用同一个{@link LockFactory}和{@link LockMetrics}时，
+ * 两种方式共用锁实现和埋点：相同lockPrefix、keyEncoding生成的key相同，互相排斥；获取锁失败时同样执行降级或抛出{@link LockFailException}。
+ * 加锁配置预先注册为{@link LockOperation}，每次调用不再构建参数数组和LockConfigEntity。
+ * </p>
+ * <p>
+ * 与拦截器共用{@link HeldLocks}：当前线程已通过拦截器或模板持有同一个LockFactory上同一个key的锁（加锁模式和许可数量相同）时，
+ * 不再加锁解锁，直接执行（如在加锁方法内用模板锁同一个key），与拦截器的嵌套调用一致，不可重入的锁实现也不会死锁。
+ * </p>
+ * <p>
+ * 模板自身在加锁时只创建一个{@link LockGuard}，其余分配取决于锁实现：
+ * 如分段模式的{@link org.fsj.lock.manager.factory.ReentrantLockFactory}不分配，引用计数模式每次加锁创建锁视图和锁表条目。
+ * </p>
+ */
+public class LockTemplate {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LockTemplate.class);
+
+    /**
+     * 直接指定key和timeout加锁时使用的操作名称，互斥、BLOCKING、无前缀
+     */
+    public static final String DEFAULT_OPERATION = "LockTemplate";
+
+    private final LockFactory lockFactory;
+
+    private final LockMetadataRegistry lockMetadataRegistry;
+
+    private final LockMethodMetadata defaultOperation;
+
+    /**
+     * 加锁埋点，为null时不记录
+     */
+    private volatile LockMetrics lockMetrics;
+
+    public LockTemplate(LockFactory lockFactory) {
+        this(lockFactory, new LockMetadataRegistry());
+    }
+
+    /**
+     * @param lockMetadataRegistry 注册加锁操作，可与拦截器共享
+     */
+    public LockTemplate(LockFactory lockFactory, LockMetadataRegistry lockMetadataRegistry) {
+        this.lockFactory = Objects.requireNonNull(lockFactory, "lockFactory");
+        this.lockMetadataRegistry = Objects.requireNonNull(lockMetadataRegistry, "lockMetadataRegistry");
+        this.defaultOperation = lockMetadataRegistry.registerOperation(DEFAULT_OPERATION, new LockConfigEntity());
+    }
+
+    /**
+     * 注册加锁操作，同名操作只注册一次，之后返回第一次注册的配置
+     *
+     * @param name       操作名称，用于日志、异常信息和埋点
+     * @param lockConfig 只使用timeout、lockPrefix、leaseTime、mode、permits、waitStrategy、keyCodec
+     * @throws LockFailException 配置不合法或配置了编程式加锁不支持的项
+     */
+    public LockOperation operation(String name, LockConfigEntity lockConfig) {
+        Objects.requireNonNull(lockConfig, "lockConfig");
+        return new LockOperation(lockMetadataRegistry.registerOperation(name, lockConfig));
+    }
+
+    /**
+     * 在timeout毫秒内获取互斥锁后执行action，获取失败抛出LockFailException
+     */
+    public <T> T execute(String lockKey, int timeout, Supplier<T> action) {
+        return execute(defaultOperation, lockKey, timeout, action, null);
+    }
+
+    /**
+     * 在timeout毫秒内获取互斥锁后执行action，获取失败时执行fallback
+     *
+     * @param fallback 为null时获取失败抛出LockFailException
+     */
+    public <T> T execute(String lockKey, int timeout, Supplier<T> action, Supplier<T> fallback) {
+        return execute(defaultOperation, lockKey, timeout, action, fallback);
+    }
+
+    /**
+     * 按操作的配置获取锁后执行action，获取失败抛出LockFailException
+     */
+    public <T> T execute(LockOperation operation, String lockKey, Supplier<T> action) {
+        return execute(operation.getMetadata(), lockKey, operation.getMetadata().getTimeout(), action, null);
+    }
+
+    /**
+     * 按操作的配置获取锁后执行action，获取失败时执行fallback
+     *
+     * @param fallback 为null时获取失败抛出LockFailException
+     */
+    public <T> T execute(LockOperation operation, String lockKey, Supplier<T> action, Supplier<T> fallback) {
+        return execute(operation.getMetadata(), lockKey, operation.getMetadata().getTimeout(), action, fallback);
+    }
+
+    /**
+     * 在timeout毫秒内获取互斥锁，获取失败抛出LockFailException
+     *
+     * @return 用try-with-resources解锁
+     */
+    public LockGuard lock(String lockKey, int timeout) {
+        return lock(defaultOperation, lockKey, timeout, true);
+    }
+
+    /**
+     * 按操作的配置获取锁，获取失败抛出LockFailException
+     *
+     * @return 用try-with-resources解锁
+     */
+    public LockGuard lock(LockOperation operation, String lockKey) {
+        return lock(operation.getMetadata(), lockKey, operation.getMetadata().getTimeout(), true);
+    }
+
+    /**
+     * 在timeout毫秒内获取互斥锁，获取失败返回null（try-with-resources允许null），按执行降级计入埋点
+     */
+    public LockGuard tryLock(String lockKey, int timeout) {
+        return lock(defaultOperation, lockKey, timeout, false);
+    }
+
+    /**
+     * 按操作的配置获取锁，获取失败返回null（try-with-resources允许null），按执行降级计入埋点
+     */
+    public LockGuard tryLock(LockOperation operation, String lockKey) {
+        return lock(operation.getMetadata(), lockKey, operation.getMetadata().getTimeout(), false);
+    }
+
+    private <T> T execute(LockMethodMetadata metadata, String lockKey, int timeout, Supplier<T> action, Supplier<T> fallback) {
+        Objects.requireNonNull(action, "action");
+        final LockMetrics metrics = lockMetrics;
+        final boolean timed = metrics != null && metrics.shouldTime();
+        final HeldLocks held = HeldLocks.current();
+        if (held.contains(lockFactory, Objects.requireNonNull(lockKey, "lockKey"), metadata.getMode(), metadata.getPermits())) {
+            return nestedExecute(metadata, lockKey, action, metrics, timed);
+        }
+        final long startNanos = timed ? System.nanoTime() : 0L;
+        final Lock lock = getLock(metadata, lockKey);
+        final int attempts = acquire(lock, metadata, lockKey, timeout, metrics);
+        final long acquiredNanos = timed ? System.nanoTime() : 0L;
+        if (attempts <= 0) {
+            LOGGER.debug("{}, get lock fail:{}", metadata.getDescription(), lockKey);
+            if (metrics != null) {
+                metrics.onRejected(metadata, lockKey, timed ? acquiredNanos - startNanos : -1L, fallback != null);
+            }
+            if (fallback == null) {
+                throw new LockFailException(metadata.getDescription() + "...key=" + lockKey);
+            }
+            return fallback.get();
+        }
+        LOGGER.debug("{}, get lock success:{}", metadata.getDescription(), lockKey);
+        if (metrics != null) {
+            metrics.onAcquired(metadata, lockKey, timed ? acquiredNanos - startNanos : -1L);
+        }
+        held.push(lockFactory, lockKey, metadata.getMode(), metadata.getPermits());
+        try {
+            return action.get();
+        } catch (RuntimeException | Error e) {
+            if (metrics != null) {
+                metrics.onError(metadata, lockKey, e);
+            }
+            throw e;
+        } finally {
+            held.pop();
+            try {
+                lock.unlock();
+            } finally {
+                if (metrics != null) {
+                    metrics.onReleased(metadata, lockKey, timed ? System.nanoTime() - acquiredNanos : -1L);
+                }
+            }
+            LOGGER.debug("{}, release lock:{}", metadata.getDescription(), lockKey);
+        }
+    }
+
+    /**
+     * 当前线程已持有同一个锁，不再加锁解锁，只记录埋点
+     */
+    private <T> T nestedExecute(LockMethodMetadata metadata, String lockKey, Supplier<T> action, LockMetrics metrics, boolean timed) {
+        LOGGER.debug("{}, lock already held by current thread:{}", metadata.getDescription(), lockKey);
+        final long acquiredNanos = timed ? System.nanoTime() : 0L;
+        if (metrics != null) {
+            metrics.onAcquired(metadata, lockKey, timed ? 0L : -1L);
+        }
+        try {
+            return action.get();
+        } catch (RuntimeException | Error e) {
+            if (metrics != null) {
+                metrics.onError(metadata, lockKey, e);
+            }
+            throw e;
+        } finally {
+            if (metrics != null) {
+                metrics.onReleased(metadata, lockKey, timed ? System.nanoTime() - acquiredNanos : -1L);
+            }
+        }
+    }
+
+    /**
+     * @param required 获取失败时是否抛出LockFailException，否则返回null
+     */
+    private LockGuard lock(LockMethodMetadata metadata, String lockKey, int timeout, boolean required) {
+        final LockMetrics metrics = lockMetrics;
+        final boolean timed = metrics != null && metrics.shouldTime();
+        final HeldLocks held = HeldLocks.current();
+        if (held.contains(lockFactory, Objects.requireNonNull(lockKey, "lockKey"), metadata.getMode(), metadata.getPermits())) {
+            LOGGER.debug("{}, lock already held by current thread:{}", metadata.getDescription(), lockKey);
+            if (metrics != null) {
+                metrics.onAcquired(metadata, lockKey, timed ? 0L : -1L);
+            }
+            return new LockGuard(metadata, lockKey, null, null, null, metrics, timed, timed ? System.nanoTime() : 0L);
+        }
+        final long startNanos = timed ? System.nanoTime() : 0L;
+        final Lock lock = getLock(metadata, lockKey);
+        final int attempts = acquire(lock, metadata, lockKey, timeout, metrics);
+        final long acquiredNanos = timed ? System.nanoTime() : 0L;
+        if (attempts <= 0) {
+            LOGGER.debug("{}, get lock fail:{}", metadata.getDescription(), lockKey);
+            if (metrics != null) {
+                metrics.onRejected(metadata, lockKey, timed ? acquiredNanos - startNanos : -1L, !required);
+            }
+            if (required) {
+                throw new LockFailException(metadata.getDescription() + "...key=" + lockKey);
+            }
+            return null;
+        }
+        LOGGER.debug("{}, get lock success:{}", metadata.getDescription(), lockKey);
+        if (metrics != null) {
+            metrics.onAcquired(metadata, lockKey, timed ? acquiredNanos - startNanos : -1L);
+        }
+        held.push(lockFactory, lockKey, metadata.getMode(), metadata.getPermits());
+        return new LockGuard(metadata, lockKey, lock, held, lockFactory, metrics, timed, acquiredNanos);
+    }
+
+    private Lock getLock(LockMethodMetadata metadata, String lockKey) {
+        Objects.requireNonNull(lockKey, "lockKey");
+        Lock lock = metadata.getPermits() > 1
+                ? lockFactory.getSemaphore(lockKey, metadata.getPermits(), metadata.getLeaseTime())
+                : lockFactory.getLock(lockKey, metadata.getMode(), metadata.getLeaseTime());
+        Preconditions.checkArgument(Objects.nonNull(lock), "加锁时获取的lock为null");
+        return lock;
+    }
+
+    /**
+     * 按等待策略获取锁，与拦截器一致：BLOCKING调用一次tryLock(timeout)，其余由{@link org.fsj.lock.manager.wait.LockWaiter}重试
+     *
+     * @return 调用tryLock的次数：获取成功为正数，失败为负数，线程被中断时为0
+     */
+    private int acquire(Lock lock, LockMethodMetadata metadata, String lockKey, int timeout, LockMetrics metrics) {
+        if (metrics != null) {
+            metrics.onAcquiring(metadata, lockKey);
+        }
+        int attempts;
+        try {
+            if (metadata.getWaitStrategy() == WaitStrategy.BLOCKING) {
+                attempts = lock.tryLock(timeout, TimeUnit.MILLISECONDS) ? 1 : -1;
+            } else {
+                attempts = metadata.getLockWaiter().acquire(lock, timeout);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            attempts = 0;
+        } catch (RuntimeException | Error e) {
+            if (metrics != null) {
+                metrics.onError(metadata, lockKey, e);
+            }
+            throw e;
+        }
+        if (metrics != null && attempts != 0) {
+            metrics.onAttempted(metadata, lockKey, Math.abs(attempts));
+        }
+        return attempts;
+    }
+
+    /**
+     * 设置加锁埋点，与拦截器共用同一个实例时统计合并到一起，为null时关闭
+     */
+    public void setLockMetrics(LockMetrics lockMetrics) {
+        this.lockMetrics = lockMetrics;
+    }
+
+    public LockMetrics getLockMetrics() {
+        return lockMetrics;
+    }
+
+    public LockFactory getLockFactory() {
+        return lockFactory;
+    }
+}
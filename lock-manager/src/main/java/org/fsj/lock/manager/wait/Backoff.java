@@ -0,0 +1,33 @@
+package org.fsj.lock.manager.wait;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 指数退避：第n次重试前休眠[0, min(maxNanos, baseNanos * 2^n))内的随机时间（full jitter），且不超过截止时间
+ */
+final class Backoff {
+
+    /**
+     * 指数的上限，避免移位溢出；baseNanos不超过1秒时足够达到任意合理的maxNanos
+     */
+    private static final int MAX_SHIFT = 20;
+
+    private Backoff() {
+    }
+
+    /**
+     * @param retry         已重试的次数，从0开始
+     * @param deadlineNanos 截止时间，{@link System#nanoTime()}
+     */
+    static void pause(int retry, long baseNanos, long maxNanos, long deadlineNanos) throws InterruptedException {
+        long ceiling = Math.min(maxNanos, baseNanos << Math.min(retry, MAX_SHIFT));
+        long pauseNanos = Math.min(ThreadLocalRandom.current().nextLong(ceiling) + 1, deadlineNanos - System.nanoTime());
+        if (pauseNanos > 0) {
+            LockSupport.parkNanos(pauseNanos);
+        }
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package org.fsj.lock.manager.wait;
+
+import com.google.common.base.Preconditions;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * 反复tryLock()，两次之间按{@link Backoff 指数退避}休眠，直到超时
+ *
+ * <p>
+ * 等待期间不占用锁服务端的等待队列或订阅，重试间隔随次数增长且带随机抖动，大量等待者不会同时重试；
+ * 代价是不保证先到先得，释放后可能要等一个退避间隔才被获取。超时时刻会再尝试最后一次
+ * </p>
+ */
+public class BackoffLockWaiter implements LockWaiter {
+
+    public static final long DEFAULT_BASE_MILLIS = 1;
+
+    public static final long DEFAULT_MAX_MILLIS = 50;
+
+    private final long baseNanos;
+
+    private final long maxNanos;
+
+    public BackoffLockWaiter() {
+        this(DEFAULT_BASE_MILLIS, DEFAULT_MAX_MILLIS);
+    }
+
+    /**
+     * @param baseMillis 第一次重试前的最长间隔
+     * @param maxMillis  重试间隔的上限
+     */
+    public BackoffLockWaiter(long baseMillis, long maxMillis) {
+        Preconditions.checkArgument(baseMillis > 0 && baseMillis <= 1000, "baseMillis必须在(0, 1000]内");
+        Preconditions.checkArgument(maxMillis >= baseMillis, "maxMillis不能小于baseMillis");
+        this.baseNanos = TimeUnit.MILLISECONDS.toNanos(baseMillis);
+        this.maxNanos = TimeUnit.MILLISECONDS.toNanos(maxMillis);
+    }
+
+    @Override
+    public int acquire(Lock lock, long timeoutMillis) throws InterruptedException {
+        long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        int attempts = 0;
+        for (; ; ) {
+            attempts++;
+            if (lock.tryLock()) {
+                return attempts;
+            }
+            if (System.nanoTime() - deadlineNanos >= 0) {
+                return -attempts;
+            }
+            Backoff.pause(attempts - 1, baseNanos, maxNanos, deadlineNanos);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package org.fsj.lock.manager.wait;
+
+import com.google.common.base.Preconditions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * 在截止时间内反复tryLock(剩余时间)
+ *
+ * <p>
+ * 远程锁的一次tryLock可能因网络抖动、主从切换抛出异常，也可能因响应超时提前返回失败；
+ * 此时按{@link Backoff 指数退避}休眠后用剩余时间重试，而不是直接把异常抛给业务或提前降级。
+ * 截止时间已过仍失败时抛出最后一次异常或返回失败；timeout为0时只尝试一次
+ * </p>
+ */
+public class DeadlineRetryLockWaiter implements LockWaiter {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DeadlineRetryLockWaiter.class);
+
+    public static final long DEFAULT_BASE_MILLIS = 5;
+
+    public static final long DEFAULT_MAX_MILLIS = 100;
+
+    private final long baseNanos;
+
+    private final long maxNanos;
+
+    public DeadlineRetryLockWaiter() {
+        this(DEFAULT_BASE_MILLIS, DEFAULT_MAX_MILLIS);
+    }
+
+    /**
+     * @param baseMillis 第一次重试前的最长间隔
+     * @param maxMillis  重试间隔的上限
+     */
+    public DeadlineRetryLockWaiter(long baseMillis, long maxMillis) {
+        Preconditions.checkArgument(baseMillis > 0 && baseMillis <= 1000, "baseMillis必须在(0, 1000]内");
+        Preconditions.checkArgument(maxMillis >= baseMillis, "maxMillis不能小于baseMillis");
+        this.baseNanos = TimeUnit.MILLISECONDS.toNanos(baseMillis);
+        this.maxNanos = TimeUnit.MILLISECONDS.toNanos(maxMillis);
+    }
+
+    @Override
+    public int acquire(Lock lock, long timeoutMillis) throws InterruptedException {
+        long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        int attempts = 0;
+        for (; ; ) {
+            attempts++;
+            try {
+                if (lock.tryLock(Math.max(0L, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                    return attempts;
+                }
+                if (System.nanoTime() - deadlineNanos >= 0) {
+                    return -attempts;
+                }
+            } catch (RuntimeException e) {
+                if (System.nanoTime() - deadlineNanos >= 0) {
+                    throw e;
+                }
+                LOGGER.debug("try lock fail, retry before deadline, attempts:{}", attempts, e);
+            }
+            Backoff.pause(attempts - 1, baseNanos, maxNanos, deadlineNanos);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package org.fsj.lock.manager.wait;
+
+import java.util.concurrent.locks.Lock;
+
+/**
+ * 获取锁的等待策略实现，实例无状态、线程安全
+ */
+public interface LockWaiter {
+
+    /**
+     * 在timeoutMillis内获取锁
+     *
+     * @param timeoutMillis 等待的总时长，单位为毫秒
+     * @return 调用tryLock的次数：获取成功为正数，失败为负数，不为0
+     * @throws InterruptedException 等待期间线程被中断
+     */
+    int acquire(Lock lock, long timeoutMillis) throws InterruptedException;
+}
@@ -0,0 +1,48 @@
+package org.fsj.lock.manager.wait;
+
+import org.fsj.lock.manager.WaitStrategy;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 各{@link WaitStrategy}使用默认参数的实现
+ */
+public final class LockWaiters {
+
+    /**
+     * tryLock(timeout)，由锁实现负责等待
+     */
+    public static final LockWaiter BLOCKING = (lock, timeoutMillis) ->
+            lock.tryLock(timeoutMillis, TimeUnit.MILLISECONDS) ? 1 : -1;
+
+    /**
+     * tryLock()，忽略timeout
+     */
+    public static final LockWaiter FAIL_FAST = (lock, timeoutMillis) -> lock.tryLock() ? 1 : -1;
+
+    public static final LockWaiter SPIN_THEN_PARK = new SpinThenParkLockWaiter();
+
+    public static final LockWaiter BACKOFF = new BackoffLockWaiter();
+
+    public static final LockWaiter DEADLINE_RETRY = new DeadlineRetryLockWaiter();
+
+    private LockWaiters() {
+    }
+
+    public static LockWaiter of(WaitStrategy waitStrategy) {
+        switch (Objects.requireNonNull(waitStrategy, "waitStrategy")) {
+            case FAIL_FAST:
+                return FAIL_FAST;
+            case SPIN_THEN_PARK:
+                return SPIN_THEN_PARK;
+            case BACKOFF:
+                return BACKOFF;
+            case DEADLINE_RETRY:
+                return DEADLINE_RETRY;
+            case BLOCKING:
+            default:
+                return BLOCKING;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package org.fsj.lock.manager.wait;
+
+import com.google.common.base.Preconditions;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * 先自旋重试tryLock()，自旋时间内未获取时再tryLock(剩余时间)挂起等待
+ *
+ * <p>
+ * 持有时间只有几微秒时，持有者往往在自旋期间就释放了锁，等待者不需要挂起、被唤醒两次线程切换；
+ * 单核机器上自旋只会占用持有者的CPU，直接挂起。自旋时间不超过timeout，timeout为0时只自旋不挂起。
+ * tryLock()每次都会访问锁状态，只适合本地锁，远程锁应使用{@link BackoffLockWaiter}
+ * </p>
+ */
+public class SpinThenParkLockWaiter implements LockWaiter {
+
+    /**
+     * 默认自旋时间
+     */
+    public static final long DEFAULT_SPIN_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private static final boolean MULTI_CORE = Runtime.getRuntime().availableProcessors() > 1;
+
+    private final long spinNanos;
+
+    public SpinThenParkLockWaiter() {
+        this(DEFAULT_SPIN_NANOS);
+    }
+
+    /**
+     * @param spinNanos 自旋的最长时间，单核机器上忽略
+     */
+    public SpinThenParkLockWaiter(long spinNanos) {
+        Preconditions.checkArgument(spinNanos >= 0, "spinNanos不能小于0");
+        this.spinNanos = MULTI_CORE ? spinNanos : 0L;
+    }
+
+    @Override
+    public int acquire(Lock lock, long timeoutMillis) throws InterruptedException {
+        long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        long startNanos = System.nanoTime();
+        long spinDeadline = startNanos + Math.min(spinNanos, timeoutNanos);
+        int attempts = 0;
+        do {
+            attempts++;
+            if (lock.tryLock()) {
+                return attempts;
+            }
+        } while (System.nanoTime() - spinDeadline < 0);
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        long remaining = timeoutNanos - (System.nanoTime() - startNanos);
+        if (remaining <= 0) {
+            return -attempts;
+        }
+        attempts++;
+        return lock.tryLock(remaining, TimeUnit.NANOSECONDS) ? attempts : -attempts;
+    }
+}
@@ -0,0 +1,231 @@
+package org.fsj.lock.manager.factory;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.retry.RetryOneTime;
+import org.apache.curator.test.TestingServer;
+import org.apache.curator.utils.ZKPaths;
+import org.apache.zookeeper.Watcher;
+import org.apache.zookeeper.ZooKeeper;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 基于进程内{@link TestingServer}的ZooKeeperLockFactory测试，每个client模拟一个进程
+ */
+public class ZooKeeperLockFactoryTest {
+    private static final long WAIT_MILLIS = 10000;
+
+    private static final AtomicInteger TESTS = new AtomicInteger();
+
+    private static TestingServer server;
+
+    /**
+     * 每个测试使用独立的根节点
+     */
+    private final String basePath = "/fsj-lock-test-" + TESTS.incrementAndGet();
+
+    private final List<CuratorFramework> clients = new ArrayList<>();
+
+    @BeforeClass
+    public static void startServer() throws Exception {
+        server = new TestingServer(true);
+    }
+
+    @AfterClass
+    public static void stopServer() throws Exception {
+        server.close();
+    }
+
+    @After
+    public void closeClients() {
+        for (CuratorFramework client : clients) {
+            client.close();
+        }
+    }
+
+    @Test
+    public void encodeNodeNameEscapesSlashPercentAndReservedNames() {
+        assertEquals("order:10086", ZooKeeperLockFactory.encodeNodeName("order:10086"));
+        assertEquals("a%2Fb", ZooKeeperLockFactory.encodeNodeName("a/b"));
+        assertEquals("%2F", ZooKeeperLockFactory.encodeNodeName("/"));
+        assertEquals("100%25", ZooKeeperLockFactory.encodeNodeName("100%"));
+        assertEquals("%", ZooKeeperLockFactory.encodeNodeName(""));
+        assertEquals("%2E", ZooKeeperLockFactory.encodeNodeName("."));
+        assertEquals("%2E%2E", ZooKeeperLockFactory.encodeNodeName(".."));
+        assertEquals("...", ZooKeeperLockFactory.encodeNodeName("..."));
+        assertEquals("a%01b", ZooKeeperLockFactory.encodeNodeName("a\u0001b"));
+        assertEquals("%uD800", ZooKeeperLockFactory.encodeNodeName("\ud800"));
+        // 转义结果互不相同
+        assertNotEquals(ZooKeeperLockFactory.encodeNodeName(""), ZooKeeperLockFactory.encodeNodeName("%"));
+        assertNotEquals(ZooKeeperLockFactory.encodeNodeName("a/b"), ZooKeeperLockFactory.encodeNodeName("a%2Fb"));
+        assertNotEquals(ZooKeeperLockFactory.encodeNodeName("."), ZooKeeperLockFactory.encodeNodeName("%2E"));
+    }
+
+    @Test
+    public void escapedKeysAreSingleLevelLockPaths() throws Exception {
+        CuratorFramework client = newClient();
+        ZooKeeperLockFactory factory = new ZooKeeperLockFactory(client, basePath);
+        for (String lockKey : Arrays.asList("a/b", "", ".", "..", "100%")) {
+            Lock lock = factory.getLock(lockKey);
+            assertTrue(lockKey, lock.tryLock(WAIT_MILLIS, TimeUnit.MILLISECONDS));
+            try {
+                assertNotNull(lockKey, client.checkExists().forPath(lockPath(lockKey)));
+            } finally {
+                lock.unlock();
+            }
+        }
+        for (String child : client.getChildren().forPath(basePath)) {
+            assertFalse(child, child.contains("/"));
+        }
+    }
+
+    @Test
+    public void waitersAcquireInArrivalOrder() throws Exception {
+        CuratorFramework holderClient = newClient();
+        ZooKeeperLockFactory holder = new ZooKeeperLockFactory(holderClient, basePath);
+        Lock held = holder.getLock("fifo");
+        assertTrue(held.tryLock(WAIT_MILLIS, TimeUnit.MILLISECONDS));
+
+        int waiters = 4;
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(waiters);
+        for (int i = 0; i < waiters; i++) {
+            final int id = i;
+            Lock lock = new ZooKeeperLockFactory(newClient(), basePath).getLock("fifo");
+            Thread thread = new Thread(() -> {
+                try {
+                    if (lock.tryLock(WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+                        order.add(id);
+                        lock.unlock();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+            thread.start();
+            // 前一个等待者的顺序节点创建后再启动下一个
+            final int expected = i + 2;
+            await(() -> childCount(holderClient, "fifo") == expected);
+        }
+        held.unlock();
+        assertTrue(done.await(WAIT_MILLIS, TimeUnit.MILLISECONDS));
+        assertEquals(Arrays.asList(0, 1, 2, 3), order);
+    }
+
+    @Test
+    public void sessionExpiryReleasesLock() throws Exception {
+        CuratorFramework holderClient = newClient();
+        Lock held = new ZooKeeperLockFactory(holderClient, basePath).getLock("expiry");
+        assertTrue(held.tryLock(WAIT_MILLIS, TimeUnit.MILLISECONDS));
+
+        Lock waiter = new ZooKeeperLockFactory(newClient(), basePath).getLock("expiry");
+        assertFalse(waiter.tryLock(100, TimeUnit.MILLISECONDS));
+
+        expireSession(holderClient);
+        assertTrue(waiter.tryLock(WAIT_MILLIS, TimeUnit.MILLISECONDS));
+        waiter.unlock();
+    }
+
+    @Test
+    public void idleLockPathIsDeletedInBackground() throws Exception {
+        CuratorFramework client = newClient();
+        ZooKeeperLockFactory factory = new ZooKeeperLockFactory(client, basePath);
+        Lock lock = factory.getLock("idle");
+        assertTrue(lock.tryLock(WAIT_MILLIS, TimeUnit.MILLISECONDS));
+        assertNotNull(client.checkExists().forPath(lockPath("idle")));
+        lock.unlock();
+
+        assertEquals(0, factory.size());
+        await(() -> !exists(client, lockPath("idle")));
+    }
+
+    @Test
+    public void lockPathInUseByOtherProcessIsKept() throws Exception {
+        CuratorFramework client = newClient();
+        ZooKeeperLockFactory factory = new ZooKeeperLockFactory(client, basePath);
+        Lock other = new ZooKeeperLockFactory(newClient(), basePath).getLock("shared");
+        assertTrue(other.tryLock(WAIT_MILLIS, TimeUnit.MILLISECONDS));
+
+        Lock lock = factory.getLock("shared");
+        assertFalse(lock.tryLock(100, TimeUnit.MILLISECONDS));
+        // 后台删除因仍有子节点而失败
+        Thread.sleep(200);
+        assertNotNull(client.checkExists().forPath(lockPath("shared")));
+        other.unlock();
+
+        assertTrue(lock.tryLock(WAIT_MILLIS, TimeUnit.MILLISECONDS));
+        lock.unlock();
+        await(() -> !exists(client, lockPath("shared")));
+    }
+
+    /**
+     * 以同一个会话建立另一个连接并关闭，服务端立即结束该会话并删除其临时节点
+     */
+    private static void expireSession(CuratorFramework client) throws Exception {
+        ZooKeeper zooKeeper = client.getZookeeperClient().getZooKeeper();
+        CountDownLatch connected = new CountDownLatch(1);
+        ZooKeeper duplicate = new ZooKeeper(server.getConnectString(), (int) WAIT_MILLIS, event -> {
+            if (event.getState() == Watcher.Event.KeeperState.SyncConnected) {
+                connected.countDown();
+            }
+        }, zooKeeper.getSessionId(), zooKeeper.getSessionPasswd());
+        assertTrue(connected.await(WAIT_MILLIS, TimeUnit.MILLISECONDS));
+        duplicate.close();
+    }
+
+    private CuratorFramework newClient() {
+        CuratorFramework client = CuratorFrameworkFactory.newClient(server.getConnectString(), new RetryOneTime(100));
+        client.start();
+        clients.add(client);
+        return client;
+    }
+
+    private String lockPath(String lockKey) {
+        return ZKPaths.makePath(basePath, ZooKeeperLockFactory.encodeNodeName(lockKey));
+    }
+
+    private int childCount(CuratorFramework client, String lockKey) {
+        try {
+            return client.getChildren().forPath(lockPath(lockKey)).size();
+        } catch (Exception e) {
+            return 0;
+        }
+    }
+
+    private static boolean exists(CuratorFramework client, String path) {
+        try {
+            return client.checkExists().forPath(path) != null;
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + WAIT_MILLIS;
+        while (!condition.getAsBoolean()) {
+            assertTrue("condition not met in " + WAIT_MILLIS + "ms", System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+    }
+}